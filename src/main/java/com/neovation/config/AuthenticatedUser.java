@@ -0,0 +1,57 @@
+package com.neovation.config;
+
+import com.neovation.model.Role;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.List;
+
+/**
+ * Security principal for an authenticated user.
+ * Built from the database at login and from JWT claims on every other request.
+ */
+public class AuthenticatedUser extends User {
+    private final Long id;
+    private final String displayName;
+    private final Role role;
+    private final int tokenVersion;
+
+    public AuthenticatedUser(Long id, String email, String password, String displayName, Role role,
+                             boolean enabled, int tokenVersion) {
+        super(email, password == null ? "" : password, enabled, true, true, true,
+                List.of(new SimpleGrantedAuthority("ROLE_" + role.name())));
+        this.id = id;
+        this.displayName = displayName;
+        this.role = role;
+        this.tokenVersion = tokenVersion;
+    }
+
+    public static AuthenticatedUser from(com.neovation.model.User user) {
+        return new AuthenticatedUser(user.getId(), user.getEmail(), user.getPassword(),
+                user.getFirstName() + " " + user.getLastName(),
+                user.getRole(), user.isEnabled(), user.getTokenVersion());
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getEmail() {
+        return getUsername();
+    }
+
+    /**
+     * @return "First Last", as captured when the token was issued.
+     */
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public Role getRole() {
+        return role;
+    }
+
+    public int getTokenVersion() {
+        return tokenVersion;
+    }
+}
@@ -0,0 +1,76 @@
+package com.neovation.config;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A fixed-size Bloom filter of strings: {@link #mightContain} never returns false for an added string, and
+ * returns true for a string that was not added with roughly the probability given at construction.
+ * <p>
+ * Positions come from one 64-bit FNV-1a hash split into two halves and combined as {@code h1 + i * h2}
+ * (Kirsch-Mitzenmacher), so each add or lookup hashes the string once. Not thread-safe.
+ */
+public class BloomFilter {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final long[] bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    /**
+     * @param expectedInsertions How many strings will be added; more only raises the false positive rate.
+     * @param falsePositiveRate  Target rate at {@code expectedInsertions}, e.g. 0.01.
+     */
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        long n = Math.max(expectedInsertions, 1);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bits = new long[(int) Math.max((m + 63) / 64, 1)];
+        this.bitCount = bits.length * 64L;
+        this.hashCount = (int) Math.max(Math.round((double) bitCount / n * Math.log(2)), 1);
+    }
+
+    public void add(String value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            long index = Math.floorMod(h1 + (long) i * h2, bitCount);
+            bits[(int) (index >>> 6)] |= 1L << index;
+        }
+    }
+
+    public boolean mightContain(String value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            long index = Math.floorMod(h1 + (long) i * h2, bitCount);
+            if ((bits[(int) (index >>> 6)] & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The memory taken by the bit array, in bytes.
+     */
+    public long sizeInBytes() {
+        return bits.length * 8L;
+    }
+
+    private static long hash(String value) {
+        long hash = FNV_OFFSET;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        // FNV-1a mixes the low bits poorly; finish with the MurmurHash3 avalanche step
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,166 @@
+package com.neovation.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * BCrypt encoder that runs every hash on a small, bounded pool instead of the calling request thread.
+ * <p>
+ * A burst of logins can therefore only keep {@code poolSize} cores busy; once {@code queueCapacity}
+ * hashes are waiting, new ones are rejected with {@link PasswordHashingBusyException} (503 + Retry-After)
+ * rather than piling up behind the rest of the API.
+ * <p>
+ * {@link #upgradeEncoding(String)} flags stored hashes whose cost is lower than the current one, so
+ * DaoAuthenticationProvider re-hashes them on the next successful login. Stronger hashes are left alone: an
+ * instance configured with a lower cost must not keep rewriting them (and, with them, invalidating action
+ * tokens fingerprinted on the hash).
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+    private static final Logger log = LoggerFactory.getLogger(BoundedPasswordEncoder.class);
+
+    private final BCryptPasswordEncoder delegate;
+    private final int strength;
+    private final ThreadPoolExecutor executor;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Counter rejectedCounter;
+
+    public BoundedPasswordEncoder(int strength, int poolSize, int queueCapacity, MeterRegistry meterRegistry) {
+        this.delegate = new BCryptPasswordEncoder(strength);
+        this.strength = strength;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "password-hash-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("auth.password_hash.queue", executor, e -> e.getQueue().size())
+                .description("Password hashes waiting for a worker")
+                .register(meterRegistry);
+        Gauge.builder("auth.password_hash.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Password hashes currently running")
+                .register(meterRegistry);
+        this.encodeTimer = Timer.builder("auth.password_hash")
+                .description("Time spent hashing passwords, excluding queue wait")
+                .tag("op", "encode")
+                .register(meterRegistry);
+        this.matchesTimer = Timer.builder("auth.password_hash")
+                .description("Time spent hashing passwords, excluding queue wait")
+                .tag("op", "matches")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("auth.password_hash.rejected")
+                .description("Password hashes rejected because the queue was full")
+                .register(meterRegistry);
+
+        log.info("Password hashing: BCrypt strength {}, {} worker(s), queue capacity {}", strength, poolSize, queueCapacity);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return submit(() -> encodeTimer.record(() -> delegate.encode(rawPassword)));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return submit(() -> matchesTimer.record(() -> delegate.matches(rawPassword, encodedPassword)));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        int storedStrength = strengthOf(encodedPassword);
+        return storedStrength != -1 && storedStrength < strength;
+    }
+
+    public int getStrength() {
+        return strength;
+    }
+
+    /**
+     * Stops the worker pool. Called by Spring on context shutdown.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private <T> T submit(Supplier<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task::get);
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            log.warn("Password hashing queue is full ({} waiting); rejecting request", executor.getQueue().size());
+            throw new PasswordHashingBusyException();
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for password hashing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    /**
+     * @return The cost factor of a BCrypt hash such as "$2a$10$...", or -1 if it cannot be read.
+     */
+    static int strengthOf(String encodedPassword) {
+        if (encodedPassword == null || encodedPassword.length() < 7 || encodedPassword.charAt(0) != '$') {
+            return -1;
+        }
+        int end = encodedPassword.indexOf('$', 1);
+        if (end < 0 || encodedPassword.length() < end + 3) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(encodedPassword.substring(end + 1, end + 3));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Picks the highest BCrypt strength in [minStrength, maxStrength] whose hash time on this machine
+     * stays within targetMs. Never returns less than minStrength.
+     */
+    public static int calibrate(long targetMs, int minStrength, int maxStrength) {
+        int chosen = minStrength;
+        for (int s = minStrength; s <= maxStrength; s++) {
+            BCryptPasswordEncoder candidate = new BCryptPasswordEncoder(s);
+            candidate.encode("calibration"); // warm-up
+            long start = System.nanoTime();
+            candidate.encode("calibration");
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            log.debug("BCrypt strength {} took {} ms", s, elapsedMs);
+            if (elapsedMs > targetMs) {
+                break;
+            }
+            chosen = s;
+            // Each step doubles the cost; stop before the next one would clearly overshoot
+            if (elapsedMs * 2 > targetMs) {
+                break;
+            }
+        }
+        log.info("Calibrated BCrypt strength {} for a {} ms target", chosen, targetMs);
+        return chosen;
+    }
+}
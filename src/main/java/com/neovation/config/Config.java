@@ -1,12 +1,21 @@
 package com.neovation.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.catalina.connector.Connector;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
 import org.springframework.boot.web.server.WebServerFactoryCustomizer;
 import org.springframework.context.MessageSource;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.support.ReloadableResourceBundleMessageSource;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
 
 @Configuration
 public class Config {
@@ -19,6 +28,53 @@ public class Config {
         return messageSource;
     }
 
+    /**
+     * Reuses authenticated SMTP sessions built from the spring.mail.* settings; see {@link SmtpTransportPool}.
+     */
+    @Bean
+    public SmtpTransportPool smtpTransportPool(JavaMailSenderImpl mailSender, MeterRegistry meterRegistry,
+                                               @Value("${app.mail.smtp.pool-size:4}") int poolSize,
+                                               @Value("${app.mail.smtp.validate-after:30s}") Duration validateAfter,
+                                               @Value("${app.mail.smtp.max-idle:4m}") Duration maxIdle,
+                                               @Value("${app.mail.smtp.borrow-timeout:30s}") Duration borrowTimeout) {
+        return new SmtpTransportPool(mailSender, poolSize, validateAfter, maxIdle, borrowTimeout, meterRegistry);
+    }
+
+    /**
+     * Runs streamed responses (file downloads) on virtual threads. Each stream blocks on a slow client for as
+     * long as the client takes, which would soon exhaust the default fixed-size async pool.
+     */
+    @Bean
+    public WebMvcConfigurer streamingResponseConfigurer() {
+        return new WebMvcConfigurer() {
+            @Override
+            public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+                SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("stream-");
+                executor.setVirtualThreads(true);
+                configurer.setTaskExecutor(executor);
+            }
+        };
+    }
+
+    /**
+     * Direct buffers used to stream uploads to GCS; see {@link com.neovation.service.FileStorageService}.
+     */
+    @Bean
+    public DirectBufferPool uploadBufferPool(@Value("${gcs.upload.buffer-size:256KB}") DataSize bufferSize,
+                                             @Value("${gcs.upload.pooled-buffers:16}") int pooledBuffers) {
+        return new DirectBufferPool((int) bufferSize.toBytes(), pooledBuffers);
+    }
+
+    /**
+     * Reuses signed GCS download URLs; see {@link SignedUrlCache}.
+     */
+    @Bean
+    public SignedUrlCache signedUrlCache(MeterRegistry meterRegistry,
+                                         @Value("${gcs.signed-url-cache.max-entries:10000}") int maxEntries,
+                                         @Value("${gcs.signed-url-cache.safety-margin:5m}") Duration safetyMargin) {
+        return new SignedUrlCache(maxEntries, safetyMargin, meterRegistry);
+    }
+
     @Bean
     public WebServerFactoryCustomizer<TomcatServletWebServerFactory> tomcatCustomizer() {
         return factory -> factory.addConnectorCustomizers((Connector connector) -> {
@@ -0,0 +1,40 @@
+package com.neovation.config;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Recycles fixed-size direct {@link ByteBuffer}s for copying uploads.
+ * <p>
+ * Direct buffers live outside the Java heap and are expensive to allocate, so they are kept and reused. At most
+ * {@code maxPooled} idle buffers are retained; if more are in use at once, the extra ones are allocated on demand
+ * and dropped when released.
+ */
+public class DirectBufferPool {
+
+    private final int bufferSize;
+    private final BlockingQueue<ByteBuffer> idle;
+
+    public DirectBufferPool(int bufferSize, int maxPooled) {
+        this.bufferSize = bufferSize;
+        this.idle = new ArrayBlockingQueue<>(maxPooled);
+    }
+
+    /**
+     * @return A cleared buffer of {@link #bufferSize()} bytes. Hand it back with {@link #release(ByteBuffer)}.
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = idle.poll();
+        return buffer != null ? buffer : ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    public void release(ByteBuffer buffer) {
+        buffer.clear();
+        idle.offer(buffer);
+    }
+
+    public int bufferSize() {
+        return bufferSize;
+    }
+}
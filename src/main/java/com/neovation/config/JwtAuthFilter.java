@@ -1,5 +1,7 @@
 package com.neovation.config;
 
+import com.neovation.service.TokenVersionService;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -21,10 +23,12 @@ public class JwtAuthFilter extends OncePerRequestFilter {
     private static final Logger log = LoggerFactory.getLogger(JwtAuthFilter.class);
     final private JwtTokenProvider tokenProvider;
     final private UserDetailsService userDetailsService;
+    final private TokenVersionService tokenVersionService;
 
-    public JwtAuthFilter(JwtTokenProvider tokenProvider, UserDetailsService userDetailsService) {
+    public JwtAuthFilter(JwtTokenProvider tokenProvider, UserDetailsService userDetailsService, TokenVersionService tokenVersionService) {
         this.tokenProvider = tokenProvider;
         this.userDetailsService = userDetailsService;
+        this.tokenVersionService = tokenVersionService;
     }
 
     @Override
@@ -35,14 +39,19 @@ public class JwtAuthFilter extends OncePerRequestFilter {
             String header = req.getHeader("Authorization");
             if (header != null && header.startsWith("Bearer ")) {
                 String token = header.substring(7);
-                if (tokenProvider.validateToken(token)) {
-                    String username = tokenProvider.getUsername(token);
-                    UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-                    UsernamePasswordAuthenticationToken authToken =
-                            new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-                    authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(req));
-                    SecurityContextHolder.getContext().setAuthentication(authToken);
-                    log.debug("Authenticated user: {}, setting security context", username);
+                Claims claims = tokenProvider.parseClaims(token);
+                if (claims != null) {
+                    String username = claims.getSubject();
+                    UserDetails userDetails = resolvePrincipal(claims);
+                    if (userDetails != null) {
+                        UsernamePasswordAuthenticationToken authToken =
+                                new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+                        authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(req));
+                        SecurityContextHolder.getContext().setAuthentication(authToken);
+                        log.debug("Authenticated user: {}, setting security context", username);
+                    } else {
+                        log.warn("Rejected revoked or disabled token for user: {}", username);
+                    }
                 }
             }
         } catch (Exception e) {
@@ -50,4 +59,20 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         }
         chain.doFilter(req, res);
     }
+
+    /**
+     * Builds the principal straight from the token claims, so no user query runs per request.
+     * Returns null if the account is disabled or the token version has been bumped since issue.
+     */
+    private UserDetails resolvePrincipal(Claims claims) {
+        AuthenticatedUser principal = tokenProvider.getPrincipal(claims);
+        if (principal == null) {
+            // Token issued before user claims were embedded; fall back to a lookup
+            return userDetailsService.loadUserByUsername(claims.getSubject());
+        }
+        if (!principal.isEnabled() || !tokenVersionService.isCurrent(principal.getId(), principal.getTokenVersion())) {
+            return null;
+        }
+        return principal;
+    }
 }
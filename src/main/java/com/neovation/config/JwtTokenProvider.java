@@ -1,8 +1,10 @@
 package com.neovation.config;
 
+import com.neovation.model.Role;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import io.jsonwebtoken.security.SignatureException;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -10,43 +12,102 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
+import javax.crypto.SecretKey;
 import java.util.Date;
 
 @Component
 public class JwtTokenProvider {
     private static final Logger log = LoggerFactory.getLogger(JwtTokenProvider.class);
+    static final String CLAIM_USER_ID = "uid";
+    static final String CLAIM_NAME = "name";
+    static final String CLAIM_ROLE = "role";
+    static final String CLAIM_ENABLED = "enabled";
+    static final String CLAIM_TOKEN_VERSION = "ver";
     @Value("${jwt.secret}") private String jwtSecret;
     @Value("${jwt.expirationMs}") private long jwtExpirationMs;
+    @Value("${jwt.cache.max-entries:10000}") private int cacheMaxEntries;
+    @Value("${jwt.cache.ttl-ms:300000}") private long cacheTtlMs;
+
+    // Built once at startup; both are immutable and thread-safe.
+    private SecretKey signingKey;
+    private JwtParser parser;
+    private VerifiedTokenCache verifiedTokens;
+
+    @PostConstruct
+    public void init() {
+        this.signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+        this.verifiedTokens = new VerifiedTokenCache(cacheMaxEntries, cacheTtlMs);
+        log.info("JWT provider initialized (verified-token cache: {} entries, ttl {} ms)", cacheMaxEntries, cacheTtlMs);
+    }
 
     public String generateToken(Authentication auth) {
-        UserDetails userDetails = (UserDetails) auth.getPrincipal();
+        return generateToken((UserDetails) auth.getPrincipal());
+    }
+
+    /**
+     * Issues an access token for a principal that is already authenticated, e.g. by a refresh token.
+     */
+    public String generateToken(UserDetails userDetails) {
         Date now = new Date();
         Date expiry = new Date(now.getTime() + jwtExpirationMs);
 
-        return Jwts.builder()
+        JwtBuilder builder = Jwts.builder()
                 .setSubject(userDetails.getUsername())
                 .setIssuedAt(now)
-                .setExpiration(expiry)
-                .signWith(Keys.hmacShaKeyFor(jwtSecret.getBytes()))
-                .compact();
+                .setExpiration(expiry);
+        // Embed what the auth filter needs so it can authenticate without loading the user
+        if (userDetails instanceof AuthenticatedUser user) {
+            builder.claim(CLAIM_USER_ID, user.getId())
+                    .claim(CLAIM_NAME, user.getDisplayName())
+                    .claim(CLAIM_ROLE, user.getRole().name())
+                    .claim(CLAIM_ENABLED, user.isEnabled())
+                    .claim(CLAIM_TOKEN_VERSION, user.getTokenVersion());
+        }
+        return builder.signWith(signingKey).compact();
     }
 
-    public String getUsername(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(jwtSecret.getBytes())
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+    /**
+     * Rebuilds the principal from verified claims.
+     *
+     * @return The principal, or null for tokens issued before user claims were embedded.
+     */
+    public AuthenticatedUser getPrincipal(Claims claims) {
+        Number userId = claims.get(CLAIM_USER_ID, Number.class);
+        String role = claims.get(CLAIM_ROLE, String.class);
+        if (userId == null || role == null) {
+            return null;
+        }
+        Boolean enabled = claims.get(CLAIM_ENABLED, Boolean.class);
+        Number tokenVersion = claims.get(CLAIM_TOKEN_VERSION, Number.class);
+        return new AuthenticatedUser(
+                userId.longValue(),
+                claims.getSubject(),
+                null,
+                claims.get(CLAIM_NAME, String.class),
+                Role.valueOf(role),
+                Boolean.TRUE.equals(enabled),
+                tokenVersion == null ? 0 : tokenVersion.intValue());
     }
 
-    public boolean validateToken(String token) {
+    /**
+     * Verifies the token and returns its claims in a single parse.
+     * Tokens verified recently are served from an expiry-aware cache without re-checking the signature.
+     *
+     * @param token The raw JWT (without the "Bearer " prefix).
+     * @return The verified claims, or null if the token is invalid or expired.
+     */
+    public Claims parseClaims(String token) {
+        Claims cached = verifiedTokens.get(token);
+        if (cached != null) {
+            return cached;
+        }
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(jwtSecret.getBytes())
-                    .build()
-                    .parseClaimsJws(token);
-            return true;
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            verifiedTokens.put(token, claims);
+            return claims;
         } catch (SignatureException e) {
             log.error("Invalid JWT signature: {}", e.getMessage());
         } catch (MalformedJwtException e) {
@@ -58,6 +119,6 @@ public class JwtTokenProvider {
         } catch (IllegalArgumentException e) {
             log.error("JWT claims string is empty: {}", e.getMessage());
         }
-        return false;
+        return null;
     }
 }
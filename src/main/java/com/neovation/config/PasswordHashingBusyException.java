@@ -0,0 +1,12 @@
+package com.neovation.config;
+
+/**
+ * Thrown when the password hashing queue is full. Mapped to 503 with a Retry-After header.
+ */
+public class PasswordHashingBusyException extends RuntimeException {
+    public static final int RETRY_AFTER_SECONDS = 1;
+
+    public PasswordHashingBusyException() {
+        super("Too many sign-in attempts right now. Please retry shortly.");
+    }
+}
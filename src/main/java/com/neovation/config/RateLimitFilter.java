@@ -0,0 +1,219 @@
+package com.neovation.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate limits the public, expensive endpoints (login, register, forgot-password, request submission)
+ * per client IP and per submitted email, using the budgets in {@link RateLimitProperties}.
+ * Runs ahead of the security filter chain so rejected calls cost no BCrypt, SMTP or GCS work.
+ */
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER - 10)
+public class RateLimitFilter extends OncePerRequestFilter {
+    private static final Logger log = LoggerFactory.getLogger(RateLimitFilter.class);
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    private final RateLimitProperties properties;
+    private final TokenBucketLimiter limiter;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper;
+
+    public RateLimitFilter(RateLimitProperties properties, MeterRegistry meterRegistry, ObjectMapper objectMapper) {
+        this.properties = properties;
+        this.limiter = new TokenBucketLimiter(properties.getMaxBuckets());
+        this.meterRegistry = meterRegistry;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !properties.isEnabled() || findRoute(request) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest req, HttpServletResponse res, FilterChain chain)
+            throws ServletException, IOException {
+        Map.Entry<String, RateLimitProperties.Route> match = findRoute(req);
+        String routeName = match.getKey();
+        RateLimitProperties.Route route = match.getValue();
+
+        if (route.getIp() != null) {
+            String ip = clientIp(req);
+            if (rejected(res, routeName, "ip", ip, route.getIp())) {
+                return;
+            }
+        }
+
+        HttpServletRequest forwarded = req;
+        if (route.getEmail() != null) {
+            String email = null;
+            if (!isJson(req)) {
+                email = req.getParameter("email");
+            } else {
+                // Larger than any legitimate auth payload. Rejected rather than forwarded without an email
+                // budget, which would let padded requests skip it.
+                byte[] body = req.getContentLengthLong() > properties.getMaxBodyBytes()
+                        ? null : req.getInputStream().readNBytes(properties.getMaxBodyBytes() + 1);
+                if (body == null || body.length > properties.getMaxBodyBytes()) {
+                    res.sendError(HttpStatus.PAYLOAD_TOO_LARGE.value());
+                    return;
+                }
+                forwarded = new CachedBodyRequest(req, body);
+                email = emailFromJson(body);
+            }
+            if (email != null && !email.isBlank()
+                    && rejected(res, routeName, "email", email.trim().toLowerCase(Locale.ROOT), route.getEmail())) {
+                return;
+            }
+        }
+
+        chain.doFilter(forwarded, res);
+    }
+
+    private boolean rejected(HttpServletResponse res, String routeName, String keyType, String key,
+                             RateLimitProperties.Budget budget) throws IOException {
+        long waitNanos = limiter.tryAcquire(routeName + '|' + keyType + '|' + key, budget.getCapacity(), budget.getPeriod());
+        if (waitNanos == 0) {
+            return false;
+        }
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+        meterRegistry.counter("http.rate_limit.rejected", "route", routeName, "key", keyType).increment();
+        log.warn("Rate limit exceeded on route {} for {} {}; retry after {}s", routeName, keyType, key, retryAfterSeconds);
+
+        res.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        res.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        res.setContentType(MediaType.TEXT_PLAIN_VALUE);
+        res.getWriter().write("Too many requests. Please retry later.");
+        return true;
+    }
+
+    private Map.Entry<String, RateLimitProperties.Route> findRoute(HttpServletRequest req) {
+        String path = req.getRequestURI().substring(req.getContextPath().length());
+        for (Map.Entry<String, RateLimitProperties.Route> entry : properties.getRoutes().entrySet()) {
+            RateLimitProperties.Route route = entry.getValue();
+            if ((route.getMethod() == null || route.getMethod().equalsIgnoreCase(req.getMethod()))
+                    && route.getPath() != null && PATH_MATCHER.match(route.getPath(), path)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The client address as seen by the outermost trusted proxy; X-Forwarded-For entries to the left of it
+     * are client-supplied and cannot be trusted.
+     */
+    String clientIp(HttpServletRequest req) {
+        String forwardedFor = req.getHeader("X-Forwarded-For");
+        int hops = properties.getTrustedProxyHops();
+        if (forwardedFor == null || forwardedFor.isBlank() || hops <= 0) {
+            return req.getRemoteAddr();
+        }
+        String[] parts = forwardedFor.split(",");
+        int index = Math.max(0, parts.length - hops);
+        return parts[index].trim();
+    }
+
+    private String emailFromJson(byte[] body) {
+        try {
+            JsonNode email = objectMapper.readTree(body).get("email");
+            return email != null && email.isTextual() ? email.asText() : null;
+        } catch (IOException e) {
+            // Malformed body; the controller will reject it
+            return null;
+        }
+    }
+
+    private static boolean isJson(HttpServletRequest req) {
+        String contentType = req.getContentType();
+        return contentType != null && contentType.toLowerCase(Locale.ROOT).contains("json");
+    }
+
+    /**
+     * Buffers a small request body so it can be read here and again by the controller.
+     */
+    private static class CachedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    getCharacterEncoding() != null ? Charset.forName(getCharacterEncoding()) : StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.neovation.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-route budgets for {@link RateLimitFilter}, bound from {@code app.rate-limit.*}.
+ * <pre>
+ * app.rate-limit.routes.login.method=POST
+ * app.rate-limit.routes.login.path=/api/auth/login
+ * app.rate-limit.routes.login.ip.capacity=20
+ * app.rate-limit.routes.login.ip.period=1m
+ * app.rate-limit.routes.login.email.capacity=5
+ * app.rate-limit.routes.login.email.period=1m
+ * </pre>
+ */
+@Component
+@ConfigurationProperties(prefix = "app.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    // Upper bound on tracked buckets before idle ones are swept
+    private int maxBuckets = 100_000;
+
+    // Number of X-Forwarded-For entries, counted from the right, added by trusted proxies (Cloud Run adds one)
+    private int trustedProxyHops = 1;
+
+    // Largest JSON body buffered to read the email key from
+    private int maxBodyBytes = 16 * 1024;
+
+    private Map<String, Route> routes = new LinkedHashMap<>();
+
+    public static class Route {
+        private String method;
+        private String path;
+        private Budget ip;
+        private Budget email;
+
+        public String getMethod() {
+            return method;
+        }
+
+        public void setMethod(String method) {
+            this.method = method;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public void setPath(String path) {
+            this.path = path;
+        }
+
+        public Budget getIp() {
+            return ip;
+        }
+
+        public void setIp(Budget ip) {
+            this.ip = ip;
+        }
+
+        public Budget getEmail() {
+            return email;
+        }
+
+        public void setEmail(Budget email) {
+            this.email = email;
+        }
+    }
+
+    public static class Budget {
+        private int capacity;
+        private Duration period = Duration.ofMinutes(1);
+
+        public Budget() {
+        }
+
+        public Budget(int capacity, Duration period) {
+            this.capacity = capacity;
+            this.period = period;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(int capacity) {
+            this.capacity = capacity;
+        }
+
+        public Duration getPeriod() {
+            return period;
+        }
+
+        public void setPeriod(Duration period) {
+            this.period = period;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxBuckets() {
+        return maxBuckets;
+    }
+
+    public void setMaxBuckets(int maxBuckets) {
+        this.maxBuckets = maxBuckets;
+    }
+
+    public int getTrustedProxyHops() {
+        return trustedProxyHops;
+    }
+
+    public void setTrustedProxyHops(int trustedProxyHops) {
+        this.trustedProxyHops = trustedProxyHops;
+    }
+
+    public int getMaxBodyBytes() {
+        return maxBodyBytes;
+    }
+
+    public void setMaxBodyBytes(int maxBodyBytes) {
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    public Map<String, Route> getRoutes() {
+        return routes;
+    }
+
+    public void setRoutes(Map<String, Route> routes) {
+        this.routes = routes;
+    }
+}
@@ -1,5 +1,6 @@
 package com.neovation.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -9,8 +10,6 @@ import org.springframework.security.config.annotation.authentication.configurati
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
@@ -27,9 +26,35 @@ public class SecurityConfig {
     @Value("${app.frontend.url}")
     String frontendUrl;
 
+    // 0 = calibrate at startup to bcrypt.target-ms; pin it in production so all instances agree
+    @Value("${app.password.bcrypt.strength:0}")
+    int bcryptStrength;
+
+    @Value("${app.password.bcrypt.target-ms:250}")
+    long bcryptTargetMs;
+
+    @Value("${app.password.bcrypt.min-strength:10}")
+    int bcryptMinStrength;
+
+    @Value("${app.password.bcrypt.max-strength:14}")
+    int bcryptMaxStrength;
+
+    // 0 = half the available cores
+    @Value("${app.password.hash.pool-size:0}")
+    int hashPoolSize;
+
+    @Value("${app.password.hash.queue-capacity:64}")
+    int hashQueueCapacity;
+
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public BoundedPasswordEncoder passwordEncoder(MeterRegistry meterRegistry) {
+        int strength = bcryptStrength > 0
+                ? bcryptStrength
+                : BoundedPasswordEncoder.calibrate(bcryptTargetMs, bcryptMinStrength, bcryptMaxStrength);
+        int poolSize = hashPoolSize > 0
+                ? hashPoolSize
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        return new BoundedPasswordEncoder(strength, poolSize, hashQueueCapacity, meterRegistry);
     }
 
     @Bean
@@ -46,9 +71,13 @@ public class SecurityConfig {
                 .csrf(csrf -> csrf.disable())
                 .sessionManagement(sess -> sess.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                         .requestMatchers("/api/users/me").authenticated()
                         .requestMatchers("/api/auth/**").permitAll()
                         .requestMatchers("/api/payments/confirm-session").permitAll()
+                        // Local blob store: access is granted by the signed URL itself
+                        .requestMatchers("/api/files/**").permitAll()
                         .requestMatchers("/api/requests/{requestId}/reviews/**").authenticated()
                         .requestMatchers("/api/requests/{requestId}/notes/**").hasAnyRole("ADMIN", "STAFF", "MANAGER")
 //                        .requestMatchers(HttpMethod.GET, "/api/requests/user/**").hasAnyRole("ADMIN", "STAFF", "MANAGER")
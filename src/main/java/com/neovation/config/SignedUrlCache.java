@@ -0,0 +1,177 @@
+package com.neovation.config;
+
+import com.google.cloud.storage.HttpMethod;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Reuses signed GCS URLs until shortly before they expire.
+ * <p>
+ * Without a local service account key, every {@code Storage.signUrl} is a remote IAM {@code signBlob} call, and
+ * pages showing profile pictures ask for the same URLs over and over. An entry keyed by (bucket, blob, download
+ * file name, method) is served until {@code safetyMargin} before the URL expires, so a client always gets at least that long to use
+ * it. Concurrent misses for one key wait for a single signing call. A failed signing is not cached.
+ * <p>
+ * At most {@code maxEntries} URLs are kept; when full, expired entries are dropped first, then those closest to
+ * expiry.
+ * <p>
+ * Metrics: {@code storage.signed_url.cache} counter tagged by {@code result} (hit / miss), the
+ * {@code storage.signed_url.cache.hit_ratio} and {@code storage.signed_url.cache.size} gauges, and the
+ * {@code storage.signed_url.sign} timer.
+ */
+public class SignedUrlCache {
+    private static final Logger log = LoggerFactory.getLogger(SignedUrlCache.class);
+
+    private final int maxEntries;
+    private final long safetyMarginNanos;
+    private final Map<Key, CompletableFuture<Entry>> entries = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Timer signTimer;
+
+    private record Key(String bucket, String blobPath, String fileName, HttpMethod method) {
+    }
+
+    private record Entry(String url, long refreshAtNanos) {
+        boolean isFresh(long now) {
+            return now - refreshAtNanos < 0;
+        }
+    }
+
+    public SignedUrlCache(int maxEntries, Duration safetyMargin, MeterRegistry meterRegistry) {
+        this.maxEntries = maxEntries;
+        this.safetyMarginNanos = safetyMargin.toNanos();
+
+        this.hits = Counter.builder("storage.signed_url.cache")
+                .description("Signed URL lookups")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("storage.signed_url.cache")
+                .description("Signed URL lookups")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        this.signTimer = Timer.builder("storage.signed_url.sign")
+                .description("Time spent signing a GCS URL")
+                .register(meterRegistry);
+        Gauge.builder("storage.signed_url.cache.hit_ratio", this, c -> c.hitRatio())
+                .description("Share of signed URL lookups served from the cache")
+                .register(meterRegistry);
+        Gauge.builder("storage.signed_url.cache.size", entries, Map::size)
+                .description("Signed URLs currently cached")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns a cached URL for the blob, or signs one with {@code signer}.
+     *
+     * @param lifetime How long URLs produced by {@code signer} stay valid.
+     */
+    public String get(String bucket, String blobPath, HttpMethod method, Duration lifetime, Supplier<String> signer) {
+        return get(bucket, blobPath, null, method, lifetime, signer);
+    }
+
+    /**
+     * Returns a cached URL for the blob under a download file name, or signs one with {@code signer}. Attachments
+     * sharing one deduplicated blob can have different names, so each name gets its own URL.
+     *
+     * @param fileName The name the URL makes the browser save the file as; null for none.
+     * @param lifetime How long URLs produced by {@code signer} stay valid.
+     */
+    public String get(String bucket, String blobPath, String fileName, HttpMethod method, Duration lifetime,
+                      Supplier<String> signer) {
+        Key key = new Key(bucket, blobPath, fileName, method);
+        while (true) {
+            CompletableFuture<Entry> existing = entries.get(key);
+            if (existing != null) {
+                if (!existing.isDone()) {
+                    // Another thread is signing this key right now; share its result
+                    hits.increment();
+                    return join(existing).url();
+                }
+                Entry entry = existing.getNow(null);
+                if (entry != null && entry.isFresh(System.nanoTime())) {
+                    hits.increment();
+                    return entry.url();
+                }
+                entries.remove(key, existing);
+                continue;
+            }
+
+            CompletableFuture<Entry> mine = new CompletableFuture<>();
+            if (entries.putIfAbsent(key, mine) != null) {
+                continue;
+            }
+            misses.increment();
+            try {
+                long signedAt = System.nanoTime();
+                String url = signTimer.record(signer);
+                Entry entry = new Entry(url, signedAt + lifetime.toNanos() - safetyMarginNanos);
+                mine.complete(entry);
+                evictIfFull();
+                return url;
+            } catch (RuntimeException e) {
+                entries.remove(key, mine);
+                mine.completeExceptionally(e);
+                throw e;
+            }
+        }
+    }
+
+    double hitRatio() {
+        double hit = hits.count();
+        double total = hit + misses.count();
+        return total == 0 ? 0 : hit / total;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private void evictIfFull() {
+        if (entries.size() <= maxEntries) {
+            return;
+        }
+        long now = System.nanoTime();
+        entries.entrySet().removeIf(e -> {
+            Entry entry = e.getValue().getNow(null);
+            return entry != null && !entry.isFresh(now);
+        });
+        int excess = entries.size() - maxEntries;
+        if (excess <= 0) {
+            return;
+        }
+        // Still full of live URLs: drop a tenth of the capacity, soonest-to-expire first, so this is rare
+        List<Map.Entry<Key, CompletableFuture<Entry>>> done = entries.entrySet().stream()
+                .filter(e -> e.getValue().getNow(null) != null)
+                .sorted(Comparator.comparingLong(e -> e.getValue().getNow(null).refreshAtNanos() - now))
+                .limit(excess + maxEntries / 10)
+                .toList();
+        done.forEach(e -> entries.remove(e.getKey(), e.getValue()));
+        log.debug("Signed URL cache full; evicted {} entries", done.size());
+    }
+
+    private static Entry join(CompletableFuture<Entry> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.neovation.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.mail.Address;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.time.Duration;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A small pool of connected, authenticated SMTP sessions.
+ * <p>
+ * {@link JavaMailSenderImpl#send} opens a new TCP + STARTTLS + AUTH session for every call, which costs several
+ * round trips before the first byte of mail. Here a borrowed {@link Connection} stays logged in, so any number of
+ * messages can be sent over it back to back.
+ * <p>
+ * Servers drop idle sessions (Gmail after a few minutes), so a connection that has been idle longer than
+ * {@code validateAfter} is checked with a NOOP before use, one idle longer than {@code maxIdle} is simply
+ * reopened, and a send that fails because the session went away is retried once on a fresh one.
+ */
+public class SmtpTransportPool implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(SmtpTransportPool.class);
+
+    private final Session session;
+    private final String protocol;
+    private final String host;
+    private final int port;
+    private final String username;
+    private final String password;
+    private final long validateAfterNanos;
+    private final long maxIdleNanos;
+    private final Duration borrowTimeout;
+
+    // Most recently used first, so a quiet period only keeps the front connections warm
+    private final BlockingDeque<Connection> idle = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final Counter connectCounter;
+    private volatile boolean closed;
+
+    public SmtpTransportPool(JavaMailSenderImpl settings, int size, Duration validateAfter, Duration maxIdle,
+                             Duration borrowTimeout, MeterRegistry meterRegistry) {
+        this.session = settings.getSession();
+        this.protocol = settings.getProtocol() != null ? settings.getProtocol() : "smtp";
+        this.host = settings.getHost();
+        this.port = settings.getPort();
+        this.username = settings.getUsername();
+        this.password = settings.getPassword();
+        this.validateAfterNanos = validateAfter.toNanos();
+        this.maxIdleNanos = maxIdle.toNanos();
+        this.borrowTimeout = borrowTimeout;
+        this.permits = new Semaphore(size, true);
+
+        this.connectCounter = Counter.builder("mail.smtp.connects")
+                .description("SMTP sessions opened (connect + STARTTLS + AUTH)")
+                .register(meterRegistry);
+        Gauge.builder("mail.smtp.idle_connections", idle, BlockingDeque::size)
+                .description("Connected SMTP sessions waiting to be reused")
+                .register(meterRegistry);
+
+        log.info("SMTP transport pool: {} connection(s) to {}:{}", size, host, port);
+    }
+
+    /**
+     * Takes a connected session from the pool, opening one if needed. Close it to hand it back.
+     *
+     * @throws MessagingException if no connection frees up within the borrow timeout or connecting fails.
+     */
+    public Connection borrow() throws MessagingException {
+        if (closed) {
+            throw new MessagingException("SMTP transport pool is closed");
+        }
+        try {
+            if (!permits.tryAcquire(borrowTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new MessagingException("Timed out waiting for an SMTP connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted while waiting for an SMTP connection", e);
+        }
+
+        Connection connection = idle.pollFirst();
+        if (connection == null) {
+            connection = new Connection();
+        }
+        try {
+            connection.ensureConnected();
+            return connection;
+        } catch (MessagingException | RuntimeException e) {
+            connection.disconnect();
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Disconnects every idle session. Sessions still borrowed are disconnected when they are returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        Connection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            connection.disconnect();
+        }
+    }
+
+    private void release(Connection connection) {
+        if (closed) {
+            connection.disconnect();
+        } else {
+            idle.offerFirst(connection);
+        }
+        permits.release();
+    }
+
+    /**
+     * One pooled SMTP session. Not thread-safe: use it from the thread that borrowed it, then close it.
+     */
+    public class Connection implements AutoCloseable {
+        private Transport transport;
+        private long lastUsedNanos;
+
+        private Connection() {
+        }
+
+        public void send(MimeMessage message) throws MessagingException {
+            // Same as JavaMailSenderImpl: finalises headers (Message-ID, content transfer encodings)
+            message.saveChanges();
+            Address[] recipients = message.getAllRecipients();
+            ensureConnected();
+            try {
+                transport.sendMessage(message, recipients);
+            } catch (MessagingException | IllegalStateException e) {
+                if (transport.isConnected()) {
+                    // Rejected by the server (e.g. bad recipient); the session itself is fine
+                    throw e;
+                }
+                log.info("SMTP session to {} dropped during send ({}); reconnecting", host, e.getMessage());
+                reconnect();
+                transport.sendMessage(message, recipients);
+            }
+            lastUsedNanos = System.nanoTime();
+        }
+
+        /**
+         * Returns the session to the pool.
+         */
+        @Override
+        public void close() {
+            release(this);
+        }
+
+        private void ensureConnected() throws MessagingException {
+            if (transport == null) {
+                reconnect();
+                return;
+            }
+            long idleNanos = System.nanoTime() - lastUsedNanos;
+            if (idleNanos > maxIdleNanos) {
+                reconnect();
+            } else if (idleNanos > validateAfterNanos && !transport.isConnected()) {
+                log.debug("Idle SMTP session to {} was closed by the server; reconnecting", host);
+                reconnect();
+            }
+        }
+
+        private void reconnect() throws MessagingException {
+            disconnect();
+            Transport fresh = session.getTransport(protocol);
+            fresh.connect(host, port, username, password);
+            connectCounter.increment();
+            transport = fresh;
+            lastUsedNanos = System.nanoTime();
+        }
+
+        private void disconnect() {
+            if (transport == null) {
+                return;
+            }
+            try {
+                transport.close();
+            } catch (MessagingException e) {
+                log.debug("Error closing SMTP session to {}: {}", host, e.getMessage());
+            }
+            transport = null;
+        }
+    }
+}
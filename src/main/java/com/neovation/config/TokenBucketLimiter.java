@@ -0,0 +1,95 @@
+package com.neovation.config;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free token buckets, one per key.
+ * <p>
+ * Each bucket is a single AtomicLong holding its "theoretical arrival time" (GCRA): a request is allowed
+ * while that time stays within one period of now, and consumes one refill interval. This behaves exactly
+ * like a bucket of {@code capacity} tokens refilled evenly over {@code period}, but needs one CAS per
+ * request and no timer. Buckets live in a ConcurrentHashMap, whose bins stripe contention across keys.
+ * <p>
+ * The map is capped at {@code maxBuckets}. When it fills up, refilled buckets are dropped first; if that is not
+ * enough (a spray of distinct keys), the buckets closest to refilled go next, until a tenth of the room is free.
+ */
+public class TokenBucketLimiter {
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    private final int maxBuckets;
+    private final LongSupplier nanoClock;
+
+    public TokenBucketLimiter(int maxBuckets) {
+        this(maxBuckets, System::nanoTime);
+    }
+
+    TokenBucketLimiter(int maxBuckets, LongSupplier nanoClock) {
+        this.maxBuckets = maxBuckets;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Takes one token from the bucket for this key.
+     *
+     * @return 0 if the request is allowed, otherwise the nanoseconds until the next token is available.
+     */
+    public long tryAcquire(String key, int capacity, Duration period) {
+        long now = nanoClock.getAsLong();
+        long periodNanos = period.toNanos();
+        long interval = periodNanos / capacity;
+
+        AtomicLong tat = buckets.get(key);
+        if (tat == null) {
+            evictIfFull(now);
+            tat = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+
+        while (true) {
+            long current = tat.get();
+            long next = Math.max(current, now) + interval;
+            long excess = next - now - periodNanos;
+            if (excess > 0) {
+                return excess;
+            }
+            if (tat.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    /**
+     * Brings the map back under {@code maxBuckets}, keeping the buckets that are furthest from refilled: those
+     * carry the most state, and an attacker's single-request keys are the cheapest to forget.
+     * Evicts down to 90% so the O(n) sweep runs at most once per tenth of {@code maxBuckets} new keys;
+     * only one thread sweeps at a time, the others insert meanwhile.
+     */
+    private void evictIfFull(long now) {
+        if (buckets.size() < maxBuckets || !sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            // Refilled buckets are indistinguishable from new ones
+            buckets.values().removeIf(tat -> tat.get() <= now);
+            int excess = buckets.size() - (maxBuckets - maxBuckets / 10);
+            if (excess <= 0) {
+                return;
+            }
+            long[] tats = buckets.values().stream().mapToLong(AtomicLong::get).sorted().toArray();
+            if (tats.length == 0) {
+                return;
+            }
+            long cutoff = tats[Math.min(excess, tats.length) - 1];
+            buckets.values().removeIf(tat -> tat.get() <= cutoff);
+        } finally {
+            sweeping.set(false);
+        }
+    }
+}
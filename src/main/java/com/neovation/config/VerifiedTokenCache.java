@@ -0,0 +1,110 @@
+package com.neovation.config;
+
+import io.jsonwebtoken.Claims;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded cache of JWTs whose signature has already been verified.
+ * Entries are keyed by the SHA-256 of the raw token (the token itself is never stored)
+ * and never outlive the token's own "exp" claim.
+ */
+public class VerifiedTokenCache {
+
+    private final int maxEntries;
+    private final long maxTtlMs;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private record Entry(Claims claims, long expiresAtMs) {
+    }
+
+    public VerifiedTokenCache(int maxEntries, long maxTtlMs) {
+        this.maxEntries = maxEntries;
+        this.maxTtlMs = maxTtlMs;
+    }
+
+    public boolean isEnabled() {
+        return maxEntries > 0 && maxTtlMs > 0;
+    }
+
+    /**
+     * Returns the cached claims for this token, or null if it is unknown or expired.
+     */
+    public Claims get(String token) {
+        if (!isEnabled()) {
+            return null;
+        }
+        String key = hash(token);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAtMs() <= System.currentTimeMillis()) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.claims();
+    }
+
+    public void put(String token, Claims claims) {
+        if (!isEnabled()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long expiresAt = now + maxTtlMs;
+        Date tokenExpiry = claims.getExpiration();
+        if (tokenExpiry != null) {
+            expiresAt = Math.min(expiresAt, tokenExpiry.getTime());
+        }
+        if (expiresAt <= now) {
+            return;
+        }
+        if (entries.size() >= maxEntries) {
+            evict(now);
+        }
+        entries.put(hash(token), new Entry(claims, expiresAt));
+    }
+
+    /**
+     * Drops a token so the next request goes through full verification again.
+     */
+    public void invalidate(String token) {
+        entries.remove(hash(token));
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void evict(long now) {
+        entries.values().removeIf(entry -> entry.expiresAtMs() <= now);
+        // Still full: drop arbitrary entries until there is 10% headroom.
+        int target = maxEntries - Math.max(1, maxEntries / 10);
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (entries.size() > target && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hashed = digest.digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hashed);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -1,10 +1,15 @@
 package com.neovation.controller;
 
+import com.neovation.dto.StorageSavingsDto;
 import com.neovation.repository.UserRepository;
 import com.neovation.model.User;
+import com.neovation.service.OrphanBlobReconciler;
+import com.neovation.service.StorageSavingsService;
+import com.neovation.service.TokenVersionService;
 import com.neovation.service.UserService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -20,11 +25,17 @@ public class AdminController {
     final private UserRepository userRepo;
     final private PasswordEncoder passwordEncoder;
     final private UserService userService;
+    final private TokenVersionService tokenVersionService;
+    final private StorageSavingsService storageSavingsService;
+    final private OrphanBlobReconciler orphanBlobReconciler;
 
-    public AdminController(UserRepository userRepo, PasswordEncoder passwordEncoder, UserService userService) {
+    public AdminController(UserRepository userRepo, PasswordEncoder passwordEncoder, UserService userService, TokenVersionService tokenVersionService, StorageSavingsService storageSavingsService, OrphanBlobReconciler orphanBlobReconciler) {
         this.userRepo = userRepo;
         this.passwordEncoder = passwordEncoder;
         this.userService = userService;
+        this.tokenVersionService = tokenVersionService;
+        this.storageSavingsService = storageSavingsService;
+        this.orphanBlobReconciler = orphanBlobReconciler;
     }
 
     @GetMapping("/users")
@@ -43,6 +54,8 @@ public class AdminController {
         log.info("Admin attempting to update user with ID: {}", id);
         return userRepo.findById(id)
                 .map(user -> {
+                    boolean credentialsChanged = !user.getEmail().equals(updatedUser.getEmail())
+                            || user.getRole() != updatedUser.getRole();
                     user.setFirstName(updatedUser.getFirstName());
                     user.setLastName(updatedUser.getLastName());
                     user.setCompanyName(updatedUser.getCompanyName());
@@ -50,8 +63,13 @@ public class AdminController {
                     user.setPhone(updatedUser.getPhone());
                     if (!updatedUser.getPassword().isBlank()) {
                         user.setPassword(passwordEncoder.encode(updatedUser.getPassword()));
+                        credentialsChanged = true;
                     }
                     user.setRole(updatedUser.getRole()); // Optional: only if changing role
+                    if (credentialsChanged) {
+                        // Existing tokens carry the old email/role; force a fresh login
+                        tokenVersionService.bump(user);
+                    }
                     User savedUser = userRepo.save(user);
                     log.info("Admin successfully updated user ID: {}", id);
                     return ResponseEntity.ok(savedUser);
@@ -70,8 +88,31 @@ public class AdminController {
             return ResponseEntity.notFound().build();
         }
         userRepo.deleteById(id);
+        tokenVersionService.revoke(id);
         log.info("Admin successfully deleted user ID: {}", id);
         return ResponseEntity.ok("User deleted");
     }
-}
 
+    /**
+     * Bytes saved by storing compressible attachments gzipped, per file purpose.
+     */
+    @GetMapping("/storage/savings")
+    public List<StorageSavingsDto> getStorageSavings(@AuthenticationPrincipal UserDetails userDetails) {
+        log.info("Admin/Manager/Staff {} fetching storage savings report", userDetails.getUsername());
+        return storageSavingsService.report();
+    }
+
+    /**
+     * Dry run of the orphan blob reconciler: lists files no row points at without touching them. Scans the
+     * whole bucket, so it can take a while.
+     */
+    @GetMapping("/storage/orphans")
+    public ResponseEntity<?> getOrphanBlobs(@AuthenticationPrincipal UserDetails userDetails) {
+        log.info("Admin/Manager/Staff {} running an orphan blob dry run", userDetails.getUsername());
+        try {
+            return ResponseEntity.ok(orphanBlobReconciler.reconcile(OrphanBlobReconciler.Action.REPORT));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+    }
+}
\ No newline at end of file
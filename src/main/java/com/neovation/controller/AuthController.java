@@ -1,11 +1,14 @@
 package com.neovation.controller;
 
+import com.neovation.config.AuthenticatedUser;
 import com.neovation.config.JwtTokenProvider;
+import com.neovation.config.PasswordHashingBusyException;
 import com.neovation.dto.AuthRequest;
 import com.neovation.dto.AuthResponse;
 import com.neovation.dto.NewUserDto;
 import com.neovation.dto.ResetPasswordDto;
 import com.neovation.model.User;
+import com.neovation.service.RefreshTokenService;
 import com.neovation.service.UserService;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
@@ -32,11 +35,13 @@ public class AuthController {
     final private UserService userService;
     final private AuthenticationManager authManager;
     final private JwtTokenProvider jwtProvider;
+    final private RefreshTokenService refreshTokenService;
 
-    public AuthController(UserService userService, AuthenticationManager authManager, JwtTokenProvider jwtProvider) {
+    public AuthController(UserService userService, AuthenticationManager authManager, JwtTokenProvider jwtProvider, RefreshTokenService refreshTokenService) {
         this.userService = userService;
         this.authManager = authManager;
         this.jwtProvider = jwtProvider;
+        this.refreshTokenService = refreshTokenService;
     }
 
     @PostMapping("/register")
@@ -71,7 +76,23 @@ public class AuthController {
         log.info("Received API request to /login for email: {}", dto.getEmail());
         String jwt = userService.login(dto, authManager, jwtProvider);
         User user = userService.getUserByEmail(dto.getEmail());
-        return ResponseEntity.ok(new AuthResponse(jwt, user));
+        String refreshToken = refreshTokenService.issue(user);
+        return ResponseEntity.ok(new AuthResponse(jwt, user, refreshToken));
+    }
+
+    /**
+     * Exchanges a refresh token for a new access token and a rotated refresh token, without re-checking the password.
+     */
+    @PostMapping("/refresh")
+    @ResponseBody
+    public ResponseEntity<?> refresh(@RequestBody Map<String, String> payload) {
+        try {
+            RefreshTokenService.Rotation rotation = refreshTokenService.rotate(payload.get("refreshToken"));
+            String jwt = jwtProvider.generateToken(AuthenticatedUser.from(rotation.user()));
+            return ResponseEntity.ok(new AuthResponse(jwt, rotation.user(), rotation.refreshToken()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(e.getMessage());
+        }
     }
 
     @PostMapping("/forgot-password")
@@ -91,6 +112,12 @@ public class AuthController {
         return ResponseEntity.ok("Password has been updated.");
     }
 
+    @ExceptionHandler(PasswordHashingBusyException.class)
+    @ResponseBody
+    public ResponseEntity<String> handlePasswordHashingBusy(PasswordHashingBusyException ex) {
+        return ApiExceptionHandler.serviceUnavailable(ex);
+    }
+
     @ExceptionHandler(RuntimeException.class)
     @ResponseBody
     public ResponseEntity<String> handleRuntimeException(RuntimeException ex) {
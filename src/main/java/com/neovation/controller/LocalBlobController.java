@@ -0,0 +1,118 @@
+package com.neovation.controller;
+
+import com.neovation.service.BlobStore;
+import com.neovation.service.LocalBlobStore;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Serves the signed URLs issued by {@link LocalBlobStore}: GET downloads a blob, PUT uploads one. The signature
+ * and expiry in the query string are the only credentials, as with GCS signed URLs.
+ */
+@RestController
+@RequestMapping("/api/files")
+@ConditionalOnProperty(name = "app.storage.backend", havingValue = "local")
+public class LocalBlobController {
+    private static final Logger log = LoggerFactory.getLogger(LocalBlobController.class);
+
+    private final LocalBlobStore blobStore;
+
+    @Value("${gcs.upload.max-size:20MB}")
+    private DataSize maxUploadSize;
+
+    public LocalBlobController(LocalBlobStore blobStore) {
+        this.blobStore = blobStore;
+    }
+
+    @GetMapping("/{*path}")
+    public ResponseEntity<StreamingResponseBody> download(@PathVariable String path, @RequestParam long expires, @RequestParam String signature,
+                                                          @RequestParam(required = false) String filename,
+                                                          @RequestHeader HttpHeaders requestHeaders) {
+        String blobPath = path.substring(1);
+        try {
+            if (!blobStore.verify("GET", blobPath, expires, null, filename, signature)) {
+                log.warn("Rejected download of {}: invalid or expired signature", blobPath);
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+            }
+            long size = blobStore.size(blobPath);
+            if (size < 0) {
+                return ResponseEntity.notFound().build();
+            }
+            String contentEncoding = blobStore.contentEncoding(blobPath);
+            // Stored compressed: sent as is to clients that accept the encoding, decoded for the rest
+            boolean decode = "gzip".equals(contentEncoding) && !RequestController.acceptsEncoding(requestHeaders, contentEncoding);
+            StreamingResponseBody body = decode
+                    ? out -> {
+                        try (InputStream in = new GZIPInputStream(Channels.newInputStream(blobStore.read(blobPath, 0, size)))) {
+                            in.transferTo(out);
+                        }
+                    }
+                    : out -> blobStore.transferTo(blobPath, Channels.newChannel(out));
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(blobStore.contentType(blobPath)))
+                    .cacheControl(CacheControl.noStore().cachePrivate());
+            if (!decode) {
+                response.contentLength(size);
+            }
+            if (filename != null) {
+                // Deduplicated blobs live under sha256/<hex>; save them under the attachment's name instead
+                response.header(HttpHeaders.CONTENT_DISPOSITION, BlobStore.attachmentDisposition(filename));
+            }
+            if (contentEncoding != null) {
+                if (!decode) {
+                    response.header(HttpHeaders.CONTENT_ENCODING, contentEncoding);
+                }
+                response.varyBy(HttpHeaders.ACCEPT_ENCODING);
+            }
+            return response.body(body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (IOException e) {
+            log.error("Failed to read local file {}: {}", blobPath, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @PutMapping("/{*path}")
+    public ResponseEntity<?> upload(@PathVariable String path, @RequestParam long expires, @RequestParam String signature,
+                                    @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, HttpServletRequest request) {
+        String blobPath = path.substring(1);
+        try {
+            if (!blobStore.verify("PUT", blobPath, expires, contentType, signature)) {
+                log.warn("Rejected upload to {}: invalid or expired signature", blobPath);
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+            }
+            long length = request.getContentLengthLong();
+            if (length < 0) {
+                return ResponseEntity.status(HttpStatus.LENGTH_REQUIRED).build();
+            }
+            if (length > maxUploadSize.toBytes()) {
+                return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+            }
+            blobStore.write(blobPath, contentType, null, request.getInputStream());
+            log.info("Stored {} bytes at {}/{}", length, blobStore.location(), blobPath);
+            return ResponseEntity.ok().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (IOException e) {
+            log.error("Failed to write local file {}: {}", blobPath, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+}
@@ -1,20 +1,36 @@
 package com.neovation.controller;
 
 import com.neovation.dto.*;
+import com.neovation.model.FileAttachment;
+import com.neovation.model.FilePurpose;
 import com.neovation.model.RequestStatus;
 import com.neovation.model.ServiceRequest;
+import com.neovation.service.AttachmentArchiver;
+import com.neovation.service.BlobStore;
+import com.neovation.service.FileStorageService;
 import com.neovation.service.RequestService;
 import com.neovation.service.UserService;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -26,10 +42,15 @@ public class RequestController {
     private static final Logger log = LoggerFactory.getLogger(RequestController.class);
     private final RequestService requestService;
     private final UserService userService;
+    private final FileStorageService fileStorageService;
+    private final AttachmentArchiver attachmentArchiver;
 
-    public RequestController(RequestService requestService, UserService userService) {
+    public RequestController(RequestService requestService, UserService userService, FileStorageService fileStorageService,
+                             AttachmentArchiver attachmentArchiver) {
         this.requestService = requestService;
         this.userService = userService;
+        this.fileStorageService = fileStorageService;
+        this.attachmentArchiver = attachmentArchiver;
     }
 
     @PostMapping(consumes = "multipart/form-data")
@@ -141,6 +162,186 @@ public class RequestController {
         }
     }
 
+    /**
+     * Streams an attachment through this service, for clients that cannot reach storage.googleapis.com.
+     * <p>
+     * Supports a single byte {@code Range}, honoured only while {@code If-Range} (if sent) still matches, so
+     * interrupted downloads can resume. Multiple ranges get the whole file. Files stored gzipped are sent as
+     * stored with {@code Content-Encoding: gzip}, or decompressed for clients that do not accept gzip; either
+     * way without ranges, since a range of compressed bytes is of no use to a client.
+     */
+    @GetMapping("/attachments/{id}/content")
+    public ResponseEntity<StreamingResponseBody> getAttachmentContent(@PathVariable Long id, @RequestHeader HttpHeaders requestHeaders) {
+        log.info("Received API request for content of attachment ID: {}", id);
+        try {
+            RequestService.AttachmentContent content = requestService.getAttachmentContent(id);
+            BlobStore.BlobHeader file = content.file();
+            String blobPath = content.attachment().getUrl();
+            boolean encoded = file.contentEncoding() != null;
+            boolean decode = encoded && !acceptsEncoding(requestHeaders, file.contentEncoding());
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(file.contentType() == null
+                    ? MediaType.APPLICATION_OCTET_STREAM : MediaType.parseMediaType(file.contentType()));
+            headers.setContentDisposition(ContentDisposition.attachment()
+                    .filename(content.attachment().getFileName(), StandardCharsets.UTF_8).build());
+            headers.setCacheControl(CacheControl.noCache().cachePrivate());
+            headers.setETag(quote(file.etag()));
+            if (file.updated() != null) {
+                headers.setLastModified(file.updated());
+            }
+            headers.set(HttpHeaders.ACCEPT_RANGES, encoded ? "none" : "bytes");
+            if (encoded && !decode) {
+                headers.set(HttpHeaders.CONTENT_ENCODING, file.contentEncoding());
+            }
+            headers.setVary(List.of(HttpHeaders.ACCEPT_ENCODING));
+
+            long offset = 0;
+            long length = file.size();
+            HttpStatus status = HttpStatus.OK;
+            List<HttpRange> ranges = encoded ? List.of() : parseRanges(requestHeaders);
+            if (ranges.size() == 1 && ifRangeMatches(requestHeaders, file)) {
+                HttpRange range = ranges.get(0);
+                offset = range.getRangeStart(file.size());
+                length = range.getRangeEnd(file.size()) - offset + 1;
+                if (offset >= file.size() || length <= 0) {
+                    return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                            .header(HttpHeaders.CONTENT_RANGE, "bytes */" + file.size())
+                            .build();
+                }
+                status = HttpStatus.PARTIAL_CONTENT;
+                headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + offset + "-" + (offset + length - 1) + "/" + file.size());
+            }
+            if (!decode) {
+                headers.setContentLength(length);
+            }
+
+            long start = offset;
+            long count = length;
+            StreamingResponseBody body = out -> fileStorageService.copyFile(blobPath, start, count, decode, out);
+            return ResponseEntity.status(status).headers(headers).body(body);
+        } catch (EntityNotFoundException e) {
+            log.warn("Attachment, request or file not found for ID {}: {}", id, e.getMessage());
+            return ResponseEntity.notFound().build(); // HTTP 404
+        } catch (AccessDeniedException e) {
+            log.warn("Access denied for downloading attachment ID {}: {}", id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build(); // HTTP 403
+        } catch (Exception e) {
+            log.error("An unexpected error occurred while opening content of attachment {}: {}", id, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build(); // HTTP 500
+        }
+    }
+
+    /**
+     * An unparseable Range header is ignored, as RFC 9110 requires.
+     */
+    private static List<HttpRange> parseRanges(HttpHeaders headers) {
+        try {
+            return headers.getRange();
+        } catch (IllegalArgumentException e) {
+            return List.of();
+        }
+    }
+
+    /**
+     * True if there is no If-Range, or it names the current version by strong ETag or exact Last-Modified date.
+     */
+    private static boolean ifRangeMatches(HttpHeaders headers, BlobStore.BlobHeader file) {
+        String ifRange = headers.getFirst(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            // Weak validators never match for If-Range
+            return ifRange.equals(quote(file.etag()));
+        }
+        if (file.updated() == null) {
+            return false;
+        }
+        try {
+            Instant date = ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+            return date.getEpochSecond() == file.updated().getEpochSecond();
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    /**
+     * True if {@code Accept-Encoding} lists the encoding without {@code q=0}. Also used by {@link LocalBlobController}.
+     */
+    static boolean acceptsEncoding(HttpHeaders headers, String encoding) {
+        for (String value : headers.getOrEmpty(HttpHeaders.ACCEPT_ENCODING)) {
+            for (String coding : value.split(",")) {
+                String[] parts = coding.trim().split(";");
+                if (parts[0].trim().equalsIgnoreCase(encoding)
+                        && !(parts.length > 1 && parts[1].replace(" ", "").matches("q=0(\\.0*)?"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String quote(String etag) {
+        return "\"" + etag + "\"";
+    }
+
+    /**
+     * Downloads the attachments of a request as one ZIP archive, built while it is sent; see
+     * {@link AttachmentArchiver}.
+     *
+     * @param purpose Only attachments with this purpose (USER_FILE or PROPOSAL); all if omitted.
+     */
+    @GetMapping("/{id}/attachments.zip")
+    public ResponseEntity<StreamingResponseBody> downloadAttachmentsZip(@PathVariable String id,
+                                                                        @RequestParam(required = false) FilePurpose purpose) {
+        log.info("Received API request for a ZIP of attachments of request ID: {} (purpose: {})", id, purpose);
+        try {
+            List<FileAttachment> attachments = requestService.getAttachmentsForArchive(id, purpose);
+            String fileName = "request-" + id + (purpose != null ? "-" + purpose.name().toLowerCase() : "") + ".zip";
+            StreamingResponseBody body = out -> {
+                int entries = attachmentArchiver.writeZip(attachments, out);
+                log.info("Sent ZIP of {} attachment(s) of request ID: {}", entries, id);
+            };
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType("application/zip"))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                            .filename(fileName, StandardCharsets.UTF_8).build().toString())
+                    .cacheControl(CacheControl.noStore().cachePrivate())
+                    .body(body);
+        } catch (EntityNotFoundException e) {
+            log.warn("Request not found for ID {}: {}", id, e.getMessage());
+            return ResponseEntity.notFound().build(); // HTTP 404
+        } catch (AccessDeniedException e) {
+            log.warn("Access denied for downloading attachments of request ID {}: {}", id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build(); // HTTP 403
+        } catch (Exception e) {
+            log.error("An unexpected error occurred while preparing a ZIP of request {}: {}", id, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build(); // HTTP 500
+        }
+    }
+
+    /**
+     * Gets signed download URLs for all attachments of a request in one call, keyed by attachment ID.
+     */
+    @GetMapping("/{id}/attachments/download-urls")
+    public ResponseEntity<?> getAttachmentDownloadUrls(@PathVariable String id) {
+        log.info("Received API request for download URLs of all attachments of request ID: {}", id);
+        try {
+            Map<Long, String> downloadUrls = requestService.getAttachmentDownloadUrls(id);
+            return ResponseEntity.ok(downloadUrls);
+        } catch (EntityNotFoundException e) {
+            log.warn("Request not found for ID {}: {}", id, e.getMessage());
+            return ResponseEntity.notFound().build(); // HTTP 404
+        } catch (AccessDeniedException e) {
+            log.warn("Access denied for downloading attachments of request ID {}: {}", id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(e.getMessage()); // HTTP 403
+        } catch (Exception e) {
+            log.error("An unexpected error occurred while generating download URLs for request {}: {}", id, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Could not generate download URLs."); // HTTP 500
+        }
+    }
+
     @DeleteMapping("/attachments/{id}")
     public ResponseEntity<?> deleteAttachment(@PathVariable Long id) {
         log.info("Received API request to delete attachment ID: {}", id);
@@ -188,6 +389,89 @@ public class RequestController {
         }
     }
 
+    /**
+     * Batch variant of {@link #uploadFileToRequest}: uploads all files concurrently and saves the request once.
+     * Either every file is attached or none is.
+     */
+    @PostMapping(value = "/{id}/attachments/batch", consumes = "multipart/form-data")
+    public ResponseEntity<?> uploadFilesToRequest(@PathVariable String id, @RequestParam("files") List<MultipartFile> files,
+                                                  @RequestParam(name = "purpose", required = false, defaultValue = "USER_FILE") String purpose,
+                                                  @RequestParam(name = "lang", required = false) String lang) {
+        log.info("Received API request to add {} attachment(s) to request ID: {} with purpose: {}", files.size(), id, purpose);
+        if (files.isEmpty() || files.stream().anyMatch(MultipartFile::isEmpty)) {
+            return ResponseEntity.badRequest().body("Files cannot be empty.");
+        }
+        try {
+            ServiceRequestDto updatedRequest = requestService.addAttachmentsToRequest(id, files, purpose, lang);
+            return ResponseEntity.ok(updatedRequest);
+        } catch (EntityNotFoundException e) {
+            log.warn("Attachment upload failed: Request ID {} not found", id);
+            return ResponseEntity.notFound().build();
+        } catch (AccessDeniedException e) {
+            log.warn("Access denied for uploading attachments to request ID {}: {}", id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(e.getMessage());
+        } catch (Exception e) {
+            log.error("An unexpected error occurred while adding attachments to request ID {}: {}", id, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("An unexpected error occurred.");
+        }
+    }
+
+    /**
+     * Issues a signed URL for uploading one attachment directly to the blob store (a resumable upload on GCS).
+     * The file bytes never pass through the API; call the finalize endpoint with the returned {@code uploadToken}
+     * once the upload has completed.
+     */
+    @PostMapping("/{id}/attachments/upload-url")
+    public ResponseEntity<?> createAttachmentUpload(@PathVariable String id, @RequestBody @Valid UploadUrlRequestDto uploadRequest) {
+        log.info("Received API request for a direct upload URL on request ID: {}", id);
+        try {
+            RequestService.AttachmentUpload attachmentUpload = requestService.createAttachmentUpload(id, uploadRequest);
+            FileStorageService.SignedUpload upload = attachmentUpload.upload();
+            return ResponseEntity.ok(Map.of(
+                    "uploadUrl", upload.uploadUrl(),
+                    "method", upload.method(),
+                    "objectPath", upload.objectPath(),
+                    "headers", upload.headers(),
+                    "uploadToken", attachmentUpload.uploadToken()));
+        } catch (EntityNotFoundException e) {
+            log.warn("Upload URL request failed: Request ID {} not found", id);
+            return ResponseEntity.notFound().build();
+        } catch (AccessDeniedException e) {
+            log.warn("Access denied for upload URL on request ID {}: {}", id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            log.error("An unexpected error occurred while issuing an upload URL for request ID {}: {}", id, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Could not generate upload URL.");
+        }
+    }
+
+    /**
+     * Attaches a file uploaded through a signed upload URL, after verifying its size, content type and checksum.
+     */
+    @PostMapping("/{id}/attachments/finalize")
+    public ResponseEntity<?> finalizeAttachmentUpload(@PathVariable String id, @RequestBody @Valid FinalizeUploadDto upload,
+                                                      @RequestParam(name = "lang", required = false) String lang) {
+        log.info("Received API request to finalize upload {} on request ID: {}", upload.getObjectPath(), id);
+        try {
+            ServiceRequestDto updatedRequest = requestService.finalizeAttachmentUpload(id, upload, lang);
+            return ResponseEntity.ok(updatedRequest);
+        } catch (EntityNotFoundException e) {
+            log.warn("Upload finalize failed: Request ID {} not found", id);
+            return ResponseEntity.notFound().build();
+        } catch (AccessDeniedException e) {
+            log.warn("Access denied for finalizing upload on request ID {}: {}", id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            log.warn("Upload finalize rejected for request ID {}: {}", id, e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            log.error("An unexpected error occurred while finalizing an upload for request ID {}: {}", id, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("An unexpected error occurred.");
+        }
+    }
+
     /**
      * ADMIN/STAFF/MANAGER endpoint to list all service requests for a specific user ID.
      */
@@ -1,7 +1,12 @@
 package com.neovation.controller;
 
+import com.neovation.config.AuthenticatedUser;
+import com.neovation.config.JwtTokenProvider;
+import com.neovation.config.PasswordHashingBusyException;
 import com.neovation.dto.ChangePasswordDto;
 import com.neovation.model.User;
+import com.neovation.service.RefreshTokenService;
+import com.neovation.service.TokenVersionService;
 import com.neovation.service.UserService;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
@@ -25,10 +30,17 @@ public class UserController {
 
     private final UserService userService;
     final private PasswordEncoder passwordEncoder;
+    final private TokenVersionService tokenVersionService;
+    final private JwtTokenProvider jwtProvider;
+    final private RefreshTokenService refreshTokenService;
 
-    public UserController(UserService userService, PasswordEncoder passwordEncoder) {
+    public UserController(UserService userService, PasswordEncoder passwordEncoder, TokenVersionService tokenVersionService,
+                          JwtTokenProvider jwtProvider, RefreshTokenService refreshTokenService) {
         this.userService = userService;
         this.passwordEncoder = passwordEncoder;
+        this.tokenVersionService = tokenVersionService;
+        this.jwtProvider = jwtProvider;
+        this.refreshTokenService = refreshTokenService;
     }
 
     @GetMapping("/me")
@@ -38,12 +50,10 @@ public class UserController {
     }
 
     @PostMapping("/profile-image")
-    public ResponseEntity<?> uploadProfileImage(@AuthenticationPrincipal UserDetails userDetails,
+    public ResponseEntity<?> uploadProfileImage(@AuthenticationPrincipal AuthenticatedUser principal,
                                                 @RequestParam("file") MultipartFile file) {
-        User user = userService.getUserByEmail(userDetails.getUsername());
-
         // This method now returns the public URL
-        String publicUrl = userService.updateProfileImage(user.getId(), file);
+        String publicUrl = userService.updateProfileImage(principal.getId(), file);
 
         // Return the URL in the response body
         return ResponseEntity.ok().body(Map.of("profileImageUrl", publicUrl));
@@ -71,11 +81,16 @@ public class UserController {
         log.info("User attempting to update user with ID: {}", id);
         return userService.findUserById(id)
                 .map(user -> {
+                    boolean emailChanged = !user.getEmail().equals(updatedUser.getEmail());
                     user.setFirstName(updatedUser.getFirstName());
                     user.setLastName(updatedUser.getLastName());
                     user.setCompanyName(updatedUser.getCompanyName());
                     user.setEmail(updatedUser.getEmail());
                     user.setPhone(updatedUser.getPhone());
+                    if (emailChanged) {
+                        // Existing tokens carry the old email as their subject; the user logs in again with the new one
+                        tokenVersionService.bump(user);
+                    }
 //                    if (!updatedUser.getPassword().isBlank()) {
 //                        user.setPassword(passwordEncoder.encode(updatedUser.getPassword()));
 //                    }
@@ -91,19 +106,23 @@ public class UserController {
     }
 
     /**
-     * Generates a temporary signed URL for the user's profile picture.
+     * Generates a temporary signed URL for the user's profile picture; pass {@code size} (in pixels) to get a
+     * resized copy for an avatar of that size instead of the original.
      */
     @GetMapping("/me/profile-image-url")
-    public ResponseEntity<?> getProfileImageUrl(@AuthenticationPrincipal UserDetails userDetails) {
+    public ResponseEntity<?> getProfileImageUrl(@AuthenticationPrincipal AuthenticatedUser userDetails,
+                                                @RequestParam(required = false) Integer size) {
         if (userDetails == null) {
             return ResponseEntity.status(401).body("User not authenticated");
         }
         try {
-            String url = userService.getProfileImageUrl(userDetails.getUsername());
+            String url = userService.getProfileImageUrl(userDetails.getId(), size);
             if (url == null) {
                 return ResponseEntity.ok(Map.of("profileImageUrl", (Object)null));
             }
             return ResponseEntity.ok(Map.of("profileImageUrl", url));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
         } catch (Exception e) {
             log.error("Failed to generate signed URL for user: {}", userDetails.getUsername(), e);
             return ResponseEntity.internalServerError().body("Error generating URL");
@@ -111,18 +130,21 @@ public class UserController {
     }
 
     /**
-     * Generates a temporary signed URL for a specific user's profile picture by ID.
+     * Generates a temporary signed URL for a specific user's profile picture by ID, optionally resized to
+     * {@code size} pixels.
      */
     @GetMapping("/{id}/profile-image-url")
-    public ResponseEntity<?> getProfileImageUrlById(@PathVariable Long id) {
+    public ResponseEntity<?> getProfileImageUrlById(@PathVariable Long id, @RequestParam(required = false) Integer size) {
         log.info("Received API request for profile image URL for user ID: {}", id);
         try {
-            String url = userService.getProfileImageUrl(id); // Uses the new ID-based service method
+            String url = userService.getProfileImageUrl(id, size); // Uses the new ID-based service method
             if (url == null) {
                 // Return null in the map if no image is set
                 return ResponseEntity.ok(Map.of("profileImageUrl", (Object)null));
             }
             return ResponseEntity.ok(Map.of("profileImageUrl", url));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
         } catch (RuntimeException e) {
             if (e.getMessage().equals("User not found")) {
                 log.warn("User ID {} not found", id);
@@ -137,8 +159,14 @@ public class UserController {
     public ResponseEntity<?> changePassword(@AuthenticationPrincipal UserDetails userDetails,
                                             @Valid @RequestBody ChangePasswordDto dto) {
         try {
-            userService.changePassword(userDetails.getUsername(), dto);
-            return ResponseEntity.ok(Map.of("message", "Password updated successfully"));
+            User user = userService.changePassword(userDetails.getUsername(), dto);
+            // Every earlier token is now invalid, this session's too; hand back a fresh pair so it stays signed in
+            String jwt = jwtProvider.generateToken(AuthenticatedUser.from(user));
+            String refreshToken = refreshTokenService.issue(user);
+            return ResponseEntity.ok(Map.of("message", "Password updated successfully",
+                    "token", jwt, "refreshToken", refreshToken));
+        } catch (PasswordHashingBusyException e) {
+            return ApiExceptionHandler.serviceUnavailable(e);
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         }
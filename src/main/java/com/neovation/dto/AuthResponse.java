@@ -5,6 +5,7 @@ import com.neovation.model.User;
 public class AuthResponse {
     private String token;
     private User user;
+    private String refreshToken;
 
     public AuthResponse() {
     }
@@ -14,6 +15,12 @@ public class AuthResponse {
         this.user = user;
     }
 
+    public AuthResponse(String token, User user, String refreshToken) {
+        this.token = token;
+        this.user = user;
+        this.refreshToken = refreshToken;
+    }
+
     public AuthResponse(String token) {
         this.token = token;
     }
@@ -33,4 +40,12 @@ public class AuthResponse {
     public void setUser(User user) {
         this.user = user;
     }
+
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    public void setRefreshToken(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
 }
@@ -0,0 +1,51 @@
+package com.neovation.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
+
+/**
+ * Confirms a direct-to-GCS upload so it can be attached to a request. The object is checked against the declared
+ * size, content type and checksum (base64 CRC32C and/or MD5, as GCS reports them) before it is accepted.
+ * {@code uploadToken} is the ticket returned with the upload URL; size and content type must be the ones declared
+ * then.
+ */
+public class FinalizeUploadDto {
+
+    @NotBlank
+    private String objectPath;
+
+    @NotBlank
+    private String uploadToken;
+
+    @NotBlank
+    private String fileName;
+
+    @NotBlank
+    private String contentType;
+
+    @Positive
+    private long size;
+
+    private String crc32c;
+    private String md5Hash;
+
+    private String purpose = "USER_FILE";
+
+    // Getters and Setters
+    public String getObjectPath() { return objectPath; }
+    public void setObjectPath(String objectPath) { this.objectPath = objectPath; }
+    public String getUploadToken() { return uploadToken; }
+    public void setUploadToken(String uploadToken) { this.uploadToken = uploadToken; }
+    public String getFileName() { return fileName; }
+    public void setFileName(String fileName) { this.fileName = fileName; }
+    public String getContentType() { return contentType; }
+    public void setContentType(String contentType) { this.contentType = contentType; }
+    public long getSize() { return size; }
+    public void setSize(long size) { this.size = size; }
+    public String getCrc32c() { return crc32c; }
+    public void setCrc32c(String crc32c) { this.crc32c = crc32c; }
+    public String getMd5Hash() { return md5Hash; }
+    public void setMd5Hash(String md5Hash) { this.md5Hash = md5Hash; }
+    public String getPurpose() { return purpose; }
+    public void setPurpose(String purpose) { this.purpose = purpose; }
+}
@@ -0,0 +1,72 @@
+package com.neovation.dto;
+
+import com.neovation.model.FilePurpose;
+
+public class StorageSavingsDto {
+    private FilePurpose purpose;
+    private long files;
+    private long compressedFiles;
+    private long originalBytes;
+    private long storedBytes;
+    private long storageBytesSaved;
+    // Estimated from the download URLs issued since startup, assuming one download per URL
+    private long egressBytesSaved;
+
+    // Getters and Setters
+
+    public FilePurpose getPurpose() {
+        return purpose;
+    }
+
+    public void setPurpose(FilePurpose purpose) {
+        this.purpose = purpose;
+    }
+
+    public long getFiles() {
+        return files;
+    }
+
+    public void setFiles(long files) {
+        this.files = files;
+    }
+
+    public long getCompressedFiles() {
+        return compressedFiles;
+    }
+
+    public void setCompressedFiles(long compressedFiles) {
+        this.compressedFiles = compressedFiles;
+    }
+
+    public long getOriginalBytes() {
+        return originalBytes;
+    }
+
+    public void setOriginalBytes(long originalBytes) {
+        this.originalBytes = originalBytes;
+    }
+
+    public long getStoredBytes() {
+        return storedBytes;
+    }
+
+    public void setStoredBytes(long storedBytes) {
+        this.storedBytes = storedBytes;
+    }
+
+    public long getStorageBytesSaved() {
+        return storageBytesSaved;
+    }
+
+    public void setStorageBytesSaved(long storageBytesSaved) {
+        this.storageBytesSaved = storageBytesSaved;
+    }
+
+    public long getEgressBytesSaved() {
+        return egressBytesSaved;
+    }
+
+    public void setEgressBytesSaved(long egressBytesSaved) {
+        this.egressBytesSaved = egressBytesSaved;
+    }
+}
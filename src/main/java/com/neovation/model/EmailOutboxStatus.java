@@ -0,0 +1,8 @@
+package com.neovation.model;
+
+public enum EmailOutboxStatus {
+    PENDING,
+    SENDING,
+    SENT,
+    DEAD
+}
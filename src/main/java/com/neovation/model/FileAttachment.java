@@ -11,9 +11,16 @@ public class FileAttachment {
     private String fileName;
     @Enumerated(EnumType.STRING)
     private FilePurpose purpose;
+    // Original size of the uploaded file
     private long fileSize;
+    // Bytes actually stored, after compression; null when the same as fileSize
+    private Long storedSize;
+    // "gzip" if the stored object is compressed, otherwise null
+    private String contentEncoding;
     private String fileType;
     private String url;
+    // Shared content-addressed blob behind url; null for files owned by this attachment alone
+    private Long storedBlobId;
 
     public Long getId() {
         return id;
@@ -39,6 +46,22 @@ public class FileAttachment {
         this.fileSize = fileSize;
     }
 
+    public Long getStoredSize() {
+        return storedSize;
+    }
+
+    public void setStoredSize(Long storedSize) {
+        this.storedSize = storedSize;
+    }
+
+    public String getContentEncoding() {
+        return contentEncoding;
+    }
+
+    public void setContentEncoding(String contentEncoding) {
+        this.contentEncoding = contentEncoding;
+    }
+
     public String getFileType() {
         return fileType;
     }
@@ -62,4 +85,12 @@ public class FileAttachment {
     public void setPurpose(FilePurpose purpose) {
         this.purpose = purpose;
     }
+
+    public Long getStoredBlobId() {
+        return storedBlobId;
+    }
+
+    public void setStoredBlobId(Long storedBlobId) {
+        this.storedBlobId = storedBlobId;
+    }
 }
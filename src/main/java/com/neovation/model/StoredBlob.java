@@ -0,0 +1,63 @@
+package com.neovation.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "stored_blobs")
+public class StoredBlob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true, length = 64)
+    private String sha256;
+
+    @Column(name = "blob_path", nullable = false, length = 100)
+    private String blobPath;
+
+    @Column(nullable = false)
+    private long size;
+
+    @Column(name = "content_type")
+    private String contentType;
+
+    // Bytes actually stored, after compression
+    @Column(name = "stored_size")
+    private Long storedSize;
+
+    @Column(name = "content_encoding", length = 20)
+    private String contentEncoding;
+
+    @Column(name = "ref_count", nullable = false)
+    private int refCount = 0;
+
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public String getSha256() { return sha256; }
+    public void setSha256(String sha256) { this.sha256 = sha256; }
+    public String getBlobPath() { return blobPath; }
+    public void setBlobPath(String blobPath) { this.blobPath = blobPath; }
+    public long getSize() { return size; }
+    public void setSize(long size) { this.size = size; }
+    public String getContentType() { return contentType; }
+    public void setContentType(String contentType) { this.contentType = contentType; }
+    public Long getStoredSize() { return storedSize; }
+    public void setStoredSize(Long storedSize) { this.storedSize = storedSize; }
+    public String getContentEncoding() { return contentEncoding; }
+    public void setContentEncoding(String contentEncoding) { this.contentEncoding = contentEncoding; }
+    public int getRefCount() { return refCount; }
+    public void setRefCount(int refCount) { this.refCount = refCount; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
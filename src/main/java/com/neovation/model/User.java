@@ -33,6 +33,10 @@ public class    User {
     @Column(name = "profile_image")
     private String profileImage;
 
+    // Sizes of the resized copies of profileImage that are ready (e.g., "64,128,512"); null until generated
+    @Column(name = "profile_image_sizes")
+    private String profileImageSizes;
+
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private Role role = Role.USER;
@@ -44,6 +48,10 @@ public class    User {
     @Column(name = "created_at", updatable = false) // <-- NEW FIELD AND ANNOTATION
     private LocalDateTime createdAt;
 
+    // Bumped whenever existing JWTs for this user must stop being accepted
+    @Column(name = "token_version", nullable = false)
+    private int tokenVersion = 0;
+
     // getters/setters
 
     public Long getId() {
@@ -126,6 +134,14 @@ public class    User {
         this.profileImage = profileImage;
     }
 
+    public String getProfileImageSizes() {
+        return profileImageSizes;
+    }
+
+    public void setProfileImageSizes(String profileImageSizes) {
+        this.profileImageSizes = profileImageSizes;
+    }
+
     public Country getCountry() {
         return country;
     }
@@ -141,4 +157,12 @@ public class    User {
     public void setCreatedAt(LocalDateTime createdAt) { // <-- NEW SETTER
         this.createdAt = createdAt;
     }
+
+    public int getTokenVersion() {
+        return tokenVersion;
+    }
+
+    public void setTokenVersion(int tokenVersion) {
+        this.tokenVersion = tokenVersion;
+    }
 }
@@ -0,0 +1,78 @@
+package com.neovation.repository;
+
+import com.neovation.model.EmailOutboxMessage;
+import com.neovation.model.EmailOutboxStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface EmailOutboxRepository extends JpaRepository<EmailOutboxMessage, Long> {
+
+    @Query("select m from EmailOutboxMessage m where m.status = com.neovation.model.EmailOutboxStatus.PENDING " +
+            "and m.nextAttemptAt <= :now order by m.nextAttemptAt")
+    List<EmailOutboxMessage> findDue(@Param("now") LocalDateTime now, Pageable pageable);
+
+    long countByStatus(EmailOutboxStatus status);
+
+    /**
+     * Claims a pending message for this instance.
+     *
+     * @return 1 if claimed, 0 if another instance got it first.
+     */
+    @Transactional
+    @Modifying
+    @Query("update EmailOutboxMessage m set m.status = com.neovation.model.EmailOutboxStatus.SENDING, m.claimedAt = :now " +
+            "where m.id = :id and m.status = com.neovation.model.EmailOutboxStatus.PENDING")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    /**
+     * Marks a message delivered and blanks its body, which may carry a generated password and is not needed
+     * any more.
+     */
+    @Transactional
+    @Modifying
+    @Query("update EmailOutboxMessage m set m.status = com.neovation.model.EmailOutboxStatus.SENT, m.sentAt = :now, " +
+            "m.attempts = m.attempts + 1, m.lastError = null, m.htmlBody = '' where m.id = :id")
+    int markSent(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    /**
+     * Parks a message that exhausted its retries, blanking its body like {@link #markSent}.
+     */
+    @Transactional
+    @Modifying
+    @Query("update EmailOutboxMessage m set m.status = com.neovation.model.EmailOutboxStatus.DEAD, " +
+            "m.attempts = :attempts, m.lastError = :lastError, m.htmlBody = '' where m.id = :id")
+    int markDead(@Param("id") Long id, @Param("attempts") int attempts, @Param("lastError") String lastError);
+
+    @Transactional
+    @Modifying
+    @Query("update EmailOutboxMessage m set m.status = :status, m.attempts = :attempts, " +
+            "m.nextAttemptAt = :nextAttemptAt, m.lastError = :lastError where m.id = :id")
+    int markFailed(@Param("id") Long id, @Param("status") EmailOutboxStatus status, @Param("attempts") int attempts,
+                   @Param("nextAttemptAt") LocalDateTime nextAttemptAt, @Param("lastError") String lastError);
+
+    /**
+     * Returns messages stuck in SENDING (e.g. the instance died mid-send) to the queue.
+     */
+    @Transactional
+    @Modifying
+    @Query("update EmailOutboxMessage m set m.status = com.neovation.model.EmailOutboxStatus.PENDING " +
+            "where m.status = com.neovation.model.EmailOutboxStatus.SENDING and m.claimedAt < :cutoff")
+    int releaseStale(@Param("cutoff") LocalDateTime cutoff);
+
+    @Transactional
+    @Modifying
+    @Query("delete from EmailOutboxMessage m where m.status = com.neovation.model.EmailOutboxStatus.SENT and m.sentAt < :cutoff")
+    int deleteSentBefore(@Param("cutoff") LocalDateTime cutoff);
+
+    @Transactional
+    @Modifying
+    @Query("delete from EmailOutboxMessage m where m.status = com.neovation.model.EmailOutboxStatus.DEAD and m.createdAt < :cutoff")
+    int deleteDeadBefore(@Param("cutoff") LocalDateTime cutoff);
+}
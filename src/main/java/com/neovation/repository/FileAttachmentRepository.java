@@ -1,7 +1,47 @@
 package com.neovation.repository;
 
 import com.neovation.model.FileAttachment;
+import com.neovation.model.FilePurpose;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
 
 public interface FileAttachmentRepository extends JpaRepository<FileAttachment, Long> {
-}
\ No newline at end of file
+
+    interface PurposeStorageTotals {
+        FilePurpose getPurpose();
+        long getFiles();
+        long getCompressedFiles();
+        long getOriginalBytes();
+        long getStoredBytes();
+    }
+
+    // Rows without a stored size predate compression and take their original size
+    @Query("select a.purpose as purpose, count(a) as files, " +
+            "sum(case when a.contentEncoding is not null then 1 else 0 end) as compressedFiles, " +
+            "coalesce(sum(a.fileSize), 0) as originalBytes, " +
+            "coalesce(sum(coalesce(a.storedSize, a.fileSize)), 0) as storedBytes " +
+            "from FileAttachment a group by a.purpose")
+    List<PurposeStorageTotals> sumStorageByPurpose();
+
+    /**
+     * Streams every attachment's blob path; call it in a read-only transaction. The fetch size makes MySQL
+     * stream rows instead of buffering the whole result.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("select a.url from FileAttachment a where a.url is not null")
+    Stream<String> streamUrls();
+
+    /**
+     * @return Those of the given blob paths that an attachment points at.
+     */
+    @Query("select a.url from FileAttachment a where a.url in :urls")
+    List<String> findExistingUrls(@Param("urls") Collection<String> urls);
+}
@@ -0,0 +1,72 @@
+package com.neovation.repository;
+
+import com.neovation.model.PendingBlobDeletion;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface PendingBlobDeletionRepository extends JpaRepository<PendingBlobDeletion, Long> {
+
+    @Query("select d from PendingBlobDeletion d where d.attempts < :maxAttempts and d.nextAttemptAt <= :now " +
+            "order by d.nextAttemptAt")
+    List<PendingBlobDeletion> findDue(@Param("now") LocalDateTime now, @Param("maxAttempts") int maxAttempts,
+                                      Pageable pageable);
+
+    /**
+     * @return Those of the given paths that are already queued for deletion.
+     */
+    @Query("select d.blobPath from PendingBlobDeletion d where d.blobPath in :blobPaths")
+    List<String> findQueuedPaths(@Param("blobPaths") Collection<String> blobPaths);
+
+    long countByAttemptsLessThan(int maxAttempts);
+
+    long countByAttemptsGreaterThanEqual(int maxAttempts);
+
+    /**
+     * Leases a due deletion to this instance by pushing its next attempt past the lease.
+     *
+     * @return 1 if claimed, 0 if another instance got it first.
+     */
+    @Transactional
+    @Modifying
+    @Query("update PendingBlobDeletion d set d.nextAttemptAt = :leaseUntil where d.id = :id and d.nextAttemptAt <= :now")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * Locks the given deletions until the surrounding transaction ends.
+     *
+     * @return Those that still exist; the others were cancelled.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select d from PendingBlobDeletion d where d.id in :ids")
+    List<PendingBlobDeletion> lockAll(@Param("ids") Collection<Long> ids);
+
+    @Transactional
+    @Modifying
+    @Query("delete from PendingBlobDeletion d where d.id in :ids")
+    int deleteDone(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Cancels the queued deletions of a path. Blocks while a purge holds them locked.
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from PendingBlobDeletion d where d.blobPath = :blobPath")
+    int deleteByBlobPath(@Param("blobPath") String blobPath);
+
+    @Transactional
+    @Modifying
+    @Query("update PendingBlobDeletion d set d.attempts = :attempts, d.nextAttemptAt = :nextAttemptAt, " +
+            "d.lastError = :lastError where d.id = :id")
+    int markFailed(@Param("id") Long id, @Param("attempts") int attempts,
+                   @Param("nextAttemptAt") LocalDateTime nextAttemptAt, @Param("lastError") String lastError);
+}
@@ -4,6 +4,8 @@ import com.neovation.model.RequestStatus;
 import com.neovation.model.ServiceRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.Optional;
@@ -13,4 +15,8 @@ public interface ServiceRequestRepository extends JpaRepository<ServiceRequest,
     // Add method for filtering by Status with Sort
     List<ServiceRequest> findByUserIdAndStatus(Long userId, RequestStatus status, Sort sort);
     Optional<ServiceRequest> findByAttachments_Id(Long attachmentId);
+
+    // Loads the request and its attachments in one query
+    @Query("select r from ServiceRequest r left join fetch r.attachments where r.id = :id")
+    Optional<ServiceRequest> findWithAttachmentsById(@Param("id") String id);
 }
\ No newline at end of file
@@ -0,0 +1,72 @@
+package com.neovation.repository;
+
+import com.neovation.model.StoredBlob;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public interface StoredBlobRepository extends JpaRepository<StoredBlob, Long> {
+
+    Optional<StoredBlob> findBySha256(String sha256);
+
+    /**
+     * @return Those of the given paths that belong to a stored blob.
+     */
+    @Query("select b.blobPath from StoredBlob b where b.blobPath in :blobPaths")
+    List<String> findExistingPaths(@Param("blobPaths") Collection<String> blobPaths);
+
+    /**
+     * Streams every stored blob's path; call it in a read-only transaction.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("select b.blobPath from StoredBlob b")
+    Stream<String> streamPaths();
+
+    /**
+     * Takes one more reference to an existing blob. A blob whose count already reached zero is being deleted
+     * and cannot be revived.
+     *
+     * @return 1 if referenced, 0 if there is no live blob with this hash.
+     */
+    @Transactional
+    @Modifying
+    @Query("update StoredBlob b set b.refCount = b.refCount + 1 where b.sha256 = :sha256 and b.refCount > 0")
+    int reference(@Param("sha256") String sha256);
+
+    /**
+     * Records a newly written blob with one reference, or takes a reference if a concurrent upload of the same
+     * bytes recorded it first.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "insert into stored_blobs (sha256, blob_path, size, stored_size, content_type, content_encoding, " +
+            "ref_count, created_at) " +
+            "values (:sha256, :blobPath, :size, :storedSize, :contentType, :contentEncoding, 1, current_timestamp) " +
+            "on duplicate key update ref_count = ref_count + 1", nativeQuery = true)
+    int insertOrReference(@Param("sha256") String sha256, @Param("blobPath") String blobPath,
+                          @Param("size") long size, @Param("storedSize") long storedSize,
+                          @Param("contentType") String contentType, @Param("contentEncoding") String contentEncoding);
+
+    @Transactional
+    @Modifying
+    @Query("update StoredBlob b set b.refCount = b.refCount - 1 where b.id = :id and b.refCount > 0")
+    int release(@Param("id") Long id);
+
+    /**
+     * @return 1 if the blob had no references left and its row was removed.
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from StoredBlob b where b.id = :id and b.refCount <= 0")
+    int deleteIfUnreferenced(@Param("id") Long id);
+}
@@ -1,14 +1,49 @@
 package com.neovation.repository;
 
 import com.neovation.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     List<User> findByFirstNameContainingIgnoreCaseOrLastNameContainingIgnoreCaseOrEmailContainingIgnoreCase(
             String firstName, String lastName, String email);
+
+    /**
+     * Reads only the token version, without loading the user or joining its country.
+     */
+    @Query("select u.tokenVersion from User u where u.id = :id")
+    Optional<Integer> findTokenVersionById(@Param("id") Long id);
+
+    /**
+     * Streams every profile image path (or legacy public URL); call it in a read-only transaction.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("select u.profileImage from User u where u.profileImage is not null and u.profileImage <> ''")
+    Stream<String> streamProfileImages();
+
+    @Query("select u.profileImage from User u where u.profileImage in :profileImages")
+    List<String> findExistingProfileImages(@Param("profileImages") Collection<String> profileImages);
+
+    /**
+     * Records which resized copies of {@code profileImage} are ready, unless the user has changed their image since.
+     *
+     * @return 1 if recorded, 0 if the user's image is no longer {@code profileImage}.
+     */
+    @Transactional
+    @Modifying
+    @Query("update User u set u.profileImageSizes = :sizes where u.id = :id and u.profileImage = :profileImage")
+    int updateProfileImageSizes(@Param("id") Long id, @Param("profileImage") String profileImage, @Param("sizes") String sizes);
 }
 
@@ -0,0 +1,159 @@
+package com.neovation.service;
+
+import com.neovation.model.User;
+import com.neovation.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Issues and verifies self-contained, HMAC-signed tokens for email verification and password reset links.
+ * <p>
+ * A token is {@code base64url(payload).base64url(hmac)} where the payload is
+ * {@code purpose|userId|expiresAtEpochSecond|fingerprint}. The fingerprint is a hash of the user's current
+ * password hash, so the token stops working as soon as it has been used (both flows replace the password).
+ * Nothing is stored; verifying a token costs one primary-key lookup of the user.
+ * <p>
+ * Legacy UUID tokens never contain a '.', which is how callers tell the two formats apart.
+ */
+@Service
+public class ActionTokenService {
+    private static final Logger log = LoggerFactory.getLogger(ActionTokenService.class);
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    public enum Purpose {
+        VERIFY_EMAIL,
+        RESET_PASSWORD
+    }
+
+    private final UserRepository userRepo;
+
+    @Value("${app.tokens.stateless:false}")
+    private boolean enabled;
+
+    @Value("${app.tokens.secret:${jwt.secret}}")
+    private String secret;
+
+    private SecretKeySpec key;
+
+    public ActionTokenService(UserRepository userRepo) {
+        this.userRepo = userRepo;
+    }
+
+    @PostConstruct
+    public void init() {
+        // Derive a dedicated key so these tokens can never be confused with JWT signatures
+        byte[] derived = hmac(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM),
+                "action-token-v1".getBytes(StandardCharsets.UTF_8));
+        this.key = new SecretKeySpec(derived, HMAC_ALGORITHM);
+    }
+
+    /**
+     * @return true if new links should use stateless tokens instead of token table rows.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return true if the token is in the signed format (as opposed to a legacy UUID).
+     */
+    public boolean isActionToken(String token) {
+        return token != null && token.indexOf('.') > 0;
+    }
+
+    public String issue(User user, Purpose purpose, Duration validity) {
+        long expiresAt = Instant.now().plus(validity).getEpochSecond();
+        String payload = purpose.name() + "|" + user.getId() + "|" + expiresAt + "|" + fingerprint(user.getPassword());
+        byte[] payloadBytes = payload.getBytes(StandardCharsets.UTF_8);
+        return ENCODER.encodeToString(payloadBytes) + "." + ENCODER.encodeToString(hmac(key, payloadBytes));
+    }
+
+    /**
+     * Verifies the signature, purpose, expiry and single-use fingerprint of a token.
+     *
+     * @return The user the token was issued to.
+     * @throws RuntimeException "Invalid token" or "Token expired", matching the legacy token flow.
+     */
+    public User verify(String token, Purpose purpose) {
+        int dot = token.indexOf('.');
+        byte[] payloadBytes;
+        byte[] signature;
+        try {
+            payloadBytes = DECODER.decode(token.substring(0, dot));
+            signature = DECODER.decode(token.substring(dot + 1));
+        } catch (IllegalArgumentException e) {
+            throw invalid(token, "malformed encoding");
+        }
+        if (!MessageDigest.isEqual(hmac(key, payloadBytes), signature)) {
+            throw invalid(token, "bad signature");
+        }
+
+        String[] parts = new String(payloadBytes, StandardCharsets.UTF_8).split("\\|");
+        if (parts.length != 4 || !purpose.name().equals(parts[0])) {
+            throw invalid(token, "wrong purpose");
+        }
+        long userId;
+        long expiresAt;
+        try {
+            userId = Long.parseLong(parts[1]);
+            expiresAt = Long.parseLong(parts[2]);
+        } catch (NumberFormatException e) {
+            throw invalid(token, "malformed payload");
+        }
+        if (Instant.now().getEpochSecond() > expiresAt) {
+            log.warn("Expired {} token used for user ID {}", purpose, userId);
+            throw new RuntimeException("Token expired");
+        }
+
+        User user = userRepo.findById(userId).orElseThrow(() -> invalid(token, "unknown user"));
+        if (!MessageDigest.isEqual(fingerprint(user.getPassword()).getBytes(StandardCharsets.UTF_8),
+                parts[3].getBytes(StandardCharsets.UTF_8))) {
+            throw invalid(token, "already used");
+        }
+        return user;
+    }
+
+    private RuntimeException invalid(String token, String reason) {
+        log.warn("Invalid action token ({}): {}", reason, token);
+        return new RuntimeException("Invalid token");
+    }
+
+    /**
+     * Short hash of the stored password hash; changes whenever the password does.
+     */
+    private static String fingerprint(String passwordHash) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest((passwordHash == null ? "" : passwordHash).getBytes(StandardCharsets.UTF_8));
+            return ENCODER.encodeToString(Arrays.copyOf(digest, 12));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static byte[] hmac(SecretKeySpec key, byte[] data) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(data);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC not available", e);
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.neovation.service;
+
+import com.neovation.model.FileAttachment;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes the attachments of a request as one ZIP archive, streamed to the client as it is built.
+ * <p>
+ * Files are added in order. While one is being compressed, the next {@code app.attachments.zip.lookahead} are
+ * already being read from storage on virtual threads, each into a queue of at most
+ * {@code app.attachments.zip.buffer-per-file} bytes; a reader that gets that far ahead waits. Memory per archive
+ * is therefore bounded by {@code (lookahead + 1) * buffer-per-file} however many or large the files are, and a
+ * slow client slows the readers down rather than letting data pile up.
+ * <p>
+ * Files stored gzipped are decompressed, so the archive holds the files as they were uploaded.
+ */
+@Component
+public class AttachmentArchiver {
+    private static final Logger log = LoggerFactory.getLogger(AttachmentArchiver.class);
+    private static final int CHUNK_SIZE = 64 * 1024;
+    // Queue markers; compared by identity
+    private static final byte[] END = new byte[0];
+    private static final byte[] MISSING = new byte[0];
+
+    final private FileStorageService fileStorageService;
+    final private int lookahead;
+    final private int chunksPerFile;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public AttachmentArchiver(FileStorageService fileStorageService,
+                              @Value("${app.attachments.zip.lookahead:3}") int lookahead,
+                              @Value("${app.attachments.zip.buffer-per-file:1MB}") DataSize bufferPerFile) {
+        this.fileStorageService = fileStorageService;
+        this.lookahead = lookahead;
+        this.chunksPerFile = (int) Math.max(bufferPerFile.toBytes() / CHUNK_SIZE, 1);
+    }
+
+    /**
+     * Writes {@code attachments} to {@code out} as a ZIP archive, one entry per file, named after
+     * {@link FileAttachment#getFileName()}. Files whose stored blob is missing are left out.
+     *
+     * @return The number of entries written.
+     * @throws IOException if a file cannot be read or the client goes away; reads still in flight are cancelled.
+     */
+    public int writeZip(List<FileAttachment> attachments, OutputStream out) throws IOException {
+        List<Prefetch> started = new ArrayList<>(attachments.size());
+        Set<String> names = new HashSet<>();
+        int entries = 0;
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            // Most attachments (PDFs, images) are compressed already; favour throughput
+            zip.setLevel(Deflater.BEST_SPEED);
+            for (int i = 0; i < attachments.size(); i++) {
+                while (started.size() < Math.min(attachments.size(), i + 1 + lookahead)) {
+                    started.add(new Prefetch(attachments.get(started.size())));
+                }
+                Prefetch file = started.get(i);
+                byte[] chunk = file.next();
+                if (chunk == MISSING) {
+                    log.warn("Leaving attachment {} out of the archive: file {} is missing",
+                            file.attachment.getId(), file.attachment.getUrl());
+                    continue;
+                }
+                zip.putNextEntry(new ZipEntry(entryName(file.attachment, names)));
+                for (; chunk != END; chunk = file.next()) {
+                    zip.write(chunk);
+                }
+                zip.closeEntry();
+                entries++;
+            }
+        } finally {
+            started.forEach(Prefetch::cancel);
+        }
+        return entries;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * The attachment's file name without any directory part, made unique within the archive ("a.pdf",
+     * "a (2).pdf", ...).
+     */
+    static String entryName(FileAttachment attachment, Set<String> taken) {
+        String name = attachment.getFileName() == null ? "" : attachment.getFileName();
+        name = name.substring(Math.max(name.lastIndexOf('/'), name.lastIndexOf('\\')) + 1).trim();
+        if (name.isEmpty() || name.equals(".") || name.equals("..")) {
+            name = "attachment-" + attachment.getId();
+        }
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        String extension = dot > 0 ? name.substring(dot) : "";
+        String unique = name;
+        for (int n = 2; !taken.add(unique.toLowerCase()); n++) {
+            unique = base + " (" + n + ")" + extension;
+        }
+        return unique;
+    }
+
+    /**
+     * Reads one file into a bounded queue of chunks on a virtual thread.
+     */
+    private final class Prefetch {
+        final FileAttachment attachment;
+        final BlockingQueue<Object> chunks = new ArrayBlockingQueue<>(chunksPerFile);
+        final Future<?> task;
+
+        Prefetch(FileAttachment attachment) {
+            this.attachment = attachment;
+            this.task = executor.submit(this::read);
+        }
+
+        private void read() {
+            try {
+                BlobStore.BlobHeader file = fileStorageService.describeFile(attachment.getUrl());
+                if (file == null) {
+                    chunks.put(MISSING);
+                    return;
+                }
+                try (ChunkOutputStream out = new ChunkOutputStream(chunks)) {
+                    fileStorageService.copyFile(attachment.getUrl(), 0, file.size(), "gzip".equals(file.contentEncoding()), out);
+                }
+                chunks.put(END);
+            } catch (InterruptedException | InterruptedIOException e) {
+                // Cancelled: the archive failed or the client went away
+            } catch (Exception e) {
+                // Only this thread adds to the queue, so after clearing it the error always fits
+                chunks.clear();
+                chunks.offer(e);
+            }
+        }
+
+        byte[] next() throws IOException {
+            try {
+                Object item = chunks.take();
+                if (item instanceof Exception e) {
+                    throw new IOException("Could not read attachment " + attachment.getId() + " (" + attachment.getUrl() + ")", e);
+                }
+                return (byte[]) item;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while reading attachment " + attachment.getId());
+            }
+        }
+
+        void cancel() {
+            task.cancel(true);
+        }
+    }
+
+    /**
+     * Cuts what is written into {@value #CHUNK_SIZE}-byte chunks and hands each full one to the queue, waiting
+     * while the queue is full.
+     */
+    private static final class ChunkOutputStream extends OutputStream {
+        private final BlockingQueue<Object> chunks;
+        private byte[] chunk = new byte[CHUNK_SIZE];
+        private int length;
+
+        ChunkOutputStream(BlockingQueue<Object> chunks) {
+            this.chunks = chunks;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int n = Math.min(len, CHUNK_SIZE - length);
+                System.arraycopy(b, off, chunk, length, n);
+                length += n;
+                off += n;
+                len -= n;
+                if (length == CHUNK_SIZE) {
+                    flush();
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (length == 0) {
+                return;
+            }
+            byte[] full = length == CHUNK_SIZE ? chunk : Arrays.copyOf(chunk, length);
+            try {
+                chunks.put(full);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while queueing a chunk");
+            }
+            chunk = new byte[CHUNK_SIZE];
+            length = 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
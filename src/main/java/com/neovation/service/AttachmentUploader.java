@@ -0,0 +1,134 @@
+package com.neovation.service;
+
+import com.neovation.model.FileAttachment;
+import com.neovation.model.FilePurpose;
+import com.neovation.model.StoredBlob;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Uploads the attachments of one request to GCS concurrently.
+ * <p>
+ * Each file is uploaded on its own virtual thread, with at most {@code app.attachments.upload-concurrency} uploads
+ * in flight per call so one large request cannot open an unbounded number of GCS sessions. The call is all or
+ * nothing: if any upload fails, the remaining ones are skipped, the blobs already referenced are released, and
+ * the failure is rethrown.
+ * <p>
+ * Files go through {@link StoredBlobService}, so content that is already stored is not uploaded again.
+ */
+@Component
+public class AttachmentUploader {
+    private static final Logger log = LoggerFactory.getLogger(AttachmentUploader.class);
+
+    final private StoredBlobService storedBlobService;
+    final private int concurrency;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public AttachmentUploader(StoredBlobService storedBlobService,
+                              @Value("${app.attachments.upload-concurrency:4}") int concurrency) {
+        this.storedBlobService = storedBlobService;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Uploads {@code files}, taking one blob reference per file.
+     *
+     * @param purpose Purpose recorded on every attachment; may be null.
+     * @return One unsaved {@link FileAttachment} per file, in the same order as {@code files}.
+     */
+    public List<FileAttachment> upload(List<MultipartFile> files, FilePurpose purpose) {
+        if (files.size() == 1) {
+            // Nothing to overlap; skip the thread hand-off
+            MultipartFile file = files.get(0);
+            return List.of(toAttachment(file, storedBlobService.store(file), purpose));
+        }
+
+        Semaphore permits = new Semaphore(concurrency);
+        AtomicBoolean failed = new AtomicBoolean();
+        List<Future<StoredBlob>> uploads = new ArrayList<>(files.size());
+        for (MultipartFile file : files) {
+            uploads.add(executor.submit(() -> {
+                permits.acquire();
+                try {
+                    // Once one upload has failed the whole batch is discarded, so don't start new ones
+                    return failed.get() ? null : storedBlobService.store(file);
+                } catch (RuntimeException e) {
+                    failed.set(true);
+                    throw e;
+                } finally {
+                    permits.release();
+                }
+            }));
+        }
+
+        List<StoredBlob> blobs = new ArrayList<>(files.size());
+        Throwable failure = null;
+        for (Future<StoredBlob> upload : uploads) {
+            try {
+                blobs.add(upload.get());
+            } catch (ExecutionException e) {
+                failure = failure != null ? failure : e.getCause();
+                blobs.add(null);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failed.set(true);
+                failure = failure != null ? failure : e;
+                blobs.add(null);
+            }
+        }
+
+        List<FileAttachment> attachments = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            if (blobs.get(i) != null) {
+                attachments.add(toAttachment(files.get(i), blobs.get(i), purpose));
+            }
+        }
+        if (failure != null) {
+            log.warn("Attachment upload failed; releasing {} file(s) already uploaded", attachments.size());
+            storedBlobService.release(attachments);
+            throw failure instanceof RuntimeException e ? e : new RuntimeException("Could not store attachments", failure);
+        }
+        return attachments;
+    }
+
+    /**
+     * Releases the blobs of attachments that were uploaded but could not be saved.
+     */
+    public void discard(List<FileAttachment> attachments) {
+        log.warn("Releasing {} uploaded file(s) whose request could not be saved", attachments.size());
+        storedBlobService.release(attachments);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private static FileAttachment toAttachment(MultipartFile file, StoredBlob blob, FilePurpose purpose) {
+        FileAttachment attachment = new FileAttachment();
+        // Store the original file name for display
+        attachment.setFileName(file.getOriginalFilename());
+        attachment.setFileSize(file.getSize());
+        attachment.setFileType(file.getContentType());
+        attachment.setPurpose(purpose);
+        // Store the GCS path in the URL field
+        attachment.setUrl(blob.getBlobPath());
+        attachment.setStoredBlobId(blob.getId());
+        attachment.setStoredSize(blob.getStoredSize());
+        attachment.setContentEncoding(blob.getContentEncoding());
+        return attachment;
+    }
+}
@@ -0,0 +1,244 @@
+package com.neovation.service;
+
+import com.neovation.model.PendingBlobDeletion;
+import com.neovation.repository.PendingBlobDeletionRepository;
+import com.neovation.repository.StoredBlobRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Removes GCS files in the background once their database rows are gone.
+ * <p>
+ * {@link #schedule} records the blob paths in {@code pending_blob_deletions} inside the caller's transaction, so
+ * the API can return as soon as the rows are deleted and a file is never forgotten because GCS was unavailable.
+ * Every poll claims up to {@code batch-size} due paths and deletes them with one GCS batch request. Paths that
+ * fail are retried with exponential backoff; after {@code max-attempts} they are left in the table for
+ * inspection.
+ * <p>
+ * A content-addressed path that has been stored again since it was queued (see {@link StoredBlobService}) is
+ * dropped from the queue instead of deleted. A batch is checked and deleted with its queue rows locked, and
+ * {@link #cancel} takes the same locks before a path is written again, so a re-upload either cancels the
+ * deletion first or waits until the old file is gone.
+ * <p>
+ * Metrics: {@code storage.pending_deletions} and {@code storage.failed_deletions} (refreshed every poll), and
+ * {@code storage.blob_deletions} tagged by outcome.
+ */
+@Service
+public class BlobDeletionService {
+    private static final Logger log = LoggerFactory.getLogger(BlobDeletionService.class);
+
+    final private PendingBlobDeletionRepository deletionRepo;
+    final private StoredBlobRepository storedBlobRepo;
+    final private FileStorageService fileStorageService;
+    final private MeterRegistry meterRegistry;
+    final private TransactionTemplate transaction;
+
+    @Value("${app.storage.deletion.enabled:true}")
+    private boolean enabled;
+
+    // GCS accepts at most 100 calls per batch request
+    @Value("${app.storage.deletion.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.storage.deletion.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${app.storage.deletion.initial-backoff:1m}")
+    private Duration initialBackoff;
+
+    @Value("${app.storage.deletion.max-backoff:6h}")
+    private Duration maxBackoff;
+
+    @Value("${app.storage.deletion.claim-timeout:5m}")
+    private Duration claimTimeout;
+
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public BlobDeletionService(PendingBlobDeletionRepository deletionRepo, StoredBlobRepository storedBlobRepo,
+                               FileStorageService fileStorageService, PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry) {
+        this.deletionRepo = deletionRepo;
+        this.storedBlobRepo = storedBlobRepo;
+        this.fileStorageService = fileStorageService;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder("storage.pending_deletions", pending, AtomicLong::get)
+                .description("GCS files waiting to be deleted")
+                .register(meterRegistry);
+        Gauge.builder("storage.failed_deletions", failed, AtomicLong::get)
+                .description("GCS files that exhausted their deletion retries")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queues files for deletion. Call it in the transaction that deletes the rows referencing them.
+     */
+    @Transactional
+    public void schedule(Collection<String> blobPaths) {
+        List<PendingBlobDeletion> deletions = new ArrayList<>();
+        for (String blobPath : blobPaths) {
+            if (blobPath == null || blobPath.isEmpty()) {
+                continue;
+            }
+            PendingBlobDeletion deletion = new PendingBlobDeletion();
+            deletion.setBlobPath(blobPath);
+            deletions.add(deletion);
+        }
+        if (!deletions.isEmpty()) {
+            deletionRepo.saveAll(deletions);
+            log.info("Queued {} GCS file(s) for deletion", deletions.size());
+        }
+    }
+
+    /**
+     * Drops the queued deletions of a path that is about to be written again. Waits while a purge is deleting
+     * it, so the new file is never written before the old one is gone.
+     */
+    @Transactional
+    public void cancel(String blobPath) {
+        if (deletionRepo.deleteByBlobPath(blobPath) > 0) {
+            log.info("Cancelled the queued deletion of GCS file {}; it is being stored again", blobPath);
+        }
+    }
+
+    /**
+     * Deletes one batch of due files.
+     */
+    @Scheduled(fixedDelayString = "${app.storage.deletion.poll-interval-ms:10000}")
+    public void purge() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            List<PendingBlobDeletion> batch = new ArrayList<>();
+            for (PendingBlobDeletion deletion : deletionRepo.findDue(now, maxAttempts, PageRequest.of(0, batchSize))) {
+                // Another instance may have claimed it between the select and now
+                if (deletionRepo.claim(deletion.getId(), now, now.plus(claimTimeout)) == 1) {
+                    batch.add(deletion);
+                }
+            }
+            if (!batch.isEmpty()) {
+                transaction.executeWithoutResult(status -> delete(batch));
+            }
+
+            pending.set(deletionRepo.countByAttemptsLessThan(maxAttempts));
+            failed.set(deletionRepo.countByAttemptsGreaterThanEqual(maxAttempts));
+        } catch (RuntimeException e) {
+            log.error("Pending GCS deletion poll failed", e);
+        }
+    }
+
+    /**
+     * Runs in a transaction that holds the batch's queue rows locked from the check to the delete.
+     */
+    private void delete(List<PendingBlobDeletion> batch) {
+        Set<Long> queued = deletionRepo.lockAll(batch.stream().map(PendingBlobDeletion::getId).toList()).stream()
+                .map(PendingBlobDeletion::getId)
+                .collect(Collectors.toSet());
+        if (queued.size() < batch.size()) {
+            count("skipped", batch.size() - queued.size());
+            log.info("Not deleting {} GCS file(s) whose deletion was cancelled since being claimed",
+                    batch.size() - queued.size());
+            batch = batch.stream().filter(d -> queued.contains(d.getId())).toList();
+            if (batch.isEmpty()) {
+                return;
+            }
+        }
+
+        Set<String> revived = new HashSet<>(storedBlobRepo.findExistingPaths(
+                batch.stream().map(PendingBlobDeletion::getBlobPath).toList()));
+        if (!revived.isEmpty()) {
+            List<PendingBlobDeletion> skipped = batch.stream().filter(d -> revived.contains(d.getBlobPath())).toList();
+            deletionRepo.deleteDone(skipped.stream().map(PendingBlobDeletion::getId).toList());
+            count("skipped", skipped.size());
+            log.info("Not deleting {} GCS file(s) that were stored again since being queued", skipped.size());
+            batch = batch.stream().filter(d -> !revived.contains(d.getBlobPath())).toList();
+            if (batch.isEmpty()) {
+                return;
+            }
+        }
+
+        Map<String, String> failures;
+        try {
+            failures = fileStorageService.deleteFiles(batch.stream().map(PendingBlobDeletion::getBlobPath).toList());
+        } catch (RuntimeException e) {
+            // The batch request itself failed; every file counts as a failed attempt
+            String error = e.getClass().getSimpleName() + ": " + e.getMessage();
+            batch.forEach(d -> fail(d, error));
+            return;
+        }
+
+        List<Long> done = new ArrayList<>();
+        for (PendingBlobDeletion deletion : batch) {
+            String error = failures.get(deletion.getBlobPath());
+            if (error == null) {
+                done.add(deletion.getId());
+            } else {
+                fail(deletion, error);
+            }
+        }
+        if (!done.isEmpty()) {
+            deletionRepo.deleteDone(done);
+            count("deleted", done.size());
+        }
+    }
+
+    private void fail(PendingBlobDeletion deletion, String error) {
+        int attempts = deletion.getAttempts() + 1;
+        error = error.length() <= 1000 ? error : error.substring(0, 1000);
+        if (attempts >= maxAttempts) {
+            deletionRepo.markFailed(deletion.getId(), attempts, LocalDateTime.now(), error);
+            log.error("Giving up on deleting GCS file {} after {} attempt(s): {}", deletion.getBlobPath(), attempts, error);
+            count("dead", 1);
+            return;
+        }
+        Duration delay = backoff(attempts);
+        deletionRepo.markFailed(deletion.getId(), attempts, LocalDateTime.now().plus(delay), error);
+        log.warn("Failed to delete GCS file {} (attempt {}), retrying in {}s: {}",
+                deletion.getBlobPath(), attempts, delay.toSeconds(), error);
+        count("retry", 1);
+    }
+
+    private void count(String outcome, int amount) {
+        Counter.builder("storage.blob_deletions")
+                .description("GCS files processed by the background deleter")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment(amount);
+    }
+
+    /**
+     * Exponential backoff with equal jitter, as for the email outbox.
+     */
+    Duration backoff(int attempts) {
+        long base = initialBackoff.toMillis() << Math.min(attempts - 1, 20);
+        long capped = Math.min(base, maxBackoff.toMillis());
+        long half = capped / 2;
+        return Duration.ofMillis(half + ThreadLocalRandom.current().nextLong(half + 1));
+    }
+}
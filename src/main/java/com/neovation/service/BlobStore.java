@@ -0,0 +1,145 @@
+package com.neovation.service;
+
+import org.springframework.web.util.UriUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Where {@link FileStorageService} keeps file contents. Blob paths are relative ("123/uuid-my-file.pdf") and
+ * are what gets stored in the database, so switching backends does not change any row.
+ * <p>
+ * The backend is chosen with {@code app.storage.backend}: {@code gcs} (default, {@link GcsBlobStore}) or
+ * {@code local} ({@link LocalBlobStore}, enabled by the {@code local} profile).
+ */
+public interface BlobStore {
+
+    /**
+     * Most blobs one {@link #compose} call accepts (the GCS limit).
+     */
+    int MAX_COMPOSE_SOURCES = 32;
+
+    /**
+     * Size, type and checksums of a stored blob. Checksums are Base64, in the format GCS reports them.
+     */
+    record BlobMetadata(long size, String contentType, String crc32c, String md5) {
+    }
+
+    /**
+     * What a download needs to know about a blob before reading it; cheap to fetch, unlike {@link BlobMetadata}.
+     *
+     * @param size            Stored size in bytes (compressed, if {@code contentEncoding} is set).
+     * @param contentEncoding "gzip" if the bytes are compressed, otherwise null.
+     * @param etag            Changes whenever the blob's content does; unquoted.
+     */
+    record BlobHeader(long size, String contentType, String contentEncoding, String etag, Instant updated) {
+    }
+
+    /**
+     * One entry of a {@link #list} of the store.
+     *
+     * @param updated When the blob was last written.
+     */
+    record BlobSummary(String path, long size, Instant updated) {
+    }
+
+    /**
+     * A signed request the client can make without credentials.
+     *
+     * @param method  HTTP method to use.
+     * @param headers Headers the client must send exactly as given.
+     */
+    record SignedRequest(String url, String method, Map<String, String> headers) {
+    }
+
+    /**
+     * Where blobs live, for log messages and cache keys (e.g., "gs://my-bucket").
+     */
+    String location();
+
+    /**
+     * Streams {@code in} into a new blob, replacing any blob at the same path.
+     *
+     * @param contentEncoding Encoding of the bytes in {@code in} (e.g., "gzip"), served as the
+     *                        {@code Content-Encoding} of downloads; null if they are stored as is.
+     */
+    void write(String blobPath, String contentType, String contentEncoding, InputStream in) throws IOException;
+
+    /**
+     * Concatenates the source blobs, in order, into a new blob, replacing any blob at {@code targetPath}. The
+     * sources are left in place. At most {@value #MAX_COMPOSE_SOURCES} sources.
+     *
+     * @param contentEncoding Encoding of the concatenated bytes, as for {@link #write}.
+     */
+    void compose(List<String> sourcePaths, String targetPath, String contentType, String contentEncoding) throws IOException;
+
+    /**
+     * @return The blob's metadata, or null if it does not exist.
+     */
+    BlobMetadata stat(String blobPath);
+
+    /**
+     * @return The blob's header, or null if it does not exist.
+     */
+    BlobHeader head(String blobPath);
+
+    /**
+     * Opens the blob's stored bytes for reading, starting at {@code offset}. The caller reads at most
+     * {@code length} bytes; backends that fetch ahead stop there.
+     */
+    ReadableByteChannel read(String blobPath, long offset, long length) throws IOException;
+
+    /**
+     * Lists every blob in the store. The listing is fetched lazily, one page at a time, so it can be consumed
+     * without holding the whole store in memory; close the stream when done.
+     */
+    Stream<BlobSummary> list();
+
+    /**
+     * Moves a blob to another path, replacing any blob there.
+     */
+    void move(String fromPath, String toPath) throws IOException;
+
+    /**
+     * @return false if there was no blob to delete.
+     */
+    boolean delete(String blobPath) throws IOException;
+
+    /**
+     * Deletes several blobs, in as few requests as the backend allows. Blobs that are already gone count as
+     * deleted.
+     *
+     * @return Blob path to error message for the blobs that could not be deleted; empty if all are gone.
+     */
+    Map<String, String> deleteAll(List<String> blobPaths);
+
+    /**
+     * Signs a URL that downloads the blob until {@code lifetime} has passed.
+     *
+     * @param fileName The name the browser saves the file as, sent in a {@code Content-Disposition: attachment}
+     *                 header; null to leave it to the browser, which then uses the last segment of the path.
+     */
+    String signDownload(String blobPath, String fileName, Duration lifetime);
+
+    /**
+     * The {@code Content-Disposition} value that makes a browser save a download as {@code fileName}, with the
+     * name RFC 5987 encoded so non-ASCII names survive.
+     */
+    static String attachmentDisposition(String fileName) {
+        // Only filename*: ContentDisposition would add an RFC 2047 filename= that browsers show literally
+        return "attachment; filename*=UTF-8''" + UriUtils.encode(fileName, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Signs a request that uploads a blob of the given content type, at most {@code maxSize} bytes long, to
+     * {@code blobPath}.
+     */
+    SignedRequest signUpload(String blobPath, String contentType, long maxSize, Duration lifetime);
+}
@@ -0,0 +1,37 @@
+package com.neovation.service;
+
+import com.neovation.config.AuthenticatedUser;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+
+/**
+ * Gives services access to the authenticated principal of the current request.
+ * The principal is resolved once by JwtAuthFilter and already carries id, email, role and display name,
+ * so callers no longer need to look the user up by email.
+ */
+@Service
+public class CurrentUserService {
+
+    /**
+     * @return The principal of the current request, or empty for anonymous requests.
+     */
+    public Optional<AuthenticatedUser> get() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser principal) {
+            return Optional.of(principal);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @return The principal of the current request.
+     * @throws AccessDeniedException if the request is not authenticated.
+     */
+    public AuthenticatedUser require() {
+        return get().orElseThrow(() -> new AccessDeniedException("User not authenticated."));
+    }
+}
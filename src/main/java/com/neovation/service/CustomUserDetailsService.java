@@ -1,19 +1,18 @@
 package com.neovation.service;
 
+import com.neovation.config.AuthenticatedUser;
 import com.neovation.repository.UserRepository;
 import com.neovation.model.User;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
-
 @Service
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
     private static final Logger log = LoggerFactory.getLogger(CustomUserDetailsService.class);
     final private UserRepository userRepo;
     public CustomUserDetailsService(UserRepository userRepo) {
@@ -28,13 +27,20 @@ public class CustomUserDetailsService implements UserDetailsService {
                     return new UsernameNotFoundException("User not found: " + email);
                 });
 
-        return new org.springframework.security.core.userdetails.User(
-                user.getEmail(),
-                user.getPassword(),
-                user.isEnabled(),
-                true, true, true,
-                List.of(new SimpleGrantedAuthority("ROLE_" + user.getRole().name()))
-        );
+        return AuthenticatedUser.from(user);
     }
-}
 
+    /**
+     * Called by DaoAuthenticationProvider after a successful login when the stored hash
+     * uses a different BCrypt strength than the current one.
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        User user = userRepo.findByEmail(userDetails.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + userDetails.getUsername()));
+        user.setPassword(newPassword);
+        userRepo.save(user);
+        log.info("Re-hashed password with the current BCrypt strength for user: {}", user.getEmail());
+        return AuthenticatedUser.from(user);
+    }
+}
@@ -0,0 +1,263 @@
+package com.neovation.service;
+
+import com.neovation.model.EmailOutboxMessage;
+import com.neovation.model.EmailOutboxStatus;
+import com.neovation.repository.EmailOutboxRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains the email outbox in the background.
+ * <p>
+ * Every poll claims at most {@code batch-size} due messages per idle worker, so SMTP work is bounded by
+ * {@code app.mail.outbox.workers} no matter how large the backlog grows. Each worker sends its batch over one
+ * pooled SMTP session (see {@link EmailSender#openBatch()}). A failed send is retried with
+ * exponential backoff (capped, with jitter); after {@code max-attempts} the message is parked as DEAD.
+ * Messages left in SENDING by a crashed instance are put back in the queue after {@code claim-timeout}.
+ * Bodies are blanked once a message is SENT or DEAD, since activation and reset mails carry a plaintext password.
+ * <p>
+ * Metrics: {@code email.outbox.pending} and {@code email.outbox.dead} (queue depth, refreshed every poll),
+ * {@code email.outbox.busy_workers}, and the {@code email.outbox.send} timer tagged by outcome.
+ */
+@Service
+public class EmailOutboxDispatcher {
+    private static final Logger log = LoggerFactory.getLogger(EmailOutboxDispatcher.class);
+
+    final private EmailOutboxRepository outboxRepo;
+    final private EmailSender emailSender;
+    final private MeterRegistry meterRegistry;
+
+    @Value("${app.mail.outbox.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.mail.outbox.workers:4}")
+    private int workers;
+
+    @Value("${app.mail.outbox.batch-size:20}")
+    private int batchSize;
+
+    @Value("${app.mail.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${app.mail.outbox.initial-backoff:30s}")
+    private Duration initialBackoff;
+
+    @Value("${app.mail.outbox.max-backoff:1h}")
+    private Duration maxBackoff;
+
+    @Value("${app.mail.outbox.claim-timeout:10m}")
+    private Duration claimTimeout;
+
+    @Value("${app.mail.outbox.sent-retention:30d}")
+    private Duration sentRetention;
+
+    @Value("${app.mail.outbox.dead-retention:90d}")
+    private Duration deadRetention;
+
+    private final AtomicInteger busyWorkers = new AtomicInteger();
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong dead = new AtomicLong();
+    private ThreadPoolExecutor executor;
+
+    public EmailOutboxDispatcher(EmailOutboxRepository outboxRepo, EmailSender emailSender, MeterRegistry meterRegistry) {
+        this.outboxRepo = outboxRepo;
+        this.emailSender = emailSender;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        // The poller never hands out more than `workers` batches, so the queue only absorbs hand-off races
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(workers),
+                r -> {
+                    Thread t = new Thread(r, "email-outbox-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("email.outbox.pending", pending, AtomicLong::get)
+                .description("Emails waiting to be sent")
+                .register(meterRegistry);
+        Gauge.builder("email.outbox.dead", dead, AtomicLong::get)
+                .description("Emails that exhausted their retries")
+                .register(meterRegistry);
+        Gauge.builder("email.outbox.busy_workers", busyWorkers, AtomicInteger::get)
+                .description("Outbox workers currently sending a batch")
+                .register(meterRegistry);
+
+        log.info("Email outbox dispatcher: {} worker(s), batches of {}, max {} attempt(s), enabled={}",
+                workers, batchSize, maxAttempts, enabled);
+    }
+
+    /**
+     * Claims due messages for the idle workers and hands them off.
+     */
+    @Scheduled(fixedDelayString = "${app.mail.outbox.poll-interval-ms:2000}")
+    public void poll() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            int released = outboxRepo.releaseStale(now.minus(claimTimeout));
+            if (released > 0) {
+                log.warn("Re-queued {} email(s) left unsent by a previous claim", released);
+            }
+
+            int free = workers - busyWorkers.get();
+            if (free > 0) {
+                List<EmailOutboxMessage> due = outboxRepo.findDue(now, PageRequest.of(0, free * batchSize));
+                List<EmailOutboxMessage> batch = new ArrayList<>(batchSize);
+                for (EmailOutboxMessage message : due) {
+                    // Another instance may have claimed it between the select and now
+                    if (outboxRepo.claim(message.getId(), now) == 1) {
+                        batch.add(message);
+                    }
+                    if (batch.size() == batchSize) {
+                        dispatch(batch);
+                        batch = new ArrayList<>(batchSize);
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    dispatch(batch);
+                }
+            }
+
+            pending.set(outboxRepo.countByStatus(EmailOutboxStatus.PENDING));
+            dead.set(outboxRepo.countByStatus(EmailOutboxStatus.DEAD));
+        } catch (RuntimeException e) {
+            log.error("Email outbox poll failed", e);
+        }
+    }
+
+    /**
+     * Deletes delivered messages once they are past the retention window. DEAD ones are kept longer for
+     * inspection (recipient, subject and last error; the body is already gone), then deleted too.
+     */
+    @Scheduled(cron = "${app.mail.outbox.cleanup-cron:0 45 3 * * *}")
+    public void purgeSent() {
+        LocalDateTime now = LocalDateTime.now();
+        int deleted = outboxRepo.deleteSentBefore(now.minus(sentRetention));
+        int deletedDead = outboxRepo.deleteDeadBefore(now.minus(deadRetention));
+        log.info("Purged {} sent and {} dead email(s) from the outbox", deleted, deletedDead);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            // Whatever is still running stays SENDING and is re-queued after the claim timeout
+            log.warn("Email outbox workers did not finish in time; {} batch(es) abandoned", busyWorkers.get());
+            executor.shutdownNow();
+        }
+    }
+
+    private void dispatch(List<EmailOutboxMessage> batch) {
+        busyWorkers.incrementAndGet();
+        try {
+            executor.execute(() -> {
+                try {
+                    deliver(batch);
+                } finally {
+                    busyWorkers.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            busyWorkers.decrementAndGet();
+            for (EmailOutboxMessage message : batch) {
+                outboxRepo.markFailed(message.getId(), EmailOutboxStatus.PENDING, message.getAttempts(),
+                        LocalDateTime.now(), message.getLastError());
+            }
+            log.warn("Email outbox workers busy; released {} email(s)", batch.size());
+        }
+    }
+
+    /**
+     * Sends a batch over one SMTP session. A failure only affects the message it happened on.
+     */
+    void deliver(List<EmailOutboxMessage> batch) {
+        EmailSender.Batch session;
+        try {
+            session = emailSender.openBatch();
+        } catch (Exception e) {
+            // Could not reach the server at all; every message in the batch counts as a failed attempt
+            for (EmailOutboxMessage message : batch) {
+                record(Timer.start(meterRegistry), fail(message, e));
+            }
+            return;
+        }
+        try (session) {
+            for (EmailOutboxMessage message : batch) {
+                Timer.Sample sample = Timer.start(meterRegistry);
+                String outcome;
+                try {
+                    session.send(message.getRecipient(), message.getSubject(), message.getHtmlBody());
+                    outboxRepo.markSent(message.getId(), LocalDateTime.now());
+                    outcome = "sent";
+                } catch (Exception e) {
+                    outcome = fail(message, e);
+                }
+                record(sample, outcome);
+            }
+        }
+    }
+
+    private String fail(EmailOutboxMessage message, Exception e) {
+        int attempts = message.getAttempts() + 1;
+        String error = truncate(e.getClass().getSimpleName() + ": " + e.getMessage(), 1000);
+        if (attempts >= maxAttempts) {
+            outboxRepo.markDead(message.getId(), attempts, error);
+            log.error("Giving up on email {} to {} after {} attempt(s): {}",
+                    message.getId(), message.getRecipient(), attempts, error);
+            return "dead";
+        }
+        Duration delay = backoff(attempts);
+        outboxRepo.markFailed(message.getId(), EmailOutboxStatus.PENDING, attempts,
+                LocalDateTime.now().plus(delay), error);
+        log.warn("Failed to send email {} to {} (attempt {}), retrying in {}s: {}",
+                message.getId(), message.getRecipient(), attempts, delay.toSeconds(), error);
+        return "retry";
+    }
+
+    private void record(Timer.Sample sample, String outcome) {
+        sample.stop(Timer.builder("email.outbox.send")
+                .description("Time spent delivering an outbox email over SMTP")
+                .tag("outcome", outcome)
+                .register(meterRegistry));
+    }
+
+    /**
+     * Exponential backoff with "equal jitter": half the delay is fixed, half is random, so retries for a burst
+     * of failures spread out instead of hitting SMTP together.
+     */
+    Duration backoff(int attempts) {
+        long base = initialBackoff.toMillis() << Math.min(attempts - 1, 20);
+        long capped = Math.min(base, maxBackoff.toMillis());
+        long half = capped / 2;
+        return Duration.ofMillis(half + ThreadLocalRandom.current().nextLong(half + 1));
+    }
+
+    private static String truncate(String value, int max) {
+        return value.length() <= max ? value : value.substring(0, max);
+    }
+}
@@ -0,0 +1,37 @@
+package com.neovation.service;
+
+import com.neovation.model.EmailOutboxMessage;
+import com.neovation.repository.EmailOutboxRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Queues outgoing email in the {@code email_outbox} table.
+ * <p>
+ * Called inside the caller's transaction, the row commits or rolls back together with the business change that
+ * triggered it, so a mail is never sent for a change that did not happen and never lost for one that did.
+ * Delivery is done later by {@link EmailOutboxDispatcher}.
+ */
+@Service
+public class EmailOutboxService {
+    private static final Logger log = LoggerFactory.getLogger(EmailOutboxService.class);
+
+    final private EmailOutboxRepository outboxRepo;
+
+    public EmailOutboxService(EmailOutboxRepository outboxRepo) {
+        this.outboxRepo = outboxRepo;
+    }
+
+    @Transactional
+    public EmailOutboxMessage enqueue(String to, String subject, String htmlBody) {
+        EmailOutboxMessage message = new EmailOutboxMessage();
+        message.setRecipient(to);
+        message.setSubject(subject);
+        message.setHtmlBody(htmlBody);
+        message = outboxRepo.save(message);
+        log.info("Queued email {} to {} with subject: {}", message.getId(), to, subject);
+        return message;
+    }
+}
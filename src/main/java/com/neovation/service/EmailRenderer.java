@@ -0,0 +1,138 @@
+package com.neovation.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.MessageSource;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.Context;
+import org.unbescape.html.HtmlEscape;
+
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Renders the HTML email templates, running Thymeleaf once per template "shape" instead of once per email.
+ * <p>
+ * The first render of a (template, locale, messages, set of non-null variables) combination processes the
+ * template with a placeholder in place of every per-message variable, then splits the output around those
+ * placeholders. Later renders only HTML-escape the variables and concatenate them with the cached fragments.
+ * Message lookups without arguments are cached per locale as well.
+ * <p>
+ * Templates rendered this way may only test per-message variables for {@code null} ({@code th:if}) and must not
+ * format them; pass pre-formatted strings instead.
+ */
+@Component
+public class EmailRenderer {
+    private static final Logger log = LoggerFactory.getLogger(EmailRenderer.class);
+
+    // Private-use code points, which never occur in the templates or message bundles
+    private static final char OPEN = '\uE000';
+    private static final char CLOSE = '\uE001';
+
+    @Value("${app.frontend.url}")
+    private String frontendUrl;
+
+    final private TemplateEngine templateEngine;
+    final private MessageSource messageSource;
+
+    private final Map<String, String> messages = new ConcurrentHashMap<>();
+    private final Map<String, CompiledTemplate> compiled = new ConcurrentHashMap<>();
+
+    public EmailRenderer(TemplateEngine templateEngine, MessageSource messageSource) {
+        this.templateEngine = templateEngine;
+        this.messageSource = messageSource;
+    }
+
+    /**
+     * Builds a variables map from name/value pairs; unlike {@link Map#of}, values may be null.
+     */
+    public static Map<String, String> variables(String... namesAndValues) {
+        Map<String, String> variables = new LinkedHashMap<>();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            variables.put(namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return variables;
+    }
+
+    /**
+     * @return The message for {@code code} in {@code locale}, resolved once and then served from memory.
+     */
+    public String message(String code, Locale locale) {
+        return messages.computeIfAbsent(code + '|' + locale, k -> messageSource.getMessage(code, null, locale));
+    }
+
+    /**
+     * Renders a template. {@code baseUrl} is always set to the frontend URL.
+     *
+     * @param messageCodes Template variable name to message code; resolved in {@code locale} and cached.
+     * @param variables    Per-message values, HTML-escaped on every render. Null values are allowed.
+     */
+    public String render(String template, Locale locale, Map<String, String> messageCodes, Map<String, String> variables) {
+        CompiledTemplate compiledTemplate = compiled.computeIfAbsent(
+                cacheKey(template, locale, messageCodes, variables),
+                k -> compile(template, locale, messageCodes, variables));
+        return compiledTemplate.fill(variables);
+    }
+
+    private CompiledTemplate compile(String template, Locale locale, Map<String, String> messageCodes, Map<String, String> variables) {
+        Context context = new Context(locale);
+        context.setVariable("baseUrl", frontendUrl);
+        messageCodes.forEach((name, code) -> context.setVariable(name, message(code, locale)));
+        variables.forEach((name, value) -> {
+            if (value != null) {
+                context.setVariable(name, OPEN + name + CLOSE);
+            }
+        });
+        String html = templateEngine.process(template, context);
+
+        List<String> literals = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        int start = 0;
+        int open;
+        while ((open = html.indexOf(OPEN, start)) >= 0) {
+            int close = html.indexOf(CLOSE, open);
+            literals.add(html.substring(start, open));
+            names.add(html.substring(open + 1, close));
+            start = close + 1;
+        }
+        literals.add(html.substring(start));
+        log.debug("Compiled email template {} for locale {} into {} fragment(s)", template, locale, literals.size());
+        return new CompiledTemplate(literals.toArray(String[]::new), names.toArray(String[]::new), html.length());
+    }
+
+    /**
+     * Identifies everything that can change the static output: which messages are baked in, which variables are
+     * present (they decide th:if branches), and the year shown in the footer.
+     */
+    private static String cacheKey(String template, Locale locale, Map<String, String> messageCodes, Map<String, String> variables) {
+        StringBuilder key = new StringBuilder(128)
+                .append(template).append('|').append(locale).append('|').append(Year.now().getValue());
+        messageCodes.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(e -> key.append('|').append(e.getKey()).append('=').append(e.getValue()));
+        variables.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(e -> key.append('|').append(e.getKey()).append(e.getValue() == null ? "-" : "+"));
+        return key.toString();
+    }
+
+    private record CompiledTemplate(String[] literals, String[] names, int estimatedLength) {
+
+        String fill(Map<String, String> variables) {
+            StringBuilder html = new StringBuilder(estimatedLength + 256);
+            for (int i = 0; i < names.length; i++) {
+                html.append(literals[i]);
+                // Same escaping Thymeleaf applies to th:text and attribute values in HTML mode
+                html.append(HtmlEscape.escapeHtml4Xml(variables.get(names[i])));
+            }
+            return html.append(literals[names.length]).toString();
+        }
+    }
+}
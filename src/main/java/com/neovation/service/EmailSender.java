@@ -0,0 +1,88 @@
+package com.neovation.service;
+
+import com.neovation.config.SmtpTransportPool;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Builds and sends the branded HTML email over SMTP. Only the outbox dispatcher calls this; request handling
+ * code should go through {@link EmailOutboxService} instead.
+ * <p>
+ * Messages go out over pooled sessions from {@link SmtpTransportPool}; {@link #openBatch()} keeps one session for
+ * several messages so a batch pays the connect/STARTTLS/AUTH cost at most once.
+ */
+@Component
+public class EmailSender {
+    private static final Logger log = LoggerFactory.getLogger(EmailSender.class);
+
+    final private JavaMailSender mailSender;
+    final private SmtpTransportPool transportPool;
+    // Read once; every message shares the bytes instead of re-reading the classpath resource
+    final private ByteArrayResource logo;
+
+    public EmailSender(JavaMailSender mailSender, SmtpTransportPool transportPool) {
+        this.mailSender = mailSender;
+        this.transportPool = transportPool;
+        try {
+            this.logo = new ByteArrayResource(new ClassPathResource("static/images/logo.png").getContentAsByteArray());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load email logo", e);
+        }
+    }
+
+    /**
+     * Messages sent through one pooled SMTP session. Close it to return the session.
+     */
+    public interface Batch extends AutoCloseable {
+        void send(String to, String subject, String htmlBody) throws MessagingException;
+
+        @Override
+        void close();
+    }
+
+    public Batch openBatch() throws MessagingException {
+        SmtpTransportPool.Connection connection = transportPool.borrow();
+        return new Batch() {
+            @Override
+            public void send(String to, String subject, String htmlBody) throws MessagingException {
+                connection.send(build(to, subject, htmlBody));
+                log.info("Email sent successfully to {} with subject: {}", to, subject);
+            }
+
+            @Override
+            public void close() {
+                connection.close();
+            }
+        };
+    }
+
+    public void send(String to, String subject, String htmlBody) throws MessagingException {
+        try (Batch batch = openBatch()) {
+            batch.send(to, subject, htmlBody);
+        }
+    }
+
+    private MimeMessage build(String to, String subject, String htmlBody) throws MessagingException {
+        MimeMessage mimeMessage = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, true, "UTF-8"); // true = multipart
+
+        helper.setTo(to);
+        helper.setSubject(subject);
+        helper.setText(htmlBody, true); // true = HTML
+
+        // Add the logo as an inline resource
+        // "logo" is the Content-ID (CID) used in the <img> tag (src="cid:logo")
+        helper.addInline("logo", logo, "image/png");
+        return mimeMessage;
+    }
+}
@@ -1,26 +1,63 @@
 package com.neovation.service;
 
-import com.google.cloud.storage.BlobId;
-import com.google.cloud.storage.BlobInfo;
 import com.google.cloud.storage.HttpMethod;
-import com.google.cloud.storage.Storage;
+import com.neovation.config.SignedUrlCache;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.util.InvalidMimeTypeException;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
 
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.net.URL;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 @Service
 public class FileStorageService {
     private static final Logger log = LoggerFactory.getLogger(FileStorageService.class);
+    // Heap buffer per download streamed through this service
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    // Temporary objects of parallel composite uploads; any a crash leaves behind are reaped as orphans
+    private static final String PART_PREFIX = "upload-parts/";
 
-    private final Storage storage;
+    private final BlobStore blobStore;
+    private final SignedUrlCache signedUrlCache;
+    // Signing may be a remote IAM call, so batches are signed on virtual threads
+    private final ExecutorService signingExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ExecutorService uploadExecutor = Executors.newVirtualThreadPerTaskExecutor();
 
     @Value("${gcs.bucket.name}")
     private String bucketName;
@@ -28,12 +65,45 @@ public class FileStorageService {
     @Value("${gcs.profile.bucket.name}")
     private String bucketProfileName;
 
-    public FileStorageService(Storage storage) {
-        this.storage = storage;
+    // Largest object accepted through a signed upload URL; matches spring.servlet.multipart.max-file-size
+    @Value("${gcs.upload.max-size:20MB}")
+    private DataSize maxUploadSize;
+
+    @Value("${gcs.upload.signed-url-minutes:15}")
+    private long signedUploadUrlMinutes;
+
+    @Value("${app.storage.compression.enabled:true}")
+    private boolean compressionEnabled;
+
+    // Uploads of these types are stored gzipped; wildcards such as text/* are allowed
+    @Value("${app.storage.compression.mime-types:text/*,application/json,application/xml,image/svg+xml}")
+    private String[] compressibleTypes;
+
+    // Smaller files gain too little to be worth the extra hop through a temp file
+    @Value("${app.storage.compression.min-size:1KB}")
+    private DataSize compressionMinSize;
+
+    @Value("${gcs.upload.parallel.enabled:true}")
+    private boolean parallelUploadEnabled;
+
+    // Files at least this large are uploaded as parts in parallel and composed
+    @Value("${gcs.upload.parallel.threshold:8MB}")
+    private DataSize parallelUploadThreshold;
+
+    @Value("${gcs.upload.parallel.part-size:4MB}")
+    private DataSize parallelUploadPartSize;
+
+    // Parts of one file uploaded at a time
+    @Value("${gcs.upload.parallel.parallelism:4}")
+    private int parallelUploadParallelism;
+
+    public FileStorageService(BlobStore blobStore, SignedUrlCache signedUrlCache) {
+        this.blobStore = blobStore;
+        this.signedUrlCache = signedUrlCache;
     }
 
     /**
-     * Uploads a file to Google Cloud Storage in a user-specific folder.
+     * Uploads a file to the blob store in a user-specific folder.
      *
      * @param file The file to upload.
      * @param userId The ID of the user, used as the folder name.
@@ -57,15 +127,10 @@ public class FileStorageService {
         String blobPath = userId + "/" + uniqueFileName;
 
         try {
-            BlobId blobId = BlobId.of(bucketName, blobPath);
-            BlobInfo blobInfo = BlobInfo.newBuilder(blobId)
-                    .setContentType(file.getContentType())
-                    .build();
-
-            log.info("Uploading file '{}' to GCS at gs://{}/{}", originalFilename, bucketName, blobPath);
+            log.info("Uploading file '{}' to {}/{}", originalFilename, blobStore.location(), blobPath);
 
             // Upload the file
-            storage.create(blobInfo, file.getBytes());
+            write(blobPath, file);
 
             // Return the full path, which will be stored in the database
             return blobPath;
@@ -76,6 +141,35 @@ public class FileStorageService {
         }
     }
 
+    /**
+     * How an uploaded file was stored.
+     *
+     * @param storedSize      Bytes actually stored, after compression.
+     * @param contentEncoding "gzip" if the file was compressed, otherwise null.
+     */
+    public record StoredFile(long storedSize, String contentEncoding) {
+    }
+
+    /**
+     * Uploads a file to an exact blob path, replacing any blob already there. Used for content-addressed
+     * attachments, whose path is derived from the file's hash.
+     *
+     * @return How the file was stored.
+     */
+    public StoredFile storeFileAt(MultipartFile file, String blobPath) {
+        if (file.isEmpty()) {
+            log.warn("Cannot store an empty file.");
+            throw new RuntimeException("Cannot store an empty file.");
+        }
+        try {
+            log.info("Uploading file '{}' to {}/{}", file.getOriginalFilename(), blobStore.location(), blobPath);
+            return write(blobPath, file);
+        } catch (IOException ex) {
+            log.error("Failed to store file '{}' at {}", file.getOriginalFilename(), blobPath, ex);
+            throw new RuntimeException("Could not store file " + file.getOriginalFilename(), ex);
+        }
+    }
+
     public String uploadFile(MultipartFile file, String folderName, String fileName) throws IOException {
         // 1. Get file extension
         String originalFilename = file.getOriginalFilename();
@@ -89,17 +183,11 @@ public class FileStorageService {
         String uniqueFileName = fileName + "-" + UUID.randomUUID() + extension;
         String blobName = folderName + "/" + uniqueFileName;
 
-        // 3. Configure the blob
-        BlobId blobId = BlobId.of(bucketName, blobName);
-        BlobInfo blobInfo = BlobInfo.newBuilder(blobId)
-                .setContentType(file.getContentType())
-                .build();
-
-        // 4. Upload the file
-        log.info("Uploading file to GCS: gs://{}/{}", bucketName, blobName);
-        storage.create(blobInfo, file.getBytes());
+        // 3. Upload the file
+        log.info("Uploading file to {}/{}", blobStore.location(), blobName);
+        write(blobName, file);
 
-        // 5. Return the public URL
+        // 4. Return the public URL
         // This assumes the bucket is public or has "Storage Object Viewer"
         // permission for "allUsers".
 //        String publicUrl = String.format("https://storage.googleapis.com/%s/%s", bucketName, blobName);
@@ -108,7 +196,248 @@ public class FileStorageService {
     }
 
     /**
-     * Deletes a file from Google Cloud Storage.
+     * Streams a multipart file into the blob store without ever holding the whole file in memory; see
+     * {@link BlobStore#write}.
+     * <p>
+     * Files whose type is in {@code app.storage.compression.mime-types} are first gzipped to a temp file and
+     * stored with {@code Content-Encoding: gzip} under their original content type, so browsers decode them
+     * transparently. A file that does not shrink is stored as is.
+     */
+    private StoredFile write(String blobPath, MultipartFile file) throws IOException {
+        if (isCompressible(file)) {
+            Path compressed = Files.createTempFile("upload-", ".gz");
+            try {
+                try (InputStream in = file.getInputStream();
+                     OutputStream out = new GZIPOutputStream(Files.newOutputStream(compressed), 64 * 1024)) {
+                    in.transferTo(out);
+                }
+                long compressedSize = Files.size(compressed);
+                if (compressedSize < file.getSize()) {
+                    upload(blobPath, file.getContentType(), "gzip", compressed, compressedSize);
+                    log.debug("Stored {} gzipped: {} -> {} bytes", blobPath, file.getSize(), compressedSize);
+                    return new StoredFile(compressedSize, "gzip");
+                }
+            } finally {
+                Files.deleteIfExists(compressed);
+            }
+        }
+        if (!inParts(file.getSize())) {
+            try (InputStream in = file.getInputStream()) {
+                blobStore.write(blobPath, file.getContentType(), null, in);
+            }
+            return new StoredFile(file.getSize(), null);
+        }
+        // MultipartFile does not expose its spool file, and parts are read from a file at their offsets
+        Path spooled = Files.createTempFile("upload-", ".part");
+        try {
+            file.transferTo(spooled);
+            uploadInParts(blobPath, file.getContentType(), null, spooled, file.getSize());
+        } finally {
+            Files.deleteIfExists(spooled);
+        }
+        return new StoredFile(file.getSize(), null);
+    }
+
+    /**
+     * Writes the first {@code size} bytes of {@code source} to the blob: as one stream, or from
+     * {@code gcs.upload.parallel.threshold} up as a parallel composite upload.
+     */
+    private void upload(String blobPath, String contentType, String contentEncoding, Path source, long size) throws IOException {
+        if (!inParts(size)) {
+            try (InputStream in = new FileInputStream(source.toFile())) {
+                blobStore.write(blobPath, contentType, contentEncoding, in);
+            }
+            return;
+        }
+        uploadInParts(blobPath, contentType, contentEncoding, source, size);
+    }
+
+    private boolean inParts(long size) {
+        return parallelUploadEnabled && size >= parallelUploadThreshold.toBytes();
+    }
+
+    /**
+     * One upload stream to GCS runs well below the bandwidth available, so a large file is cut into
+     * {@code gcs.upload.parallel.part-size} parts (larger if it would otherwise take more than
+     * {@value BlobStore#MAX_COMPOSE_SOURCES}), which are uploaded as temporary objects under {@value #PART_PREFIX}
+     * on up to {@code gcs.upload.parallel.parallelism} virtual threads, concatenated into the blob with one compose
+     * request, and deleted.
+     * <p>
+     * Each part is streamed from {@code source} with positioned reads on one shared FileChannel, so parts are
+     * never copied to the heap whatever their size. If any part fails no blob is created.
+     */
+    private void uploadInParts(String blobPath, String contentType, String contentEncoding, Path source, long size) throws IOException {
+        long partSize = Math.max(parallelUploadPartSize.toBytes(),
+                (size + BlobStore.MAX_COMPOSE_SOURCES - 1) / BlobStore.MAX_COMPOSE_SOURCES);
+        String prefix = PART_PREFIX + UUID.randomUUID() + "/";
+        List<String> partPaths = new ArrayList<>();
+        List<Future<Void>> uploads = new ArrayList<>();
+        Semaphore slots = new Semaphore(parallelUploadParallelism);
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            if (channel.size() < size) {
+                throw new EOFException("File for " + blobPath + " is " + channel.size() + " bytes, expected " + size);
+            }
+            try {
+                for (long offset = 0; offset < size; offset += partSize) {
+                    slots.acquire();
+                    if (uploads.stream().anyMatch(u -> u.state() == Future.State.FAILED)) {
+                        break;
+                    }
+                    InputStream part = new FileRegionInputStream(channel, offset, Math.min(partSize, size - offset));
+                    String partPath = prefix + partPaths.size();
+                    partPaths.add(partPath);
+                    uploads.add(uploadExecutor.submit(() -> {
+                        try {
+                            blobStore.write(partPath, "application/octet-stream", null, part);
+                            return null;
+                        } finally {
+                            slots.release();
+                        }
+                    }));
+                }
+                for (Future<Void> upload : uploads) {
+                    upload.get();
+                }
+                blobStore.compose(partPaths, blobPath, contentType, contentEncoding);
+                log.debug("Stored {} ({} bytes) from {} parts", blobPath, size, partPaths.size());
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof IOException cause ? cause : new IOException("Could not upload a part of " + blobPath, e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while uploading " + blobPath);
+            } finally {
+                // Before the channel closes: waits for the parts still reading from it
+                deleteParts(blobPath, partPaths, uploads);
+            }
+        }
+    }
+
+    private void deleteParts(String blobPath, List<String> partPaths, List<Future<Void>> uploads) {
+        // Let parts still in flight finish, so none is written after the cleanup
+        for (Future<Void> upload : uploads) {
+            try {
+                upload.get();
+            } catch (ExecutionException ignored) {
+                // Already reported
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (partPaths.isEmpty()) {
+            return;
+        }
+        try {
+            Map<String, String> failures = blobStore.deleteAll(partPaths);
+            if (!failures.isEmpty()) {
+                log.warn("Could not delete {} part(s) of {}: {}", failures.size(), blobPath, failures);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not delete the parts of {}: {}", blobPath, e.getMessage());
+        }
+    }
+
+    private boolean isCompressible(MultipartFile file) {
+        if (!compressionEnabled || file.getSize() < compressionMinSize.toBytes() || file.getContentType() == null) {
+            return false;
+        }
+        try {
+            MimeType type = MimeTypeUtils.parseMimeType(file.getContentType());
+            return Arrays.stream(compressibleTypes).anyMatch(t -> MimeTypeUtils.parseMimeType(t.trim()).includes(type));
+        } catch (InvalidMimeTypeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Stores content generated by this service (e.g., a resized image) at an exact blob path, replacing any blob
+     * already there.
+     */
+    public void storeBytes(String blobPath, String contentType, byte[] content) throws IOException {
+        blobStore.write(blobPath, contentType, null, new ByteArrayInputStream(content));
+    }
+
+    /**
+     * A signed upload request for one object, and the path the object will be stored at. The client sends
+     * {@code method} to {@code uploadUrl} with the headers in {@code headers}. On GCS this is a POST with an empty
+     * body that starts a resumable upload, after which the file is PUT to the session URI returned in the
+     * {@code Location} response header; on the local backend it is a single PUT of the file.
+     */
+    public record SignedUpload(String objectPath, String uploadUrl, String method, Map<String, String> headers) {
+    }
+
+    /**
+     * Issues a signed URL that lets the browser upload a file straight to the blob store, in the user's folder,
+     * without the bytes passing through this service. The URL is only valid for the given content type, and the
+     * store refuses uploads over {@code gcs.upload.max-size} even if the declared size was smaller.
+     *
+     * @param userId The ID of the user, used as the folder name.
+     * @return The signed upload and the blob path it is scoped to (e.g., "123/uuid-my-file.pdf").
+     */
+    public SignedUpload generateSignedUploadUrl(Long userId, String originalFilename, String contentType, long size) {
+        if (userId == null) {
+            log.error("User ID is null, cannot create GCS folder path.");
+            throw new RuntimeException("User ID cannot be null for file storage.");
+        }
+        if (size > maxUploadSize.toBytes()) {
+            throw new IllegalArgumentException("File exceeds the maximum size of " + maxUploadSize.toMegabytes() + " MB.");
+        }
+
+        // Same layout as storeFile; a slash in the name must not escape the user's folder
+        String blobPath = userId + "/" + UUID.randomUUID() + "-" + originalFilename.replace('/', '_');
+        try {
+            BlobStore.SignedRequest request = blobStore.signUpload(blobPath, contentType, maxUploadSize.toBytes(),
+                    Duration.ofMinutes(signedUploadUrlMinutes));
+            log.info("Generated signed upload URL for: {}/{}", blobStore.location(), blobPath);
+            return new SignedUpload(blobPath, request.url(), request.method(), request.headers());
+        } catch (Exception e) {
+            log.error("Failed to generate signed upload URL for file: {}/{}", blobStore.location(), blobPath, e);
+            throw new RuntimeException("Could not generate upload URL.", e);
+        }
+    }
+
+    /**
+     * Checks that a directly uploaded object is the file the client declared. An object that does not match is
+     * deleted, so a failed or tampered upload leaves nothing behind; only call it for an object that was issued
+     * for this upload and that nothing references yet.
+     *
+     * @param crc32c  Base64 CRC32C of the file, as GCS reports it; may be null if {@code md5Hash} is given.
+     * @param md5Hash Base64 MD5 of the file; may be null if {@code crc32c} is given.
+     * @return The stored object's metadata.
+     * @throws IllegalArgumentException if the object is missing or does not match.
+     */
+    public BlobStore.BlobMetadata verifyUpload(String blobPath, long size, String contentType, String crc32c, String md5Hash) {
+        if (crc32c == null && md5Hash == null) {
+            throw new IllegalArgumentException("A CRC32C or MD5 checksum is required.");
+        }
+        BlobStore.BlobMetadata blob = blobStore.stat(blobPath);
+        if (blob == null) {
+            log.warn("Upload to verify not found: {}/{}", blobStore.location(), blobPath);
+            throw new IllegalArgumentException("Uploaded file not found.");
+        }
+
+        String mismatch = null;
+        if (blob.size() != size) {
+            mismatch = "size " + blob.size() + " != " + size;
+        } else if (blob.size() > maxUploadSize.toBytes()) {
+            mismatch = "size " + blob.size() + " exceeds " + maxUploadSize;
+        } else if (!contentType.equalsIgnoreCase(blob.contentType())) {
+            mismatch = "content type " + blob.contentType() + " != " + contentType;
+        } else if (crc32c != null && !crc32c.equals(blob.crc32c())) {
+            mismatch = "crc32c " + blob.crc32c() + " != " + crc32c;
+        } else if (md5Hash != null && !md5Hash.equals(blob.md5())) {
+            mismatch = "md5 " + blob.md5() + " != " + md5Hash;
+        }
+        if (mismatch != null) {
+            log.warn("Rejecting upload {}/{}: {}", blobStore.location(), blobPath, mismatch);
+            deleteFile(blobPath);
+            throw new IllegalArgumentException("Uploaded file does not match: " + mismatch);
+        }
+        return blob;
+    }
+
+    /**
+     * Deletes a file from the blob store.
      *
      * @param blobPath The full path to the blob in GCS (e.g., "123/my-file.pdf").
      */
@@ -119,49 +448,153 @@ public class FileStorageService {
         }
 
         try {
-            BlobId blobId = BlobId.of(bucketName, blobPath);
-            boolean deleted = storage.delete(blobId);
+            boolean deleted = blobStore.delete(blobPath);
 
             if (deleted) {
-                log.info("Successfully deleted GCS file: gs://{}/{}", bucketName, blobPath);
+                log.info("Successfully deleted file: {}/{}", blobStore.location(), blobPath);
             } else {
-                log.warn("File not found or already deleted in GCS: gs://{}/{}", bucketName, blobPath);
+                log.warn("File not found or already deleted: {}/{}", blobStore.location(), blobPath);
             }
         } catch (Exception e) {
             // Log the error but do not re-throw.
             // We want to continue even if one file deletion fails.
-            log.error("Failed to delete GCS file: gs://{}/{}", bucketName, blobPath, e);
+            log.error("Failed to delete file: {}/{}", blobStore.location(), blobPath, e);
+        }
+    }
+
+    /**
+     * Deletes several files in one batch (on GCS, at most 100 per call). Files that are already gone count as
+     * deleted.
+     *
+     * @param blobPaths The full paths to the blobs.
+     * @return Blob path to error message for the files that could not be deleted; empty if all are gone.
+     * @throws RuntimeException if the batch request itself fails.
+     */
+    public Map<String, String> deleteFiles(List<String> blobPaths) {
+        Map<String, String> failures = blobStore.deleteAll(blobPaths);
+        log.info("Batch deleted {} of {} file(s) from {}", blobPaths.size() - failures.size(), blobPaths.size(), blobStore.location());
+        return failures;
+    }
+
+    /**
+     * @return The stored file's size, type, encoding and validators, or null if it does not exist.
+     */
+    public BlobStore.BlobHeader describeFile(String blobPath) {
+        return blobStore.head(blobPath);
+    }
+
+    /**
+     * Opens a stored file for reading as it was uploaded: a gzip-encoded file is decompressed.
+     *
+     * @throws FileNotFoundException if the file does not exist.
+     */
+    public InputStream openFile(String blobPath) throws IOException {
+        BlobStore.BlobHeader file = blobStore.head(blobPath);
+        if (file == null) {
+            throw new FileNotFoundException(blobStore.location() + "/" + blobPath);
         }
+        InputStream in = Channels.newInputStream(blobStore.read(blobPath, 0, file.size()));
+        return "gzip".equals(file.contentEncoding()) ? new GZIPInputStream(in, COPY_BUFFER_SIZE) : in;
+    }
+
+    /**
+     * Streams {@code length} stored bytes of a file, starting at {@code offset}, to {@code out}. Memory use is one
+     * {@value #COPY_BUFFER_SIZE}-byte buffer however large the file is, and each write blocks until a slow client
+     * has taken the previous one, so the read side never gets ahead of the client.
+     *
+     * @param decode true to gunzip a gzip-encoded file on the way out (then {@code offset} must be 0 and the
+     *               decoded length is unknown up front).
+     * @return The number of bytes written.
+     * @throws EOFException if the file is shorter than {@code offset + length}.
+     */
+    public long copyFile(String blobPath, long offset, long length, boolean decode, OutputStream out) throws IOException {
+        try (ReadableByteChannel channel = blobStore.read(blobPath, offset, length);
+             InputStream in = Channels.newInputStream(channel)) {
+            if (decode) {
+                return new GZIPInputStream(in, COPY_BUFFER_SIZE).transferTo(out);
+            }
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            long remaining = length;
+            while (remaining > 0) {
+                int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read == -1) {
+                    throw new EOFException("File " + blobPath + " ended " + remaining + " bytes early");
+                }
+                out.write(buffer, 0, read);
+                remaining -= read;
+            }
+            return length;
+        }
+    }
+
+    /**
+     * A blob to download and the name the browser should save it as.
+     */
+    public record Download(String blobPath, String fileName) {
     }
 
     /**
      * Generates a temporary, signed URL to download a private GCS object.
      *
      * @param blobPath The full GCS path (e.g., "123/my-file.pdf").
+     * @param fileName The name the browser saves the file as; deduplicated blobs would otherwise be saved under
+     *                 their hash.
      * @return A signed URL string.
      */
-    public String generateSignedDownloadUrl(String blobPath) {
+    public String generateSignedDownloadUrl(String blobPath, String fileName) {
         if (blobPath == null || blobPath.isEmpty()) {
             log.warn("Cannot generate download URL for empty blobPath.");
             throw new RuntimeException("Invalid file path.");
         }
 
         try {
-            BlobId blobId = BlobId.of(bucketName, blobPath);
-            BlobInfo blobInfo = BlobInfo.newBuilder(blobId).build();
-
-            // Generate a URL valid for 15 minutes
-            URL url = storage.signUrl(blobInfo, 15, TimeUnit.MINUTES, Storage.SignUrlOption.httpMethod(HttpMethod.GET));
-
-            log.info("Generated signed URL for: gs://{}/{}", bucketName, blobPath);
-            return url.toString();
+            // Generate a URL valid for 15 minutes, or reuse one that still has enough time left
+            Duration lifetime = Duration.ofMinutes(15);
+            return signedUrlCache.get(blobStore.location(), blobPath, fileName, HttpMethod.GET, lifetime, () -> {
+                String url = blobStore.signDownload(blobPath, fileName, lifetime);
+                log.info("Generated signed URL for: {}/{}", blobStore.location(), blobPath);
+                return url;
+            });
 
         } catch (Exception e) {
-            log.error("Failed to generate signed URL for GCS file: gs://{}/{}", bucketName, blobPath, e);
+            log.error("Failed to generate signed URL for file: {}/{}", blobStore.location(), blobPath, e);
             throw new RuntimeException("Could not generate download URL.", e);
         }
     }
 
+    /**
+     * Signs download URLs for several blobs at once, concurrently, so a page listing many files waits for the
+     * slowest signing rather than for all of them in turn.
+     *
+     * @return Download to signed URL.
+     */
+    public Map<Download, String> generateSignedDownloadUrls(Collection<Download> downloads) {
+        Map<Download, Future<String>> pending = new LinkedHashMap<>();
+        for (Download download : downloads) {
+            pending.computeIfAbsent(download, d -> signingExecutor.submit(() -> generateSignedDownloadUrl(d.blobPath(), d.fileName())));
+        }
+        Map<Download, String> urls = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<Download, Future<String>> entry : pending.entrySet()) {
+                urls.put(entry.getKey(), entry.getValue().get());
+            }
+        } catch (ExecutionException e) {
+            pending.values().forEach(f -> f.cancel(true));
+            throw e.getCause() instanceof RuntimeException cause ? cause : new RuntimeException("Could not generate download URL.", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.values().forEach(f -> f.cancel(true));
+            throw new RuntimeException("Interrupted while generating download URLs.", e);
+        }
+        return urls;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        signingExecutor.shutdown();
+        uploadExecutor.shutdown();
+    }
+
     /**
      * Deletes a file from GCS using its public URL.
      * Extracts the blob path from the URL.
@@ -201,19 +634,52 @@ public class FileStorageService {
             return null;
         }
         try {
-            // --- CORRECT: This uses bucketProfileName ---
-            BlobId blobId = BlobId.of(bucketName, blobPath);
-            BlobInfo blobInfo = BlobInfo.newBuilder(blobId).build();
-
-            // Give 1 hour of access for a profile picture URL
-            URL url = storage.signUrl(blobInfo, 1, TimeUnit.HOURS, Storage.SignUrlOption.httpMethod(HttpMethod.GET));
-
-            log.info("Generated signed profile URL for: gs://{}/{}", bucketName, blobPath);
-            log.info("signed url:  " + url.toString());
-            return url.toString();
+            // Give 1 hour of access for a profile picture URL; profile images are requested on every page render,
+            // so the URL is reused until shortly before it expires
+            Duration lifetime = Duration.ofHours(1);
+            return signedUrlCache.get(blobStore.location(), blobPath, HttpMethod.GET, lifetime, () -> {
+                String url = blobStore.signDownload(blobPath, null, lifetime);
+                log.info("Generated signed profile URL for: {}/{}", blobStore.location(), blobPath);
+                return url;
+            });
         } catch (Exception e) {
-            log.error("Failed to generate signed URL for profile file: gs://{}/{}", bucketName, blobPath, e);
+            log.error("Failed to generate signed URL for profile file: {}/{}", blobStore.location(), blobPath, e);
             throw new RuntimeException("Could not generate profile URL.", e);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * {@code length} bytes of a file from {@code position}, read with positioned reads that leave the channel's
+     * own position alone, so several parts of one file can be read at once.
+     */
+    private static final class FileRegionInputStream extends InputStream {
+        private final FileChannel channel;
+        private final long end;
+        private long position;
+
+        FileRegionInputStream(FileChannel channel, long position, long length) {
+            this.channel = channel;
+            this.position = position;
+            this.end = position + length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (position >= end) {
+                return -1;
+            }
+            int n = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, end - position)), position);
+            if (n == -1) {
+                throw new EOFException("File ended " + (end - position) + " bytes early");
+            }
+            position += n;
+            return n;
+        }
+    }
+}
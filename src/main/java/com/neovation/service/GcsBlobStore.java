@@ -0,0 +1,254 @@
+package com.neovation.service;
+
+import com.google.cloud.BatchResult;
+import com.google.cloud.ReadChannel;
+import com.google.cloud.WriteChannel;
+import com.google.cloud.storage.Blob;
+import com.google.cloud.storage.BlobId;
+import com.google.cloud.storage.BlobInfo;
+import com.google.cloud.storage.HttpMethod;
+import com.google.cloud.storage.Storage;
+import com.google.cloud.storage.StorageBatch;
+import com.google.cloud.storage.Storage.BlobField;
+import com.google.cloud.storage.Storage.BlobGetOption;
+import com.google.cloud.storage.Storage.BlobListOption;
+import com.google.cloud.storage.Storage.BlobSourceOption;
+import com.google.cloud.storage.StorageException;
+import com.neovation.config.DirectBufferPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Stores blobs in the {@code gcs.bucket.name} Google Cloud Storage bucket.
+ */
+@Component
+@ConditionalOnProperty(name = "app.storage.backend", havingValue = "gcs", matchIfMissing = true)
+public class GcsBlobStore implements BlobStore {
+    private static final Logger log = LoggerFactory.getLogger(GcsBlobStore.class);
+    // The largest page the JSON API returns
+    private static final long LIST_PAGE_SIZE = 1000;
+
+    private final Storage storage;
+    private final DirectBufferPool bufferPool;
+
+    @Value("${gcs.bucket.name}")
+    private String bucketName;
+
+    // Size of each resumable upload request; the GCS client buffers one chunk on the heap per upload
+    @Value("${gcs.upload.chunk-size:2MB}")
+    private DataSize uploadChunkSize;
+
+    // Bytes fetched per request when reading; the GCS client buffers one chunk on the heap per download
+    @Value("${gcs.download.chunk-size:256KB}")
+    private DataSize downloadChunkSize;
+
+    public GcsBlobStore(Storage storage, DirectBufferPool bufferPool) {
+        this.storage = storage;
+        this.bufferPool = bufferPool;
+    }
+
+    @Override
+    public String location() {
+        return "gs://" + bucketName;
+    }
+
+    /**
+     * Streams into a resumable upload without ever holding the whole file in memory.
+     * <p>
+     * Multipart parts above {@code spring.servlet.multipart.file-size-threshold} are already on disk, so they are
+     * read through a {@link java.nio.channels.FileChannel} straight into a pooled direct buffer; the resumable
+     * upload then sends {@code gcs.upload.chunk-size} bytes per request.
+     * <p>
+     * A gzip-encoded object is served to browsers as is and decoded by them; GCS decompresses it for clients
+     * that do not accept gzip (decompressive transcoding), so signed download URLs work either way.
+     */
+    @Override
+    public void write(String blobPath, String contentType, String contentEncoding, InputStream in) throws IOException {
+        BlobInfo blobInfo = BlobInfo.newBuilder(BlobId.of(bucketName, blobPath))
+                .setContentType(contentType)
+                .setContentEncoding(contentEncoding)
+                .build();
+        ByteBuffer buffer = bufferPool.acquire();
+        try (ReadableByteChannel source = in instanceof FileInputStream fileIn ? fileIn.getChannel() : Channels.newChannel(in);
+             WriteChannel target = storage.writer(blobInfo)) {
+            target.setChunkSize((int) uploadChunkSize.toBytes());
+            while (source.read(buffer) != -1) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    target.write(buffer);
+                }
+                buffer.clear();
+            }
+        } finally {
+            bufferPool.release(buffer);
+        }
+    }
+
+    /**
+     * One compose request; the bytes are concatenated inside GCS and never pass through this service.
+     */
+    @Override
+    public void compose(List<String> sourcePaths, String targetPath, String contentType, String contentEncoding) {
+        BlobInfo target = BlobInfo.newBuilder(BlobId.of(bucketName, targetPath))
+                .setContentType(contentType)
+                .setContentEncoding(contentEncoding)
+                .build();
+        storage.compose(Storage.ComposeRequest.newBuilder().addSource(sourcePaths).setTarget(target).build());
+    }
+
+    @Override
+    public BlobMetadata stat(String blobPath) {
+        Blob blob = storage.get(BlobId.of(bucketName, blobPath));
+        if (blob == null) {
+            return null;
+        }
+        return new BlobMetadata(blob.getSize() == null ? -1 : blob.getSize(), blob.getContentType(),
+                blob.getCrc32c(), blob.getMd5());
+    }
+
+    @Override
+    public BlobHeader head(String blobPath) {
+        Blob blob = storage.get(BlobId.of(bucketName, blobPath), BlobGetOption.fields(BlobField.SIZE,
+                BlobField.CONTENT_TYPE, BlobField.CONTENT_ENCODING, BlobField.ETAG, BlobField.UPDATED));
+        if (blob == null) {
+            return null;
+        }
+        return new BlobHeader(blob.getSize() == null ? 0 : blob.getSize(), blob.getContentType(), blob.getContentEncoding(),
+                blob.getEtag(), blob.getUpdateTimeOffsetDateTime() == null ? null : blob.getUpdateTimeOffsetDateTime().toInstant());
+    }
+
+    /**
+     * Reads the object as stored: gzip-encoded objects are not decompressed. The channel fetches
+     * {@code gcs.download.chunk-size} bytes per request and never past {@code offset + length}, so memory per
+     * download stays constant and a slow reader slows the fetching down.
+     */
+    @Override
+    public ReadableByteChannel read(String blobPath, long offset, long length) throws IOException {
+        ReadChannel reader = storage.reader(BlobId.of(bucketName, blobPath), BlobSourceOption.shouldReturnRawInputStream(true));
+        reader.setChunkSize((int) downloadChunkSize.toBytes());
+        reader.seek(offset);
+        return reader.limit(offset + length);
+    }
+
+    /**
+     * Pages through the bucket {@value #LIST_PAGE_SIZE} objects per request, fetching only the fields a
+     * {@link BlobSummary} needs. Folder placeholders are skipped.
+     */
+    @Override
+    public Stream<BlobSummary> list() {
+        Iterable<Blob> blobs = storage.list(bucketName, BlobListOption.pageSize(LIST_PAGE_SIZE),
+                BlobListOption.fields(BlobField.NAME, BlobField.SIZE, BlobField.UPDATED)).iterateAll();
+        return StreamSupport.stream(blobs.spliterator(), false)
+                .filter(blob -> !blob.getName().endsWith("/"))
+                .map(blob -> new BlobSummary(blob.getName(), blob.getSize() == null ? 0 : blob.getSize(),
+                        blob.getUpdateTimeOffsetDateTime() == null ? Instant.EPOCH : blob.getUpdateTimeOffsetDateTime().toInstant()));
+    }
+
+    /**
+     * Copies the object inside the bucket (no bytes pass through this service), then deletes the original.
+     */
+    @Override
+    public void move(String fromPath, String toPath) {
+        storage.copy(Storage.CopyRequest.of(bucketName, fromPath, BlobId.of(bucketName, toPath))).getResult();
+        storage.delete(BlobId.of(bucketName, fromPath));
+    }
+
+    @Override
+    public boolean delete(String blobPath) {
+        return storage.delete(BlobId.of(bucketName, blobPath));
+    }
+
+    /**
+     * Deletes the blobs in one GCS batch request (at most 100 per call).
+     *
+     * @throws RuntimeException if the batch request itself fails.
+     */
+    @Override
+    public Map<String, String> deleteAll(List<String> blobPaths) {
+        Map<String, String> failures = new LinkedHashMap<>();
+        StorageBatch batch = storage.batch();
+        for (String blobPath : blobPaths) {
+            batch.delete(BlobId.of(bucketName, blobPath)).notify(new BatchResult.Callback<>() {
+                @Override
+                public void success(Boolean deleted) {
+                    if (!deleted) {
+                        log.debug("File not found or already deleted in GCS: gs://{}/{}", bucketName, blobPath);
+                    }
+                }
+
+                @Override
+                public void error(StorageException e) {
+                    failures.put(blobPath, e.getCode() + " " + e.getMessage());
+                }
+            });
+        }
+        batch.submit();
+        return failures;
+    }
+
+    /**
+     * Signs a V4 GET. With a file name, the signed {@code response-content-disposition} query parameter makes GCS
+     * answer with that {@code Content-Disposition}, so deduplicated blobs stored under {@code sha256/<hex>} are
+     * saved under the attachment's own name.
+     */
+    @Override
+    public String signDownload(String blobPath, String fileName, Duration lifetime) {
+        BlobInfo blobInfo = BlobInfo.newBuilder(BlobId.of(bucketName, blobPath)).build();
+        List<Storage.SignUrlOption> options = new ArrayList<>(List.of(
+                Storage.SignUrlOption.httpMethod(HttpMethod.GET),
+                Storage.SignUrlOption.withV4Signature()));
+        if (fileName != null) {
+            options.add(Storage.SignUrlOption.withQueryParams(
+                    Map.of("response-content-disposition", BlobStore.attachmentDisposition(fileName))));
+        }
+        URL url = storage.signUrl(blobInfo, lifetime.toSeconds(), TimeUnit.SECONDS,
+                options.toArray(Storage.SignUrlOption[]::new));
+        return url.toString();
+    }
+
+    /**
+     * Signs a V4 POST that starts a resumable upload. The client POSTs to the URL with the returned headers and
+     * an empty body, then PUTs the file to the session URI returned in the {@code Location} response header.
+     * The signed {@code x-goog-content-length-range} header makes GCS refuse a session that carries more than
+     * {@code maxSize} bytes, whatever size the client declared.
+     */
+    @Override
+    public SignedRequest signUpload(String blobPath, String contentType, long maxSize, Duration lifetime) {
+        BlobInfo blobInfo = BlobInfo.newBuilder(BlobId.of(bucketName, blobPath))
+                .setContentType(contentType)
+                .build();
+        Map<String, String> headers = Map.of(
+                "x-goog-resumable", "start",
+                "x-goog-content-length-range", "0," + maxSize);
+        URL url = storage.signUrl(blobInfo, lifetime.toSeconds(), TimeUnit.SECONDS,
+                Storage.SignUrlOption.httpMethod(HttpMethod.POST),
+                Storage.SignUrlOption.withV4Signature(),
+                Storage.SignUrlOption.withContentType(),
+                Storage.SignUrlOption.withExtHeaders(headers));
+        Map<String, String> clientHeaders = new HashMap<>(headers);
+        clientHeaders.put("Content-Type", contentType);
+        return new SignedRequest(url.toString(), "POST", Map.copyOf(clientHeaders));
+    }
+}
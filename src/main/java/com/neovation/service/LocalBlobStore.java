@@ -0,0 +1,375 @@
+package com.neovation.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.util.UriUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Stores blobs as files under {@code app.storage.local.root}, for integration tests and on-prem staging where
+ * there is no GCS.
+ * <p>
+ * Writes go to a temporary file through {@link FileChannel#transferFrom} and are moved into place, so a reader
+ * never sees a partial blob; reads use {@link FileChannel#transferTo}, which the JDK turns into
+ * {@code sendfile} when the target is a socket or file channel. The content type and encoding of each blob are
+ * kept in a sidecar file under {@code .meta}; checksums are computed when {@link #stat} is called (only when
+ * finalizing a direct upload).
+ * <p>
+ * Signed URLs point at {@code /api/files/**} on this service ({@code app.backend.url}). They carry an expiry
+ * and an HMAC of (method, blob path, expiry, content type), so they grant the same narrow access as a GCS V4
+ * signed URL without any session.
+ */
+@Component
+@ConditionalOnProperty(name = "app.storage.backend", havingValue = "local")
+public class LocalBlobStore implements BlobStore {
+    private static final Logger log = LoggerFactory.getLogger(LocalBlobStore.class);
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder URL_ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final String TMP_DIR = ".tmp";
+    private static final String META_DIR = ".meta";
+    // Upper bound for one transferFrom/transferTo call; the loop continues until the stream is exhausted
+    private static final long TRANSFER_CHUNK = 8 * 1024 * 1024;
+
+    private final Path root;
+    private final String baseUrl;
+    private final SecretKeySpec key;
+
+    public LocalBlobStore(@Value("${app.storage.local.root:./storage}") String root,
+                          @Value("${app.backend.url}") String baseUrl,
+                          @Value("${app.storage.local.secret:${jwt.secret}}") String secret) throws IOException {
+        this.root = Paths.get(root).toAbsolutePath().normalize();
+        this.baseUrl = baseUrl;
+        // Derive a dedicated key so these signatures can never be confused with JWT or action token ones
+        byte[] derived = hmac(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM),
+                "local-blob-url-v1".getBytes(StandardCharsets.UTF_8));
+        this.key = new SecretKeySpec(derived, HMAC_ALGORITHM);
+
+        Files.createDirectories(this.root.resolve(TMP_DIR));
+        Files.createDirectories(this.root.resolve(META_DIR));
+        log.info("Storing files on the local filesystem under {}", this.root);
+    }
+
+    @Override
+    public String location() {
+        return "file://" + root;
+    }
+
+    @Override
+    public void write(String blobPath, String contentType, String contentEncoding, InputStream in) throws IOException {
+        Path target = resolve(blobPath);
+        Path tmp = Files.createTempFile(root.resolve(TMP_DIR), "upload-", ".part");
+        try {
+            try (ReadableByteChannel source = in instanceof FileInputStream fileIn ? fileIn.getChannel() : Channels.newChannel(in);
+                 FileChannel out = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                long position = 0;
+                long transferred;
+                while ((transferred = out.transferFrom(source, position, TRANSFER_CHUNK)) > 0) {
+                    position += transferred;
+                }
+            }
+            publish(tmp, target, blobPath, contentType, contentEncoding);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Concatenates the sources into a temporary file with {@link FileChannel#transferTo}, then moves it into
+     * place like {@link #write}.
+     */
+    @Override
+    public void compose(List<String> sourcePaths, String targetPath, String contentType, String contentEncoding) throws IOException {
+        Path target = resolve(targetPath);
+        Path tmp = Files.createTempFile(root.resolve(TMP_DIR), "compose-", ".part");
+        try {
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                for (String sourcePath : sourcePaths) {
+                    transferTo(sourcePath, out);
+                }
+            }
+            publish(tmp, target, targetPath, contentType, contentEncoding);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private void publish(Path tmp, Path target, String blobPath, String contentType, String contentEncoding) throws IOException {
+        // Metadata first, so a visible blob always has its content type
+        Path meta = metaPath(blobPath);
+        Files.createDirectories(meta.getParent());
+        Files.writeString(meta, (contentType == null ? "" : contentType) + "\n"
+                + (contentEncoding == null ? "" : contentEncoding));
+        Files.createDirectories(target.getParent());
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Copies the blob to {@code target}.
+     *
+     * @return The number of bytes copied.
+     */
+    public long transferTo(String blobPath, WritableByteChannel target) throws IOException {
+        try (FileChannel in = FileChannel.open(resolve(blobPath), StandardOpenOption.READ)) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                position += in.transferTo(position, Math.min(TRANSFER_CHUNK, size - position), target);
+            }
+            return position;
+        }
+    }
+
+    /**
+     * @return The blob's size in bytes, or -1 if it does not exist.
+     */
+    public long size(String blobPath) throws IOException {
+        Path path = resolve(blobPath);
+        return Files.isRegularFile(path) ? Files.size(path) : -1;
+    }
+
+    public String contentType(String blobPath) throws IOException {
+        String contentType = readMeta(blobPath)[0];
+        return contentType.isEmpty() ? "application/octet-stream" : contentType;
+    }
+
+    /**
+     * @return The blob's content encoding (e.g., "gzip"), or null if it is stored as is.
+     */
+    public String contentEncoding(String blobPath) throws IOException {
+        String[] meta = readMeta(blobPath);
+        return meta.length > 1 && !meta[1].isEmpty() ? meta[1] : null;
+    }
+
+    private String[] readMeta(String blobPath) throws IOException {
+        Path meta = metaPath(blobPath);
+        return Files.exists(meta) ? Files.readString(meta).split("\n", -1) : new String[]{""};
+    }
+
+    @Override
+    public BlobHeader head(String blobPath) {
+        Path path = resolve(blobPath);
+        try {
+            if (!Files.isRegularFile(path)) {
+                return null;
+            }
+            long size = Files.size(path);
+            Instant modified = Files.getLastModifiedTime(path).toInstant();
+            // Writes replace the file, so size and modification time change with the content
+            String etag = Long.toHexString(size) + "-" + Long.toHexString(modified.toEpochMilli());
+            return new BlobHeader(size, contentType(blobPath), contentEncoding(blobPath), etag, modified);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read " + blobPath, e);
+        }
+    }
+
+    @Override
+    public ReadableByteChannel read(String blobPath, long offset, long length) throws IOException {
+        FileChannel in = FileChannel.open(resolve(blobPath), StandardOpenOption.READ);
+        return in.position(offset);
+    }
+
+    @Override
+    public BlobMetadata stat(String blobPath) {
+        Path path = resolve(blobPath);
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            CRC32C crc32c = new CRC32C();
+            MessageDigest md5 = MessageDigest.getInstance("MD5");
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            while (in.read(buffer) != -1) {
+                buffer.flip();
+                md5.update(buffer.duplicate());
+                crc32c.update(buffer);
+                buffer.clear();
+            }
+            // Same encoding as GCS: Base64 of the big-endian CRC32C and of the MD5 digest
+            byte[] crc = ByteBuffer.allocate(4).putInt((int) crc32c.getValue()).array();
+            return new BlobMetadata(in.size(), contentType(blobPath),
+                    Base64.getEncoder().encodeToString(crc), Base64.getEncoder().encodeToString(md5.digest()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read " + blobPath, e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 not available", e);
+        }
+    }
+
+    /**
+     * Walks the root, leaving out the internal {@code .tmp} and {@code .meta} directories.
+     */
+    @Override
+    public Stream<BlobSummary> list() {
+        try {
+            return Files.walk(root)
+                    .filter(path -> !path.startsWith(root.resolve(TMP_DIR)) && !path.startsWith(root.resolve(META_DIR)))
+                    .filter(Files::isRegularFile)
+                    .map(path -> {
+                        try {
+                            return new BlobSummary(root.relativize(path).toString().replace('\\', '/'),
+                                    Files.size(path), Files.getLastModifiedTime(path).toInstant());
+                        } catch (IOException e) {
+                            throw new UncheckedIOException("Could not read " + path, e);
+                        }
+                    });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not list " + root, e);
+        }
+    }
+
+    @Override
+    public void move(String fromPath, String toPath) throws IOException {
+        Path target = resolve(toPath);
+        Path meta = metaPath(fromPath);
+        if (Files.exists(meta)) {
+            Path targetMeta = metaPath(toPath);
+            Files.createDirectories(targetMeta.getParent());
+            Files.move(meta, targetMeta, StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.createDirectories(target.getParent());
+        Files.move(resolve(fromPath), target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    public boolean delete(String blobPath) throws IOException {
+        Files.deleteIfExists(metaPath(blobPath));
+        return Files.deleteIfExists(resolve(blobPath));
+    }
+
+    @Override
+    public Map<String, String> deleteAll(List<String> blobPaths) {
+        Map<String, String> failures = new LinkedHashMap<>();
+        for (String blobPath : blobPaths) {
+            try {
+                delete(blobPath);
+            } catch (IOException | RuntimeException e) {
+                failures.put(blobPath, e.getClass().getSimpleName() + ": " + e.getMessage());
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Signs a GET of {@code /api/files/**}. The file name travels in a signed {@code filename} query parameter,
+     * which {@code LocalBlobController} turns into the {@code Content-Disposition} header.
+     */
+    @Override
+    public String signDownload(String blobPath, String fileName, Duration lifetime) {
+        return sign("GET", blobPath, null, fileName, lifetime);
+    }
+
+    /**
+     * Signs a PUT of the whole file to {@code /api/files/**}, with the given {@code Content-Type}. The size is
+     * checked against {@code gcs.upload.max-size} by {@code LocalBlobController} instead of the signature.
+     */
+    @Override
+    public SignedRequest signUpload(String blobPath, String contentType, long maxSize, Duration lifetime) {
+        return new SignedRequest(sign("PUT", blobPath, contentType, null, lifetime), "PUT", Map.of("Content-Type", contentType));
+    }
+
+    /**
+     * Checks a signed URL presented to {@code /api/files/**}.
+     *
+     * @param contentType The request's {@code Content-Type}; only part of the signature for uploads.
+     * @return true if the signature matches and has not expired.
+     */
+    public boolean verify(String method, String blobPath, long expires, String contentType, String signature) {
+        return verify(method, blobPath, expires, contentType, null, signature);
+    }
+
+    /**
+     * Checks a signed URL presented to {@code /api/files/**} that carries a download file name.
+     *
+     * @param fileName The request's {@code filename} query parameter; null if absent.
+     */
+    public boolean verify(String method, String blobPath, long expires, String contentType, String fileName, String signature) {
+        if (Instant.now().getEpochSecond() > expires) {
+            return false;
+        }
+        byte[] expected = signature(method, blobPath, expires, contentType, fileName).getBytes(StandardCharsets.US_ASCII);
+        return signature != null && MessageDigest.isEqual(expected, signature.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private String sign(String method, String blobPath, String contentType, String fileName, Duration lifetime) {
+        resolve(blobPath);
+        long expires = Instant.now().plus(lifetime).getEpochSecond();
+        String url = UriComponentsBuilder.fromUriString(baseUrl)
+                .path("/api/files")
+                .pathSegment(blobPath.split("/"))
+                .queryParam("expires", expires)
+                .queryParam("signature", signature(method, blobPath, expires, contentType, fileName))
+                .encode()
+                .toUriString();
+        // Encoded separately: the builder leaves '+' and other reserved characters of query values as they are
+        return fileName == null ? url : url + "&filename=" + UriUtils.encode(fileName, StandardCharsets.UTF_8);
+    }
+
+    private String signature(String method, String blobPath, long expires, String contentType, String fileName) {
+        String payload = method + "\n" + blobPath + "\n" + expires + "\n" + (contentType == null ? "" : contentType)
+                + "\n" + (fileName == null ? "" : fileName);
+        return URL_ENCODER.encodeToString(hmac(key, payload.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Maps a blob path to a file under the root. Paths that would leave the root or reach the internal
+     * {@code .tmp} and {@code .meta} directories are rejected.
+     */
+    private Path resolve(String blobPath) {
+        if (blobPath == null || blobPath.isEmpty() || blobPath.startsWith("/") || blobPath.startsWith(".")
+                || blobPath.contains("/.") || blobPath.contains("\\")) {
+            throw new IllegalArgumentException("Invalid blob path: " + blobPath);
+        }
+        Path path = root.resolve(blobPath).normalize();
+        if (!path.startsWith(root) || path.equals(root)) {
+            throw new IllegalArgumentException("Invalid blob path: " + blobPath);
+        }
+        return path;
+    }
+
+    private Path metaPath(String blobPath) {
+        resolve(blobPath);
+        return root.resolve(META_DIR).resolve(blobPath);
+    }
+
+    private static byte[] hmac(SecretKeySpec key, byte[] data) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(data);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC not available", e);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.neovation.service;
+
+import com.neovation.model.ServiceRequest;
+import com.neovation.model.ServiceType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.MessageSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.Context;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Coalesces internal "new service request" alerts into one summary email.
+ * <p>
+ * While enabled, alerts are buffered in memory and flushed every {@code window-ms}, or as soon as
+ * {@code max-batch} alerts are waiting, as a single email to the internal support address. Requests for the
+ * service types in {@code immediate-services} bypass the buffer and are alerted individually as before.
+ * <p>
+ * An alert is only buffered once the transaction that created the request commits, so a rolled-back request
+ * never shows up in a digest. The buffer is not persisted: alerts still waiting when the instance is killed
+ * (rather than shut down) are lost, which is acceptable for an internal notification.
+ * <p>
+ * Metrics: {@code email.new_request_alerts.coalesced}, {@code email.new_request_alerts.sent} tagged by
+ * {@code type} (immediate / digest) and {@code email.new_request_alerts.buffered}.
+ */
+@Service
+public class NewRequestAlertDigest {
+    private static final Logger log = LoggerFactory.getLogger(NewRequestAlertDigest.class);
+
+    @Value("${app.alerts.digest.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.alerts.digest.max-batch:25}")
+    private int maxBatch;
+
+    @Value("${app.alerts.digest.immediate-services:}")
+    private Set<ServiceType> immediateServices = Set.of();
+
+    @Value("${app.alerts.digest.lang:en}")
+    private String lang;
+
+    @Value("${app.internal.support-email}")
+    private String internalSupportEmail;
+
+    @Value("${app.frontend.url}")
+    private String frontendUrl;
+
+    final private EmailOutboxService emailOutboxService;
+    final private TemplateEngine templateEngine;
+    final private MessageSource messageSource;
+    final private TransactionTemplate newTransaction;
+
+    private final List<Alert> buffer = new ArrayList<>();
+    private final Counter coalescedCounter;
+    private final Counter immediateCounter;
+    private final Counter digestCounter;
+
+    public NewRequestAlertDigest(EmailOutboxService emailOutboxService, TemplateEngine templateEngine,
+                                 MessageSource messageSource, PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry) {
+        this.emailOutboxService = emailOutboxService;
+        this.templateEngine = templateEngine;
+        this.messageSource = messageSource;
+        // A size-triggered flush runs in an afterCommit callback, where the finished transaction is still bound
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        this.coalescedCounter = Counter.builder("email.new_request_alerts.coalesced")
+                .description("New request alerts folded into a digest instead of sent on their own")
+                .register(meterRegistry);
+        this.immediateCounter = sentCounter(meterRegistry, "immediate");
+        this.digestCounter = sentCounter(meterRegistry, "digest");
+        Gauge.builder("email.new_request_alerts.buffered", buffer, b -> {
+                    synchronized (b) {
+                        return b.size();
+                    }
+                })
+                .description("New request alerts waiting for the next digest")
+                .register(meterRegistry);
+    }
+
+    /**
+     * One buffered alert, as listed in the digest table.
+     */
+    public record Alert(String requestId, String title, ServiceType service, String submittedBy,
+                        LocalDateTime submittedAt) {
+    }
+
+    /**
+     * Offers an alert to the digest.
+     *
+     * @return {@code true} if the alert will go out with the next digest; {@code false} if the caller should
+     * send it right away (digest disabled, or a service type that is always alerted immediately).
+     */
+    public boolean offer(ServiceRequest request, String submittedBy) {
+        if (!enabled || immediateServices.contains(request.getService())) {
+            immediateCounter.increment();
+            return false;
+        }
+        LocalDateTime submittedAt = request.getCreatedAt() != null ? request.getCreatedAt() : LocalDateTime.now();
+        Alert alert = new Alert(request.getId(), request.getTitle(), request.getService(), submittedBy, submittedAt);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    add(alert);
+                }
+            });
+        } else {
+            add(alert);
+        }
+        return true;
+    }
+
+    /**
+     * Sends everything buffered so far as one email. Runs every {@code window-ms}.
+     */
+    @Scheduled(fixedDelayString = "${app.alerts.digest.window-ms:300000}",
+            initialDelayString = "${app.alerts.digest.window-ms:300000}")
+    public void flush() {
+        List<Alert> alerts = drain();
+        if (!alerts.isEmpty()) {
+            send(alerts);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Anything still buffered goes out now rather than being dropped with the instance
+        flush();
+    }
+
+    private void add(Alert alert) {
+        List<Alert> full = null;
+        synchronized (buffer) {
+            buffer.add(alert);
+            if (buffer.size() >= maxBatch) {
+                full = drain();
+            }
+        }
+        coalescedCounter.increment();
+        if (full != null) {
+            send(full);
+        }
+    }
+
+    private List<Alert> drain() {
+        synchronized (buffer) {
+            List<Alert> alerts = new ArrayList<>(buffer);
+            buffer.clear();
+            return alerts;
+        }
+    }
+
+    private void send(List<Alert> alerts) {
+        if (internalSupportEmail == null || internalSupportEmail.isBlank()) {
+            log.warn("Dropping digest of {} new request alert(s): internal support email is not configured.", alerts.size());
+            return;
+        }
+        try {
+            Locale locale = ("en".equalsIgnoreCase(lang)) ? Locale.ENGLISH : Locale.FRENCH;
+            String title = messageSource.getMessage("email.internal.digest.title", new Object[]{alerts.size()}, locale);
+
+            Context context = new Context(locale);
+            context.setVariable("title", title);
+            context.setVariable("alerts", alerts);
+            context.setVariable("baseUrl", frontendUrl);
+            String htmlBody = templateEngine.process("new-requests-digest-template.html", context);
+
+            newTransaction.executeWithoutResult(status -> emailOutboxService.enqueue(internalSupportEmail, title, htmlBody));
+            digestCounter.increment();
+            log.info("Queued internal digest of {} new request alert(s) to {}", alerts.size(), internalSupportEmail);
+        } catch (RuntimeException e) {
+            log.error("Failed to queue internal digest of {} new request alert(s)", alerts.size(), e);
+        }
+    }
+
+    private static Counter sentCounter(MeterRegistry meterRegistry, String type) {
+        return Counter.builder("email.new_request_alerts.sent")
+                .description("Internal new request alert emails sent")
+                .tag("type", type)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,294 @@
+package com.neovation.service;
+
+import com.neovation.config.BloomFilter;
+import com.neovation.repository.FileAttachmentRepository;
+import com.neovation.repository.PendingBlobDeletionRepository;
+import com.neovation.repository.StoredBlobRepository;
+import com.neovation.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Finds blobs that no database row points at and removes them.
+ * <p>
+ * Blobs can outlive their rows in several ways: a request that fails after some of its uploads, a profile image
+ * uploaded before the user is saved, a deletion that failed before deletions were queued. Nothing else ever
+ * looks at them again, so this job compares the whole store against {@code file_attachments.url},
+ * {@code users.profile_image} and {@code stored_blobs.blob_path}.
+ * <p>
+ * The referenced paths are streamed into a {@link BloomFilter} (about 1.2 bytes per path at the default 1%
+ * false positive rate) rather than a set of strings, then the store is listed page by page. A blob the filter
+ * rules out is a candidate; candidates are confirmed against the database in batches, which also catches rows
+ * written after the filter was built. A false positive only means an orphan is kept until a later run.
+ * Resized copies of a profile image ({@link ProfileImageResizer}) are kept as long as their original is.
+ * <p>
+ * Blobs written within {@code grace-period} are left alone, since their rows may not be committed yet (direct
+ * uploads are only recorded when finalized). Depending on {@code action}, confirmed orphans are only reported,
+ * moved under {@code quarantine-prefix} (for a bucket lifecycle rule to expire), or queued for deletion through
+ * {@link BlobDeletionService}.
+ */
+@Service
+public class OrphanBlobReconciler {
+    private static final Logger log = LoggerFactory.getLogger(OrphanBlobReconciler.class);
+    // Paths listed in the report, so a dry run shows what would go without returning millions of entries
+    private static final int SAMPLE_SIZE = 100;
+
+    public enum Action {
+        REPORT,
+        QUARANTINE,
+        DELETE
+    }
+
+    /**
+     * Outcome of one run.
+     *
+     * @param tooRecent Blobs skipped because they are within the grace period.
+     * @param orphans   Blobs confirmed to have no row.
+     * @param actedOn   Orphans quarantined or queued for deletion; 0 for a report.
+     * @param sample    Up to 100 orphan paths.
+     */
+    public record Report(Action action, long scanned, long tooRecent, long orphans, long orphanBytes, long actedOn,
+                         long filterBytes, List<String> sample) {
+    }
+
+    final private BlobStore blobStore;
+    final private FileAttachmentRepository fileAttachmentRepository;
+    final private UserRepository userRepository;
+    final private StoredBlobRepository storedBlobRepo;
+    final private PendingBlobDeletionRepository deletionRepo;
+    final private BlobDeletionService blobDeletionService;
+    final private TransactionTemplate readOnlyTransaction;
+    final private MeterRegistry meterRegistry;
+    final private AtomicBoolean running = new AtomicBoolean();
+
+    @Value("${gcs.bucket.name}")
+    private String bucketName;
+
+    @Value("${app.storage.reconcile.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.storage.reconcile.action:REPORT}")
+    private Action action;
+
+    @Value("${app.storage.reconcile.grace-period:24h}")
+    private Duration gracePeriod;
+
+    @Value("${app.storage.reconcile.quarantine-prefix:quarantine/}")
+    private String quarantinePrefix;
+
+    @Value("${app.storage.reconcile.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    // Candidates confirmed per set of queries; also the size of each deletion batch
+    @Value("${app.storage.reconcile.batch-size:100}")
+    private int batchSize;
+
+    public OrphanBlobReconciler(BlobStore blobStore, FileAttachmentRepository fileAttachmentRepository,
+                                UserRepository userRepository, StoredBlobRepository storedBlobRepo,
+                                PendingBlobDeletionRepository deletionRepo, BlobDeletionService blobDeletionService,
+                                PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.blobStore = blobStore;
+        this.fileAttachmentRepository = fileAttachmentRepository;
+        this.userRepository = userRepository;
+        this.storedBlobRepo = storedBlobRepo;
+        this.deletionRepo = deletionRepo;
+        this.blobDeletionService = blobDeletionService;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Scheduled(cron = "${app.storage.reconcile.cron:0 30 3 * * *}")
+    public void scheduledRun() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            reconcile(action);
+        } catch (IllegalStateException e) {
+            log.warn("Skipping orphan blob reconciliation: {}", e.getMessage());
+        } catch (RuntimeException e) {
+            log.error("Orphan blob reconciliation failed", e);
+        }
+    }
+
+    /**
+     * Scans the whole store once.
+     *
+     * @param action What to do with confirmed orphans; {@link Action#REPORT} for a dry run.
+     * @throws IllegalStateException if a run is already in progress on this instance.
+     */
+    public Report reconcile(Action action) {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("An orphan blob reconciliation is already running.");
+        }
+        try {
+            Report report = run(action);
+            log.info("Orphan blob reconciliation ({}) of {}: scanned {}, {} too recent, {} orphan(s) taking {} bytes, acted on {}",
+                    action, blobStore.location(), report.scanned(), report.tooRecent(), report.orphans(),
+                    report.orphanBytes(), report.actedOn());
+            return report;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private Report run(Action action) {
+        // Anything written before the cutoff had its row committed long before the references are read
+        Instant cutoff = Instant.now().minus(gracePeriod);
+        BloomFilter referenced = loadReferences();
+
+        Tally tally = new Tally();
+        List<BlobStore.BlobSummary> candidates = new ArrayList<>(batchSize);
+        try (Stream<BlobStore.BlobSummary> blobs = blobStore.list()) {
+            Iterator<BlobStore.BlobSummary> it = blobs.iterator();
+            while (it.hasNext()) {
+                BlobStore.BlobSummary blob = it.next();
+                if (blob.path().startsWith(quarantinePrefix)) {
+                    continue;
+                }
+                tally.scanned++;
+                if (blob.updated().isAfter(cutoff)) {
+                    tally.tooRecent++;
+                } else if (!referenced.mightContain(referenceOf(blob.path()))) {
+                    candidates.add(blob);
+                    if (candidates.size() >= batchSize) {
+                        confirmAndAct(candidates, action, tally);
+                        candidates.clear();
+                    }
+                }
+            }
+        }
+        if (!candidates.isEmpty()) {
+            confirmAndAct(candidates, action, tally);
+        }
+        return new Report(action, tally.scanned, tally.tooRecent, tally.orphans, tally.orphanBytes, tally.actedOn,
+                referenced.sizeInBytes(), tally.sample);
+    }
+
+    private BloomFilter loadReferences() {
+        long expected = fileAttachmentRepository.count() + userRepository.count() + storedBlobRepo.count();
+        // Headroom for rows added while the filter is built
+        BloomFilter filter = new BloomFilter(expected + expected / 10 + 1000, falsePositiveRate);
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<String> urls = fileAttachmentRepository.streamUrls()) {
+                urls.forEach(filter::add);
+            }
+            try (Stream<String> profileImages = userRepository.streamProfileImages()) {
+                profileImages.forEach(image -> filter.add(toBlobPath(image)));
+            }
+            try (Stream<String> paths = storedBlobRepo.streamPaths()) {
+                paths.forEach(filter::add);
+            }
+        });
+        return filter;
+    }
+
+    private void confirmAndAct(List<BlobStore.BlobSummary> candidates, Action action, Tally tally) {
+        List<String> paths = candidates.stream().map(BlobStore.BlobSummary::path).toList();
+        List<String> references = paths.stream().map(this::referenceOf).distinct().toList();
+        Set<String> live = new HashSet<>(fileAttachmentRepository.findExistingUrls(references));
+        live.addAll(storedBlobRepo.findExistingPaths(references));
+        // Already on their way out; BlobDeletionService owns them
+        live.addAll(deletionRepo.findQueuedPaths(paths));
+        // Profile images may still hold a legacy public URL instead of a path
+        Map<String, String> profileKeys = new HashMap<>();
+        for (String path : references) {
+            profileKeys.put(path, path);
+            profileKeys.put(publicUrlPrefix() + path, path);
+        }
+        userRepository.findExistingProfileImages(profileKeys.keySet()).forEach(image -> live.add(profileKeys.get(image)));
+
+        List<BlobStore.BlobSummary> orphans = candidates.stream()
+                .filter(blob -> !live.contains(blob.path()) && !live.contains(referenceOf(blob.path())))
+                .toList();
+        for (BlobStore.BlobSummary orphan : orphans) {
+            tally.orphans++;
+            tally.orphanBytes += orphan.size();
+            if (tally.sample.size() < SAMPLE_SIZE) {
+                tally.sample.add(orphan.path());
+            }
+        }
+        count("found", orphans.size());
+        if (orphans.isEmpty()) {
+            return;
+        }
+
+        switch (action) {
+            case REPORT -> {
+            }
+            case QUARANTINE -> {
+                int moved = 0;
+                for (BlobStore.BlobSummary orphan : orphans) {
+                    try {
+                        blobStore.move(orphan.path(), quarantinePrefix + orphan.path());
+                        moved++;
+                    } catch (IOException | RuntimeException e) {
+                        log.error("Failed to quarantine orphan blob {}/{}", blobStore.location(), orphan.path(), e);
+                    }
+                }
+                tally.actedOn += moved;
+                count("quarantined", moved);
+            }
+            case DELETE -> {
+                blobDeletionService.schedule(orphans.stream().map(BlobStore.BlobSummary::path).toList());
+                tally.actedOn += orphans.size();
+                count("queued", orphans.size());
+            }
+        }
+    }
+
+    /**
+     * The path whose row keeps {@code blobPath} alive: the original for a resized profile image, else itself.
+     */
+    private String referenceOf(String blobPath) {
+        String original = ProfileImageResizer.originalOf(blobPath);
+        return original != null ? original : blobPath;
+    }
+
+    private String toBlobPath(String profileImage) {
+        return profileImage.startsWith(publicUrlPrefix()) ? profileImage.substring(publicUrlPrefix().length()) : profileImage;
+    }
+
+    // Same format as FileStorageService#deleteFileFromUrl
+    private String publicUrlPrefix() {
+        return String.format("https://storage.googleapis.com/%s/", bucketName);
+    }
+
+    private void count(String outcome, long amount) {
+        Counter.builder("storage.orphan_blobs")
+                .description("Blobs found with no database row, by what was done with them")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment(amount);
+    }
+
+    private static class Tally {
+        long scanned;
+        long tooRecent;
+        long orphans;
+        long orphanBytes;
+        long actedOn;
+        final List<String> sample = new ArrayList<>();
+    }
+}
@@ -0,0 +1,230 @@
+package com.neovation.service;
+
+import com.neovation.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Generates square, resized copies of profile images, so a 40px avatar does not download a multi-megabyte photo.
+ * <p>
+ * After an upload, the original is read back from storage on a virtual thread, with at most
+ * {@code app.profile-image.resize-concurrency} images decoded at a time since a decoded photo takes tens of MB.
+ * The decoder subsamples while reading, so a 12 MP photo is decoded at little more than the largest size
+ * needed. Each size in {@code app.profile-image.sizes} is cropped to the centre square, scaled down (never up)
+ * and stored as a JPEG next to the original at {@code <original>@<size>.jpg}; transparent areas become white.
+ * Once all are stored, {@code users.profile_image_sizes} lists them and the URL endpoints start handing them out.
+ * <p>
+ * The original is kept as uploaded. If resizing fails, the original is served for every size.
+ */
+@Component
+public class ProfileImageResizer {
+    private static final Logger log = LoggerFactory.getLogger(ProfileImageResizer.class);
+    private static final Pattern DERIVATIVE_PATH = Pattern.compile("(.+)@(\\d+)\\.jpg");
+
+    final private FileStorageService fileStorageService;
+    final private UserRepository userRepo;
+    final private int[] sizes;
+    final private float quality;
+    final private Semaphore permits;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public ProfileImageResizer(FileStorageService fileStorageService, UserRepository userRepo,
+                               @Value("${app.profile-image.sizes:64,128,512}") int[] sizes,
+                               @Value("${app.profile-image.jpeg-quality:0.82}") float quality,
+                               @Value("${app.profile-image.resize-concurrency:2}") int concurrency) {
+        this.fileStorageService = fileStorageService;
+        this.userRepo = userRepo;
+        this.sizes = Arrays.stream(sizes).sorted().distinct().toArray();
+        this.quality = quality;
+        this.permits = new Semaphore(concurrency);
+    }
+
+    /**
+     * Generates the resized copies of a user's new profile image in the background.
+     *
+     * @param original Blob path of the image just stored.
+     */
+    public void schedule(Long userId, String original) {
+        executor.submit(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                resize(userId, original);
+            } catch (Exception e) {
+                log.error("Failed to resize profile image {} of user {}; the original is served instead", original, userId, e);
+            } finally {
+                permits.release();
+            }
+        });
+    }
+
+    /**
+     * Generates and stores the resized copies of {@code original}, then records them on the user.
+     *
+     * @return false if the file is not an image the JDK can decode; nothing is stored then.
+     */
+    boolean resize(Long userId, String original) throws IOException {
+        BufferedImage image;
+        try (InputStream in = fileStorageService.openFile(original)) {
+            image = decode(in, sizes[sizes.length - 1]);
+        }
+        if (image == null) {
+            log.warn("Not resizing profile image {} of user {}: unsupported format", original, userId);
+            return false;
+        }
+
+        int side = Math.min(image.getWidth(), image.getHeight());
+        BufferedImage square = image.getSubimage((image.getWidth() - side) / 2, (image.getHeight() - side) / 2, side, side);
+        for (int size : sizes) {
+            fileStorageService.storeBytes(derivativePath(original, size), "image/jpeg", encode(scale(square, Math.min(size, side))));
+        }
+
+        String ready = Arrays.stream(sizes).mapToObj(String::valueOf).collect(Collectors.joining(","));
+        if (userRepo.updateProfileImageSizes(userId, original, ready) == 0) {
+            // Replaced while we were resizing; nobody will ever ask for these
+            delete(original);
+            return true;
+        }
+        log.info("Stored {} resized copies of profile image {} (source {}x{})", sizes.length, original,
+                image.getWidth(), image.getHeight());
+        return true;
+    }
+
+    /**
+     * Deletes the resized copies of {@code original}, if there are any.
+     */
+    public void delete(String original) {
+        List<String> paths = Arrays.stream(sizes).mapToObj(size -> derivativePath(original, size)).toList();
+        Map<String, String> failures = fileStorageService.deleteFiles(paths);
+        if (!failures.isEmpty()) {
+            log.warn("Could not delete resized copies of {}: {}", original, failures);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public static String derivativePath(String original, int size) {
+        return original + "@" + size + ".jpg";
+    }
+
+    /**
+     * @return The original image a resized copy was made from, or null if {@code blobPath} is not a resized copy.
+     */
+    public static String originalOf(String blobPath) {
+        Matcher matcher = DERIVATIVE_PATH.matcher(blobPath);
+        return matcher.matches() ? matcher.group(1) : null;
+    }
+
+    /**
+     * Picks the copy to serve for an avatar drawn at {@code requested} pixels: the smallest ready size that is at
+     * least as large, or the largest one if none is.
+     *
+     * @param ready {@code users.profile_image_sizes}.
+     * @return The size, or null if no copy is ready.
+     */
+    public static Integer pick(String ready, int requested) {
+        if (ready == null || ready.isBlank()) {
+            return null;
+        }
+        int[] available = Arrays.stream(ready.split(",")).map(String::trim).mapToInt(Integer::parseInt).sorted().toArray();
+        return Arrays.stream(available).filter(size -> size >= requested).findFirst().orElse(available[available.length - 1]);
+    }
+
+    /**
+     * Decodes the image, skipping rows and columns so its shorter side is still at least {@code minSide} pixels.
+     *
+     * @return null if no installed reader understands the format.
+     */
+    private static BufferedImage decode(InputStream in, int minSide) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int subsampling = Math.max(1, Math.min(reader.getWidth(0), reader.getHeight(0)) / minSide);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Scales down by halving first, then one bicubic step; a single bicubic step from far larger skips pixels and
+     * aliases.
+     */
+    private static BufferedImage scale(BufferedImage source, int size) {
+        BufferedImage current = source;
+        int side = source.getWidth();
+        do {
+            side = Math.max(size, side / 2);
+            BufferedImage next = new BufferedImage(side, side, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, side, side, Color.WHITE, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        } while (side > size);
+        return current;
+    }
+
+    private byte[] encode(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+}
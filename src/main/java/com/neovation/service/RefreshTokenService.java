@@ -0,0 +1,134 @@
+package com.neovation.service;
+
+import com.neovation.model.RefreshToken;
+import com.neovation.model.User;
+import com.neovation.repository.RefreshTokenRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Issues and rotates opaque refresh tokens.
+ * <p>
+ * Only a SHA-256 of each token is stored. Every refresh revokes the presented token and issues a new one in the
+ * same family; presenting an already-revoked token means it was stolen or replayed, so the whole family is revoked.
+ * A refresh costs one indexed lookup (token + user) and two writes, instead of a BCrypt round.
+ */
+@Service
+public class RefreshTokenService {
+    private static final Logger log = LoggerFactory.getLogger(RefreshTokenService.class);
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private final RefreshTokenRepository refreshTokenRepo;
+
+    @Value("${jwt.refreshExpirationMs:1209600000}")
+    private long refreshExpirationMs;
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepo) {
+        this.refreshTokenRepo = refreshTokenRepo;
+    }
+
+    /**
+     * Result of a successful refresh: the user to issue an access token for, and their new refresh token.
+     */
+    public record Rotation(User user, String refreshToken) {
+    }
+
+    /**
+     * Starts a new token family, e.g. after a password login.
+     *
+     * @return The raw refresh token to hand to the client.
+     */
+    @Transactional
+    public String issue(User user) {
+        return issue(user, UUID.randomUUID().toString());
+    }
+
+    /**
+     * Exchanges a refresh token for a new one.
+     *
+     * @throws RuntimeException "Invalid refresh token" if the token is unknown, expired, revoked or outdated.
+     */
+    @Transactional(noRollbackFor = RuntimeException.class)
+    public Rotation rotate(String rawToken) {
+        if (rawToken == null || rawToken.isBlank()) {
+            throw new RuntimeException("Invalid refresh token");
+        }
+        RefreshToken current = refreshTokenRepo.findByTokenHashWithUser(hash(rawToken))
+                .orElseThrow(() -> {
+                    log.warn("Unknown refresh token presented");
+                    return new RuntimeException("Invalid refresh token");
+                });
+        User user = current.getUser();
+
+        if (current.isRevoked()) {
+            int revoked = refreshTokenRepo.revokeFamily(current.getFamilyId());
+            log.warn("Refresh token reuse detected for user ID {}; revoked {} token(s) in family {}",
+                    user.getId(), revoked, current.getFamilyId());
+            throw new RuntimeException("Invalid refresh token");
+        }
+        if (current.getExpiresAt().isBefore(LocalDateTime.now())
+                || current.getTokenVersion() != user.getTokenVersion()
+                || !user.isEnabled()) {
+            refreshTokenRepo.markRevoked(current.getId());
+            log.info("Rejected expired or outdated refresh token for user ID {}", user.getId());
+            throw new RuntimeException("Invalid refresh token");
+        }
+
+        // Conditional update, so two concurrent refreshes with the same token cannot both succeed
+        if (refreshTokenRepo.markRevoked(current.getId()) == 0) {
+            log.warn("Refresh token for user ID {} was rotated concurrently", user.getId());
+            throw new RuntimeException("Invalid refresh token");
+        }
+        String next = issue(user, current.getFamilyId());
+        log.debug("Rotated refresh token for user ID {}", user.getId());
+        return new Rotation(user, next);
+    }
+
+    /**
+     * Drops expired tokens once a day; revoked ones are kept until expiry for reuse detection.
+     */
+    @Scheduled(cron = "${jwt.refresh.cleanup-cron:0 30 3 * * *}")
+    @Transactional
+    public void purgeExpired() {
+        int deleted = refreshTokenRepo.deleteExpiredBefore(LocalDateTime.now());
+        log.info("Purged {} expired refresh token(s)", deleted);
+    }
+
+    private String issue(User user, String familyId) {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        String rawToken = ENCODER.encodeToString(bytes);
+
+        RefreshToken token = new RefreshToken();
+        token.setTokenHash(hash(rawToken));
+        token.setUser(user);
+        token.setFamilyId(familyId);
+        token.setTokenVersion(user.getTokenVersion());
+        token.setExpiresAt(LocalDateTime.now().plus(Duration.ofMillis(refreshExpirationMs)));
+        refreshTokenRepo.save(token);
+        return rawToken;
+    }
+
+    static String hash(String rawToken) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(rawToken.getBytes(StandardCharsets.UTF_8));
+            return ENCODER.encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
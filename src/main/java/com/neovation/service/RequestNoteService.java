@@ -1,10 +1,10 @@
 package com.neovation.service;
 
+import com.neovation.config.AuthenticatedUser;
 import com.neovation.dto.RequestNoteDto;
 import com.neovation.model.RequestNote;
 import com.neovation.model.Role;
 import com.neovation.model.ServiceRequest;
-import com.neovation.model.User;
 import com.neovation.repository.RequestNoteRepository;
 import com.neovation.repository.ServiceRequestRepository;
 import com.neovation.repository.UserRepository;
@@ -12,7 +12,6 @@ import jakarta.persistence.EntityNotFoundException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.access.AccessDeniedException;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -26,17 +25,13 @@ public class RequestNoteService {
     private final RequestNoteRepository noteRepository;
     private final ServiceRequestRepository requestRepository;
     private final UserRepository userRepository;
+    private final CurrentUserService currentUserService;
 
-    public RequestNoteService(RequestNoteRepository noteRepository, ServiceRequestRepository requestRepository, UserRepository userRepository) {
+    public RequestNoteService(RequestNoteRepository noteRepository, ServiceRequestRepository requestRepository, UserRepository userRepository, CurrentUserService currentUserService) {
         this.noteRepository = noteRepository;
         this.requestRepository = requestRepository;
         this.userRepository = userRepository;
-    }
-
-    private User getCurrentUser() {
-        String userEmail = SecurityContextHolder.getContext().getAuthentication().getName();
-        return userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new AccessDeniedException("User not found or not authenticated."));
+        this.currentUserService = currentUserService;
     }
 
     private ServiceRequest findServiceRequest(String requestId) {
@@ -44,7 +39,7 @@ public class RequestNoteService {
                 .orElseThrow(() -> new EntityNotFoundException("ServiceRequest not found with id: " + requestId));
     }
 
-    private void checkStaffOrAuthorAccess(User currentUser, RequestNote note, Long noteId) {
+    private void checkStaffOrAuthorAccess(AuthenticatedUser currentUser, RequestNote note, Long noteId) {
         Role role = currentUser.getRole();
         boolean isAuthorized = role == Role.ADMIN || role == Role.STAFF || role == Role.MANAGER || note.getAuthor().getId().equals(currentUser.getId());
 
@@ -58,7 +53,7 @@ public class RequestNoteService {
      * POST /api/requests/{requestId}/notes - Create a note
      */
     public RequestNoteDto createNote(String requestId, RequestNoteDto dto) { // <-- CHANGED RETURN TYPE
-        User currentUser = getCurrentUser();
+        AuthenticatedUser currentUser = currentUserService.require();
 
         // Security Check: Only ADMIN, STAFF, MANAGER can create notes
         Role role = currentUser.getRole();
@@ -71,7 +66,7 @@ public class RequestNoteService {
         RequestNote note = new RequestNote();
         note.setContent(dto.getContent());
         note.setServiceRequest(request);
-        note.setAuthor(currentUser);
+        note.setAuthor(userRepository.getReferenceById(currentUser.getId()));
 
         RequestNote savedNote = noteRepository.save(note);
         log.info("Creating new note for request ID: {} by staff user ID: {}", requestId, currentUser.getId());
@@ -83,7 +78,7 @@ public class RequestNoteService {
      * GET /api/requests/{requestId}/notes - Get all notes for a request
      */
     public List<RequestNoteDto> getAllNotesByRequestId(String requestId) { // <-- CHANGED RETURN TYPE
-        User currentUser = getCurrentUser();
+        AuthenticatedUser currentUser = currentUserService.require();
 
         // Security Check: Only ADMIN, STAFF, MANAGER can view all notes
         Role role = currentUser.getRole();
@@ -104,7 +99,7 @@ public class RequestNoteService {
      * PUT /api/requests/{requestId}/notes/{id} - Update a note
      */
     public RequestNoteDto updateNote(String requestId, Long noteId, RequestNoteDto dto) { // <-- CHANGED RETURN TYPE
-        User currentUser = getCurrentUser();
+        AuthenticatedUser currentUser = currentUserService.require();
         findServiceRequest(requestId);
 
         RequestNote existingNote = noteRepository.findById(noteId)
@@ -130,7 +125,7 @@ public class RequestNoteService {
      * DELETE /api/requests/{requestId}/notes/{id} - Delete a note
      */
     public void deleteNote(String requestId, Long noteId) {
-        User currentUser = getCurrentUser();
+        AuthenticatedUser currentUser = currentUserService.require();
         ServiceRequest request = findServiceRequest(requestId);
 
         RequestNote existingNote = noteRepository.findById(noteId)
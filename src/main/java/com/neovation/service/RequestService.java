@@ -1,5 +1,6 @@
 package com.neovation.service;
 
+import com.neovation.config.AuthenticatedUser;
 import com.neovation.dto.*;
 import com.neovation.model.*;
 import com.neovation.repository.FileAttachmentRepository;
@@ -12,15 +13,19 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Sort;
 import org.springframework.security.access.AccessDeniedException;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -33,8 +38,14 @@ public class RequestService {
     final private FileAttachmentRepository fileAttachmentRepository;
     final private StripePaymentService stripePaymentService; // <--- NEW FIELD
     final private PaymentRepository paymentRepository;
-
-    public RequestService(ServiceRequestRepository serviceRequestRepository, UserRepository userRepository, UserService userService, FileStorageService fileStorageService, FileAttachmentRepository fileAttachmentRepository, StripePaymentService stripePaymentService, PaymentRepository paymentRepository) {
+    final private CurrentUserService currentUserService;
+    final private TransactionTemplate transactionTemplate;
+    final private AttachmentUploader attachmentUploader;
+    final private StoredBlobService storedBlobService;
+    final private StorageSavingsService storageSavingsService;
+    final private UploadTicketService uploadTicketService;
+
+    public RequestService(ServiceRequestRepository serviceRequestRepository, UserRepository userRepository, UserService userService, FileStorageService fileStorageService, FileAttachmentRepository fileAttachmentRepository, StripePaymentService stripePaymentService, PaymentRepository paymentRepository, CurrentUserService currentUserService, PlatformTransactionManager transactionManager, AttachmentUploader attachmentUploader, StoredBlobService storedBlobService, StorageSavingsService storageSavingsService, UploadTicketService uploadTicketService) {
         this.serviceRequestRepository = serviceRequestRepository;
         this.userRepository = userRepository;
         this.userService = userService;
@@ -42,31 +53,52 @@ public class RequestService {
         this.fileAttachmentRepository = fileAttachmentRepository;
         this.stripePaymentService = stripePaymentService;
         this.paymentRepository = paymentRepository;
+        this.currentUserService = currentUserService;
+        // Programmatic, so file uploads stay outside the transaction and only the writes hold a connection
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.attachmentUploader = attachmentUploader;
+        this.storedBlobService = storedBlobService;
+        this.storageSavingsService = storageSavingsService;
+        this.uploadTicketService = uploadTicketService;
     }
 
     public ServiceRequest createRequest(CreateRequestDto requestData) {
         log.info("Processing new service request for email: {}", requestData.getEmail());
-        User user = getCurrentUser(requestData.getEmail());
-
-        if (user == null && requestData.getEmail() != null) {
-            log.info("No existing user found. Registering new user for: {}", requestData.getEmail());
-            NewUserDto newUserDto = new NewUserDto(
-                    requestData.getFirstName(),
-                    requestData.getLastName(),
-                    requestData.getCompanyName(),
-                    requestData.getEmail(),
-                    requestData.getPhone(),
-                    UUID.randomUUID().toString(),
-                    requestData.getCountryCode()
-            );
-            user = userService.register(newUserDto);
-            log.info("New user registered with ID: {}", user.getId());
+        // The authenticated principal already carries what we need; only guest submissions need a lookup
+        Long userId = null;
+        String userEmail = null;
+        String userName = null;
+        AuthenticatedUser principal = currentUserService.get()
+                .filter(p -> requestData.getEmail() == null || p.getEmail().equalsIgnoreCase(requestData.getEmail()))
+                .orElse(null);
+
+        if (principal != null) {
+            userId = principal.getId();
+            userEmail = principal.getEmail();
+            userName = principal.getDisplayName();
+        } else if (requestData.getEmail() != null) {
+            User user = userRepository.findByEmail(requestData.getEmail()).orElse(null);
+            if (user == null) {
+                log.info("No existing user found. Registering new user for: {}", requestData.getEmail());
+                NewUserDto newUserDto = new NewUserDto(
+                        requestData.getFirstName(),
+                        requestData.getLastName(),
+                        requestData.getCompanyName(),
+                        requestData.getEmail(),
+                        requestData.getPhone(),
+                        UUID.randomUUID().toString(),
+                        requestData.getCountryCode()
+                );
+                user = userService.register(newUserDto);
+                log.info("New user registered with ID: {}", user.getId());
+            }
+            userId = user.getId();
+            userEmail = user.getEmail();
+            userName = user.getFirstName() + " " + user.getLastName();
         }
 
         ServiceRequest serviceRequest = new ServiceRequest();
-        if (user != null) {
-            serviceRequest.setUserId(user.getId());
-        }
+        serviceRequest.setUserId(userId);
         serviceRequest.setTitle(requestData.getTitle());
         serviceRequest.setService(requestData.getService());
         serviceRequest.setDescription(requestData.getDescription());
@@ -78,39 +110,35 @@ public class RequestService {
 
         if (requestData.getAttachments() != null && !requestData.getAttachments().isEmpty()) {
             log.info("Processing {} attachments for new request", requestData.getAttachments().size());
-            List<FileAttachment> attachments = new ArrayList<>();
-            for (MultipartFile file : requestData.getAttachments()) {
-                assert user != null;
-                String gcsPath = fileStorageService.storeFile(file, user.getId());
-
-                FileAttachment attachment = new FileAttachment();
-                // Store the original file name for display
-                attachment.setFileName(file.getOriginalFilename());
-                attachment.setFileSize(file.getSize());
-                attachment.setFileType(file.getContentType());
-                attachment.setPurpose(FilePurpose.USER_FILE);
-                // Store the GCS path in the URL field
-                attachment.setUrl(gcsPath);
-                attachments.add(attachment);
-            }
+            assert userId != null;
+            List<FileAttachment> attachments = new ArrayList<>(
+                    attachmentUploader.upload(requestData.getAttachments(), FilePurpose.USER_FILE));
             serviceRequest.setAttachments(attachments);
             log.info("Attached {} files to service request", attachments.size());
         }
-        ServiceRequest savedRequest = serviceRequestRepository.save(serviceRequest);
-        log.info("Successfully created and saved new service request with ID: {}", savedRequest.getId());
-
-        // Send a confirmation email to the user <--- ADDED LOGIC
-        if (user != null) {
-            userService.sendRequestCreatedEmail(savedRequest, requestData.getLang());
-        }
+        // The request and its notification emails are committed together
+        final Long ownerId = userId;
+        final String ownerEmail = userEmail;
+        final String ownerName = userName;
+        ServiceRequest savedRequest = saveOrDiscardUploads(serviceRequest.getAttachments(), () -> transactionTemplate.execute(status -> {
+            ServiceRequest saved = serviceRequestRepository.save(serviceRequest);
+            log.info("Successfully created and saved new service request with ID: {}", saved.getId());
+
+            // Send a confirmation email to the user <--- ADDED LOGIC
+            if (ownerId != null) {
+                userService.sendRequestCreatedEmail(saved, ownerEmail, requestData.getLang());
+            }
 
-        // Send internal alert email to the company/admin <--- ADDED LOGIC
-        userService.sendNewRequestAlertEmail(savedRequest, requestData.getLang());
+            // Send internal alert email to the company/admin <--- ADDED LOGIC
+            String submittedBy = ownerId != null ? UserService.submitterLabel(ownerName, ownerEmail) : "Guest";
+            userService.sendNewRequestAlertEmail(saved, submittedBy, requestData.getLang());
+            return saved;
+        }));
         return savedRequest;
     }
 
     public List<ServiceRequest> getUserRequests(RequestStatus status, String sortBy, String sortDir) {
-        User user = getCurrentUser(null);
+        AuthenticatedUser user = currentUserService.get().orElse(null);
         if (user != null) {
             log.info("Fetching requests for user ID: {}", user.getId());
 
@@ -146,7 +174,7 @@ public class RequestService {
         ServiceRequest request = serviceRequestRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("ServiceRequest not found with id: " + id));
 
-        User currentUser = getCurrentUser(null);
+        AuthenticatedUser currentUser = currentUserService.get().orElse(null);
 
         // Security Check: Must be ADMIN/STAFF/MANAGER or the owner
         if (currentUser == null || (
@@ -221,14 +249,6 @@ public class RequestService {
         }
     }
 
-    private User getCurrentUser(String email) {
-        if (email != null) {
-            return userRepository.findByEmail(email).orElse(null);
-        }
-        String userEmail = SecurityContextHolder.getContext().getAuthentication().getName();
-        return userRepository.findByEmail(userEmail).orElse(null);
-    }
-
     public ServiceRequestDto updateRequest(String id, UpdateRequestDto updateData) {
         log.info("Attempting to update service request ID: {}", id);
 
@@ -267,6 +287,7 @@ public class RequestService {
         // If it's on the request, you'd find and set the Country entity.
 
         // Handle new file attachments
+        List<FileAttachment> newAttachments = List.of();
         if (updateData.getAttachments() != null && !updateData.getAttachments().isEmpty()) {
             log.info("Processing {} new attachments for request ID: {}", updateData.getAttachments().size(), id);
 
@@ -275,20 +296,13 @@ public class RequestService {
                 existingRequest.setAttachments(new ArrayList<>());
             }
 
-            for (MultipartFile file : updateData.getAttachments()) {
-                String gcsPath = fileStorageService.storeFile(file, existingRequest.getUserId());
-                FileAttachment attachment = new FileAttachment();
-                attachment.setFileName(file.getOriginalFilename());
-                attachment.setFileSize(file.getSize());
-                attachment.setFileType(file.getContentType());
-                attachment.setUrl(gcsPath); // Adjust URL as needed
-                existingRequest.getAttachments().add(attachment);
-            }
+            newAttachments = attachmentUploader.upload(updateData.getAttachments(), null);
+            existingRequest.getAttachments().addAll(newAttachments);
             log.info("Added {} new files to service request {}", updateData.getAttachments().size(), id);
         }
 
         // Save and return the updated request
-        ServiceRequest updatedRequest = serviceRequestRepository.save(existingRequest);
+        ServiceRequest updatedRequest = saveOrDiscardUploads(newAttachments, () -> serviceRequestRepository.save(existingRequest));
         log.info("Successfully updated service request ID: {}", id);
         return mapToDto(updatedRequest);
     }
@@ -303,7 +317,7 @@ public class RequestService {
         log.info("Attempting to delete service request ID: {}", id);
 
         // 1. Get the authenticated user
-        User currentUser = getCurrentUser(null);
+        AuthenticatedUser currentUser = currentUserService.get().orElse(null);
         if (currentUser == null) {
             log.warn("Delete failed: No authenticated user.");
             throw new AccessDeniedException("User not authenticated.");
@@ -323,28 +337,21 @@ public class RequestService {
             throw new AccessDeniedException("Access denied to delete this resource.");
         }
 
-        // 4. Get the list of file paths *before* deleting the DB record
-        List<String> pathsToDelete = new ArrayList<>();
-        if (request.getAttachments() != null) {
-            for (FileAttachment attachment : request.getAttachments()) {
-                if (attachment.getUrl() != null && !attachment.getUrl().isEmpty()) {
-                    pathsToDelete.add(attachment.getUrl());
-                }
-            }
-        }
-        log.debug("Found {} file attachments to delete from GCS for request ID: {}", pathsToDelete.size(), id);
+        // 4. Get the attachments *before* deleting the DB record
+        List<FileAttachment> attachments = request.getAttachments() != null
+                ? new ArrayList<>(request.getAttachments()) : List.of();
+        log.debug("Found {} file attachments to release for request ID: {}", attachments.size(), id);
 
         // 5. Delete the request from the database.
         // Because @OneToMany on attachments is CascadeType.ALL,
         // this will also delete the FileAttachment entries in the database.
-        serviceRequestRepository.delete(request);
-        log.info("Successfully deleted service request record ID: {}", id);
-
-        // 6. Delete associated files from GCS
-        for (String path : pathsToDelete) {
-            fileStorageService.deleteFile(path);
-        }
-        log.info("Completed GCS file cleanup for request ID: {}", id);
+        // 6. The attachments' blob references are released in the same transaction; files no longer referenced
+        // by any attachment are removed from GCS in the background
+        transactionTemplate.executeWithoutResult(status -> {
+            serviceRequestRepository.delete(request);
+            storedBlobService.release(attachments);
+        });
+        log.info("Successfully deleted service request record ID: {}; released {} attachment file(s)", id, attachments.size());
     }
 
     /**
@@ -356,8 +363,44 @@ public class RequestService {
     public String getAttachmentDownloadUrl(Long attachmentId) {
         log.info("Generating download URL for attachment ID: {}", attachmentId);
 
+        FileAttachment attachment = findDownloadableAttachment(attachmentId);
+
+        // Generate the signed URL
+        String url = fileStorageService.generateSignedDownloadUrl(attachment.getUrl(), attachment.getFileName());
+        storageSavingsService.recordDownloads(List.of(attachment));
+        return url;
+    }
+
+    /**
+     * An attachment the current user may download, with the header of its stored file.
+     */
+    public record AttachmentContent(FileAttachment attachment, BlobStore.BlobHeader file) {
+    }
+
+    /**
+     * Looks up an attachment to stream through this service rather than from a signed URL, with the same access
+     * check as {@link #getAttachmentDownloadUrl}.
+     *
+     * @param attachmentId The ID of the FileAttachment.
+     * @throws EntityNotFoundException if the attachment, its request or its stored file does not exist.
+     */
+    public AttachmentContent getAttachmentContent(Long attachmentId) {
+        log.info("Opening content of attachment ID: {}", attachmentId);
+        FileAttachment attachment = findDownloadableAttachment(attachmentId);
+        BlobStore.BlobHeader file = fileStorageService.describeFile(attachment.getUrl());
+        if (file == null) {
+            log.error("Stored file {} of attachment ID {} is missing.", attachment.getUrl(), attachmentId);
+            throw new EntityNotFoundException("File not found for attachment id: " + attachmentId);
+        }
+        return new AttachmentContent(attachment, file);
+    }
+
+    /**
+     * Finds an attachment the current user may download: ADMIN, or the owner of its request.
+     */
+    private FileAttachment findDownloadableAttachment(Long attachmentId) {
         // 1. Get the authenticated user
-        User currentUser = getCurrentUser(null);
+        AuthenticatedUser currentUser = currentUserService.get().orElse(null);
         if (currentUser == null) {
             throw new AccessDeniedException("User not authenticated.");
         }
@@ -383,9 +426,72 @@ public class RequestService {
             log.error("Attachment ID {} has a null or empty file path.", attachmentId);
             throw new RuntimeException("File path is missing for this attachment.");
         }
+        return attachment;
+    }
+
+    /**
+     * Generates signed download URLs for every attachment of a request, with one access check and one query.
+     *
+     * @param requestId The ID of the ServiceRequest.
+     * @return Attachment ID to temporary, signed download URL.
+     */
+    public Map<Long, String> getAttachmentDownloadUrls(String requestId) {
+        log.info("Generating download URLs for attachments of request ID: {}", requestId);
 
-        // 6. Generate the signed URL
-        return fileStorageService.generateSignedDownloadUrl(blobPath);
+        List<FileAttachment> withPath = findDownloadableAttachments(requestId);
+
+        Map<FileStorageService.Download, String> signed = fileStorageService.generateSignedDownloadUrls(
+                withPath.stream().map(RequestService::download).toList());
+        Map<Long, String> urls = new LinkedHashMap<>();
+        withPath.forEach(a -> urls.put(a.getId(), signed.get(download(a))));
+        storageSavingsService.recordDownloads(withPath);
+        return urls;
+    }
+
+    private static FileStorageService.Download download(FileAttachment attachment) {
+        return new FileStorageService.Download(attachment.getUrl(), attachment.getFileName());
+    }
+
+    /**
+     * Lists the attachments of a request for a ZIP download, with the same access check as
+     * {@link #getAttachmentDownloadUrls}.
+     *
+     * @param purpose Only attachments with this purpose; null for all.
+     */
+    public List<FileAttachment> getAttachmentsForArchive(String requestId, FilePurpose purpose) {
+        log.info("Listing attachments of request ID {} for an archive (purpose: {})", requestId, purpose);
+        return findDownloadableAttachments(requestId).stream()
+                .filter(a -> purpose == null || purpose == a.getPurpose())
+                .toList();
+    }
+
+    /**
+     * Loads a request's attachments that have a stored file, if the current user may download them: ADMIN, or
+     * the owner of the request (the same rule as a single download).
+     */
+    private List<FileAttachment> findDownloadableAttachments(String requestId) {
+        AuthenticatedUser currentUser = currentUserService.get().orElse(null);
+        if (currentUser == null) {
+            throw new AccessDeniedException("User not authenticated.");
+        }
+
+        ServiceRequest request = serviceRequestRepository.findWithAttachmentsById(requestId)
+                .orElseThrow(() -> new EntityNotFoundException("ServiceRequest not found with id: " + requestId));
+
+        if (!currentUser.getRole().equals(Role.ADMIN) && !request.getUserId().equals(currentUser.getId())) {
+            log.warn("Access denied: User {} attempting to download attachments of request {}",
+                    currentUser.getId(), request.getId());
+            throw new AccessDeniedException("Access denied to download these files.");
+        }
+
+        List<FileAttachment> attachments = request.getAttachments() != null ? request.getAttachments() : List.of();
+        List<FileAttachment> withPath = attachments.stream()
+                .filter(a -> a.getUrl() != null && !a.getUrl().isEmpty())
+                .toList();
+        if (withPath.size() < attachments.size()) {
+            log.error("{} attachment(s) of request {} have a null or empty file path.", attachments.size() - withPath.size(), requestId);
+        }
+        return withPath;
     }
 
     /**
@@ -397,7 +503,7 @@ public class RequestService {
         log.info("Attempting to delete attachment ID: {}", attachmentId);
 
         // 1. Get the authenticated user
-        User currentUser = getCurrentUser(null);
+        AuthenticatedUser currentUser = currentUserService.get().orElse(null);
         if (currentUser == null) {
             log.warn("Delete attachment failed: No authenticated user.");
             throw new AccessDeniedException("User not authenticated.");
@@ -430,13 +536,18 @@ public class RequestService {
 
         // 6. Delete the attachment from the database
         // This removes the row from the file_attachments table.
-        fileAttachmentRepository.delete(attachment);
+        // 7. The blob reference is released in the same transaction; if it was the last one, the GCS file is
+        // removed in the background
+        transactionTemplate.executeWithoutResult(status -> {
+            fileAttachmentRepository.delete(attachment);
+            if (blobPath != null && !blobPath.isEmpty()) {
+                storedBlobService.release(List.of(attachment));
+            }
+        });
         log.info("Successfully deleted attachment record ID: {}", attachmentId);
 
-        // 7. Delete the file from GCS
         if (blobPath != null && !blobPath.isEmpty()) {
-            fileStorageService.deleteFile(blobPath);
-            log.info("Triggered GCS file deletion for path: {}", blobPath);
+            log.info("Released GCS file for path: {}", blobPath);
         } else {
             log.warn("Attachment record {} had no GCS path; nothing to delete from storage.", attachmentId);
         }
@@ -450,64 +561,169 @@ public class RequestService {
      * @return The updated ServiceRequest.
      */
     public ServiceRequestDto addAttachmentToRequest(String requestId, MultipartFile file, String purposeStr, String lang) {
-        log.info("Attempting to add attachment to request ID: {} with purpose: {}", requestId, purposeStr);
+        return addAttachmentsToRequest(requestId, List.of(file), purposeStr, lang);
+    }
+
+    /**
+     * Adds several attachments to a service request at once. The files are uploaded concurrently and the request
+     * is saved once; if any upload fails, none of the files are kept.
+     *
+     * @param requestId The ID of the request to update.
+     * @param files     The files to attach, all with the same purpose.
+     * @return The updated ServiceRequest.
+     */
+    public ServiceRequestDto addAttachmentsToRequest(String requestId, List<MultipartFile> files, String purposeStr, String lang) {
+        log.info("Attempting to add {} attachment(s) to request ID: {} with purpose: {}", files.size(), requestId, purposeStr);
 
         // 1. Security Check: Verify the current user has the required role
-        User currentUser = getCurrentUser(null);
+        AuthenticatedUser currentUser = requireAttachmentUploader(requestId);
+        FilePurpose purpose = parsePurpose(purposeStr);
+
+        // 2. Find the request
+        ServiceRequest existingRequest = findForAttachment(requestId);
+
+        // 3. Upload the files to GCS
+        // We use the request owner's (user.getId()) folder for consistency
+        List<FileAttachment> attachments = attachmentUploader.upload(files, purpose);
+
+        // 4. Add to the request and save
+        return mapToDto(attach(existingRequest, attachments, purpose, currentUser, lang));
+    }
+
+    /**
+     * A signed upload URL and the ticket that must be sent back to {@link #finalizeAttachmentUpload}.
+     */
+    public record AttachmentUpload(FileStorageService.SignedUpload upload, String uploadToken) {
+    }
+
+    /**
+     * Issues a signed URL so the client can upload an attachment straight to GCS, into the request owner's
+     * folder. Nothing is recorded until {@link #finalizeAttachmentUpload} is called with the returned ticket.
+     */
+    public AttachmentUpload createAttachmentUpload(String requestId, UploadUrlRequestDto uploadRequest) {
+        log.info("Issuing direct upload URL for '{}' on request ID: {}", uploadRequest.getFileName(), requestId);
+        requireAttachmentUploader(requestId);
+        ServiceRequest existingRequest = findForAttachment(requestId);
+        FileStorageService.SignedUpload upload = fileStorageService.generateSignedUploadUrl(existingRequest.getUserId(),
+                uploadRequest.getFileName(), uploadRequest.getContentType(), uploadRequest.getSize());
+        return new AttachmentUpload(upload, uploadTicketService.issue(requestId, upload.objectPath(),
+                uploadRequest.getSize(), uploadRequest.getContentType()));
+    }
+
+    /**
+     * Attaches a file the client uploaded through {@link #createAttachmentUpload}, after checking that the stored
+     * object matches the declared size, content type and checksum.
+     * <p>
+     * The upload ticket proves the object path was issued for this request, size and content type, so a client
+     * cannot name (and, with a wrong checksum, get deleted) any other file in the owner's folder. A path that an
+     * attachment or profile image already points at is refused, so a ticket cannot be finalized twice.
+     */
+    public ServiceRequestDto finalizeAttachmentUpload(String requestId, FinalizeUploadDto upload, String lang) {
+        log.info("Finalizing direct upload {} for request ID: {}", upload.getObjectPath(), requestId);
+        AuthenticatedUser currentUser = requireAttachmentUploader(requestId);
+        FilePurpose purpose = parsePurpose(upload.getPurpose());
+        ServiceRequest existingRequest = findForAttachment(requestId);
+
+        // Signed URLs are scoped to the owner's folder; anything else was not issued for this request
+        String objectPath = upload.getObjectPath();
+        if (existingRequest.getUserId() == null || !objectPath.startsWith(existingRequest.getUserId() + "/")
+                || objectPath.contains("..")) {
+            log.warn("Access Denied: upload {} is not in the folder of request {}", objectPath, requestId);
+            throw new AccessDeniedException("This upload does not belong to the request.");
+        }
+        uploadTicketService.verify(upload.getUploadToken(), requestId, objectPath, upload.getSize(), upload.getContentType());
+        if (!fileAttachmentRepository.findExistingUrls(List.of(objectPath)).isEmpty()
+                || !userRepository.findExistingProfileImages(List.of(objectPath)).isEmpty()) {
+            log.warn("Rejecting upload {} for request {}: the file is already in use", objectPath, requestId);
+            throw new IllegalArgumentException("This upload is already attached.");
+        }
+
+        // Only reached for an object issued for this upload and not referenced anywhere, which is all a mismatch
+        // may delete
+        fileStorageService.verifyUpload(objectPath, upload.getSize(), upload.getContentType(),
+                upload.getCrc32c(), upload.getMd5Hash());
+
+        FileAttachment attachment = new FileAttachment();
+        attachment.setFileName(upload.getFileName());
+        attachment.setFileSize(upload.getSize());
+        attachment.setFileType(upload.getContentType());
+        attachment.setPurpose(purpose);
+        attachment.setUrl(objectPath);
+        return mapToDto(attach(existingRequest, List.of(attachment), purpose, currentUser, lang));
+    }
+
+    private AuthenticatedUser requireAttachmentUploader(String requestId) {
+        AuthenticatedUser currentUser = currentUserService.get().orElse(null);
         if (currentUser == null) {
             log.warn("Attachment upload failed: No authenticated user.");
             throw new AccessDeniedException("User not authenticated.");
         }
 
-        FilePurpose purpose;
-        try {
-            purpose = FilePurpose.valueOf(purposeStr.toUpperCase());
-        } catch (IllegalArgumentException e) {
-            log.warn("Invalid file purpose provided: {}", purposeStr);
-            throw new IllegalArgumentException("Invalid file purpose: " + purposeStr + ". Must be one of: " + FilePurpose.values());
-        }
-
         Role role = currentUser.getRole();
         if (role != Role.ADMIN && role != Role.STAFF && role != Role.MANAGER && role != Role.USER) {
             log.warn("Access Denied: User {} with role {} tried to add attachment to request {}",
                     currentUser.getEmail(), role, requestId);
             throw new AccessDeniedException("You do not have permission to perform this action.");
         }
+        return currentUser;
+    }
 
-        // 2. Find the request
-        ServiceRequest existingRequest = serviceRequestRepository.findById(requestId)
+    private static FilePurpose parsePurpose(String purposeStr) {
+        try {
+            return FilePurpose.valueOf(purposeStr.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid file purpose provided: {}", purposeStr);
+            throw new IllegalArgumentException("Invalid file purpose: " + purposeStr + ". Must be one of: " + FilePurpose.values());
+        }
+    }
+
+    private ServiceRequest findForAttachment(String requestId) {
+        return serviceRequestRepository.findById(requestId)
                 .orElseThrow(() -> {
                     log.warn("Attachment upload failed: Service request not found with ID: {}", requestId);
                     return new EntityNotFoundException("ServiceRequest not found with id: " + requestId);
                 });
+    }
 
-        // 3. Upload the file to GCS
-        // We use the request owner's (user.getId()) folder for consistency
-        String gcsPath = fileStorageService.storeFile(file, existingRequest.getUserId());
-
-        // 4. Create the FileAttachment entity
-        FileAttachment attachment = new FileAttachment();
-        attachment.setFileName(file.getOriginalFilename());
-        attachment.setFileSize(file.getSize());
-        attachment.setFileType(file.getContentType());
-        attachment.setUrl(gcsPath);
-        attachment.setPurpose(purpose);
-
-        // 5. Add to the request and save
+    /**
+     * Adds uploaded attachments to a request and saves it once, sending the proposal email if needed. The
+     * uploads are deleted again if the save fails.
+     */
+    private ServiceRequest attach(ServiceRequest existingRequest, List<FileAttachment> attachments, FilePurpose purpose,
+                                  AuthenticatedUser currentUser, String lang) {
+        String requestId = existingRequest.getId();
         if (existingRequest.getAttachments() == null) {
             existingRequest.setAttachments(new ArrayList<>());
         }
-        existingRequest.getAttachments().add(attachment);
-        ServiceRequest updatedRequest = serviceRequestRepository.save(existingRequest);
+        existingRequest.getAttachments().addAll(attachments);
+        ServiceRequest updatedRequest = saveOrDiscardUploads(attachments, () -> transactionTemplate.execute(status -> {
+            ServiceRequest saved = serviceRequestRepository.save(existingRequest);
 
-        log.info("Successfully added new attachment by user {} to request ID: {}", currentUser.getEmail(), requestId);
+            log.info("Successfully added {} attachment(s) by user {} to request ID: {}", attachments.size(), currentUser.getEmail(), requestId);
 
-        // 6. Check if a proposal was uploaded and send email <--- ADDED LOGIC
-        if (purpose == FilePurpose.PROPOSAL) {
-            userService.sendProposalUploadedEmail(updatedRequest, lang);
-        }
+            // 5. Check if a proposal was uploaded and send email <--- ADDED LOGIC
+            if (purpose == FilePurpose.PROPOSAL) {
+                userService.sendProposalUploadedEmail(saved, lang);
+            }
+            return saved;
+        }));
 
-        return mapToDto(updatedRequest);
+        return updatedRequest;
+    }
+
+    /**
+     * Runs the save for a request whose attachments were just uploaded, deleting those uploads if it fails so
+     * no orphaned files are left in GCS.
+     */
+    private ServiceRequest saveOrDiscardUploads(List<FileAttachment> uploaded, Supplier<ServiceRequest> save) {
+        try {
+            return save.get();
+        } catch (RuntimeException e) {
+            if (uploaded != null && !uploaded.isEmpty()) {
+                attachmentUploader.discard(uploaded);
+            }
+            throw e;
+        }
     }
 
     /**
@@ -1,9 +1,9 @@
 package com.neovation.service;
 
+import com.neovation.config.AuthenticatedUser;
 import com.neovation.dto.ReviewDto;
 import com.neovation.model.Review;
 import com.neovation.model.ServiceRequest;
-import com.neovation.model.User;
 import com.neovation.repository.ReviewRepository;
 import com.neovation.repository.ServiceRequestRepository;
 import com.neovation.repository.UserRepository;
@@ -11,7 +11,6 @@ import jakarta.persistence.EntityNotFoundException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.access.AccessDeniedException;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -25,17 +24,13 @@ public class ReviewService {
     private final ReviewRepository reviewRepository;
     private final ServiceRequestRepository requestRepository;
     private final UserRepository userRepository;
+    private final CurrentUserService currentUserService;
 
-    public ReviewService(ReviewRepository reviewRepository, ServiceRequestRepository requestRepository, UserRepository userRepository) {
+    public ReviewService(ReviewRepository reviewRepository, ServiceRequestRepository requestRepository, UserRepository userRepository, CurrentUserService currentUserService) {
         this.reviewRepository = reviewRepository;
         this.requestRepository = requestRepository;
         this.userRepository = userRepository;
-    }
-
-    private User getCurrentUser() {
-        String userEmail = SecurityContextHolder.getContext().getAuthentication().getName();
-        return userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new AccessDeniedException("User not found or not authenticated."));
+        this.currentUserService = currentUserService;
     }
 
     private ServiceRequest findServiceRequest(String requestId) {
@@ -43,7 +38,7 @@ public class ReviewService {
                 .orElseThrow(() -> new EntityNotFoundException("ServiceRequest not found with id: " + requestId));
     }
 
-    private void checkUserOwnership(User currentUser, ServiceRequest request) {
+    private void checkUserOwnership(AuthenticatedUser currentUser, ServiceRequest request) {
         if (request.getUserId() == null || !request.getUserId().equals(currentUser.getId())) {
             log.warn("Access Denied: User {} attempted to review request {} not owned by them.", currentUser.getId(), request.getId());
             throw new AccessDeniedException("You do not have permission to review this request.");
@@ -54,7 +49,7 @@ public class ReviewService {
      * Creates a new review for a service request. Only the request owner can review.
      */
     public ReviewDto createReview(String requestId, ReviewDto dto) {
-        User currentUser = getCurrentUser();
+        AuthenticatedUser currentUser = currentUserService.require();
         ServiceRequest request = findServiceRequest(requestId);
         checkUserOwnership(currentUser, request);
 
@@ -65,7 +60,7 @@ public class ReviewService {
         }
 
         Review newReview = new Review();
-        newReview.setUser(currentUser);
+        newReview.setUser(userRepository.getReferenceById(currentUser.getId()));
         newReview.setServiceRequest(request);
         newReview.setRating(dto.getRating());
         newReview.setComment(dto.getComment());
@@ -92,7 +87,7 @@ public class ReviewService {
      * Gets the current user's review for a specific request ID
      */
     public ReviewDto getMyReviewByRequestId(String requestId) {
-        User currentUser = getCurrentUser();
+        AuthenticatedUser currentUser = currentUserService.require();
         ServiceRequest request = findServiceRequest(requestId);
         checkUserOwnership(currentUser, request); // Ensure user has access/ownership
 
@@ -106,7 +101,7 @@ public class ReviewService {
      * Updates the current user's review for a service request.
      */
     public ReviewDto updateReview(String requestId, Long reviewId, ReviewDto dto) {
-        User currentUser = getCurrentUser();
+        AuthenticatedUser currentUser = currentUserService.require();
         findServiceRequest(requestId); // Ensure request exists
 
         Review existingReview = reviewRepository.findById(reviewId)
@@ -130,7 +125,7 @@ public class ReviewService {
      * Deletes the current user's review for a service request.
      */
     public void deleteReview(String requestId, Long reviewId) {
-        User currentUser = getCurrentUser();
+        AuthenticatedUser currentUser = currentUserService.require();
         findServiceRequest(requestId); // Ensure request exists
 
         Review existingReview = reviewRepository.findById(reviewId)
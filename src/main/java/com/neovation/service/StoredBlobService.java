@@ -0,0 +1,143 @@
+package com.neovation.service;
+
+import com.neovation.model.FileAttachment;
+import com.neovation.model.StoredBlob;
+import com.neovation.repository.StoredBlobRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Stores attachment files once per distinct content.
+ * <p>
+ * An upload is hashed with SHA-256 while it is read from the local multipart spool, before anything is sent to
+ * storage. If a blob with that hash is already referenced, the attachment just takes another reference (one row
+ * update); otherwise the file is written to {@code sha256/<hash>} and recorded in {@code stored_blobs}. Releasing
+ * the last reference deletes the row and queues the object with {@link BlobDeletionService}, in the caller's
+ * transaction.
+ * <p>
+ * Metrics: {@code storage.dedup} counter tagged by {@code result} (hit / miss) and
+ * {@code storage.dedup.bytes_saved}.
+ */
+@Service
+public class StoredBlobService {
+    private static final Logger log = LoggerFactory.getLogger(StoredBlobService.class);
+    private static final String PATH_PREFIX = "sha256/";
+
+    final private StoredBlobRepository storedBlobRepo;
+    final private FileStorageService fileStorageService;
+    final private BlobDeletionService blobDeletionService;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter bytesSaved;
+
+    public StoredBlobService(StoredBlobRepository storedBlobRepo, FileStorageService fileStorageService,
+                             BlobDeletionService blobDeletionService, MeterRegistry meterRegistry) {
+        this.storedBlobRepo = storedBlobRepo;
+        this.fileStorageService = fileStorageService;
+        this.blobDeletionService = blobDeletionService;
+
+        this.hits = Counter.builder("storage.dedup")
+                .description("Attachment uploads by whether their content was already stored")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("storage.dedup")
+                .description("Attachment uploads by whether their content was already stored")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        this.bytesSaved = Counter.builder("storage.dedup.bytes_saved")
+                .description("Bytes not uploaded because identical content was already stored")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Stores the file, or reuses the blob with the same content, and takes one reference to it. The reference
+     * is committed immediately; give it back with {@link #release} if the attachment is not saved.
+     *
+     * @return The referenced blob.
+     */
+    public StoredBlob store(MultipartFile file) {
+        if (file.isEmpty()) {
+            log.warn("Cannot store an empty file.");
+            throw new RuntimeException("Cannot store an empty file.");
+        }
+        String sha256 = sha256(file);
+
+        if (storedBlobRepo.reference(sha256) == 1) {
+            hits.increment();
+            bytesSaved.increment(file.getSize());
+            log.info("File '{}' matches stored blob {}; not uploading it again", file.getOriginalFilename(), sha256);
+            return findBySha256(sha256);
+        }
+
+        // Concurrent uploads of the same new content both write the same bytes to the same path; the upsert
+        // then counts both references on one row
+        String blobPath = PATH_PREFIX + sha256;
+        // The last reference may have been released just now, queueing the old file for deletion
+        blobDeletionService.cancel(blobPath);
+        FileStorageService.StoredFile stored = fileStorageService.storeFileAt(file, blobPath);
+        storedBlobRepo.insertOrReference(sha256, blobPath, file.getSize(), stored.storedSize(),
+                file.getContentType(), stored.contentEncoding());
+        misses.increment();
+        return findBySha256(sha256);
+    }
+
+    /**
+     * Gives back the references held by the attachments. Blobs left without references, and the files of
+     * attachments that do not share a blob, are queued for deletion. Call it in the transaction that deletes
+     * the attachment rows.
+     */
+    @Transactional
+    public void release(Collection<FileAttachment> attachments) {
+        List<String> unreferenced = new ArrayList<>();
+        for (FileAttachment attachment : attachments) {
+            if (attachment.getStoredBlobId() == null) {
+                // Uploaded before deduplication, or directly by the client: the file belongs to this row alone
+                unreferenced.add(attachment.getUrl());
+                continue;
+            }
+            storedBlobRepo.release(attachment.getStoredBlobId());
+            if (storedBlobRepo.deleteIfUnreferenced(attachment.getStoredBlobId()) == 1) {
+                unreferenced.add(attachment.getUrl());
+            }
+        }
+        blobDeletionService.schedule(unreferenced);
+    }
+
+    private StoredBlob findBySha256(String sha256) {
+        return storedBlobRepo.findBySha256(sha256)
+                .orElseThrow(() -> new IllegalStateException("Stored blob " + sha256 + " disappeared while referenced"));
+    }
+
+    private static String sha256(MultipartFile file) {
+        try (InputStream in = file.getInputStream()) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[64 * 1024];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, n);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException e) {
+            log.error("Failed to read file '{}' for hashing", file.getOriginalFilename(), e);
+            throw new RuntimeException("Could not store file " + file.getOriginalFilename(), e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -17,6 +17,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -31,6 +33,7 @@ public class StripePaymentService {
     private final ServiceRequestRepository requestRepository;
     private final PaymentRepository paymentRepository;
     private final UserService userService;
+    private final TransactionTemplate transactionTemplate;
 
     @Value("${stripe.secret-key}")
     private String secretKey;
@@ -41,10 +44,12 @@ public class StripePaymentService {
     @Value("${stripe.cancel-url}")
     private String cancelUrl;
 
-    public StripePaymentService(ServiceRequestRepository requestRepository, PaymentRepository paymentRepository, UserService userService) {
+    public StripePaymentService(ServiceRequestRepository requestRepository, PaymentRepository paymentRepository, UserService userService, PlatformTransactionManager transactionManager) {
         this.requestRepository = requestRepository;
         this.paymentRepository = paymentRepository;
         this.userService = userService;
+        // Programmatic, so the Stripe API call is made before any database transaction is opened
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     @PostConstruct
@@ -189,23 +194,26 @@ public class StripePaymentService {
             return response;
         }
 
-        // Perform updates
-        payment.setPaymentStatus(PaymentStatus.COMPLETED);
-        payment.setSessionId(sessionId);
-        paymentRepository.save(payment);
-        log.info("Local Payment ID {} status updated to COMPLETED.", finalPaymentId);
-
-        // 5. Update the ServiceRequest status
-        ServiceRequest serviceRequest = requestRepository.findById(serviceRequestId)
-                .orElseThrow(() -> new EntityNotFoundException("ServiceRequest not found with id: " + serviceRequestId));
-
-        serviceRequest.setStatus(RequestStatus.PAYMENT_RECEIVED);
-        requestRepository.save(serviceRequest);
-        log.info("ServiceRequest ID {} status updated to PAYMENT_RECEIVED.", serviceRequestId);
-
-        // 6. Send receipt email
-        userService.sendPaymentReceiptEmail(payment);
-        log.info("Sent payment receipt email for Payment ID: {}", finalPaymentId);
+        // Payment, request status and receipt email are committed together
+        transactionTemplate.executeWithoutResult(status -> {
+            // Perform updates
+            payment.setPaymentStatus(PaymentStatus.COMPLETED);
+            payment.setSessionId(sessionId);
+            paymentRepository.save(payment);
+            log.info("Local Payment ID {} status updated to COMPLETED.", finalPaymentId);
+
+            // 5. Update the ServiceRequest status
+            ServiceRequest serviceRequest = requestRepository.findById(serviceRequestId)
+                    .orElseThrow(() -> new EntityNotFoundException("ServiceRequest not found with id: " + serviceRequestId));
+
+            serviceRequest.setStatus(RequestStatus.PAYMENT_RECEIVED);
+            requestRepository.save(serviceRequest);
+            log.info("ServiceRequest ID {} status updated to PAYMENT_RECEIVED.", serviceRequestId);
+
+            // 6. Queue receipt email
+            userService.sendPaymentReceiptEmail(payment);
+            log.info("Queued payment receipt email for Payment ID: {}", finalPaymentId);
+        });
 
         // 7. Prepare and return success response
         response.setSuccess(true);
@@ -0,0 +1,113 @@
+package com.neovation.service;
+
+import com.neovation.model.User;
+import com.neovation.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks the current token version of each user so revoked JWTs can be rejected
+ * without loading the user on every request.
+ * <p>
+ * Versions bumped on this instance take effect as soon as the saved user is committed. Bumps made by other
+ * instances are picked up once the cached version is older than {@code jwt.revocation-check.ttl-ms}, at the
+ * cost of a single primary-key lookup per user.
+ * <p>
+ * At most {@code jwt.revocation-check.max-entries} users are cached; when full, expired entries are dropped
+ * first, then the oldest.
+ */
+@Service
+public class TokenVersionService {
+    private static final Logger log = LoggerFactory.getLogger(TokenVersionService.class);
+
+    private final UserRepository userRepo;
+
+    @Value("${jwt.revocation-check.ttl-ms:30000}")
+    private long ttlMs;
+
+    @Value("${jwt.revocation-check.max-entries:50000}")
+    private int maxEntries;
+
+    // version == null means the user no longer exists. A pending entry holds a bumped version that may not be
+    // committed yet: lookups go to the database until it shows that version, or the entry expires because the
+    // bump was rolled back.
+    private record CachedVersion(Integer version, long loadedAtMs, boolean pending) {
+    }
+
+    private final ConcurrentHashMap<Long, CachedVersion> versions = new ConcurrentHashMap<>();
+
+    public TokenVersionService(UserRepository userRepo) {
+        this.userRepo = userRepo;
+    }
+
+    /**
+     * @return true if a token carrying this version is still valid for the user.
+     */
+    public boolean isCurrent(Long userId, int tokenVersion) {
+        long now = System.currentTimeMillis();
+        CachedVersion cached = versions.get(userId);
+        boolean expired = cached != null && now - cached.loadedAtMs() > ttlMs;
+        if (cached != null && !cached.pending() && !expired) {
+            return cached.version() != null && cached.version() == tokenVersion;
+        }
+        Integer version = userRepo.findTokenVersionById(userId).orElse(null);
+        CachedVersion loaded = new CachedVersion(version, now, false);
+        if (cached == null) {
+            evictIfFull();
+            // Not if a bump or revocation came in during the lookup; what was read may be older than that
+            versions.putIfAbsent(userId, loaded);
+        } else if (!cached.pending() || expired || (version != null && version >= cached.version())) {
+            versions.replace(userId, cached, loaded);
+        }
+        return version != null && version == tokenVersion;
+    }
+
+    /**
+     * Invalidates every token issued to this user so far. The caller is responsible for saving the user.
+     * <p>
+     * Nothing is cached until the new version can be read back, so a lookup made before the save commits cannot
+     * put the old version back in the cache, and a rolled-back bump does not reject valid tokens.
+     */
+    public void bump(User user) {
+        int next = user.getTokenVersion() + 1;
+        user.setTokenVersion(next);
+        versions.put(user.getId(), new CachedVersion(next, System.currentTimeMillis(), true));
+        log.info("Bumped token version for user ID {} to {}", user.getId(), next);
+    }
+
+    /**
+     * Rejects all tokens for a user that has been deleted.
+     */
+    public void revoke(Long userId) {
+        versions.put(userId, new CachedVersion(null, System.currentTimeMillis(), false));
+        log.info("Revoked all tokens for user ID {}", userId);
+    }
+
+    private void evictIfFull() {
+        if (versions.size() < maxEntries) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        versions.values().removeIf(cached -> now - cached.loadedAtMs() > ttlMs);
+        int excess = versions.size() - maxEntries + 1;
+        if (excess <= 0) {
+            return;
+        }
+        // Still full of live entries: drop a tenth of the capacity, oldest first, so this is rare. Pending bumps
+        // are kept, or a lookup could cache the version they replace.
+        List<Map.Entry<Long, CachedVersion>> oldest = versions.entrySet().stream()
+                .filter(e -> !e.getValue().pending())
+                .sorted(Comparator.comparingLong(e -> e.getValue().loadedAtMs()))
+                .limit(excess + maxEntries / 10)
+                .toList();
+        oldest.forEach(e -> versions.remove(e.getKey(), e.getValue()));
+        log.debug("Token version cache full; evicted {} entries", oldest.size());
+    }
+}
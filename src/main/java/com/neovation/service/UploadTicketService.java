@@ -0,0 +1,95 @@
+package com.neovation.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Issues and checks the tickets that bind a direct upload's finalize call to the upload URL this service issued.
+ * <p>
+ * A ticket is {@code expiresAtEpochSecond.base64url(hmac)} over
+ * {@code requestId|objectPath|size|contentType|expiresAt}, so a client can only finalize the object path it was
+ * given, for the request, size and content type it declared. Nothing is stored.
+ */
+@Service
+public class UploadTicketService {
+    private static final Logger log = LoggerFactory.getLogger(UploadTicketService.class);
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    // Long enough to finish a resumable upload started just before the upload URL expired
+    @Value("${app.upload.ticket-validity:24h}")
+    private Duration validity;
+
+    @Value("${app.tokens.secret:${jwt.secret}}")
+    private String secret;
+
+    private SecretKeySpec key;
+
+    @PostConstruct
+    public void init() {
+        // Derive a dedicated key so tickets can never be confused with JWTs or action tokens
+        byte[] derived = hmac(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM),
+                "upload-ticket-v1".getBytes(StandardCharsets.UTF_8));
+        this.key = new SecretKeySpec(derived, HMAC_ALGORITHM);
+    }
+
+    public String issue(String requestId, String objectPath, long size, String contentType) {
+        long expiresAt = Instant.now().plus(validity).getEpochSecond();
+        return expiresAt + "." + ENCODER.encodeToString(sign(requestId, objectPath, size, contentType, expiresAt));
+    }
+
+    /**
+     * @throws AccessDeniedException if the ticket was not issued for exactly this upload, or has expired.
+     */
+    public void verify(String ticket, String requestId, String objectPath, long size, String contentType) {
+        int dot = ticket == null ? -1 : ticket.indexOf('.');
+        long expiresAt;
+        byte[] signature;
+        try {
+            expiresAt = Long.parseLong(ticket.substring(0, dot));
+            signature = DECODER.decode(ticket.substring(dot + 1));
+        } catch (RuntimeException e) {
+            throw denied(objectPath, requestId, "malformed ticket");
+        }
+        if (!MessageDigest.isEqual(sign(requestId, objectPath, size, contentType, expiresAt), signature)) {
+            throw denied(objectPath, requestId, "ticket does not match");
+        }
+        if (Instant.now().getEpochSecond() > expiresAt) {
+            throw denied(objectPath, requestId, "ticket expired");
+        }
+    }
+
+    private byte[] sign(String requestId, String objectPath, long size, String contentType, long expiresAt) {
+        String payload = requestId + "|" + objectPath + "|" + size + "|" + contentType + "|" + expiresAt;
+        return hmac(key, payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static AccessDeniedException denied(String objectPath, String requestId, String reason) {
+        log.warn("Access Denied: upload {} for request {} ({})", objectPath, requestId, reason);
+        return new AccessDeniedException("This upload was not issued for the request.");
+    }
+
+    private static byte[] hmac(SecretKeySpec key, byte[] data) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(data);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC not available", e);
+        }
+    }
+}
@@ -10,31 +10,29 @@ import com.neovation.dto.AuthRequest;
 import com.neovation.dto.NewUserDto;
 import com.neovation.dto.ResetPasswordDto;
 import com.neovation.repository.CountryRepository;
-import jakarta.mail.MessagingException;
-import jakarta.mail.internet.MimeMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.MessageSource;
-import org.springframework.core.io.ClassPathResource;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
-import org.thymeleaf.TemplateEngine;
-import org.thymeleaf.context.Context;
 
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.security.SecureRandom;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -56,29 +54,39 @@ public class UserService {
     final private EmailVerificationTokenRepository evtRepo;
     final private PasswordResetTokenRepository prtRepo;
     final private PasswordEncoder encoder;
-    final private JavaMailSender mailSender;
-    final private TemplateEngine templateEngine;
+    final private EmailOutboxService emailOutboxService;
+    final private EmailRenderer emailRenderer;
     final private MessageSource messageSource;
     final private FileStorageService fileStorageService;
     final private CountryRepository countryRepo;
+    final private TokenVersionService tokenVersionService;
+    final private ActionTokenService actionTokenService;
+    final private NewRequestAlertDigest alertDigest;
+    final private ProfileImageResizer profileImageResizer;
 
     // Character set for password generation
     private static final String PASSWORD_CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789!@#$%^&*()_+-=[]{}|";
     private static final int PASSWORD_LENGTH = 12;
     private static final SecureRandom RANDOM = new SecureRandom();
+    private static final DateTimeFormatter RECEIPT_DATE_FORMAT = DateTimeFormatter.ofPattern("MMM dd, yyyy HH:mm:ss", Locale.ENGLISH);
 
-    public UserService(UserRepository userRepo, EmailVerificationTokenRepository evtRepo, PasswordResetTokenRepository prtRepo, PasswordEncoder encoder, JavaMailSender mailSender, TemplateEngine templateEngine, MessageSource messageSource, FileStorageService fileStorageService, CountryRepository countryRepo) {
+    public UserService(UserRepository userRepo, EmailVerificationTokenRepository evtRepo, PasswordResetTokenRepository prtRepo, PasswordEncoder encoder, EmailOutboxService emailOutboxService, EmailRenderer emailRenderer, MessageSource messageSource, FileStorageService fileStorageService, CountryRepository countryRepo, TokenVersionService tokenVersionService, ActionTokenService actionTokenService, NewRequestAlertDigest alertDigest, ProfileImageResizer profileImageResizer) {
         this.userRepo = userRepo;
         this.evtRepo = evtRepo;
         this.prtRepo = prtRepo;
         this.encoder = encoder;
-        this.mailSender = mailSender;
-        this.templateEngine = templateEngine;
+        this.emailOutboxService = emailOutboxService;
+        this.emailRenderer = emailRenderer;
         this.messageSource = messageSource;
         this.fileStorageService = fileStorageService;
         this.countryRepo = countryRepo;
+        this.tokenVersionService = tokenVersionService;
+        this.actionTokenService = actionTokenService;
+        this.alertDigest = alertDigest;
+        this.profileImageResizer = profileImageResizer;
     }
 
+    @Transactional
     public User register(NewUserDto dto) {
         // === Determine Locale ===
         // This is a placeholder. You should get the locale from the request
@@ -109,31 +117,31 @@ public class UserService {
         user = userRepo.save(user);
         log.info("Successfully saved new user with ID: {}", user.getId());
 
-        String token = UUID.randomUUID().toString();
-        EmailVerificationToken evt = new EmailVerificationToken();
-        evt.setToken(token);
-        evt.setUser(user);
-        evt.setExpiryDate(LocalDateTime.now().plusHours(24));
-        evtRepo.save(evt);
-        log.info("Generated and saved email verification token for user {}", user.getId());
+        String token;
+        if (actionTokenService.isEnabled()) {
+            token = actionTokenService.issue(user, ActionTokenService.Purpose.VERIFY_EMAIL, Duration.ofHours(24));
+            log.info("Generated signed email verification token for user {}", user.getId());
+        } else {
+            token = UUID.randomUUID().toString();
+            EmailVerificationToken evt = new EmailVerificationToken();
+            evt.setToken(token);
+            evt.setUser(user);
+            evt.setExpiryDate(LocalDateTime.now().plusHours(24));
+            evtRepo.save(evt);
+            log.info("Generated and saved email verification token for user {}", user.getId());
+        }
 
         String link = String.format("%s/api/auth/confirm?token=%s", backendUrl, token);
-        // --- Use MessageSource to get translated text ---
-        String title = messageSource.getMessage("email.register.title", null, locale);
-        String bodyText = messageSource.getMessage("email.register.body", null, locale);
-        String buttonText = messageSource.getMessage("email.register.button", null, locale);
-
-        Context context = new Context();
-        context.setVariable("title", title);
-        context.setVariable("bodyText", bodyText);
-        context.setVariable("buttonText", buttonText);
-        context.setVariable("linkUrl", link);
-        context.setVariable("baseUrl", frontendUrl);
-
-        String htmlBody = templateEngine.process("email-template.html", context);
+        // --- Translated text is resolved and cached by the renderer ---
+        String title = emailRenderer.message("email.register.title", locale);
+        String htmlBody = emailRenderer.render("email-template.html", locale,
+                Map.of("title", "email.register.title",
+                        "bodyText", "email.register.body",
+                        "buttonText", "email.register.button"),
+                EmailRenderer.variables("linkUrl", link));
 
         sendEmail(user.getEmail(), title, htmlBody);
-        log.info("Sent registration email to {}", user.getEmail());
+        log.info("Queued registration email to {}", user.getEmail());
         return user;
     }
 
@@ -147,11 +155,21 @@ public class UserService {
                 .collect(Collectors.joining());
     }
 
+    @Transactional
     public void confirmEmail(String token) {
-
-        Locale locale = Locale.ENGLISH;
         log.info("Attempting to confirm email with token: {}", token);
 
+        if (actionTokenService.isActionToken(token)) {
+            User user = actionTokenService.verify(token, ActionTokenService.Purpose.VERIFY_EMAIL);
+            if (user.isEnabled()) {
+                log.warn("Email confirmation attempted for already enabled user: {}", user.getEmail());
+                return;
+            }
+            activateUser(user);
+            return;
+        }
+
+        // Legacy token stored in email_verification_tokens
         EmailVerificationToken evt = evtRepo.findByToken(token)
                 .orElseThrow(() -> {
                     log.warn("Invalid token used for email confirmation: {}", token);
@@ -171,6 +189,17 @@ public class UserService {
             return; // Exit the method early
         }
 
+        activateUser(user);
+        evtRepo.delete(evt);
+        log.info("Deleted used email verification token: {}", token);
+    }
+
+    /**
+     * Enables the user with a freshly generated password and emails it to them.
+     */
+    private void activateUser(User user) {
+        Locale locale = Locale.ENGLISH;
+
         // Generate a new password
         String newPassword = generateRandomPassword();
 
@@ -179,28 +208,20 @@ public class UserService {
         user.setEnabled(true);
         userRepo.save(user);
         log.info("Successfully enabled user and set new password for: {}", user.getEmail());
-        // --- Use MessageSource ---
-        String title = messageSource.getMessage("email.confirm.title", null, locale);
-        String bodyText = messageSource.getMessage("email.confirm.body", null, locale);
+        String title = emailRenderer.message("email.confirm.title", locale);
         // Pass the new password as an argument for the {0} placeholder
         Object[] args = { newPassword };
         String infoText = messageSource.getMessage("email.confirm.infotext", args, locale);
 
-        Context context = new Context();
-        context.setVariable("title", title);
-        context.setVariable("bodyText", bodyText);
-        context.setVariable("infoText", infoText);
-        context.setVariable("linkUrl", null);
-        context.setVariable("baseUrl", frontendUrl);
-
-        String htmlBody = templateEngine.process("email-template.html", context);
+        String htmlBody = emailRenderer.render("email-template.html", locale,
+                Map.of("title", "email.confirm.title",
+                        "bodyText", "email.confirm.body"),
+                EmailRenderer.variables("infoText", infoText, "linkUrl", null));
         sendEmail(user.getEmail(),
                 title,
                 htmlBody);
 
-        log.info("Sent temporary password email to: {}", user.getEmail());
-        evtRepo.delete(evt);
-        log.info("Deleted used email verification token: {}", token);
+        log.info("Queued temporary password email to: {}", user.getEmail());
     }
 
     public String login(AuthRequest dto, AuthenticationManager authManager, JwtTokenProvider jwtProvider) {
@@ -211,6 +232,7 @@ public class UserService {
         return jwtProvider.generateToken(auth);
     }
 
+    @Transactional
     public void requestPasswordReset(String email) {
         Locale locale = Locale.ENGLISH;
         log.info("Processing password reset request for email: {}", email);
@@ -219,33 +241,40 @@ public class UserService {
                     log.warn("Password reset request for non-existent user: {}", email);
                     return new RuntimeException("User not found");
                 });
-        String token = UUID.randomUUID().toString();
-        PasswordResetToken prt = new PasswordResetToken();
-        prt.setToken(token);
-        prt.setUser(user);
-        prt.setExpiryDate(LocalDateTime.now().plusHours(1));
-        prtRepo.save(prt);
-        log.info("Saved password reset token for user: {}", email);
+        String token;
+        if (actionTokenService.isEnabled()) {
+            token = actionTokenService.issue(user, ActionTokenService.Purpose.RESET_PASSWORD, Duration.ofHours(1));
+            log.info("Generated signed password reset token for user: {}", email);
+        } else {
+            token = UUID.randomUUID().toString();
+            PasswordResetToken prt = new PasswordResetToken();
+            prt.setToken(token);
+            prt.setUser(user);
+            prt.setExpiryDate(LocalDateTime.now().plusHours(1));
+            prtRepo.save(prt);
+            log.info("Saved password reset token for user: {}", email);
+        }
         String link = String.format("%s/api/auth/reset-password?token=%s", backendUrl, token);
-        // --- Use MessageSource ---
-        String title = messageSource.getMessage("email.reset.title", null, locale);
-        String bodyText = messageSource.getMessage("email.reset.body", null, locale);
-        String buttonText = messageSource.getMessage("email.reset.button", null, locale);
-
-        Context context = new Context();
-        context.setVariable("title", title);
-        context.setVariable("bodyText", bodyText);
-        context.setVariable("buttonText", buttonText);
-        context.setVariable("linkUrl", link);
-        context.setVariable("baseUrl", frontendUrl);
-
-        String htmlBody = templateEngine.process("email-template.html", context);
+        String title = emailRenderer.message("email.reset.title", locale);
+        String htmlBody = emailRenderer.render("email-template.html", locale,
+                Map.of("title", "email.reset.title",
+                        "bodyText", "email.reset.body",
+                        "buttonText", "email.reset.button"),
+                EmailRenderer.variables("linkUrl", link));
         sendEmail(email, title, htmlBody);
-        log.info("Sent password reset email to: {}", email);
+        log.info("Queued password reset email to: {}", email);
     }
 
+    @Transactional
     public void resetPassword(String token) {
         log.info("Attempting to reset password with token: {}", token);
+
+        if (actionTokenService.isActionToken(token)) {
+            issueNewPassword(actionTokenService.verify(token, ActionTokenService.Purpose.RESET_PASSWORD));
+            return;
+        }
+
+        // Legacy token stored in password_reset_tokens
         PasswordResetToken prt = prtRepo.findByToken(token)
                 .orElseThrow(() -> {
                     log.warn("Invalid token used for password reset: {}", token);
@@ -257,29 +286,31 @@ public class UserService {
             throw new RuntimeException("Token expired");
         }
 
-        User user = prt.getUser();
+        issueNewPassword(prt.getUser());
+        prtRepo.delete(prt);
+    }
+
+    /**
+     * Replaces the user's password with a generated one, signs out their sessions and emails the new password.
+     */
+    private void issueNewPassword(User user) {
         String newPassword = generateRandomPassword();
         user.setPassword(encoder.encode(newPassword));
+        tokenVersionService.bump(user);
         userRepo.save(user);
-        prtRepo.delete(prt);
         log.info("Successfully reset password for user: {}", user.getEmail());
 
         Locale locale = Locale.ENGLISH;
 
-        String title = messageSource.getMessage("email.confirm.title", null, locale);
-        String bodyText = messageSource.getMessage("email.confirm.body", null, locale);
+        String title = emailRenderer.message("email.confirm.title", locale);
         // Pass the new password as an argument for the {0} placeholder
         Object[] args = { newPassword };
         String infoText = messageSource.getMessage("email.confirm.infotext", args, locale);
 
-        Context context = new Context();
-        context.setVariable("title", title);
-        context.setVariable("bodyText", bodyText);
-        context.setVariable("infoText", infoText);
-        context.setVariable("linkUrl", null);
-        context.setVariable("baseUrl", frontendUrl);
-
-        String htmlBody = templateEngine.process("email-template.html", context);
+        String htmlBody = emailRenderer.render("email-template.html", locale,
+                Map.of("title", "email.confirm.title",
+                        "bodyText", "email.confirm.body"),
+                EmailRenderer.variables("infoText", infoText, "linkUrl", null));
         sendEmail(user.getEmail(),
                 title,
                 htmlBody);
@@ -289,25 +320,12 @@ public class UserService {
         return this.userRepo.findByEmail(email).orElseThrow();
     }
 
+    /**
+     * Queues the email in the outbox; it is sent by {@link EmailOutboxDispatcher} once the surrounding
+     * transaction (if any) has committed.
+     */
     public void sendEmail(String to, String subject, String htmlBody) {
-        try {
-            MimeMessage mimeMessage = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, true, "UTF-8"); // true = multipart
-
-            helper.setTo(to);
-            helper.setSubject(subject);
-            helper.setText(htmlBody, true); // true = HTML
-
-            // Add the logo as an inline resource
-            // "logo" is the Content-ID (CID) used in the <img> tag (src="cid:logo")
-            ClassPathResource logo = new ClassPathResource("static/images/logo.png");
-            helper.addInline("logo", logo);
-            mailSender.send(mimeMessage);
-            log.info("Email sent successfully to {} with subject: {}", to, subject);
-        } catch (MessagingException e) {
-            log.error("Failed to send email to {} with subject: {}", to, subject, e);
-            throw new RuntimeException("Failed to send email", e);
-        }
+        emailOutboxService.enqueue(to, subject, htmlBody);
     }
 
 //    public void updateProfileImage(Long userId, MultipartFile file) {
@@ -336,6 +354,7 @@ public class UserService {
 
         // 1. Get the old URL *before* changing it
         String oldProfileUrl = user.getProfileImage();
+        boolean oldHasSizes = user.getProfileImageSizes() != null;
 
         try {
             // The folder name is the user's ID
@@ -346,14 +365,20 @@ public class UserService {
 
             // 3. Save the new public URL to the user's profile
             user.setProfileImage(publicUrl);
+            user.setProfileImageSizes(null);
             userRepo.save(user);
             log.info("Successfully updated profile image for user ID: {}. URL: {}", userId, publicUrl);
+            // Resized copies are generated in the background; until then the original is served
+            profileImageResizer.schedule(user.getId(), publicUrl);
 
             // 4. Delete the old file *after* the new one is saved
             if (oldProfileUrl != null && !oldProfileUrl.isEmpty()) {
                 log.info("Deleting old profile image: {}", oldProfileUrl);
                 // Use the new helper method
                 fileStorageService.deleteFileFromUrl(oldProfileUrl);
+                if (oldHasSizes) {
+                    profileImageResizer.delete(oldProfileUrl);
+                }
             }
 
             // Return the URL to the controller
@@ -383,9 +408,13 @@ public class UserService {
             // if it's just the blob path, use deleteFile.
             // Based on updateProfileImage implementation, it's the blob path.
             fileStorageService.deleteFile(profileImagePath);
+            if (user.getProfileImageSizes() != null) {
+                profileImageResizer.delete(profileImagePath);
+            }
 
             // 2. Clear the reference in the database
             user.setProfileImage(null);
+            user.setProfileImageSizes(null);
             userRepo.save(user);
             log.info("Successfully removed profile image reference for user: {}", userEmail);
         } else {
@@ -447,7 +476,21 @@ public class UserService {
      * @return A signed URL, or null if no image is set.
      */
     public String getProfileImageUrl(Long userId) {
+        return getProfileImageUrl(userId, null);
+    }
+
+    /**
+     * Gets a signed URL for a user's profile picture, resized for an avatar drawn at {@code size} pixels.
+     * The smallest resized copy at least that large is used; the original if {@code size} is null or the copies
+     * are not generated yet.
+     *
+     * @throws IllegalArgumentException if {@code size} is not positive.
+     */
+    public String getProfileImageUrl(Long userId, Integer size) {
         log.debug("Generating profile image URL for user ID: {}", userId);
+        if (size != null && size <= 0) {
+            throw new IllegalArgumentException("Size must be positive.");
+        }
 
         // Find user by ID, throws RuntimeException if not found
         User user = findUserById(userId)
@@ -458,6 +501,11 @@ public class UserService {
             return null; // No profile picture set
         }
 
+        Integer ready = size == null ? null : ProfileImageResizer.pick(user.getProfileImageSizes(), size);
+        if (ready != null) {
+            blobPath = ProfileImageResizer.derivativePath(blobPath, ready);
+        }
+
         // Delegate to FileStorageService's existing signed URL generation logic
         return fileStorageService.generateSignedProfileUrl(blobPath);
     }
@@ -466,19 +514,23 @@ public class UserService {
      * Dedicated method for sending New Request Confirmation email.
      */
     public void sendRequestCreatedEmail(ServiceRequest request, String lang) {
-        Locale locale = ("en".equalsIgnoreCase(lang)) ? Locale.ENGLISH : Locale.FRENCH;
         String to = request.getUserId() != null ?
                 userRepo.findById(request.getUserId()).map(User::getEmail).orElse(null) :
                 null;
+        sendRequestCreatedEmail(request, to, lang);
+    }
 
+    /**
+     * Sends the New Request Confirmation email to a recipient the caller has already resolved.
+     */
+    public void sendRequestCreatedEmail(ServiceRequest request, String to, String lang) {
+        Locale locale = ("en".equalsIgnoreCase(lang)) ? Locale.ENGLISH : Locale.FRENCH;
         if (to == null) {
             log.warn("Skipping request created email: User ID {} not found or is null.", request.getUserId());
             return;
         }
 
-        String title = messageSource.getMessage("email.request.created.title", null, locale);
-        String bodyText = messageSource.getMessage("email.request.created.body", null, locale);
-        String buttonText = messageSource.getMessage("email.request.created.button", null, locale);
+        String title = emailRenderer.message("email.request.created.title", locale);
 
         // Arguments: {0} = Request ID, {1} = Title, {2} = Service Type
         Object[] infoArgs = { request.getId(), request.getTitle(), request.getService().name() };
@@ -487,15 +539,11 @@ public class UserService {
         // Link to view the request on the frontend
         String link = String.format("%s/requests/%s", frontendUrl, request.getId());
 
-        Context context = new Context();
-        context.setVariable("title", title);
-        context.setVariable("bodyText", bodyText);
-        context.setVariable("buttonText", buttonText);
-        context.setVariable("infoText", infoText);
-        context.setVariable("linkUrl", link);
-        context.setVariable("baseUrl", frontendUrl);
-
-        String htmlBody = templateEngine.process("email-template.html", context);
+        String htmlBody = emailRenderer.render("email-template.html", locale,
+                Map.of("title", "email.request.created.title",
+                        "bodyText", "email.request.created.body",
+                        "buttonText", "email.request.created.button"),
+                EmailRenderer.variables("infoText", infoText, "linkUrl", link));
         sendEmail(to, title, htmlBody);
         log.info("Sent new request email for ID {} to user {}", request.getId(), to);
     }
@@ -514,9 +562,7 @@ public class UserService {
             return;
         }
 
-        String title = messageSource.getMessage("email.proposal.uploaded.title", null, locale);
-        String bodyText = messageSource.getMessage("email.proposal.uploaded.body", null, locale);
-        String buttonText = messageSource.getMessage("email.proposal.uploaded.button", null, locale);
+        String title = emailRenderer.message("email.proposal.uploaded.title", locale);
 
         // Arguments: {0} = Request ID, {1} = Title
         Object[] infoArgs = { request.getId(), request.getTitle() };
@@ -525,15 +571,11 @@ public class UserService {
         // Link to view the request/proposal on the frontend
         String link = String.format("%s/requests/%d", frontendUrl, request.getId());
 
-        Context context = new Context();
-        context.setVariable("title", title);
-        context.setVariable("bodyText", bodyText);
-        context.setVariable("buttonText", buttonText);
-        context.setVariable("infoText", infoText);
-        context.setVariable("linkUrl", link);
-        context.setVariable("baseUrl", frontendUrl);
-
-        String htmlBody = templateEngine.process("email-template.html", context);
+        String htmlBody = emailRenderer.render("email-template.html", locale,
+                Map.of("title", "email.proposal.uploaded.title",
+                        "bodyText", "email.proposal.uploaded.body",
+                        "buttonText", "email.proposal.uploaded.button"),
+                EmailRenderer.variables("infoText", infoText, "linkUrl", link));
         sendEmail(to, title, htmlBody);
         log.info("Sent proposal uploaded email for ID {} to user {}", request.getId(), to);
     }
@@ -542,6 +584,20 @@ public class UserService {
      * Dedicated method for sending Company Alert Email about a new request.
      */
     public void sendNewRequestAlertEmail(ServiceRequest request, String lang) {
+        // Determine who submitted the request (Guest or Registered User)
+        String submittedByName = "Guest";
+        if (request.getUserId() != null) {
+            submittedByName = userRepo.findById(request.getUserId())
+                    .map(u -> submitterLabel(u.getFirstName() + " " + u.getLastName(), u.getEmail()))
+                    .orElse("Unknown Registered User");
+        }
+        sendNewRequestAlertEmail(request, submittedByName, lang);
+    }
+
+    /**
+     * Sends the Company Alert Email with a submitter label the caller has already resolved.
+     */
+    public void sendNewRequestAlertEmail(ServiceRequest request, String submittedByName, String lang) {
         Locale locale = ("en".equalsIgnoreCase(lang)) ? Locale.ENGLISH : Locale.FRENCH;
         String to = internalSupportEmail;
 
@@ -550,18 +606,12 @@ public class UserService {
             return;
         }
 
-        // Determine who submitted the request (Guest or Registered User)
-        String submittedByName = "Guest";
-        if (request.getUserId() != null) {
-            submittedByName = userRepo.findById(request.getUserId())
-                    .map(u -> u.getFirstName() + " " + u.getLastName() + " (" + u.getEmail() + ")")
-                    .orElse("Unknown Registered User");
+        if (alertDigest.offer(request, submittedByName)) {
+            log.info("Queued new request {} for the next internal alert digest", request.getId());
+            return;
         }
 
-
         String title = messageSource.getMessage("email.internal.new.request.title", new Object[]{request.getTitle()}, locale);
-        String bodyText = messageSource.getMessage("email.internal.new.request.body", null, locale);
-        String buttonText = messageSource.getMessage("email.internal.new.request.button", null, locale);
 
         // Arguments: {1} = Request ID, {2} = Service Type, {3} = Submitted By
         Object[] infoArgs = { request.getId(), request.getService().name(), submittedByName };
@@ -570,19 +620,21 @@ public class UserService {
         // Link to view the request on the frontend (assuming admin panel path)
         String link = String.format("%s/admin/requests/%s", frontendUrl, request.getId()); // Assuming a path for Admin view
 
-        Context context = new Context();
-        context.setVariable("title", title);
-        context.setVariable("bodyText", bodyText);
-        context.setVariable("buttonText", buttonText);
-        context.setVariable("infoText", infoText);
-        context.setVariable("linkUrl", link);
-        context.setVariable("baseUrl", frontendUrl);
-
-        String htmlBody = templateEngine.process("email-template.html", context);
+        String htmlBody = emailRenderer.render("email-template.html", locale,
+                Map.of("bodyText", "email.internal.new.request.body",
+                        "buttonText", "email.internal.new.request.button"),
+                EmailRenderer.variables("title", title, "infoText", infoText, "linkUrl", link));
         sendEmail(to, title, htmlBody);
         log.info("Sent internal new request alert for ID {} to {}", request.getId(), to);
     }
 
+    /**
+     * Formats a registered submitter as shown in internal alerts, e.g. "Jane Doe (jane@example.com)".
+     */
+    public static String submitterLabel(String displayName, String email) {
+        return displayName + " (" + email + ")";
+    }
+
     /**
      * Dedicated method for sending Payment Receipt email.
      */
@@ -614,44 +666,55 @@ public class UserService {
             customerName = payment.getEmail();
         }
 
-        // --- Prepare Context for payment-receipt-template.html ---
-        Context context = new Context();
-        context.setVariable("baseUrl", frontendUrl);
-        context.setVariable("customerName", customerName);
-        context.setVariable("customerEmail", to);
-        context.setVariable("paymentDate", payment.getCreatedAt());
-        context.setVariable("transactionId", transactionId);
-        context.setVariable("serviceName", request.getTitle());
-        // Using the request description as the long-form service description
-        context.setVariable("serviceDescription", request.getDescription());
-        context.setVariable("currency", currency);
+        // --- Prepare variables for payment-receipt-template.html (pre-formatted; see EmailRenderer) ---
+        // Link to view the request on the frontend
+        String dashboardUrl = String.format("%s/requests/%s", frontendUrl, request.getId());
 
         // Since no tax/subtotal logic exists, set total amount as subtotal for simplicity
         // The HTML template uses these for display, so we set them to the amount paid.
-        context.setVariable("subtotal", payment.getAmount());
-        context.setVariable("tax", BigDecimal.ZERO);
-        context.setVariable("totalAmount", payment.getAmount());
-
-        // Hardcoded next steps for the receipt (these are specific to the new template)
-        context.setVariable("stepOne", "We have successfully processed your payment for the service request.");
-        context.setVariable("stepTwo", "Your request status has been updated to 'PAYMENT_RECEIVED'.");
-        context.setVariable("stepThree", "Our team will now begin the work and provide an update soon via email.");
-
-        // Link to view the request on the frontend
-        String dashboardUrl = String.format("%s/requests/%s", frontendUrl, request.getId());
-        context.setVariable("dashboardUrl", dashboardUrl);
+        String amount = formatAmount(payment.getAmount());
+
+        Map<String, String> variables = EmailRenderer.variables(
+                "customerName", customerName,
+                "customerEmail", to,
+                "paymentDate", payment.getCreatedAt() != null ? RECEIPT_DATE_FORMAT.format(payment.getCreatedAt()) : null,
+                "transactionId", transactionId,
+                "serviceName", request.getTitle(),
+                // Using the request description as the long-form service description
+                "serviceDescription", request.getDescription(),
+                "currency", currency,
+                "subtotal", amount,
+                "tax", null,
+                "totalAmount", amount,
+                // Hardcoded next steps for the receipt (these are specific to the new template)
+                "stepOne", "We have successfully processed your payment for the service request.",
+                "stepTwo", "Your request status has been updated to 'PAYMENT_RECEIVED'.",
+                "stepThree", "Our team will now begin the work and provide an update soon via email.",
+                "dashboardUrl", dashboardUrl);
 
         // --- Get Title from MessageSource ---
-        String title = messageSource.getMessage("email.payment.receipt.title", null, locale);
-        context.setVariable("title", title);
+        String title = emailRenderer.message("email.payment.receipt.title", locale);
 
         // --- Use the dedicated receipt template ---
-        String htmlBody = templateEngine.process("payment-receipt-template.html", context);
+        String htmlBody = emailRenderer.render("payment-receipt-template.html", locale, Map.of(), variables);
         sendEmail(to, title, htmlBody);
         log.info("Sent payment receipt email for Payment ID {} (Request ID {}) to user {}", payment.getId(), request.getId(), to);
     }
 
-    public void changePassword(String email, ChangePasswordDto dto) {
+    /**
+     * Formats an amount like the receipt template's former {@code #numbers.formatDecimal(amount, 1, 2)}.
+     */
+    private static String formatAmount(BigDecimal amount) {
+        return amount == null ? null : amount.setScale(2, RoundingMode.HALF_EVEN).toPlainString();
+    }
+
+    /**
+     * Changes the user's password and invalidates every token issued so far, including the caller's own; the
+     * caller must hand the returned user a fresh token pair.
+     *
+     * @return The saved user, carrying the new token version.
+     */
+    public User changePassword(String email, ChangePasswordDto dto) {
         User user = userRepo.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
@@ -662,7 +725,10 @@ public class UserService {
 
         // Set and encode new password
         user.setPassword(encoder.encode(dto.getNewPassword()));
-        userRepo.save(user);
+        // Sign out every session that still holds a token for the old password, this one included
+        tokenVersionService.bump(user);
+        User saved = userRepo.save(user);
         log.info("Password successfully changed for user: {}", email);
+        return saved;
     }
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+CREATE TABLE refresh_tokens (
+  id BIGINT AUTO_INCREMENT PRIMARY KEY,
+  -- SHA-256 of the opaque token, base64url encoded; the raw token is never stored
+  token_hash CHAR(43) NOT NULL UNIQUE,
+  user_id BIGINT NOT NULL,
+  -- All tokens rotated from the same login share a family, so a replayed token revokes the whole chain
+  family_id VARCHAR(36) NOT NULL,
+  -- users.token_version at issue time; a later bump (password change, role edit) invalidates the token
+  token_version INT NOT NULL,
+  expires_at TIMESTAMP NOT NULL,
+  revoked BOOLEAN NOT NULL DEFAULT FALSE,
+  created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+  INDEX idx_refresh_tokens_family (family_id),
+  CONSTRAINT fk_refresh_tokens_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -0,0 +1,17 @@
+-- Emails are written here in the same transaction as the change that triggers them,
+-- then delivered by EmailOutboxDispatcher outside the request path.
+CREATE TABLE email_outbox (
+  id BIGINT AUTO_INCREMENT PRIMARY KEY,
+  recipient VARCHAR(255) NOT NULL,
+  subject VARCHAR(500) NOT NULL,
+  html_body MEDIUMTEXT NOT NULL,
+  status VARCHAR(20) NOT NULL DEFAULT 'PENDING', -- PENDING, SENDING, SENT, DEAD
+  attempts INT NOT NULL DEFAULT 0,
+  next_attempt_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+  claimed_at TIMESTAMP(3) NULL,
+  last_error VARCHAR(1000),
+  created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  sent_at TIMESTAMP NULL,
+
+  INDEX idx_email_outbox_due (status, next_attempt_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
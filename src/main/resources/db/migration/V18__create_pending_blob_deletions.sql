@@ -0,0 +1,12 @@
+-- GCS objects whose database rows are already gone. Written in the same transaction as the delete,
+-- then removed from the bucket in batches by BlobDeletionService.
+CREATE TABLE pending_blob_deletions (
+  id BIGINT AUTO_INCREMENT PRIMARY KEY,
+  blob_path VARCHAR(1024) NOT NULL,
+  attempts INT NOT NULL DEFAULT 0,
+  next_attempt_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+  last_error VARCHAR(1000),
+  created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+  INDEX idx_pending_blob_deletions_due (attempts, next_attempt_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
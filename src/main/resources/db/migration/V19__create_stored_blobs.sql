@@ -0,0 +1,19 @@
+-- Content-addressed attachment blobs shared by every attachment with the same bytes.
+-- ref_count is the number of file_attachments rows pointing at the blob; the object is queued for
+-- deletion when it drops to zero. Attachments with a NULL stored_blob_id own their object outright.
+CREATE TABLE stored_blobs (
+  id BIGINT AUTO_INCREMENT PRIMARY KEY,
+  sha256 CHAR(64) NOT NULL,
+  blob_path VARCHAR(100) NOT NULL,
+  size BIGINT NOT NULL,
+  content_type VARCHAR(255),
+  ref_count INT NOT NULL DEFAULT 0,
+  created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+  UNIQUE KEY uk_stored_blobs_sha256 (sha256),
+  INDEX idx_stored_blobs_blob_path (blob_path)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+ALTER TABLE file_attachments
+    ADD COLUMN stored_blob_id BIGINT NULL,
+    ADD INDEX idx_file_attachments_stored_blob (stored_blob_id);
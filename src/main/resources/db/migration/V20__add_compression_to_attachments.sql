@@ -0,0 +1,9 @@
+-- Compressible uploads are stored gzipped. file_size stays the original size; stored_size is what the
+-- object actually takes (NULL for rows written before compression, meaning the same as file_size).
+ALTER TABLE stored_blobs
+    ADD COLUMN stored_size BIGINT NULL,
+    ADD COLUMN content_encoding VARCHAR(20) NULL;
+
+ALTER TABLE file_attachments
+    ADD COLUMN stored_size BIGINT NULL,
+    ADD COLUMN content_encoding VARCHAR(20) NULL;
@@ -0,0 +1,4 @@
+-- Resized copies of the profile image that are ready to serve, e.g. "64,128,512"; NULL until they are generated.
+-- The copies live next to the original at "<profile_image>@<size>.jpg".
+ALTER TABLE users
+    ADD COLUMN profile_image_sizes VARCHAR(64) NULL;
@@ -0,0 +1,3 @@
+-- Activation and password reset emails carry a generated password in their body. Delivered and dead
+-- messages no longer need it; the dispatcher now blanks it when it marks them, this clears existing rows.
+UPDATE email_outbox SET html_body = '' WHERE status IN ('SENT', 'DEAD');
@@ -0,0 +1,2 @@
+-- Re-uploads cancel queued deletions by path, and must only lock the rows for that path.
+CREATE INDEX idx_pending_blob_deletions_path ON pending_blob_deletions (blob_path(255));
@@ -0,0 +1,38 @@
+package com.neovation.config;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterTest {
+
+    @Test
+    void mightContain_neverMissesAnAddedValue() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add(i + "/" + "uuid-" + i + ".pdf");
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain(i + "/" + "uuid-" + i + ".pdf"));
+        }
+    }
+
+    @Test
+    void mightContain_falsePositiveRateStaysNearTheTarget() {
+        BloomFilter filter = new BloomFilter(100_000, 0.01);
+        for (int i = 0; i < 100_000; i++) {
+            filter.add("sha256/" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("7/other-" + i + ".pdf")) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 1_500, falsePositives + " false positives out of 100000");
+        // About 9.6 bits per value at 1%, far below a set of the strings themselves
+        assertTrue(filter.sizeInBytes() < 130_000, filter.sizeInBytes() + " bytes");
+    }
+}
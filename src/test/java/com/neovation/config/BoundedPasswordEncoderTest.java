@@ -0,0 +1,77 @@
+package com.neovation.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedPasswordEncoderTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private BoundedPasswordEncoder encoder;
+
+    @AfterEach
+    void tearDown() {
+        if (encoder != null) {
+            encoder.shutdown();
+        }
+    }
+
+    @Test
+    void encodeAndMatches_runOnPoolAndRecordTimings() {
+        encoder = new BoundedPasswordEncoder(4, 2, 8, meterRegistry);
+
+        String hash = encoder.encode("secret");
+
+        assertTrue(encoder.matches("secret", hash));
+        assertFalse(encoder.matches("wrong", hash));
+        assertEquals(1, meterRegistry.get("auth.password_hash").tag("op", "encode").timer().count());
+        assertEquals(2, meterRegistry.get("auth.password_hash").tag("op", "matches").timer().count());
+    }
+
+    @Test
+    void upgradeEncoding_flagsOnlyWeakerHashes() {
+        encoder = new BoundedPasswordEncoder(5, 1, 1, meterRegistry);
+
+        assertFalse(encoder.upgradeEncoding(new BCryptPasswordEncoder(5).encode("secret")));
+        assertTrue(encoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("secret")));
+        // Never downgrade a hash made by an instance with a higher cost
+        assertFalse(encoder.upgradeEncoding(new BCryptPasswordEncoder(6).encode("secret")));
+        assertFalse(encoder.upgradeEncoding("not-a-bcrypt-hash"));
+    }
+
+    @Test
+    void encode_whenQueueIsFull_rejectsWithBusyException() throws Exception {
+        encoder = new BoundedPasswordEncoder(13, 1, 1, meterRegistry);
+
+        // Occupy the single worker, then the single queue slot
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> encoder.encode("first"));
+        awaitGauge("auth.password_hash.active", 1);
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> encoder.encode("second"));
+        awaitGauge("auth.password_hash.queue", 1);
+
+        assertThrows(PasswordHashingBusyException.class, () -> encoder.encode("third"));
+        assertEquals(1, meterRegistry.get("auth.password_hash.rejected").counter().count());
+
+        assertNotNull(running.get());
+        assertNotNull(queued.get());
+    }
+
+    @Test
+    void calibrate_staysWithinBounds() {
+        int strength = BoundedPasswordEncoder.calibrate(1, 4, 6);
+        assertTrue(strength >= 4 && strength <= 6);
+    }
+
+    private void awaitGauge(String name, double expected) throws InterruptedException {
+        for (int i = 0; i < 500 && meterRegistry.get(name).gauge().value() < expected; i++) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, meterRegistry.get(name).gauge().value());
+    }
+}
@@ -0,0 +1,88 @@
+package com.neovation.config;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of authenticating a bearer token in JwtAuthFilter.
+ * <p>
+ * Run with: {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.neovation.config.JwtTokenProviderBenchmark}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtTokenProviderBenchmark {
+
+    private static final String SECRET = "benchmark-secret-benchmark-secret-benchmark-secret-0123456789";
+
+    private JwtTokenProvider uncached;
+    private JwtTokenProvider cached;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        uncached = provider(0);
+        cached = provider(10_000);
+        User principal = new User("bench@example.com", "", List.of());
+        token = cached.generateToken(new UsernamePasswordAuthenticationToken(principal, null, List.of()));
+        cached.parseClaims(token); // prime the cache
+    }
+
+    /**
+     * The previous filter path: validateToken() then getUsername(), each building its own parser
+     * and re-deriving the key from the secret string.
+     */
+    @Benchmark
+    public String validateThenGetUsername() {
+        Jwts.parserBuilder().setSigningKey(SECRET.getBytes()).build().parseClaimsJws(token);
+        return Jwts.parserBuilder()
+                .setSigningKey(SECRET.getBytes())
+                .build()
+                .parseClaimsJws(token)
+                .getBody()
+                .getSubject();
+    }
+
+    @Benchmark
+    public String parseOnce() {
+        Claims claims = uncached.parseClaims(token);
+        return claims.getSubject();
+    }
+
+    @Benchmark
+    public String parseOnceCached() {
+        Claims claims = cached.parseClaims(token);
+        return claims.getSubject();
+    }
+
+    private static JwtTokenProvider provider(int cacheEntries) {
+        JwtTokenProvider provider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(provider, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(provider, "jwtExpirationMs", 3_600_000L);
+        ReflectionTestUtils.setField(provider, "cacheMaxEntries", cacheEntries);
+        ReflectionTestUtils.setField(provider, "cacheTtlMs", 300_000L);
+        provider.init();
+        return provider;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(JwtTokenProviderBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
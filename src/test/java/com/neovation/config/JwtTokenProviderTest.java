@@ -0,0 +1,85 @@
+package com.neovation.config;
+
+import com.neovation.model.Role;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtTokenProviderTest {
+
+    private static final String SECRET = "test-secret-test-secret-test-secret-test-secret-0123456789";
+
+    private JwtTokenProvider tokenProvider;
+
+    @BeforeEach
+    void setUp() {
+        tokenProvider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(tokenProvider, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(tokenProvider, "jwtExpirationMs", 60_000L);
+        ReflectionTestUtils.setField(tokenProvider, "cacheMaxEntries", 100);
+        ReflectionTestUtils.setField(tokenProvider, "cacheTtlMs", 60_000L);
+        tokenProvider.init();
+    }
+
+    @Test
+    void generateToken_embedsPrincipalClaims() {
+        AuthenticatedUser user = new AuthenticatedUser(42L, "test@example.com", "encoded", "Test User", Role.STAFF, true, 3);
+        String token = tokenProvider.generateToken(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+
+        Claims claims = tokenProvider.parseClaims(token);
+        assertNotNull(claims);
+
+        AuthenticatedUser principal = tokenProvider.getPrincipal(claims);
+        assertNotNull(principal);
+        assertEquals(42L, principal.getId());
+        assertEquals("test@example.com", principal.getEmail());
+        assertEquals("Test User", principal.getDisplayName());
+        assertEquals(Role.STAFF, principal.getRole());
+        assertTrue(principal.isEnabled());
+        assertEquals(3, principal.getTokenVersion());
+        assertTrue(principal.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_STAFF")));
+    }
+
+    @Test
+    void getPrincipal_legacyTokenWithoutClaims_returnsNull() {
+        String legacyToken = Jwts.builder()
+                .setSubject("legacy@example.com")
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes()))
+                .compact();
+
+        Claims claims = tokenProvider.parseClaims(legacyToken);
+        assertNotNull(claims);
+        assertEquals("legacy@example.com", claims.getSubject());
+        assertNull(tokenProvider.getPrincipal(claims));
+    }
+
+    @Test
+    void parseClaims_tamperedToken_returnsNull() {
+        AuthenticatedUser user = new AuthenticatedUser(1L, "test@example.com", "encoded", "Test User", Role.USER, true, 0);
+        String token = tokenProvider.generateToken(new UsernamePasswordAuthenticationToken(user, null, List.of()));
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+
+        assertNull(tokenProvider.parseClaims(tampered));
+    }
+
+    @Test
+    void parseClaims_expiredToken_returnsNull() {
+        String expired = Jwts.builder()
+                .setSubject("test@example.com")
+                .setExpiration(new Date(System.currentTimeMillis() - 1_000))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes()))
+                .compact();
+
+        assertNull(tokenProvider.parseClaims(expired));
+    }
+}
@@ -0,0 +1,106 @@
+package com.neovation.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitFilterTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private RateLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        RateLimitProperties properties = new RateLimitProperties();
+        RateLimitProperties.Route login = new RateLimitProperties.Route();
+        login.setMethod("POST");
+        login.setPath("/api/auth/login");
+        login.setIp(new RateLimitProperties.Budget(3, Duration.ofMinutes(1)));
+        login.setEmail(new RateLimitProperties.Budget(1, Duration.ofMinutes(1)));
+        properties.getRoutes().put("login", login);
+        filter = new RateLimitFilter(properties, meterRegistry, new ObjectMapper());
+    }
+
+    @Test
+    void loginOverEmailBudget_returns429WithRetryAfter() throws Exception {
+        MockHttpServletResponse first = send(loginRequest("10.0.0.1", "user@example.com"));
+        MockHttpServletResponse second = send(loginRequest("10.0.0.2", "USER@example.com"));
+
+        assertEquals(200, first.getStatus());
+        assertEquals(429, second.getStatus());
+        assertEquals("60", second.getHeader("Retry-After"));
+        assertEquals(1, meterRegistry.get("http.rate_limit.rejected")
+                .tag("route", "login").tag("key", "email").counter().count());
+    }
+
+    @Test
+    void loginOverIpBudget_returns429() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, send(loginRequest("10.0.0.1", "user" + i + "@example.com")).getStatus());
+        }
+        assertEquals(429, send(loginRequest("10.0.0.1", "other@example.com")).getStatus());
+        assertEquals(200, send(loginRequest("10.0.0.9", "other@example.com")).getStatus());
+    }
+
+    @Test
+    void bufferedBody_isStillReadableDownstream() throws Exception {
+        MockHttpServletRequest request = loginRequest("10.0.0.1", "user@example.com");
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        String forwardedBody = new String(chain.getRequest().getInputStream().readAllBytes());
+        assertTrue(forwardedBody.contains("user@example.com"));
+    }
+
+    @Test
+    void unmatchedRoute_isNotLimited() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/requests");
+            assertEquals(200, send(request).getStatus());
+        }
+    }
+
+    @Test
+    void oversizedJsonBody_isRejectedInsteadOfSkippingTheEmailBudget() throws Exception {
+        MockHttpServletRequest request = loginRequest("10.0.0.1", "user@example.com");
+        request.setContent(("{\"email\":\"user@example.com\",\"pad\":\"" + "x".repeat(20_000) + "\"}").getBytes());
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, chain);
+
+        assertEquals(413, response.getStatus());
+        assertNull(chain.getRequest());
+    }
+
+    @Test
+    void clientIp_usesRightmostForwardedForEntry() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/auth/login");
+        request.addHeader("X-Forwarded-For", "1.2.3.4, 10.0.0.7");
+        assertEquals("10.0.0.7", filter.clientIp(request));
+    }
+
+    private MockHttpServletResponse send(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private MockHttpServletRequest loginRequest(String ip, String email) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/auth/login");
+        request.addHeader("X-Forwarded-For", ip);
+        request.setContentType("application/json");
+        request.setContent(("{\"email\":\"" + email + "\",\"password\":\"secret\"}").getBytes());
+        return request;
+    }
+}
@@ -0,0 +1,126 @@
+package com.neovation.config;
+
+import com.google.cloud.storage.HttpMethod;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SignedUrlCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private SignedUrlCache cache;
+    private AtomicInteger signings;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new SignedUrlCache(3, Duration.ofMinutes(5), meterRegistry);
+        signings = new AtomicInteger();
+    }
+
+    @Test
+    void get_reusesUrlUntilSafetyMarginBeforeExpiry() throws Exception {
+        SignedUrlCache shortLived = new SignedUrlCache(10, Duration.ofMillis(50), meterRegistry);
+
+        String first = shortLived.get("bucket", "1/a.pdf", HttpMethod.GET, Duration.ofMillis(250), this::sign);
+        assertEquals(first, shortLived.get("bucket", "1/a.pdf", HttpMethod.GET, Duration.ofMillis(250), this::sign));
+        assertEquals(1, signings.get());
+
+        // Past lifetime - margin: a new URL is signed even though the old one has not expired yet
+        Thread.sleep(250);
+        assertNotEquals(first, shortLived.get("bucket", "1/a.pdf", HttpMethod.GET, Duration.ofMillis(250), this::sign));
+        assertEquals(2, signings.get());
+    }
+
+    @Test
+    void get_keysOnBucketPathAndMethod() {
+        cache.get("bucket", "1/a.pdf", HttpMethod.GET, Duration.ofHours(1), this::sign);
+        cache.get("bucket", "1/b.pdf", HttpMethod.GET, Duration.ofHours(1), this::sign);
+        cache.get("other", "1/a.pdf", HttpMethod.GET, Duration.ofHours(1), this::sign);
+        cache.get("bucket", "1/a.pdf", HttpMethod.PUT, Duration.ofHours(1), this::sign);
+
+        assertEquals(4, signings.get());
+        assertEquals(0.0, meterRegistry.counter("storage.signed_url.cache", "result", "hit").count());
+        assertEquals(4, meterRegistry.get("storage.signed_url.sign").timer().count());
+    }
+
+    @Test
+    void get_keysOnDownloadFileName() {
+        String unnamed = cache.get("bucket", "sha256/abc", HttpMethod.GET, Duration.ofHours(1), this::sign);
+        String contract = cache.get("bucket", "sha256/abc", "contract.pdf", HttpMethod.GET, Duration.ofHours(1), this::sign);
+        String copy = cache.get("bucket", "sha256/abc", "copy.pdf", HttpMethod.GET, Duration.ofHours(1), this::sign);
+
+        assertEquals(3, signings.get());
+        assertNotEquals(contract, copy);
+        assertNotEquals(unnamed, contract);
+        assertEquals(contract, cache.get("bucket", "sha256/abc", "contract.pdf", HttpMethod.GET, Duration.ofHours(1), this::sign));
+    }
+
+    @Test
+    void get_concurrentMissesShareOneSigningCall() throws Exception {
+        CountDownLatch signing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> cache.get("bucket", "1/a.pdf", HttpMethod.GET, Duration.ofHours(1), () -> {
+                    signing.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    return sign();
+                })));
+            }
+            assertTrue(signing.await(5, TimeUnit.SECONDS));
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<String> result : results) {
+                assertEquals("https://signed/1", result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, signings.get());
+        assertEquals(7.0 / 8, meterRegistry.get("storage.signed_url.cache.hit_ratio").gauge().value(), 1e-9);
+    }
+
+    @Test
+    void get_failedSigningIsNotCached() {
+        assertThrows(IllegalStateException.class, () -> cache.get("bucket", "1/a.pdf", HttpMethod.GET, Duration.ofHours(1), () -> {
+            throw new IllegalStateException("IAM unavailable");
+        }));
+
+        assertEquals("https://signed/1", cache.get("bucket", "1/a.pdf", HttpMethod.GET, Duration.ofHours(1), this::sign));
+    }
+
+    @Test
+    void get_staysWithinMaxEntries() {
+        for (int i = 0; i < 20; i++) {
+            cache.get("bucket", i + "/a.pdf", HttpMethod.GET, Duration.ofHours(1), this::sign);
+        }
+
+        assertTrue(cache.size() <= 3, "cache holds " + cache.size() + " entries");
+        // The most recent one is still served from the cache
+        cache.get("bucket", "19/a.pdf", HttpMethod.GET, Duration.ofHours(1), this::sign);
+        assertEquals(20, signings.get());
+    }
+
+    private String sign() {
+        return "https://signed/" + signings.incrementAndGet();
+    }
+}
@@ -0,0 +1,95 @@
+package com.neovation.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Messages per second through the old per-message session versus a pooled session, against
+ * {@link LocalSmtpServer} with a 20 ms greeting delay standing in for the STARTTLS + AUTH handshake.
+ * <p>
+ * Run with: {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.neovation.config.SmtpSenderBenchmark}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SmtpSenderBenchmark {
+
+    private static final int BATCH_SIZE = 20;
+
+    private LocalSmtpServer server;
+    private JavaMailSenderImpl mailSender;
+    private SmtpTransportPool pool;
+
+    @Setup
+    public void setUp() throws IOException {
+        server = new LocalSmtpServer(20);
+        mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("127.0.0.1");
+        mailSender.setPort(server.getPort());
+        pool = new SmtpTransportPool(mailSender, 1, Duration.ofSeconds(30), Duration.ofMinutes(4),
+                Duration.ofSeconds(5), new SimpleMeterRegistry());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        pool.close();
+        server.close();
+    }
+
+    /**
+     * The previous path: JavaMailSender.send() connects, sends one message and disconnects.
+     */
+    @Benchmark
+    public void sessionPerMessage() throws MessagingException {
+        mailSender.send(message());
+    }
+
+    @Benchmark
+    public void pooledSessionPerMessage() throws MessagingException {
+        try (SmtpTransportPool.Connection connection = pool.borrow()) {
+            connection.send(message());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void pooledSessionBatch() throws MessagingException {
+        try (SmtpTransportPool.Connection connection = pool.borrow()) {
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                connection.send(message());
+            }
+        }
+    }
+
+    private MimeMessage message() throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+        helper.setFrom("noreply@example.com");
+        helper.setTo("bench@example.com");
+        helper.setSubject("Benchmark");
+        helper.setText("<html><body><p>Hello</p></body></html>", true);
+        return message;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(SmtpSenderBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,83 @@
+package com.neovation.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SmtpTransportPoolTest {
+
+    private LocalSmtpServer server;
+    private JavaMailSenderImpl settings;
+    private SmtpTransportPool pool;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new LocalSmtpServer(0);
+        settings = new JavaMailSenderImpl();
+        settings.setHost("127.0.0.1");
+        settings.setPort(server.getPort());
+        pool = new SmtpTransportPool(settings, 2, Duration.ofSeconds(30), Duration.ofMinutes(4),
+                Duration.ofSeconds(5), new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        pool.close();
+        server.close();
+    }
+
+    @Test
+    void batchAndLaterSends_reuseOneSession() throws Exception {
+        try (SmtpTransportPool.Connection connection = pool.borrow()) {
+            for (int i = 0; i < 3; i++) {
+                connection.send(message("user" + i + "@example.com"));
+            }
+        }
+        try (SmtpTransportPool.Connection connection = pool.borrow()) {
+            connection.send(message("later@example.com"));
+        }
+
+        assertEquals(4, server.getMessages());
+        assertEquals(1, server.getSessions());
+    }
+
+    @Test
+    void sessionDroppedByServer_reconnectsTransparently() throws Exception {
+        try (SmtpTransportPool.Connection connection = pool.borrow()) {
+            connection.send(message("first@example.com"));
+        }
+        server.dropConnections();
+
+        try (SmtpTransportPool.Connection connection = pool.borrow()) {
+            connection.send(message("second@example.com"));
+        }
+
+        assertEquals(2, server.getMessages());
+        assertEquals(2, server.getSessions());
+    }
+
+    @Test
+    void closedPool_refusesToLend() {
+        pool.close();
+        assertThrows(MessagingException.class, () -> pool.borrow());
+    }
+
+    private MimeMessage message(String to) throws MessagingException {
+        MimeMessage message = settings.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+        helper.setFrom("noreply@example.com");
+        helper.setTo(to);
+        helper.setSubject("Test");
+        helper.setText("<p>Hello</p>", true);
+        return message;
+    }
+}
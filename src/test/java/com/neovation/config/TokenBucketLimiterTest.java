@@ -0,0 +1,72 @@
+package com.neovation.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+    private final TokenBucketLimiter limiter = new TokenBucketLimiter(100, clock::get);
+
+    @Test
+    void tryAcquire_allowsBurstUpToCapacityThenRejects() {
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, limiter.tryAcquire("k", 5, Duration.ofSeconds(10)));
+        }
+
+        long wait = limiter.tryAcquire("k", 5, Duration.ofSeconds(10));
+        assertEquals(Duration.ofSeconds(2).toNanos(), wait);
+    }
+
+    @Test
+    void tryAcquire_refillsOneTokenPerInterval() {
+        for (int i = 0; i < 5; i++) {
+            limiter.tryAcquire("k", 5, Duration.ofSeconds(10));
+        }
+
+        clock.addAndGet(Duration.ofSeconds(2).toNanos());
+        assertEquals(0, limiter.tryAcquire("k", 5, Duration.ofSeconds(10)));
+        assertTrue(limiter.tryAcquire("k", 5, Duration.ofSeconds(10)) > 0);
+    }
+
+    @Test
+    void tryAcquire_keysAreIndependent() {
+        assertEquals(0, limiter.tryAcquire("a", 1, Duration.ofMinutes(1)));
+        assertTrue(limiter.tryAcquire("a", 1, Duration.ofMinutes(1)) > 0);
+        assertEquals(0, limiter.tryAcquire("b", 1, Duration.ofMinutes(1)));
+    }
+
+    @Test
+    void tryAcquire_whenFull_evictsRefilledBuckets() {
+        TokenBucketLimiter small = new TokenBucketLimiter(2, clock::get);
+        small.tryAcquire("a", 1, Duration.ofSeconds(1));
+        small.tryAcquire("b", 1, Duration.ofSeconds(1));
+
+        clock.addAndGet(Duration.ofSeconds(2).toNanos());
+        small.tryAcquire("c", 1, Duration.ofSeconds(1));
+
+        assertEquals(1, small.size());
+    }
+
+    @Test
+    void tryAcquire_whenFullOfBusyBuckets_stillEnforcesTheCapKeepingTheBusiest() {
+        TokenBucketLimiter small = new TokenBucketLimiter(10, clock::get);
+        for (int i = 0; i < 5; i++) {
+            small.tryAcquire("victim", 10, Duration.ofMinutes(1));
+        }
+
+        for (int i = 0; i < 1_000; i++) {
+            small.tryAcquire("spray-" + i, 10, Duration.ofMinutes(1));
+            assertTrue(small.size() <= 10);
+        }
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, small.tryAcquire("victim", 10, Duration.ofMinutes(1)));
+        }
+        assertTrue(small.tryAcquire("victim", 10, Duration.ofMinutes(1)) > 0);
+    }
+}
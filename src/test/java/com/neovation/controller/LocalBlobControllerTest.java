@@ -0,0 +1,142 @@
+package com.neovation.controller;
+
+import com.neovation.service.LocalBlobStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class LocalBlobControllerTest {
+
+    private static final byte[] DATA = "%PDF-1.7 local contract ".repeat(4_000).getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path root;
+
+    private LocalBlobStore blobStore;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        blobStore = new LocalBlobStore(root.toString(), "http://localhost:8080", "test-secret");
+        mockMvc = MockMvcBuilders.standaloneSetup(new LocalBlobController(blobStore)).build();
+        blobStore.write("7/uuid-contract.pdf", "application/pdf", null, new ByteArrayInputStream(DATA));
+    }
+
+    @Test
+    void download_streamsTheBlobForAValidSignature() throws Exception {
+        URI uri = signedDownload("7/uuid-contract.pdf");
+
+        MvcResult started = mockMvc.perform(get(uri)).andExpect(request().asyncStarted()).andReturn();
+        byte[] body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "application/pdf"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, DATA.length))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertArrayEquals(DATA, body);
+    }
+
+    @Test
+    void download_sendsCompressedBlobsAsStoredToClientsAcceptingGzip() throws Exception {
+        byte[] gzipped = gzip(DATA);
+        blobStore.write("7/uuid-notes.txt", "text/plain", "gzip", new ByteArrayInputStream(gzipped));
+
+        MvcResult started = mockMvc.perform(get(signedDownload("7/uuid-notes.txt")).header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate, br"))
+                .andExpect(request().asyncStarted()).andReturn();
+        byte[] body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, gzipped.length))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertArrayEquals(gzipped, body);
+    }
+
+    @Test
+    void download_decodesCompressedBlobsForClientsNotAcceptingGzip() throws Exception {
+        blobStore.write("7/uuid-notes.txt", "text/plain", "gzip", new ByteArrayInputStream(gzip(DATA)));
+
+        for (String acceptEncoding : new String[]{null, "identity", "gzip;q=0, br"}) {
+            MockHttpServletRequestBuilder download = get(signedDownload("7/uuid-notes.txt"));
+            if (acceptEncoding != null) {
+                download.header(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+            }
+            MvcResult started = mockMvc.perform(download).andExpect(request().asyncStarted()).andReturn();
+            byte[] body = mockMvc.perform(asyncDispatch(started))
+                    .andExpect(status().isOk())
+                    .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                    .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                    .andReturn().getResponse().getContentAsByteArray();
+
+            assertArrayEquals(DATA, body);
+        }
+    }
+
+    @Test
+    void download_savesUnderTheSignedFileName() throws Exception {
+        URI uri = URI.create(blobStore.signDownload("7/uuid-contract.pdf", "Vertrag + Angebot €.pdf", Duration.ofMinutes(15)));
+
+        MvcResult started = mockMvc.perform(get(uri)).andExpect(request().asyncStarted()).andReturn();
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename*=UTF-8''Vertrag%20%2B%20Angebot%20%E2%82%AC.pdf"));
+    }
+
+    @Test
+    void download_rejectsAChangedFileName() throws Exception {
+        URI signed = URI.create(blobStore.signDownload("7/uuid-contract.pdf", "contract.pdf", Duration.ofMinutes(15)));
+        URI renamed = UriComponentsBuilder.fromUri(signed).replaceQueryParam("filename", "invoice.html").build(true).toUri();
+
+        mockMvc.perform(get(renamed)).andExpect(status().isForbidden());
+    }
+
+    @Test
+    void download_rejectsASignatureForAnotherBlob() throws Exception {
+        URI other = signedDownload("7/uuid-other.pdf");
+        URI tampered = UriComponentsBuilder.fromUri(other).replacePath("/api/files/7/uuid-contract.pdf").build(true).toUri();
+
+        mockMvc.perform(get(tampered)).andExpect(status().isForbidden());
+    }
+
+    @Test
+    void download_missingBlobIsNotFound() throws Exception {
+        mockMvc.perform(get(signedDownload("7/uuid-missing.pdf"))).andExpect(status().isNotFound());
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(data);
+        }
+        return bytes.toByteArray();
+    }
+
+    private URI signedDownload(String blobPath) {
+        return URI.create(blobStore.signDownload(blobPath, null, Duration.ofMinutes(15)));
+    }
+}
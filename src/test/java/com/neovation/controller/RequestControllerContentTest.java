@@ -0,0 +1,150 @@
+package com.neovation.controller;
+
+import com.neovation.config.SignedUrlCache;
+import com.neovation.model.FileAttachment;
+import com.neovation.service.AttachmentArchiver;
+import com.neovation.service.FileStorageService;
+import com.neovation.service.LocalBlobStore;
+import com.neovation.service.RequestService;
+import com.neovation.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(MockitoExtension.class)
+class RequestControllerContentTest {
+
+    private static final byte[] DATA = "%PDF-1.7 signed contract ".repeat(4_000).getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path root;
+
+    @Mock
+    private RequestService requestService;
+    @Mock
+    private UserService userService;
+
+    private LocalBlobStore blobStore;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        blobStore = new LocalBlobStore(root.toString(), "http://localhost:8080", "test-secret");
+        FileStorageService fileStorageService = new FileStorageService(blobStore,
+                new SignedUrlCache(100, Duration.ofMinutes(5), new SimpleMeterRegistry()));
+        mockMvc = MockMvcBuilders.standaloneSetup(new RequestController(requestService, userService, fileStorageService,
+                new AttachmentArchiver(fileStorageService, 3, DataSize.ofMegabytes(1)))).build();
+        blobStore.write("7/uuid-contract.pdf", "application/pdf", null, new ByteArrayInputStream(DATA));
+    }
+
+    @Test
+    void content_streamsTheWholeFileWithValidators() throws Exception {
+        attachment("7/uuid-contract.pdf");
+
+        byte[] body = stream(get("/api/requests/attachments/5/content"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, DATA.length))
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertArrayEquals(DATA, body);
+    }
+
+    @Test
+    void content_servesASingleRangeWhileIfRangeMatches() throws Exception {
+        attachment("7/uuid-contract.pdf");
+        String etag = "\"" + blobStore.head("7/uuid-contract.pdf").etag() + "\"";
+
+        byte[] body = stream(get("/api/requests/attachments/5/content")
+                .header(HttpHeaders.RANGE, "bytes=1000-1999")
+                .header(HttpHeaders.IF_RANGE, etag))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 1000-1999/" + DATA.length))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 1000))
+                .andReturn().getResponse().getContentAsByteArray();
+        assertArrayEquals(Arrays.copyOfRange(DATA, 1000, 2000), body);
+
+        // The file changed since the client's partial download: start over with the whole file
+        stream(get("/api/requests/attachments/5/content")
+                .header(HttpHeaders.RANGE, "bytes=1000-1999")
+                .header(HttpHeaders.IF_RANGE, "\"an-older-version\""))
+                .andExpect(status().isOk())
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, DATA.length));
+    }
+
+    @Test
+    void content_rejectsARangePastTheEnd() throws Exception {
+        attachment("7/uuid-contract.pdf");
+
+        mockMvc.perform(get("/api/requests/attachments/5/content").header(HttpHeaders.RANGE, "bytes=" + DATA.length + "-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */" + DATA.length));
+    }
+
+    @Test
+    void content_sendsGzippedFilesAsStoredOrDecodedForClientsWithoutGzip() throws Exception {
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(gzipped)) {
+            out.write(DATA);
+        }
+        blobStore.write("sha256/abc", "text/plain", "gzip", new ByteArrayInputStream(gzipped.toByteArray()));
+        attachment("sha256/abc");
+
+        byte[] encoded = stream(get("/api/requests/attachments/5/content")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate, br")
+                .header(HttpHeaders.RANGE, "bytes=0-99"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "none"))
+                .andReturn().getResponse().getContentAsByteArray();
+        assertArrayEquals(gzipped.toByteArray(), encoded);
+
+        byte[] decoded = stream(get("/api/requests/attachments/5/content").header(HttpHeaders.ACCEPT_ENCODING, "identity"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andReturn().getResponse().getContentAsByteArray();
+        assertArrayEquals(DATA, decoded);
+    }
+
+    private void attachment(String blobPath) {
+        FileAttachment attachment = new FileAttachment();
+        attachment.setId(5L);
+        attachment.setFileName("contract.pdf");
+        attachment.setUrl(blobPath);
+        when(requestService.getAttachmentContent(5L))
+                .thenReturn(new RequestService.AttachmentContent(attachment, blobStore.head(blobPath)));
+    }
+
+    private ResultActions stream(MockHttpServletRequestBuilder builder) throws Exception {
+        MvcResult started = mockMvc.perform(builder).andExpect(request().asyncStarted()).andReturn();
+        return mockMvc.perform(asyncDispatch(started));
+    }
+}
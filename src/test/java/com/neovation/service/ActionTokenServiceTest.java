@@ -0,0 +1,93 @@
+package com.neovation.service;
+
+import com.neovation.model.User;
+import com.neovation.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ActionTokenServiceTest {
+
+    @Mock
+    private UserRepository userRepo;
+
+    @InjectMocks
+    private ActionTokenService actionTokenService;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(actionTokenService, "secret", "test-secret-test-secret-test-secret-0123456789");
+        actionTokenService.init();
+
+        user = new User();
+        user.setId(7L);
+        user.setEmail("test@example.com");
+        user.setPassword("$2a$10$originalHash");
+    }
+
+    @Test
+    void issueAndVerify_returnsUser() {
+        String token = actionTokenService.issue(user, ActionTokenService.Purpose.RESET_PASSWORD, Duration.ofHours(1));
+        when(userRepo.findById(7L)).thenReturn(Optional.of(user));
+
+        assertTrue(actionTokenService.isActionToken(token));
+        assertSame(user, actionTokenService.verify(token, ActionTokenService.Purpose.RESET_PASSWORD));
+    }
+
+    @Test
+    void verify_afterPasswordChanged_rejectsReuse() {
+        String token = actionTokenService.issue(user, ActionTokenService.Purpose.RESET_PASSWORD, Duration.ofHours(1));
+        user.setPassword("$2a$10$newHash");
+        when(userRepo.findById(7L)).thenReturn(Optional.of(user));
+
+        RuntimeException ex = assertThrows(RuntimeException.class,
+                () -> actionTokenService.verify(token, ActionTokenService.Purpose.RESET_PASSWORD));
+        assertEquals("Invalid token", ex.getMessage());
+    }
+
+    @Test
+    void verify_wrongPurpose_rejectedWithoutLookup() {
+        String token = actionTokenService.issue(user, ActionTokenService.Purpose.VERIFY_EMAIL, Duration.ofHours(1));
+
+        assertThrows(RuntimeException.class,
+                () -> actionTokenService.verify(token, ActionTokenService.Purpose.RESET_PASSWORD));
+        verifyNoInteractions(userRepo);
+    }
+
+    @Test
+    void verify_tamperedPayload_rejectedWithoutLookup() {
+        String token = actionTokenService.issue(user, ActionTokenService.Purpose.RESET_PASSWORD, Duration.ofHours(1));
+        String tampered = "A" + token.substring(1);
+
+        assertThrows(RuntimeException.class,
+                () -> actionTokenService.verify(tampered, ActionTokenService.Purpose.RESET_PASSWORD));
+        verifyNoInteractions(userRepo);
+    }
+
+    @Test
+    void verify_expired_throwsTokenExpired() {
+        String token = actionTokenService.issue(user, ActionTokenService.Purpose.RESET_PASSWORD, Duration.ofSeconds(-5));
+
+        RuntimeException ex = assertThrows(RuntimeException.class,
+                () -> actionTokenService.verify(token, ActionTokenService.Purpose.RESET_PASSWORD));
+        assertEquals("Token expired", ex.getMessage());
+    }
+
+    @Test
+    void isActionToken_legacyUuid_isFalse() {
+        assertFalse(actionTokenService.isActionToken("3f2b6c1e-4a5d-4e7f-9b8c-0d1e2f3a4b5c"));
+    }
+}
@@ -0,0 +1,139 @@
+package com.neovation.service;
+
+import com.neovation.config.SignedUrlCache;
+import com.neovation.model.FileAttachment;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AttachmentArchiverTest {
+
+    @TempDir
+    Path root;
+
+    private LocalBlobStore blobStore;
+    private AttachmentArchiver archiver;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        blobStore = new LocalBlobStore(root.toString(), "http://localhost:8080", "test-secret");
+        FileStorageService fileStorageService = new FileStorageService(blobStore,
+                new SignedUrlCache(100, Duration.ofMinutes(5), new SimpleMeterRegistry()));
+        // One file ahead, one 64KB chunk each, so every larger file has to wait for the writer
+        archiver = new AttachmentArchiver(fileStorageService, 1, DataSize.ofKilobytes(64));
+    }
+
+    @Test
+    void writeZip_archivesEveryFileUnderItsOriginalName() throws Exception {
+        byte[] contract = new byte[3 * 1024 * 1024 + 17];
+        new Random(42).nextBytes(contract);
+        byte[] csv = "id,amount\n1,1200.00\n".repeat(5_000).getBytes(StandardCharsets.UTF_8);
+        blobStore.write("7/uuid-contract.pdf", "application/pdf", null, new ByteArrayInputStream(contract));
+        blobStore.write("sha256/csv", "text/csv", "gzip", new ByteArrayInputStream(gzip(csv)));
+        blobStore.write("7/uuid-empty.txt", "text/plain", null, new ByteArrayInputStream(new byte[0]));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int entries = archiver.writeZip(List.of(
+                attachment(1L, "contract.pdf", "7/uuid-contract.pdf"),
+                attachment(2L, "../../etc/report.csv", "sha256/csv"),
+                attachment(3L, "gone.pdf", "7/uuid-missing.pdf"),
+                attachment(4L, "Contract.pdf", "7/uuid-contract.pdf"),
+                attachment(5L, "empty.txt", "7/uuid-empty.txt")), out);
+
+        Map<String, byte[]> files = unzip(out.toByteArray());
+        assertEquals(4, entries);
+        assertEquals(List.of("contract.pdf", "report.csv", "Contract (2).pdf", "empty.txt"), List.copyOf(files.keySet()));
+        assertArrayEquals(contract, files.get("contract.pdf"));
+        // Stored gzipped, archived as uploaded
+        assertArrayEquals(csv, files.get("report.csv"));
+        assertArrayEquals(contract, files.get("Contract (2).pdf"));
+        assertEquals(0, files.get("empty.txt").length);
+    }
+
+    @Test
+    void writeZip_failsWhenTheClientGoesAway() throws Exception {
+        byte[] data = new byte[2 * 1024 * 1024];
+        new Random(7).nextBytes(data);
+        blobStore.write("7/a.pdf", "application/pdf", null, new ByteArrayInputStream(data));
+        OutputStream disconnected = new OutputStream() {
+            private long written;
+
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                written += len;
+                if (written > 100_000) {
+                    throw new IOException("Broken pipe");
+                }
+            }
+        };
+
+        List<FileAttachment> attachments = List.of(attachment(1L, "a.pdf", "7/a.pdf"), attachment(2L, "b.pdf", "7/a.pdf"),
+                attachment(3L, "c.pdf", "7/a.pdf"));
+        assertThrows(IOException.class, () -> archiver.writeZip(attachments, disconnected));
+    }
+
+    @Test
+    void entryName_stripsDirectoriesAndNumbersDuplicates() {
+        Set<String> taken = new HashSet<>();
+
+        assertEquals("a.pdf", AttachmentArchiver.entryName(attachment(1L, "C:\\Users\\me\\a.pdf", null), taken));
+        assertEquals("a (2).pdf", AttachmentArchiver.entryName(attachment(2L, "a.pdf", null), taken));
+        // Names are unique regardless of case, as on Windows and macOS file systems
+        assertEquals("A (3).pdf", AttachmentArchiver.entryName(attachment(3L, "A.pdf", null), taken));
+        assertEquals("attachment-4", AttachmentArchiver.entryName(attachment(4L, "..", null), taken));
+        assertEquals(".env", AttachmentArchiver.entryName(attachment(5L, ".env", null), taken));
+    }
+
+    private static FileAttachment attachment(Long id, String fileName, String blobPath) {
+        FileAttachment attachment = new FileAttachment();
+        attachment.setId(id);
+        attachment.setFileName(fileName);
+        attachment.setUrl(blobPath);
+        return attachment;
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    private static Map<String, byte[]> unzip(byte[] zip) throws IOException {
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(zip))) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                files.put(entry.getName(), in.readAllBytes());
+            }
+        }
+        return files;
+    }
+}
@@ -0,0 +1,118 @@
+package com.neovation.service;
+
+import com.neovation.model.FileAttachment;
+import com.neovation.model.FilePurpose;
+import com.neovation.model.StoredBlob;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AttachmentUploaderTest {
+
+    @Mock
+    private StoredBlobService storedBlobService;
+
+    private AttachmentUploader uploader;
+
+    @BeforeEach
+    void setUp() {
+        uploader = new AttachmentUploader(storedBlobService, 3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        uploader.shutdown();
+    }
+
+    @Test
+    void upload_runsConcurrentlyUpToTheCapAndKeepsOrder() {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        when(storedBlobService.store(any(MultipartFile.class))).thenAnswer(invocation -> {
+            int now = inFlight.incrementAndGet();
+            maxInFlight.accumulateAndGet(now, Math::max);
+            Thread.sleep(50);
+            inFlight.decrementAndGet();
+            return blobFor(invocation.getArgument(0));
+        });
+
+        List<FileAttachment> attachments = uploader.upload(files(8), FilePurpose.USER_FILE);
+
+        assertEquals(8, attachments.size());
+        for (int i = 0; i < 8; i++) {
+            assertEquals("file" + i + ".pdf", attachments.get(i).getFileName());
+            assertEquals("sha256/file" + i + ".pdf", attachments.get(i).getUrl());
+            assertEquals(100L + i, attachments.get(i).getStoredBlobId());
+            assertEquals(FilePurpose.USER_FILE, attachments.get(i).getPurpose());
+        }
+        assertEquals(3, maxInFlight.get());
+    }
+
+    @Test
+    void upload_failureReleasesFilesAlreadyUploaded() {
+        List<MultipartFile> files = files(4);
+        when(storedBlobService.store(any(MultipartFile.class))).thenAnswer(invocation -> {
+            MultipartFile file = invocation.getArgument(0);
+            if (file == files.get(2)) {
+                throw new RuntimeException("GCS unavailable");
+            }
+            return blobFor(file);
+        });
+
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> uploader.upload(files, null));
+
+        assertEquals("GCS unavailable", ex.getMessage());
+        // Whatever was stored before the failure is released again
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<FileAttachment>> released = ArgumentCaptor.forClass(List.class);
+        verify(storedBlobService).release(released.capture());
+        List<String> paths = released.getValue().stream().map(FileAttachment::getUrl).toList();
+        assertFalse(paths.isEmpty());
+        assertTrue(paths.size() <= 3);
+        assertFalse(paths.contains("sha256/file2.pdf"));
+    }
+
+    @Test
+    void upload_singleFileIsUploadedOnTheCallingThread() {
+        Thread caller = Thread.currentThread();
+        when(storedBlobService.store(any(MultipartFile.class))).thenAnswer(invocation -> {
+            assertSame(caller, Thread.currentThread());
+            return blobFor(invocation.getArgument(0));
+        });
+
+        List<FileAttachment> attachments = uploader.upload(files(1), FilePurpose.PROPOSAL);
+
+        assertEquals("sha256/file0.pdf", attachments.get(0).getUrl());
+    }
+
+    private static StoredBlob blobFor(MultipartFile file) {
+        StoredBlob blob = new StoredBlob();
+        String name = file.getOriginalFilename();
+        blob.setId(100L + Integer.parseInt(name.substring(4, name.indexOf('.'))));
+        blob.setBlobPath("sha256/" + name);
+        return blob;
+    }
+
+    private static List<MultipartFile> files(int count) {
+        List<MultipartFile> files = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            files.add(new MockMultipartFile("files", "file" + i + ".pdf", "application/pdf", ("data " + i).getBytes()));
+        }
+        return files;
+    }
+}
@@ -0,0 +1,205 @@
+package com.neovation.service;
+
+import com.neovation.model.PendingBlobDeletion;
+import com.neovation.repository.PendingBlobDeletionRepository;
+import com.neovation.repository.StoredBlobRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BlobDeletionServiceTest {
+
+    @Mock
+    private PendingBlobDeletionRepository deletionRepo;
+    @Mock
+    private StoredBlobRepository storedBlobRepo;
+    @Mock
+    private FileStorageService fileStorageService;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private BlobDeletionService deletionService;
+
+    @BeforeEach
+    void setUp() {
+        deletionService = new BlobDeletionService(deletionRepo, storedBlobRepo, fileStorageService, transactionManager,
+                meterRegistry);
+        ReflectionTestUtils.setField(deletionService, "enabled", true);
+        ReflectionTestUtils.setField(deletionService, "batchSize", 100);
+        ReflectionTestUtils.setField(deletionService, "maxAttempts", 3);
+        ReflectionTestUtils.setField(deletionService, "initialBackoff", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(deletionService, "maxBackoff", Duration.ofHours(1));
+        ReflectionTestUtils.setField(deletionService, "claimTimeout", Duration.ofMinutes(5));
+    }
+
+    @Test
+    void schedule_skipsEmptyPaths() {
+        deletionService.schedule(Arrays.asList("1/a.pdf", null, "", "1/b.png"));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<PendingBlobDeletion>> saved = ArgumentCaptor.forClass(List.class);
+        verify(deletionRepo).saveAll(saved.capture());
+        assertEquals(List.of("1/a.pdf", "1/b.png"), saved.getValue().stream().map(PendingBlobDeletion::getBlobPath).toList());
+    }
+
+    @Test
+    void purge_deletesClaimedFilesInOneBatchAndRetriesFailures() {
+        dueDeletions(deletion(1L, "1/a.pdf", 0), deletion(2L, "1/b.png", 0), deletion(3L, "1/c.txt", 0));
+        when(fileStorageService.deleteFiles(List.of("1/a.pdf", "1/b.png", "1/c.txt")))
+                .thenReturn(Map.of("1/b.png", "503 Service Unavailable"));
+        LocalDateTime before = LocalDateTime.now();
+
+        deletionService.purge();
+
+        verify(fileStorageService, times(1)).deleteFiles(any());
+        verify(deletionRepo).deleteDone(List.of(1L, 3L));
+        ArgumentCaptor<LocalDateTime> next = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(deletionRepo).markFailed(eq(2L), eq(1), next.capture(), eq("503 Service Unavailable"));
+        assertTrue(next.getValue().isAfter(before.plusSeconds(29)));
+        assertEquals(2.0, meterRegistry.get("storage.blob_deletions").tag("outcome", "deleted").counter().count());
+    }
+
+    @Test
+    void purge_failedBatchRequestCountsAsAttemptForEveryFile() {
+        dueDeletions(deletion(1L, "1/a.pdf", 0), deletion(2L, "1/b.png", 2));
+        when(fileStorageService.deleteFiles(any())).thenThrow(new RuntimeException("connection reset"));
+
+        deletionService.purge();
+
+        verify(deletionRepo).markFailed(eq(1L), eq(1), any(LocalDateTime.class), anyString());
+        // Last allowed attempt: left in the table for inspection
+        verify(deletionRepo).markFailed(eq(2L), eq(3), any(LocalDateTime.class), anyString());
+        verify(deletionRepo, never()).deleteDone(any());
+        assertEquals(1.0, meterRegistry.get("storage.blob_deletions").tag("outcome", "dead").counter().count());
+    }
+
+    @Test
+    void purge_keepsContentAddressedFilesThatWereStoredAgain() {
+        dueDeletions(deletion(1L, "sha256/abc", 0), deletion(2L, "1/b.png", 0));
+        when(storedBlobRepo.findExistingPaths(List.of("sha256/abc", "1/b.png"))).thenReturn(List.of("sha256/abc"));
+        when(fileStorageService.deleteFiles(List.of("1/b.png"))).thenReturn(Map.of());
+
+        deletionService.purge();
+
+        verify(deletionRepo).deleteDone(List.of(1L));
+        verify(deletionRepo).deleteDone(List.of(2L));
+        assertEquals(1.0, meterRegistry.get("storage.blob_deletions").tag("outcome", "skipped").counter().count());
+    }
+
+    @Test
+    void purge_skipsDeletionsCancelledAfterBeingClaimed() {
+        PendingBlobDeletion cancelled = deletion(1L, "sha256/abc", 0);
+        PendingBlobDeletion queued = deletion(2L, "1/b.png", 0);
+        when(deletionRepo.findDue(any(LocalDateTime.class), eq(3), any(Pageable.class))).thenReturn(List.of(cancelled, queued));
+        when(deletionRepo.claim(anyLong(), any(LocalDateTime.class), any(LocalDateTime.class))).thenReturn(1);
+        // Re-uploaded between the claim and the lock: its queue row is gone
+        when(deletionRepo.lockAll(List.of(1L, 2L))).thenReturn(List.of(queued));
+        when(fileStorageService.deleteFiles(List.of("1/b.png"))).thenReturn(Map.of());
+
+        deletionService.purge();
+
+        verify(fileStorageService).deleteFiles(List.of("1/b.png"));
+        verify(deletionRepo).deleteDone(List.of(2L));
+        assertEquals(1.0, meterRegistry.get("storage.blob_deletions").tag("outcome", "skipped").counter().count());
+    }
+
+    @Test
+    void cancel_duringAPurgeWaitsUntilTheCheckedFileIsDeleted() throws Exception {
+        // Stands in for the row lock MySQL holds on the queue row until the purge commits
+        ReentrantLock rowLock = new ReentrantLock();
+        PendingBlobDeletion queued = deletion(1L, "sha256/abc", 0);
+        List<String> events = Collections.synchronizedList(new ArrayList<>());
+        when(deletionRepo.findDue(any(LocalDateTime.class), eq(3), any(Pageable.class))).thenReturn(List.of(queued));
+        when(deletionRepo.claim(anyLong(), any(LocalDateTime.class), any(LocalDateTime.class))).thenReturn(1);
+        when(deletionRepo.lockAll(List.of(1L))).thenAnswer(invocation -> {
+            rowLock.lock();
+            return List.of(queued);
+        });
+        doAnswer(invocation -> {
+            rowLock.unlock();
+            return null;
+        }).when(transactionManager).commit(any());
+        when(deletionRepo.deleteByBlobPath("sha256/abc")).thenAnswer(invocation -> {
+            rowLock.lock();
+            try {
+                return 0;
+            } finally {
+                rowLock.unlock();
+            }
+        });
+
+        Thread[] uploader = new Thread[1];
+        when(fileStorageService.deleteFiles(List.of("sha256/abc"))).thenAnswer(invocation -> {
+            // The same content is uploaded again after the revived check found nothing
+            uploader[0] = Thread.ofVirtual().start(() -> {
+                deletionService.cancel("sha256/abc");
+                events.add("cancelled");
+            });
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!rowLock.hasQueuedThread(uploader[0]) && System.nanoTime() < deadline) {
+                Thread.onSpinWait();
+            }
+            assertTrue(rowLock.hasQueuedThread(uploader[0]), "re-upload did not wait for the purge");
+            events.add("deleted");
+            return Map.of();
+        });
+
+        deletionService.purge();
+        uploader[0].join(TimeUnit.SECONDS.toMillis(5));
+
+        assertEquals(List.of("deleted", "cancelled"), events);
+        verify(deletionRepo).deleteDone(List.of(1L));
+    }
+
+    @Test
+    void purge_skipsDeletionsClaimedByAnotherInstance() {
+        when(deletionRepo.findDue(any(LocalDateTime.class), eq(3), any(Pageable.class)))
+                .thenReturn(List.of(deletion(1L, "1/a.pdf", 0)));
+        when(deletionRepo.claim(eq(1L), any(LocalDateTime.class), any(LocalDateTime.class))).thenReturn(0);
+
+        deletionService.purge();
+
+        verifyNoInteractions(fileStorageService);
+    }
+
+    private void dueDeletions(PendingBlobDeletion... deletions) {
+        when(deletionRepo.findDue(any(LocalDateTime.class), eq(3), any(Pageable.class))).thenReturn(List.of(deletions));
+        when(deletionRepo.claim(anyLong(), any(LocalDateTime.class), any(LocalDateTime.class))).thenReturn(1);
+        when(deletionRepo.lockAll(Arrays.stream(deletions).map(PendingBlobDeletion::getId).toList()))
+                .thenReturn(List.of(deletions));
+    }
+
+    private static PendingBlobDeletion deletion(Long id, String blobPath, int attempts) {
+        PendingBlobDeletion deletion = new PendingBlobDeletion();
+        deletion.setId(id);
+        deletion.setBlobPath(blobPath);
+        deletion.setAttempts(attempts);
+        return deletion;
+    }
+}
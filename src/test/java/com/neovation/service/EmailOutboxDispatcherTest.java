@@ -0,0 +1,154 @@
+package com.neovation.service;
+
+import com.neovation.model.EmailOutboxMessage;
+import com.neovation.model.EmailOutboxStatus;
+import com.neovation.repository.EmailOutboxRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.MessagingException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EmailOutboxDispatcherTest {
+
+    @Mock
+    private EmailOutboxRepository outboxRepo;
+    @Mock
+    private EmailSender emailSender;
+    @Mock
+    private EmailSender.Batch session;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private EmailOutboxDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        dispatcher = new EmailOutboxDispatcher(outboxRepo, emailSender, meterRegistry);
+        ReflectionTestUtils.setField(dispatcher, "enabled", true);
+        ReflectionTestUtils.setField(dispatcher, "workers", 2);
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 10);
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", 3);
+        ReflectionTestUtils.setField(dispatcher, "initialBackoff", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(dispatcher, "maxBackoff", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(dispatcher, "claimTimeout", Duration.ofMinutes(10));
+        ReflectionTestUtils.setField(dispatcher, "sentRetention", Duration.ofDays(30));
+        ReflectionTestUtils.setField(dispatcher, "deadRetention", Duration.ofDays(90));
+        dispatcher.init();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    void deliver_batch_sendsAllOverOneSession() throws Exception {
+        when(emailSender.openBatch()).thenReturn(session);
+
+        dispatcher.deliver(List.of(message(5L, 0), message(6L, 0)));
+
+        verify(emailSender, times(1)).openBatch();
+        verify(session, times(2)).send("user@example.com", "Subject", "<html/>");
+        verify(session).close();
+        verify(outboxRepo).markSent(eq(5L), any(LocalDateTime.class));
+        verify(outboxRepo).markSent(eq(6L), any(LocalDateTime.class));
+        assertEquals(2, meterRegistry.get("email.outbox.send").tag("outcome", "sent").timer().count());
+    }
+
+    @Test
+    void deliver_failure_schedulesRetryWithBackoff() throws Exception {
+        when(emailSender.openBatch()).thenReturn(session);
+        doThrow(new MessagingException("SMTP down")).when(session).send(anyString(), anyString(), anyString());
+        LocalDateTime before = LocalDateTime.now();
+
+        dispatcher.deliver(List.of(message(5L, 0)));
+
+        verify(outboxRepo).markFailed(eq(5L), eq(EmailOutboxStatus.PENDING), eq(1),
+                argThat(next -> !next.isBefore(before.plusSeconds(15))), contains("SMTP down"));
+        verify(outboxRepo, never()).markSent(any(), any());
+    }
+
+    @Test
+    void deliver_lastAttemptFails_marksDead() throws Exception {
+        when(emailSender.openBatch()).thenReturn(session);
+        doThrow(new MessagingException("rejected")).when(session).send(anyString(), anyString(), anyString());
+
+        dispatcher.deliver(List.of(message(5L, 2)));
+
+        verify(outboxRepo).markDead(eq(5L), eq(3), anyString());
+        verify(outboxRepo, never()).markFailed(any(), any(), anyInt(), any(), any());
+        assertEquals(1, meterRegistry.get("email.outbox.send").tag("outcome", "dead").timer().count());
+    }
+
+    @Test
+    void deliver_cannotConnect_failsWholeBatch() throws Exception {
+        when(emailSender.openBatch()).thenThrow(new MessagingException("Connection refused"));
+
+        dispatcher.deliver(List.of(message(5L, 0), message(6L, 0)));
+
+        verify(outboxRepo).markFailed(eq(5L), eq(EmailOutboxStatus.PENDING), eq(1), any(LocalDateTime.class), anyString());
+        verify(outboxRepo).markFailed(eq(6L), eq(EmailOutboxStatus.PENDING), eq(1), any(LocalDateTime.class), anyString());
+    }
+
+    @Test
+    void poll_claimsOneBatchPerIdleWorker() {
+        EmailOutboxMessage message = message(5L, 0);
+        when(outboxRepo.findDue(any(LocalDateTime.class), any(Pageable.class))).thenReturn(List.of(message));
+        when(outboxRepo.claim(eq(5L), any(LocalDateTime.class))).thenReturn(0); // taken by another instance
+        when(outboxRepo.countByStatus(EmailOutboxStatus.PENDING)).thenReturn(7L);
+
+        dispatcher.poll();
+
+        verify(outboxRepo).findDue(any(LocalDateTime.class), argThat(p -> p.getPageSize() == 20));
+        verifyNoInteractions(emailSender);
+        assertEquals(7.0, meterRegistry.get("email.outbox.pending").gauge().value());
+    }
+
+    @Test
+    void purgeSent_alsoDeletesDeadMessagesPastTheirRetention() {
+        dispatcher.purgeSent();
+
+        LocalDateTime now = LocalDateTime.now();
+        verify(outboxRepo).deleteSentBefore(argThat(cutoff -> !cutoff.isBefore(now.minusDays(30).minusMinutes(1))
+                && cutoff.isBefore(now.minusDays(29))));
+        verify(outboxRepo).deleteDeadBefore(argThat(cutoff -> !cutoff.isBefore(now.minusDays(90).minusMinutes(1))
+                && cutoff.isBefore(now.minusDays(89))));
+    }
+
+    @Test
+    void backoff_isCappedAndJittered() {
+        for (int attempt = 1; attempt < 30; attempt++) {
+            Duration delay = dispatcher.backoff(attempt);
+            assertTrue(delay.compareTo(Duration.ofSeconds(15)) >= 0);
+            assertTrue(delay.compareTo(Duration.ofMinutes(5)) <= 0);
+        }
+    }
+
+    private EmailOutboxMessage message(Long id, int attempts) {
+        EmailOutboxMessage message = new EmailOutboxMessage();
+        message.setId(id);
+        message.setRecipient("user@example.com");
+        message.setSubject("Subject");
+        message.setHtmlBody("<html/>");
+        message.setAttempts(attempts);
+        return message;
+    }
+}
@@ -0,0 +1,97 @@
+package com.neovation.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.MessageSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.Context;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of rendering one email body: the previous per-message Thymeleaf pass versus {@link EmailRenderer}.
+ * <p>
+ * Run with: {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.neovation.service.EmailRendererBenchmark}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EmailRendererBenchmark {
+
+    private static final String BASE_URL = "https://app.example.com";
+
+    private TemplateEngine templateEngine;
+    private MessageSource messageSource;
+    private EmailRenderer emailRenderer;
+    private Map<String, String> receiptVariables;
+
+    @Setup
+    public void setUp() {
+        templateEngine = EmailRendererTest.templateEngine();
+        messageSource = EmailRendererTest.messageSource();
+        emailRenderer = new EmailRenderer(templateEngine, messageSource);
+        ReflectionTestUtils.setField(emailRenderer, "frontendUrl", BASE_URL);
+        receiptVariables = EmailRenderer.variables(
+                "customerName", "Jane Doe", "customerEmail", "jane@example.com",
+                "paymentDate", "Jan 15, 2025 10:30:00", "transactionId", "17",
+                "serviceName", "Website redesign", "serviceDescription", "Responsive marketing site",
+                "currency", "USD", "subtotal", "500.00", "tax", null, "totalAmount", "500.00",
+                "stepOne", "One", "stepTwo", "Two", "stepThree", "Three",
+                "dashboardUrl", BASE_URL + "/requests/9");
+    }
+
+    /**
+     * The previous UserService path: three message lookups, a fresh Context and a full template pass.
+     */
+    @Benchmark
+    public String emailTemplateThymeleaf() {
+        Locale locale = Locale.ENGLISH;
+        Context context = new Context();
+        context.setVariable("title", messageSource.getMessage("email.request.created.title", null, locale));
+        context.setVariable("bodyText", messageSource.getMessage("email.request.created.body", null, locale));
+        context.setVariable("buttonText", messageSource.getMessage("email.request.created.button", null, locale));
+        context.setVariable("infoText", "Request 42: Website redesign (WEB_DEVELOPMENT)");
+        context.setVariable("linkUrl", BASE_URL + "/requests/42");
+        context.setVariable("baseUrl", BASE_URL);
+        return templateEngine.process("email-template.html", context);
+    }
+
+    @Benchmark
+    public String emailTemplateRenderer() {
+        return emailRenderer.render("email-template.html", Locale.ENGLISH,
+                Map.of("title", "email.request.created.title",
+                        "bodyText", "email.request.created.body",
+                        "buttonText", "email.request.created.button"),
+                EmailRenderer.variables("infoText", "Request 42: Website redesign (WEB_DEVELOPMENT)",
+                        "linkUrl", BASE_URL + "/requests/42"));
+    }
+
+    @Benchmark
+    public String receiptTemplateThymeleaf() {
+        Context context = new Context();
+        receiptVariables.forEach(context::setVariable);
+        context.setVariable("baseUrl", BASE_URL);
+        return templateEngine.process("payment-receipt-template.html", context);
+    }
+
+    @Benchmark
+    public String receiptTemplateRenderer() {
+        return emailRenderer.render("payment-receipt-template.html", Locale.ENGLISH, Map.of(), receiptVariables);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(EmailRendererBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,121 @@
+package com.neovation.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.MessageSource;
+import org.springframework.context.support.ReloadableResourceBundleMessageSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class EmailRendererTest {
+
+    private static final String BASE_URL = "https://app.example.com";
+
+    private TemplateEngine templateEngine;
+    private MessageSource messageSource;
+    private EmailRenderer emailRenderer;
+
+    @BeforeEach
+    void setUp() {
+        templateEngine = templateEngine();
+        messageSource = spy(messageSource());
+        emailRenderer = new EmailRenderer(templateEngine, messageSource);
+        ReflectionTestUtils.setField(emailRenderer, "frontendUrl", BASE_URL);
+    }
+
+    @Test
+    void render_matchesThymeleafOutput_includingEscaping() {
+        String infoText = "Request <b>42</b> \"Tom & Jerry's\" site";
+        String link = BASE_URL + "/requests/42?tab=files&x=<y>";
+
+        String rendered = emailRenderer.render("email-template.html", Locale.ENGLISH,
+                Map.of("title", "email.request.created.title",
+                        "bodyText", "email.request.created.body",
+                        "buttonText", "email.request.created.button"),
+                EmailRenderer.variables("infoText", infoText, "linkUrl", link));
+
+        Context context = new Context(Locale.ENGLISH);
+        context.setVariable("title", messageSource.getMessage("email.request.created.title", null, Locale.ENGLISH));
+        context.setVariable("bodyText", messageSource.getMessage("email.request.created.body", null, Locale.ENGLISH));
+        context.setVariable("buttonText", messageSource.getMessage("email.request.created.button", null, Locale.ENGLISH));
+        context.setVariable("infoText", infoText);
+        context.setVariable("linkUrl", link);
+        context.setVariable("baseUrl", BASE_URL);
+        assertEquals(templateEngine.process("email-template.html", context), rendered);
+    }
+
+    @Test
+    void render_nullVariable_usesItsOwnShape() {
+        Map<String, String> messages = Map.of("title", "email.confirm.title", "bodyText", "email.confirm.body");
+
+        String withoutInfo = emailRenderer.render("email-template.html", Locale.FRENCH, messages,
+                EmailRenderer.variables("infoText", null, "linkUrl", null));
+        String withInfo = emailRenderer.render("email-template.html", Locale.FRENCH, messages,
+                EmailRenderer.variables("infoText", "Mot de passe : abc", "linkUrl", null));
+
+        assertFalse(withoutInfo.contains("class=\"info-box\""));
+        assertTrue(withInfo.contains("Mot de passe : abc"));
+        assertFalse(withInfo.contains("class=\"button-container\""));
+    }
+
+    @Test
+    void render_receipt_matchesThymeleafOutput() {
+        Map<String, String> variables = EmailRenderer.variables(
+                "customerName", "Jane Doe", "customerEmail", "jane@example.com",
+                "paymentDate", "Jan 15, 2025 10:30:00", "transactionId", "17",
+                "serviceName", "Web & Mobile", "serviceDescription", "A <new> site",
+                "currency", "USD", "subtotal", "500.00", "tax", null, "totalAmount", "500.00",
+                "stepOne", "One", "stepTwo", "Two", "stepThree", "Three",
+                "dashboardUrl", BASE_URL + "/requests/9");
+
+        String rendered = emailRenderer.render("payment-receipt-template.html", Locale.ENGLISH, Map.of(), variables);
+
+        Context context = new Context(Locale.ENGLISH);
+        variables.forEach(context::setVariable);
+        context.setVariable("baseUrl", BASE_URL);
+        assertEquals(templateEngine.process("payment-receipt-template.html", context), rendered);
+        assertTrue(rendered.contains("USD 500.00"));
+    }
+
+    @Test
+    void messages_areResolvedOncePerLocale() {
+        for (int i = 0; i < 3; i++) {
+            emailRenderer.render("email-template.html", Locale.ENGLISH,
+                    Map.of("title", "email.register.title"), EmailRenderer.variables("linkUrl", "x" + i));
+            emailRenderer.message("email.register.title", Locale.ENGLISH);
+        }
+
+        verify(messageSource, times(1)).getMessage(eq("email.register.title"), any(), eq(Locale.ENGLISH));
+    }
+
+    static TemplateEngine templateEngine() {
+        // Same resolution rules as Spring Boot's default Thymeleaf setup (classpath:/templates/, .html)
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCharacterEncoding("UTF-8");
+        SpringTemplateEngine engine = new SpringTemplateEngine();
+        engine.setTemplateResolver(resolver);
+        return engine;
+    }
+
+    static MessageSource messageSource() {
+        ReloadableResourceBundleMessageSource messageSource = new ReloadableResourceBundleMessageSource();
+        messageSource.setBasename("classpath:messages");
+        messageSource.setDefaultEncoding("UTF-8");
+        return messageSource;
+    }
+}
@@ -0,0 +1,120 @@
+package com.neovation.service;
+
+import com.neovation.config.SignedUrlCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Time to store one file through {@link FileStorageService#storeFileAt} on {@link LocalBlobStore}, as a single
+ * stream versus a parallel composite upload, by file size. Throughput is file size / time.
+ * <p>
+ * A local disk takes any single stream at full speed, so {@code streamMbPerSecond} caps each upload stream the
+ * way a GCS resumable upload is capped in practice; 0 leaves the disk unthrottled and shows the overhead of
+ * splitting and composing.
+ * <p>
+ * Run with: {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.neovation.service.FileStorageServiceBenchmark}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FileStorageServiceBenchmark {
+
+    @Param({"1", "8", "20"})
+    private int fileSizeMb;
+
+    @Param({"single", "parallel"})
+    private String upload;
+
+    @Param({"0", "50"})
+    private int streamMbPerSecond;
+
+    private Path root;
+    private FileStorageService fileStorageService;
+    private MockMultipartFile file;
+
+    @Setup
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("upload-benchmark-");
+        LocalBlobStore blobStore = new ThrottledLocalBlobStore(root, streamMbPerSecond);
+        fileStorageService = new FileStorageService(blobStore,
+                new SignedUrlCache(100, Duration.ofMinutes(5), new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(fileStorageService, "parallelUploadEnabled", upload.equals("parallel"));
+        ReflectionTestUtils.setField(fileStorageService, "parallelUploadThreshold", DataSize.ofMegabytes(8));
+        ReflectionTestUtils.setField(fileStorageService, "parallelUploadPartSize", DataSize.ofMegabytes(4));
+        ReflectionTestUtils.setField(fileStorageService, "parallelUploadParallelism", 4);
+
+        byte[] data = new byte[fileSizeMb * 1024 * 1024];
+        new Random(42).nextBytes(data);
+        file = new MockMultipartFile("file", "dump.bin", "application/octet-stream", data);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        fileStorageService.shutdown();
+        FileSystemUtils.deleteRecursively(root);
+    }
+
+    @Benchmark
+    public FileStorageService.StoredFile storeFileAt() {
+        return fileStorageService.storeFileAt(file, "sha256/benchmark");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(FileStorageServiceBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+
+    /**
+     * Lets each write stream through at no more than {@code mbPerSecond}.
+     */
+    private static class ThrottledLocalBlobStore extends LocalBlobStore {
+        private final long nanosPerByte;
+
+        ThrottledLocalBlobStore(Path root, int mbPerSecond) throws IOException {
+            super(root.toString(), "http://localhost:8080", "benchmark-secret");
+            this.nanosPerByte = mbPerSecond == 0 ? 0 : 1_000_000_000L / (mbPerSecond * 1024L * 1024L);
+        }
+
+        @Override
+        public void write(String blobPath, String contentType, String contentEncoding, InputStream in) throws IOException {
+            super.write(blobPath, contentType, contentEncoding, nanosPerByte == 0 ? in : new FilterInputStream(in) {
+                private final long start = System.nanoTime();
+                private long read;
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int n = super.read(b, off, Math.min(len, 64 * 1024));
+                    if (n > 0) {
+                        read += n;
+                        long due = start + read * nanosPerByte;
+                        LockSupport.parkNanos(due - System.nanoTime());
+                    }
+                    return n;
+                }
+            });
+        }
+    }
+}
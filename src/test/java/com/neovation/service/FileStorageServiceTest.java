@@ -0,0 +1,416 @@
+package com.neovation.service;
+
+import com.google.cloud.RestorableState;
+import com.google.cloud.WriteChannel;
+import com.google.cloud.storage.Blob;
+import com.google.cloud.storage.BlobId;
+import com.google.cloud.storage.BlobInfo;
+import com.google.cloud.storage.Storage;
+import com.neovation.config.DirectBufferPool;
+import com.neovation.config.SignedUrlCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FileStorageServiceTest {
+
+    private static final long MB = 1024 * 1024;
+
+    @Mock
+    private Storage storage;
+
+    private FileStorageService fileStorageService;
+    private CountingChannel channel;
+
+    @BeforeEach
+    void setUp() {
+        GcsBlobStore blobStore = new GcsBlobStore(storage, new DirectBufferPool(256 * 1024, 4));
+        ReflectionTestUtils.setField(blobStore, "bucketName", "test-bucket");
+        ReflectionTestUtils.setField(blobStore, "uploadChunkSize", DataSize.ofMegabytes(2));
+        fileStorageService = new FileStorageService(blobStore,
+                new SignedUrlCache(100, Duration.ofMinutes(5), new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(fileStorageService, "bucketName", "test-bucket");
+        ReflectionTestUtils.setField(fileStorageService, "maxUploadSize", DataSize.ofMegabytes(20));
+        ReflectionTestUtils.setField(fileStorageService, "signedUploadUrlMinutes", 15L);
+        channel = new CountingChannel();
+        lenient().when(storage.writer(any(BlobInfo.class))).thenAnswer(invocation -> channel);
+    }
+
+    private void enableCompression() {
+        ReflectionTestUtils.setField(fileStorageService, "compressionEnabled", true);
+        ReflectionTestUtils.setField(fileStorageService, "compressibleTypes",
+                new String[]{"text/*", "application/json", "application/xml", "image/svg+xml"});
+        ReflectionTestUtils.setField(fileStorageService, "compressionMinSize", DataSize.ofKilobytes(1));
+    }
+
+    @Test
+    void storeFile_streamsEveryByteThroughAWriteChannel() {
+        String path = fileStorageService.storeFile(new GeneratedFile(5 * MB + 123), 7L);
+
+        assertTrue(path.startsWith("7/"));
+        assertEquals(5 * MB + 123, channel.written);
+        assertEquals(2 * MB, channel.chunkSize);
+        assertTrue(channel.closed);
+        ArgumentCaptor<BlobInfo> blobInfo = ArgumentCaptor.forClass(BlobInfo.class);
+        verify(storage).writer(blobInfo.capture());
+        assertEquals("application/pdf", blobInfo.getValue().getContentType());
+        verify(storage, never()).create(any(BlobInfo.class), any(byte[].class));
+    }
+
+    @Test
+    void storeFile_heapAllocationDoesNotGrowWithFileSize() {
+        // Warm up class loading and the buffer pool so only the copy itself is measured
+        fileStorageService.storeFile(new GeneratedFile(MB), 1L);
+
+        long small = allocatedBy(() -> fileStorageService.storeFile(new GeneratedFile(MB), 1L));
+        long large = allocatedBy(() -> fileStorageService.storeFile(new GeneratedFile(128 * MB), 1L));
+
+        // Reading the whole file into a byte[] would allocate at least the extra 127 MB
+        assertTrue(large - small < 4 * MB,
+                "Uploading 128 MB allocated " + large + " bytes vs " + small + " for 1 MB");
+    }
+
+    @Test
+    void storeFile_heapAllocationDoesNotGrowWithFileSizeWhenUploadedInParts() {
+        ReflectionTestUtils.setField(fileStorageService, "parallelUploadEnabled", true);
+        ReflectionTestUtils.setField(fileStorageService, "parallelUploadThreshold", DataSize.ofKilobytes(512));
+        ReflectionTestUtils.setField(fileStorageService, "parallelUploadPartSize", DataSize.ofMegabytes(4));
+        ReflectionTestUtils.setField(fileStorageService, "parallelUploadParallelism", 4);
+        fileStorageService.storeFile(new GeneratedFile(MB), 1L);
+
+        long small = allocatedBy(() -> fileStorageService.storeFile(new GeneratedFile(MB), 1L));
+        long large = allocatedBy(() -> fileStorageService.storeFile(new GeneratedFile(128 * MB), 1L));
+
+        // Reading the parts into byte[]s would allocate at least the extra 127 MB
+        assertTrue(large - small < 4 * MB,
+                "Uploading 128 MB in parts allocated " + large + " bytes vs " + small + " for 1 MB");
+        verify(storage, times(2 + 32)).writer(any(BlobInfo.class));
+    }
+
+    @Test
+    void storeFileAt_gzipsCompressibleTypesAndKeepsTheirContentType() {
+        enableCompression();
+        byte[] csv = "id,name,amount\n1,Quarterly report,1200.00\n".repeat(2_000).getBytes(StandardCharsets.UTF_8);
+
+        FileStorageService.StoredFile stored = fileStorageService.storeFileAt(
+                new MockMultipartFile("file", "report.csv", "text/csv", csv), "sha256/abc");
+
+        assertEquals("gzip", stored.contentEncoding());
+        assertEquals(channel.written, stored.storedSize());
+        assertTrue(stored.storedSize() < csv.length / 10);
+        ArgumentCaptor<BlobInfo> blobInfo = ArgumentCaptor.forClass(BlobInfo.class);
+        verify(storage).writer(blobInfo.capture());
+        assertEquals("text/csv", blobInfo.getValue().getContentType());
+        assertEquals("gzip", blobInfo.getValue().getContentEncoding());
+    }
+
+    @Test
+    void storeFileAt_storesOtherTypesAsIs() {
+        enableCompression();
+
+        FileStorageService.StoredFile stored = fileStorageService.storeFileAt(
+                new MockMultipartFile("file", "logo.png", "image/png", new byte[64 * 1024]), "sha256/def");
+
+        assertNull(stored.contentEncoding());
+        assertEquals(64 * 1024, stored.storedSize());
+        ArgumentCaptor<BlobInfo> blobInfo = ArgumentCaptor.forClass(BlobInfo.class);
+        verify(storage).writer(blobInfo.capture());
+        assertNull(blobInfo.getValue().getContentEncoding());
+    }
+
+    @Test
+    void storeFileAt_uploadsLargeFilesAsPartsAndComposesThem(@TempDir Path root) throws Exception {
+        LocalBlobStore blobStore = new LocalBlobStore(root.toString(), "http://localhost:8080", "test-secret");
+        FileStorageService service = parallelUploads(blobStore);
+        byte[] data = new byte[(int) (5 * MB + 7)];
+        new Random(42).nextBytes(data);
+
+        FileStorageService.StoredFile stored = service.storeFileAt(
+                new MockMultipartFile("file", "dump.bin", "application/octet-stream", data), "sha256/big");
+
+        assertEquals(data.length, stored.storedSize());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        blobStore.transferTo("sha256/big", Channels.newChannel(out));
+        assertArrayEquals(data, out.toByteArray());
+        assertEquals("application/octet-stream", blobStore.head("sha256/big").contentType());
+        // The temporary parts are gone
+        try (var blobs = blobStore.list()) {
+            assertEquals(List.of("sha256/big"), blobs.map(BlobStore.BlobSummary::path).toList());
+        }
+    }
+
+    @Test
+    void storeFileAt_failedPartLeavesNothingBehind(@TempDir Path root) throws Exception {
+        LocalBlobStore blobStore = new LocalBlobStore(root.toString(), "http://localhost:8080", "test-secret") {
+            @Override
+            public void write(String blobPath, String contentType, String contentEncoding, InputStream in) throws IOException {
+                if (blobPath.endsWith("/3")) {
+                    throw new IOException("503 Service Unavailable");
+                }
+                super.write(blobPath, contentType, contentEncoding, in);
+            }
+        };
+        FileStorageService service = parallelUploads(blobStore);
+
+        assertThrows(RuntimeException.class, () -> service.storeFileAt(
+                new MockMultipartFile("file", "dump.bin", "application/octet-stream", new byte[(int) (3 * MB)]), "sha256/big"));
+
+        try (var blobs = blobStore.list()) {
+            assertEquals(0, blobs.count());
+        }
+    }
+
+    private static FileStorageService parallelUploads(BlobStore blobStore) {
+        FileStorageService service = new FileStorageService(blobStore,
+                new SignedUrlCache(100, Duration.ofMinutes(5), new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(service, "parallelUploadEnabled", true);
+        ReflectionTestUtils.setField(service, "parallelUploadThreshold", DataSize.ofMegabytes(1));
+        ReflectionTestUtils.setField(service, "parallelUploadPartSize", DataSize.ofKilobytes(256));
+        ReflectionTestUtils.setField(service, "parallelUploadParallelism", 3);
+        return service;
+    }
+
+    @Test
+    void generateSignedUploadUrl_signsAResumableV4PostInTheUsersFolder() throws Exception {
+        when(storage.signUrl(any(BlobInfo.class), eq(900L), eq(TimeUnit.SECONDS), any(Storage.SignUrlOption[].class)))
+                .thenReturn(new URL("https://storage.googleapis.com/test-bucket/signed"));
+
+        FileStorageService.SignedUpload upload = fileStorageService.generateSignedUploadUrl(7L, "../evil/report.pdf", "application/pdf", MB);
+
+        assertTrue(upload.objectPath().startsWith("7/"));
+        assertFalse(upload.objectPath().substring(2).contains("/"));
+        assertEquals("https://storage.googleapis.com/test-bucket/signed", upload.uploadUrl());
+        assertEquals("POST", upload.method());
+        assertEquals("start", upload.headers().get("x-goog-resumable"));
+        assertEquals("0," + 20 * MB, upload.headers().get("x-goog-content-length-range"));
+        assertEquals("application/pdf", upload.headers().get("Content-Type"));
+        ArgumentCaptor<BlobInfo> blobInfo = ArgumentCaptor.forClass(BlobInfo.class);
+        verify(storage).signUrl(blobInfo.capture(), eq(900L), eq(TimeUnit.SECONDS), any(Storage.SignUrlOption[].class));
+        assertEquals("application/pdf", blobInfo.getValue().getContentType());
+        assertEquals(upload.objectPath(), blobInfo.getValue().getName());
+    }
+
+    @Test
+    void generateSignedUploadUrl_rejectsOversizedFiles() {
+        assertThrows(IllegalArgumentException.class,
+                () -> fileStorageService.generateSignedUploadUrl(7L, "big.zip", "application/zip", 21 * MB));
+        verifyNoInteractions(storage);
+    }
+
+    @Test
+    void verifyUpload_acceptsMatchingObject() {
+        storedBlob(1234L, "application/pdf", "AAAAAA==");
+
+        BlobStore.BlobMetadata metadata = fileStorageService.verifyUpload("7/a.pdf", 1234L, "application/pdf", "AAAAAA==", null);
+        assertEquals(1234L, metadata.size());
+        verify(storage, never()).delete(any(BlobId.class));
+    }
+
+    @Test
+    void verifyUpload_deletesObjectWithWrongChecksum() {
+        storedBlob(1234L, "application/pdf", "AAAAAA==");
+        when(storage.delete(BlobId.of("test-bucket", "7/a.pdf"))).thenReturn(true);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> fileStorageService.verifyUpload("7/a.pdf", 1234L, "application/pdf", "BBBBBB==", null));
+        verify(storage).delete(BlobId.of("test-bucket", "7/a.pdf"));
+    }
+
+    @Test
+    void verifyUpload_missingObjectIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> fileStorageService.verifyUpload("7/missing.pdf", 1L, "application/pdf", "AAAAAA==", null));
+    }
+
+    @Test
+    void generateSignedDownloadUrls_signsEachDistinctDownloadOnce() throws Exception {
+        when(storage.signUrl(any(BlobInfo.class), eq(900L), eq(TimeUnit.SECONDS), any(Storage.SignUrlOption[].class)))
+                .thenAnswer(invocation -> new URL("https://signed/" + ((BlobInfo) invocation.getArgument(0)).getName()));
+        FileStorageService.Download a = new FileStorageService.Download("1/a.pdf", "a.pdf");
+        FileStorageService.Download b = new FileStorageService.Download("1/b.png", "b.png");
+
+        Map<FileStorageService.Download, String> urls = fileStorageService.generateSignedDownloadUrls(List.of(a, b, a));
+
+        assertEquals(Map.of(a, "https://signed/1/a.pdf", b, "https://signed/1/b.png"), urls);
+        verify(storage, times(2)).signUrl(any(BlobInfo.class), eq(900L), eq(TimeUnit.SECONDS), any(Storage.SignUrlOption[].class));
+    }
+
+    @Test
+    void generateSignedDownloadUrl_signsTheFileNameIntoTheResponseDisposition() throws Exception {
+        ArgumentCaptor<Storage.SignUrlOption[]> options = ArgumentCaptor.forClass(Storage.SignUrlOption[].class);
+        when(storage.signUrl(any(BlobInfo.class), eq(900L), eq(TimeUnit.SECONDS), options.capture()))
+                .thenReturn(new URL("https://signed/sha256/abc"));
+
+        fileStorageService.generateSignedDownloadUrl("sha256/abc", "Angebot €.pdf");
+
+        // SignUrlOption has no equals and only package-private accessors
+        assertTrue(options.getAllValues().stream()
+                .flatMap(Arrays::stream)
+                .map(option -> ReflectionTestUtils.invokeMethod(option, "getValue"))
+                .anyMatch(Map.of("response-content-disposition", "attachment; filename*=UTF-8''Angebot%20%E2%82%AC.pdf")::equals));
+    }
+
+    private Blob storedBlob(long size, String contentType, String crc32c) {
+        Blob blob = mock(Blob.class);
+        lenient().when(blob.getSize()).thenReturn(size);
+        lenient().when(blob.getContentType()).thenReturn(contentType);
+        lenient().when(blob.getCrc32c()).thenReturn(crc32c);
+        when(storage.get(BlobId.of("test-bucket", "7/a.pdf"))).thenReturn(blob);
+        return blob;
+    }
+
+    /**
+     * Heap allocated by all platform threads while {@code upload} runs; what virtual threads allocate is counted
+     * on their carriers.
+     */
+    private static long allocatedBy(Runnable upload) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long before = threads.getTotalThreadAllocatedBytes();
+        upload.run();
+        return threads.getTotalThreadAllocatedBytes() - before;
+    }
+
+    /**
+     * A multipart file of {@code size} bytes that are produced on the fly, so the test itself holds no file data.
+     */
+    private record GeneratedFile(long size) implements MultipartFile {
+        @Override
+        public String getName() {
+            return "file";
+        }
+
+        @Override
+        public String getOriginalFilename() {
+            return "report.pdf";
+        }
+
+        @Override
+        public String getContentType() {
+            return "application/pdf";
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        @Override
+        public long getSize() {
+            return size;
+        }
+
+        @Override
+        public byte[] getBytes() {
+            throw new AssertionError("Uploads must not read the whole file into memory");
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new InputStream() {
+                private long remaining = size;
+
+                @Override
+                public int read() {
+                    if (remaining == 0) {
+                        return -1;
+                    }
+                    remaining--;
+                    return 'x';
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    if (remaining == 0) {
+                        return -1;
+                    }
+                    int n = (int) Math.min(len, remaining);
+                    remaining -= n;
+                    return n;
+                }
+            };
+        }
+
+        @Override
+        public void transferTo(File dest) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void transferTo(Path dest) throws IOException {
+            try (InputStream in = getInputStream(); OutputStream out = Files.newOutputStream(dest)) {
+                in.transferTo(out);
+            }
+        }
+    }
+
+    /**
+     * Discards what is written and only keeps count, like a GCS upload session would from our side.
+     */
+    private static class CountingChannel implements WriteChannel {
+        long written;
+        int chunkSize;
+        boolean closed;
+
+        @Override
+        public void setChunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public RestorableState<WriteChannel> capture() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            int n = src.remaining();
+            src.position(src.limit());
+            written += n;
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return !closed;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
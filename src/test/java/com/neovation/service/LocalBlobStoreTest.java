@@ -0,0 +1,125 @@
+package com.neovation.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32C;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalBlobStoreTest {
+
+    @TempDir
+    Path root;
+
+    private LocalBlobStore blobStore;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        blobStore = new LocalBlobStore(root.toString(), "http://localhost:8080", "test-secret");
+    }
+
+    @Test
+    void write_storesFileThatReadsBackWithItsContentTypeAndChecksums() throws Exception {
+        byte[] data = "%PDF-1.7 quarterly report".repeat(10_000).getBytes(StandardCharsets.UTF_8);
+        Path spooled = Files.write(root.resolve("spooled.tmp"), data);
+
+        try (FileInputStream in = new FileInputStream(spooled.toFile())) {
+            blobStore.write("7/uuid-report.pdf", "application/pdf", null, in);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(data.length, blobStore.transferTo("7/uuid-report.pdf", Channels.newChannel(out)));
+        assertArrayEquals(data, out.toByteArray());
+
+        BlobStore.BlobMetadata metadata = blobStore.stat("7/uuid-report.pdf");
+        CRC32C crc32c = new CRC32C();
+        crc32c.update(data);
+        assertEquals(data.length, metadata.size());
+        assertEquals("application/pdf", metadata.contentType());
+        assertEquals(Base64.getEncoder().encodeToString(ByteBuffer.allocate(4).putInt((int) crc32c.getValue()).array()),
+                metadata.crc32c());
+        assertEquals(Base64.getEncoder().encodeToString(MessageDigest.getInstance("MD5").digest(data)), metadata.md5());
+        // Nothing is left behind in the staging directory
+        try (var tmp = Files.list(root.resolve(".tmp"))) {
+            assertEquals(0, tmp.count());
+        }
+    }
+
+    @Test
+    void stat_missingBlobIsNull() {
+        assertNull(blobStore.stat("7/missing.pdf"));
+    }
+
+    @Test
+    void signedUrl_onlyVerifiesForTheSignedMethodPathAndContentType() {
+        String url = blobStore.signUpload("7/uuid-my report.pdf", "application/pdf", 1024 * 1024, Duration.ofMinutes(15)).url();
+
+        UriComponents uri = UriComponentsBuilder.fromUriString(url).build();
+        assertTrue(uri.getPath().startsWith("/api/files/7/"));
+        long expires = Long.parseLong(uri.getQueryParams().getFirst("expires"));
+        String signature = uri.getQueryParams().getFirst("signature");
+
+        assertTrue(blobStore.verify("PUT", "7/uuid-my report.pdf", expires, "application/pdf", signature));
+        assertFalse(blobStore.verify("GET", "7/uuid-my report.pdf", expires, "application/pdf", signature));
+        assertFalse(blobStore.verify("PUT", "8/uuid-my report.pdf", expires, "application/pdf", signature));
+        assertFalse(blobStore.verify("PUT", "7/uuid-my report.pdf", expires, "text/html", signature));
+        assertFalse(blobStore.verify("PUT", "7/uuid-my report.pdf", expires + 60, "application/pdf", signature));
+    }
+
+    @Test
+    void verify_rejectsExpiredUrls() {
+        String url = blobStore.signDownload("7/a.pdf", null, Duration.ofSeconds(-1));
+
+        UriComponents uri = UriComponentsBuilder.fromUriString(url).build();
+        assertFalse(blobStore.verify("GET", "7/a.pdf", Long.parseLong(uri.getQueryParams().getFirst("expires")),
+                null, uri.getQueryParams().getFirst("signature")));
+    }
+
+    @Test
+    void paths_cannotLeaveTheRootOrReachInternalDirectories() {
+        for (String path : List.of("../escape.pdf", "7/../../escape.pdf", "/etc/passwd", ".meta/7/a.pdf", "7/.tmp")) {
+            assertThrows(IllegalArgumentException.class,
+                    () -> blobStore.write(path, "text/plain", null, new ByteArrayInputStream(new byte[1])), path);
+        }
+    }
+
+    @Test
+    void list_returnsBlobsButNotInternalFiles() throws Exception {
+        blobStore.write("7/a.pdf", "application/pdf", null, new ByteArrayInputStream(new byte[10]));
+        blobStore.write("sha256/abc", "text/csv", "gzip", new ByteArrayInputStream(new byte[3]));
+
+        try (var blobs = blobStore.list()) {
+            assertEquals(Map.of("7/a.pdf", 10L, "sha256/abc", 3L),
+                    blobs.collect(Collectors.toMap(BlobStore.BlobSummary::path, BlobStore.BlobSummary::size)));
+        }
+    }
+
+    @Test
+    void deleteAll_removesBlobsAndTheirMetadata() throws Exception {
+        blobStore.write("7/a.pdf", "application/pdf", null, new ByteArrayInputStream(new byte[10]));
+
+        Map<String, String> failures = blobStore.deleteAll(List.of("7/a.pdf", "7/already-gone.pdf"));
+
+        assertTrue(failures.isEmpty());
+        assertFalse(Files.exists(root.resolve("7/a.pdf")));
+        assertFalse(Files.exists(root.resolve(".meta/7/a.pdf")));
+    }
+}
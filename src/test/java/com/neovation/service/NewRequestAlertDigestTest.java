@@ -0,0 +1,150 @@
+package com.neovation.service;
+
+import com.neovation.model.ServiceRequest;
+import com.neovation.model.ServiceType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.MessageSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.Context;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NewRequestAlertDigestTest {
+
+    @Mock
+    private EmailOutboxService emailOutboxService;
+    @Mock
+    private TemplateEngine templateEngine;
+    @Mock
+    private MessageSource messageSource;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private NewRequestAlertDigest digest;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        digest = new NewRequestAlertDigest(emailOutboxService, templateEngine, messageSource, transactionManager, meterRegistry);
+        ReflectionTestUtils.setField(digest, "enabled", true);
+        ReflectionTestUtils.setField(digest, "maxBatch", 3);
+        ReflectionTestUtils.setField(digest, "immediateServices", Set.of(ServiceType.CLOUD_HOSTING));
+        ReflectionTestUtils.setField(digest, "lang", "en");
+        ReflectionTestUtils.setField(digest, "internalSupportEmail", "support@neovation.com");
+        ReflectionTestUtils.setField(digest, "frontendUrl", "http://localhost:4200");
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void offer_bufferedAlertsAreSentAsOneEmailOnFlush() {
+        stubRendering();
+
+        assertTrue(digest.offer(request("r1", ServiceType.WEB_DEVELOPMENT), "Guest"));
+        assertTrue(digest.offer(request("r2", ServiceType.ETL_PROCESS), "Guest"));
+        verifyNoInteractions(emailOutboxService);
+
+        digest.flush();
+
+        ArgumentCaptor<Context> context = ArgumentCaptor.forClass(Context.class);
+        verify(templateEngine).process(eq("new-requests-digest-template.html"), context.capture());
+        List<?> alerts = (List<?>) context.getValue().getVariable("alerts");
+        assertEquals(2, alerts.size());
+        verify(emailOutboxService).enqueue("support@neovation.com", "2 new requests", "<html/>");
+        assertEquals(2.0, meterRegistry.counter("email.new_request_alerts.coalesced").count());
+        assertEquals(1.0, meterRegistry.counter("email.new_request_alerts.sent", "type", "digest").count());
+
+        // Nothing left to send
+        digest.flush();
+        verifyNoMoreInteractions(emailOutboxService);
+    }
+
+    @Test
+    void offer_reachingMaxBatchFlushesImmediately() {
+        stubRendering();
+        when(messageSource.getMessage(eq("email.internal.digest.title"), any(), eq(Locale.ENGLISH))).thenReturn("3 new requests");
+
+        digest.offer(request("r1", ServiceType.WEB_DEVELOPMENT), "Guest");
+        digest.offer(request("r2", ServiceType.WEB_DEVELOPMENT), "Guest");
+        digest.offer(request("r3", ServiceType.WEB_DEVELOPMENT), "Guest");
+
+        verify(emailOutboxService).enqueue("support@neovation.com", "3 new requests", "<html/>");
+    }
+
+    @Test
+    void offer_immediateServiceTypeIsNotBuffered() {
+        assertFalse(digest.offer(request("r1", ServiceType.CLOUD_HOSTING), "Guest"));
+
+        digest.flush();
+
+        verifyNoInteractions(emailOutboxService, templateEngine);
+        assertEquals(1.0, meterRegistry.counter("email.new_request_alerts.sent", "type", "immediate").count());
+    }
+
+    @Test
+    void offer_disabledDigestSendsEverythingImmediately() {
+        ReflectionTestUtils.setField(digest, "enabled", false);
+
+        assertFalse(digest.offer(request("r1", ServiceType.WEB_DEVELOPMENT), "Guest"));
+    }
+
+    @Test
+    void offer_insideTransaction_isBufferedOnlyAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        assertTrue(digest.offer(request("r1", ServiceType.WEB_DEVELOPMENT), "Guest"));
+        digest.flush();
+        verifyNoInteractions(emailOutboxService);
+
+        // Rolled back: the alert never reaches the buffer
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        digest.flush();
+        verifyNoInteractions(emailOutboxService);
+
+        // Committed: buffered and sent with the next flush
+        stubRendering();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        digest.flush();
+        verify(emailOutboxService).enqueue(eq("support@neovation.com"), anyString(), anyString());
+    }
+
+    private void stubRendering() {
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        lenient().when(messageSource.getMessage(eq("email.internal.digest.title"), any(), eq(Locale.ENGLISH))).thenReturn("2 new requests");
+        when(templateEngine.process(eq("new-requests-digest-template.html"), any(Context.class))).thenReturn("<html/>");
+    }
+
+    private static ServiceRequest request(String id, ServiceType service) {
+        ServiceRequest request = new ServiceRequest();
+        request.setId(id);
+        request.setTitle("Request " + id);
+        request.setService(service);
+        return request;
+    }
+}
@@ -0,0 +1,140 @@
+package com.neovation.service;
+
+import com.neovation.repository.FileAttachmentRepository;
+import com.neovation.repository.PendingBlobDeletionRepository;
+import com.neovation.repository.StoredBlobRepository;
+import com.neovation.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrphanBlobReconcilerTest {
+
+    @TempDir
+    Path root;
+
+    @Mock
+    private FileAttachmentRepository fileAttachmentRepository;
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private StoredBlobRepository storedBlobRepo;
+    @Mock
+    private PendingBlobDeletionRepository deletionRepo;
+    @Mock
+    private BlobDeletionService blobDeletionService;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private LocalBlobStore blobStore;
+    private OrphanBlobReconciler reconciler;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        blobStore = new LocalBlobStore(root.toString(), "http://localhost:8080", "test-secret");
+        reconciler = new OrphanBlobReconciler(blobStore, fileAttachmentRepository, userRepository, storedBlobRepo,
+                deletionRepo, blobDeletionService, transactionManager, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(reconciler, "bucketName", "test-bucket");
+        ReflectionTestUtils.setField(reconciler, "gracePeriod", Duration.ofHours(24));
+        ReflectionTestUtils.setField(reconciler, "quarantinePrefix", "quarantine/");
+        ReflectionTestUtils.setField(reconciler, "falsePositiveRate", 0.01);
+        ReflectionTestUtils.setField(reconciler, "batchSize", 100);
+
+        // Referenced when the filter is built: an attachment, a profile image saved as a legacy URL, a stored blob
+        store("7/uuid-attached.pdf", true);
+        store("3/profile-uuid.png", true);
+        store("sha256/abc", true);
+        // Not referenced: an orphan, one whose row is written while the scan runs, and one still in its grace period
+        store("7/uuid-orphan.pdf", true);
+        store("7/uuid-late.pdf", true);
+        store("7/uuid-uploading.pdf", false);
+
+        when(fileAttachmentRepository.streamUrls()).thenReturn(Stream.of("7/uuid-attached.pdf"));
+        when(userRepository.streamProfileImages())
+                .thenReturn(Stream.of("https://storage.googleapis.com/test-bucket/3/profile-uuid.png"));
+        when(storedBlobRepo.streamPaths()).thenReturn(Stream.of("sha256/abc"));
+        when(fileAttachmentRepository.findExistingUrls(any())).thenAnswer(i -> existing(i.getArgument(0), "7/uuid-late.pdf"));
+        when(storedBlobRepo.findExistingPaths(any())).thenReturn(List.of());
+        when(deletionRepo.findQueuedPaths(any())).thenReturn(List.of());
+        when(userRepository.findExistingProfileImages(any())).thenReturn(List.of());
+    }
+
+    @Test
+    void report_listsOrphansPastTheGracePeriodWithoutTouchingThem() {
+        OrphanBlobReconciler.Report report = reconciler.reconcile(OrphanBlobReconciler.Action.REPORT);
+
+        assertEquals(6, report.scanned());
+        assertEquals(1, report.tooRecent());
+        assertEquals(1, report.orphans());
+        assertEquals(List.of("7/uuid-orphan.pdf"), report.sample());
+        assertEquals(10, report.orphanBytes());
+        assertEquals(0, report.actedOn());
+        assertTrue(Files.exists(root.resolve("7/uuid-orphan.pdf")));
+        verifyNoInteractions(blobDeletionService);
+    }
+
+    @Test
+    void quarantine_movesOrphansUnderThePrefixWhereLaterRunsIgnoreThem() {
+        OrphanBlobReconciler.Report report = reconciler.reconcile(OrphanBlobReconciler.Action.QUARANTINE);
+
+        assertEquals(1, report.actedOn());
+        assertFalse(Files.exists(root.resolve("7/uuid-orphan.pdf")));
+        assertTrue(Files.exists(root.resolve("quarantine/7/uuid-orphan.pdf")));
+
+        when(fileAttachmentRepository.streamUrls()).thenReturn(Stream.of("7/uuid-attached.pdf"));
+        when(userRepository.streamProfileImages()).thenReturn(Stream.of("3/profile-uuid.png"));
+        when(storedBlobRepo.streamPaths()).thenReturn(Stream.of("sha256/abc"));
+        assertEquals(0, reconciler.reconcile(OrphanBlobReconciler.Action.QUARANTINE).orphans());
+    }
+
+    @Test
+    void report_keepsResizedProfileImagesWhileTheirOriginalIsReferenced() throws Exception {
+        store("3/profile-uuid.png@64.jpg", true);
+        store("9/profile-gone.png@64.jpg", true);
+
+        OrphanBlobReconciler.Report report = reconciler.reconcile(OrphanBlobReconciler.Action.REPORT);
+
+        assertEquals(List.of("7/uuid-orphan.pdf", "9/profile-gone.png@64.jpg"), report.sample().stream().sorted().toList());
+    }
+
+    @Test
+    void delete_queuesOrphansForTheBackgroundDeleter() {
+        OrphanBlobReconciler.Report report = reconciler.reconcile(OrphanBlobReconciler.Action.DELETE);
+
+        assertEquals(1, report.actedOn());
+        verify(blobDeletionService).schedule(List.of("7/uuid-orphan.pdf"));
+    }
+
+    private void store(String path, boolean old) throws Exception {
+        blobStore.write(path, "application/pdf", null, new ByteArrayInputStream(new byte[10]));
+        if (old) {
+            Files.setLastModifiedTime(root.resolve(path), FileTime.from(Instant.now().minus(Duration.ofDays(2))));
+        }
+    }
+
+    private static List<String> existing(Collection<String> paths, String... rows) {
+        return paths.stream().filter(Set.of(rows)::contains).toList();
+    }
+}
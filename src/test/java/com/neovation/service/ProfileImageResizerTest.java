@@ -0,0 +1,131 @@
+package com.neovation.service;
+
+import com.neovation.config.SignedUrlCache;
+import com.neovation.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProfileImageResizerTest {
+
+    @TempDir
+    Path root;
+
+    @Mock
+    private UserRepository userRepo;
+
+    private LocalBlobStore blobStore;
+    private ProfileImageResizer resizer;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        blobStore = new LocalBlobStore(root.toString(), "http://localhost:8080", "test-secret");
+        FileStorageService fileStorageService = new FileStorageService(blobStore,
+                new SignedUrlCache(100, Duration.ofMinutes(5), new SimpleMeterRegistry()));
+        resizer = new ProfileImageResizer(fileStorageService, userRepo, new int[]{512, 64, 128}, 0.82f, 2);
+    }
+
+    @Test
+    void resize_storesSquareJpegCopiesAndRecordsThem() throws Exception {
+        // A landscape photo with a transparent border: the copies are cropped to the centre and flattened on white
+        BufferedImage photo = new BufferedImage(3000, 2000, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = photo.createGraphics();
+        g.setColor(Color.RED);
+        g.fillRect(600, 100, 1800, 1800);
+        g.dispose();
+        store("3/profile-uuid.png", "image/png", png(photo));
+        when(userRepo.updateProfileImageSizes(3L, "3/profile-uuid.png", "64,128,512")).thenReturn(1);
+
+        assertTrue(resizer.resize(3L, "3/profile-uuid.png"));
+
+        for (int size : new int[]{64, 128, 512}) {
+            String path = "3/profile-uuid.png@" + size + ".jpg";
+            assertEquals("image/jpeg", blobStore.head(path).contentType());
+            BufferedImage copy = ImageIO.read(root.resolve(path).toFile());
+            assertEquals(size, copy.getWidth());
+            assertEquals(size, copy.getHeight());
+            Color corner = new Color(copy.getRGB(0, 0));
+            assertTrue(corner.getRed() > 240 && corner.getGreen() > 240, "transparent corner should be white, was " + corner);
+            Color centre = new Color(copy.getRGB(size / 2, size / 2));
+            assertTrue(centre.getRed() > 200 && centre.getGreen() < 60, "centre should stay red, was " + centre);
+        }
+        // The original is kept as uploaded
+        assertEquals("image/png", blobStore.head("3/profile-uuid.png").contentType());
+    }
+
+    @Test
+    void resize_neverScalesUp() throws Exception {
+        store("3/small.png", "image/png", png(new BufferedImage(100, 80, BufferedImage.TYPE_INT_RGB)));
+        when(userRepo.updateProfileImageSizes(any(), any(), any())).thenReturn(1);
+
+        resizer.resize(3L, "3/small.png");
+
+        assertEquals(64, ImageIO.read(root.resolve("3/small.png@64.jpg").toFile()).getWidth());
+        assertEquals(80, ImageIO.read(root.resolve("3/small.png@512.jpg").toFile()).getWidth());
+    }
+
+    @Test
+    void resize_discardsCopiesOfAnImageReplacedInTheMeantime() throws Exception {
+        store("3/old.png", "image/png", png(new BufferedImage(200, 200, BufferedImage.TYPE_INT_RGB)));
+        when(userRepo.updateProfileImageSizes(any(), any(), any())).thenReturn(0);
+
+        resizer.resize(3L, "3/old.png");
+
+        assertFalse(Files.exists(root.resolve("3/old.png@64.jpg")));
+        assertFalse(Files.exists(root.resolve("3/old.png@512.jpg")));
+    }
+
+    @Test
+    void resize_skipsFilesThatAreNotImages() throws Exception {
+        store("3/profile.svg", "image/svg+xml", "<svg xmlns=\"http://www.w3.org/2000/svg\"/>".getBytes(StandardCharsets.UTF_8));
+
+        assertFalse(resizer.resize(3L, "3/profile.svg"));
+
+        verifyNoInteractions(userRepo);
+        assertNull(blobStore.head("3/profile.svg@64.jpg"));
+    }
+
+    @Test
+    void pick_prefersTheSmallestCopyThatIsLargeEnough() {
+        assertEquals(64, ProfileImageResizer.pick("64,128,512", 40));
+        assertEquals(128, ProfileImageResizer.pick("64,128,512", 65));
+        assertEquals(512, ProfileImageResizer.pick("64,128,512", 2000));
+        assertNull(ProfileImageResizer.pick(null, 64));
+    }
+
+    @Test
+    void originalOf_recognisesResizedCopies() {
+        assertEquals("3/profile-uuid.png", ProfileImageResizer.originalOf(ProfileImageResizer.derivativePath("3/profile-uuid.png", 128)));
+        assertNull(ProfileImageResizer.originalOf("3/profile-uuid.png"));
+    }
+
+    private void store(String path, String contentType, byte[] data) throws Exception {
+        blobStore.write(path, contentType, null, new ByteArrayInputStream(data));
+    }
+
+    private static byte[] png(BufferedImage image) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
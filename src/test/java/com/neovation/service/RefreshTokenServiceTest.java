@@ -0,0 +1,112 @@
+package com.neovation.service;
+
+import com.neovation.model.RefreshToken;
+import com.neovation.model.User;
+import com.neovation.repository.RefreshTokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RefreshTokenServiceTest {
+
+    @Mock
+    private RefreshTokenRepository refreshTokenRepo;
+
+    @InjectMocks
+    private RefreshTokenService refreshTokenService;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(refreshTokenService, "refreshExpirationMs", 60_000L);
+        user = new User();
+        user.setId(1L);
+        user.setEmail("test@example.com");
+        user.setEnabled(true);
+        user.setTokenVersion(2);
+    }
+
+    @Test
+    void issue_storesOnlyTheHash() {
+        String raw = refreshTokenService.issue(user);
+
+        ArgumentCaptor<RefreshToken> captor = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(refreshTokenRepo).save(captor.capture());
+        RefreshToken saved = captor.getValue();
+        assertNotEquals(raw, saved.getTokenHash());
+        assertEquals(RefreshTokenService.hash(raw), saved.getTokenHash());
+        assertEquals(2, saved.getTokenVersion());
+        assertNotNull(saved.getFamilyId());
+    }
+
+    @Test
+    void rotate_validToken_revokesItAndIssuesOneInSameFamily() {
+        RefreshToken current = storedToken("raw-token", false, 2);
+        when(refreshTokenRepo.findByTokenHashWithUser(RefreshTokenService.hash("raw-token"))).thenReturn(Optional.of(current));
+        when(refreshTokenRepo.markRevoked(current.getId())).thenReturn(1);
+
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate("raw-token");
+
+        assertSame(user, rotation.user());
+        assertNotEquals("raw-token", rotation.refreshToken());
+        ArgumentCaptor<RefreshToken> captor = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(refreshTokenRepo).save(captor.capture());
+        assertEquals("family-1", captor.getValue().getFamilyId());
+    }
+
+    @Test
+    void rotate_revokedToken_revokesWholeFamily() {
+        RefreshToken current = storedToken("stolen", true, 2);
+        when(refreshTokenRepo.findByTokenHashWithUser(RefreshTokenService.hash("stolen"))).thenReturn(Optional.of(current));
+
+        assertThrows(RuntimeException.class, () -> refreshTokenService.rotate("stolen"));
+
+        verify(refreshTokenRepo).revokeFamily("family-1");
+        verify(refreshTokenRepo, never()).save(any(RefreshToken.class));
+    }
+
+    @Test
+    void rotate_afterTokenVersionBump_isRejected() {
+        RefreshToken current = storedToken("old", false, 1);
+        when(refreshTokenRepo.findByTokenHashWithUser(RefreshTokenService.hash("old"))).thenReturn(Optional.of(current));
+
+        assertThrows(RuntimeException.class, () -> refreshTokenService.rotate("old"));
+
+        verify(refreshTokenRepo).markRevoked(current.getId());
+        verify(refreshTokenRepo, never()).save(any(RefreshToken.class));
+    }
+
+    @Test
+    void rotate_unknownToken_isRejected() {
+        when(refreshTokenRepo.findByTokenHashWithUser(any())).thenReturn(Optional.empty());
+
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> refreshTokenService.rotate("nope"));
+        assertEquals("Invalid refresh token", ex.getMessage());
+    }
+
+    private RefreshToken storedToken(String raw, boolean revoked, int tokenVersion) {
+        RefreshToken token = new RefreshToken();
+        token.setId(10L);
+        token.setTokenHash(RefreshTokenService.hash(raw));
+        token.setUser(user);
+        token.setFamilyId("family-1");
+        token.setTokenVersion(tokenVersion);
+        token.setExpiresAt(LocalDateTime.now().plusMinutes(5));
+        token.setRevoked(revoked);
+        return token;
+    }
+}
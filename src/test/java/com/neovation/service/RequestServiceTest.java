@@ -1,8 +1,11 @@
 package com.neovation.service;
 
+import com.neovation.config.AuthenticatedUser;
 import com.neovation.dto.CreateRequestDto;
+import com.neovation.dto.FinalizeUploadDto;
 import com.neovation.dto.NewUserDto;
 import com.neovation.model.*;
+import com.neovation.repository.FileAttachmentRepository;
 import com.neovation.repository.PaymentRepository; // <--- NEW IMPORT
 import com.neovation.repository.ServiceRequestRepository;
 import com.neovation.repository.UserRepository;
@@ -10,22 +13,29 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -44,15 +54,35 @@ class RequestServiceTest {
     private StripePaymentService stripePaymentService; // <--- NEW MOCK
     @Mock
     private PaymentRepository paymentRepository;     // <--- NEW MOCK
+    @Mock
+    private CurrentUserService currentUserService;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Mock
+    private FileAttachmentRepository fileAttachmentRepository;
+    @Mock
+    private StoredBlobService storedBlobService;
+    @Mock
+    private StorageSavingsService storageSavingsService;
 
-    @InjectMocks
     private RequestService requestService;
+    private UploadTicketService uploadTicketService;
 
     private CreateRequestDto createRequestDto;
     private User existingUser;
 
     @BeforeEach
     void setUp() {
+        // Real uploader over the mocked blob service, so uploads are still verified per file
+        uploadTicketService = new UploadTicketService();
+        ReflectionTestUtils.setField(uploadTicketService, "secret", "test-secret-test-secret-test-secret-0123456789");
+        ReflectionTestUtils.setField(uploadTicketService, "validity", Duration.ofHours(24));
+        uploadTicketService.init();
+        requestService = new RequestService(serviceRequestRepository, userRepository, userService, fileStorageService,
+                fileAttachmentRepository, stripePaymentService, paymentRepository, currentUserService,
+                transactionManager, new AttachmentUploader(storedBlobService, 4), storedBlobService,
+                storageSavingsService, uploadTicketService);
+
         createRequestDto = new CreateRequestDto();
         createRequestDto.setFirstName("Test");
         createRequestDto.setLastName("User");
@@ -71,6 +101,13 @@ class RequestServiceTest {
         existingUser.setLastName("User");
     }
 
+    private static StoredBlob storedBlob(Long id, String blobPath) {
+        StoredBlob blob = new StoredBlob();
+        blob.setId(id);
+        blob.setBlobPath(blobPath);
+        return blob;
+    }
+
     private void mockSecurityContext(String email) {
         Authentication authentication = mock(Authentication.class);
         SecurityContext securityContext = mock(SecurityContext.class);
@@ -102,8 +139,8 @@ class RequestServiceTest {
         assertEquals(RequestStatus.SUBMITTED, result.getStatus());
 
         // Verify email notifications were sent
-        verify(userService, times(1)).sendRequestCreatedEmail(result, "en");
-        verify(userService, times(1)).sendNewRequestAlertEmail(result, "en");
+        verify(userService, times(1)).sendRequestCreatedEmail(result, "test@example.com", "en");
+        verify(userService, times(1)).sendNewRequestAlertEmail(result, "Test User (test@example.com)", "en");
 
         // Verify user was NOT registered
         verify(userService, never()).register(any(NewUserDto.class));
@@ -137,8 +174,8 @@ class RequestServiceTest {
         assertEquals(RequestStatus.SUBMITTED, result.getStatus());
 
         // Verify email notifications were sent
-        verify(userService, times(1)).sendRequestCreatedEmail(result, "en");
-        verify(userService, times(1)).sendNewRequestAlertEmail(result, "en");
+        verify(userService, times(1)).sendRequestCreatedEmail(result, "test@example.com", "en");
+        verify(userService, times(1)).sendNewRequestAlertEmail(result, "Test User (test@example.com)", "en");
 
         // Verify registration was called
         ArgumentCaptor<NewUserDto> newUserCaptor = ArgumentCaptor.forClass(NewUserDto.class);
@@ -162,8 +199,8 @@ class RequestServiceTest {
         when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(existingUser));
 
         // Mock file storage service calls and provide mock GCS paths
-        when(fileStorageService.storeFile(eq(file1), eq(existingUser.getId()))).thenReturn("gcs-path-1.pdf");
-        when(fileStorageService.storeFile(eq(file2), eq(existingUser.getId()))).thenReturn("gcs-path-2.png");
+        when(storedBlobService.store(file1)).thenReturn(storedBlob(11L, "gcs-path-1.pdf"));
+        when(storedBlobService.store(file2)).thenReturn(storedBlob(12L, "gcs-path-2.png"));
 
         when(serviceRequestRepository.save(any(ServiceRequest.class))).thenAnswer(invocation -> {
             ServiceRequest req = invocation.getArgument(0);
@@ -187,9 +224,9 @@ class RequestServiceTest {
         assertNotNull(result.getAttachments());
         assertEquals(2, result.getAttachments().size());
 
-        // Assert file storage was called with the correct user ID
-        verify(fileStorageService, times(1)).storeFile(eq(file1), eq(existingUser.getId()));
-        verify(fileStorageService, times(1)).storeFile(eq(file2), eq(existingUser.getId()));
+        // Assert every file was stored once
+        verify(storedBlobService, times(1)).store(file1);
+        verify(storedBlobService, times(1)).store(file2);
 
         // Verify attachment details and purpose (purpose should be USER_FILE by default)
         assertEquals("test1.pdf", result.getAttachments().get(0).getFileName());
@@ -199,7 +236,163 @@ class RequestServiceTest {
         assertEquals(FilePurpose.USER_FILE, result.getAttachments().get(1).getPurpose());
 
         // Verify email notifications were sent
-        verify(userService, times(1)).sendRequestCreatedEmail(result, "en");
-        verify(userService, times(1)).sendNewRequestAlertEmail(result, "en");
+        verify(userService, times(1)).sendRequestCreatedEmail(result, "test@example.com", "en");
+        verify(userService, times(1)).sendNewRequestAlertEmail(result, "Test User (test@example.com)", "en");
+    }
+
+    @Test
+    void createRequest_authenticatedUser_skipsUserLookup() {
+        // --- Arrange ---
+        String expectedId = "uuid-test-103";
+        createRequestDto.setLang("en");
+        AuthenticatedUser principal = new AuthenticatedUser(1L, "test@example.com", "encoded", "Test User", Role.USER, true, 0);
+        when(currentUserService.get()).thenReturn(Optional.of(principal));
+        when(serviceRequestRepository.save(any(ServiceRequest.class))).thenAnswer(invocation -> {
+            ServiceRequest req = invocation.getArgument(0);
+            req.setId(expectedId);
+            return req;
+        });
+
+        // --- Act ---
+        ServiceRequest result = requestService.createRequest(createRequestDto);
+
+        // --- Assert ---
+        assertEquals(principal.getId(), result.getUserId());
+        verify(userRepository, never()).findByEmail(any());
+        verify(userRepository, never()).findById(any());
+        verify(userService, never()).register(any(NewUserDto.class));
+        verify(userService, times(1)).sendRequestCreatedEmail(result, "test@example.com", "en");
+        verify(userService, times(1)).sendNewRequestAlertEmail(result, "Test User (test@example.com)", "en");
+    }
+
+    @Test
+    void finalizeAttachmentUpload_verifiesAndAttachesTheObject() {
+        ServiceRequest request = requestOwnedBy(1L);
+        when(currentUserService.get()).thenReturn(Optional.of(
+                new AuthenticatedUser(1L, "test@example.com", "encoded", "Test User", Role.USER, true, 0)));
+        when(serviceRequestRepository.findById("req-1")).thenReturn(Optional.of(request));
+        when(serviceRequestRepository.save(request)).thenReturn(request);
+
+        FinalizeUploadDto upload = finalizeUpload("1/uuid-report.pdf");
+        requestService.finalizeAttachmentUpload("req-1", upload, "en");
+
+        verify(fileStorageService).verifyUpload("1/uuid-report.pdf", 2048L, "application/pdf", "AAAAAA==", null);
+        assertEquals(1, request.getAttachments().size());
+        assertEquals("1/uuid-report.pdf", request.getAttachments().get(0).getUrl());
+        assertEquals(FilePurpose.USER_FILE, request.getAttachments().get(0).getPurpose());
+    }
+
+    @Test
+    void finalizeAttachmentUpload_rejectsObjectOutsideOwnersFolder() {
+        when(currentUserService.get()).thenReturn(Optional.of(
+                new AuthenticatedUser(1L, "test@example.com", "encoded", "Test User", Role.USER, true, 0)));
+        when(serviceRequestRepository.findById("req-1")).thenReturn(Optional.of(requestOwnedBy(1L)));
+
+        assertThrows(AccessDeniedException.class,
+                () -> requestService.finalizeAttachmentUpload("req-1", finalizeUpload("2/uuid-report.pdf"), "en"));
+        verify(fileStorageService, never()).verifyUpload(any(), anyLong(), any(), any(), any());
+        verify(serviceRequestRepository, never()).save(any(ServiceRequest.class));
+    }
+
+    @Test
+    void finalizeAttachmentUpload_rejectsPathsThatWereNotIssuedForTheUpload() {
+        when(currentUserService.get()).thenReturn(Optional.of(
+                new AuthenticatedUser(2L, "other@example.com", "encoded", "Other User", Role.USER, true, 0)));
+        when(serviceRequestRepository.findById("req-1")).thenReturn(Optional.of(requestOwnedBy(1L)));
+        // A ticket for a fresh upload, pointed at the owner's existing profile image instead
+        FinalizeUploadDto upload = finalizeUpload("1/uuid-report.pdf");
+        upload.setObjectPath("1/profile-uuid.png");
+
+        assertThrows(AccessDeniedException.class, () -> requestService.finalizeAttachmentUpload("req-1", upload, "en"));
+        verify(fileStorageService, never()).verifyUpload(any(), anyLong(), any(), any(), any());
+        verify(fileStorageService, never()).deleteFile(any());
+    }
+
+    @Test
+    void finalizeAttachmentUpload_rejectsPathsAlreadyInUse() {
+        when(currentUserService.get()).thenReturn(Optional.of(
+                new AuthenticatedUser(1L, "test@example.com", "encoded", "Test User", Role.USER, true, 0)));
+        when(serviceRequestRepository.findById("req-1")).thenReturn(Optional.of(requestOwnedBy(1L)));
+        when(fileAttachmentRepository.findExistingUrls(List.of("1/uuid-report.pdf"))).thenReturn(List.of("1/uuid-report.pdf"));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> requestService.finalizeAttachmentUpload("req-1", finalizeUpload("1/uuid-report.pdf"), "en"));
+        verify(fileStorageService, never()).verifyUpload(any(), anyLong(), any(), any(), any());
+        verify(serviceRequestRepository, never()).save(any(ServiceRequest.class));
+    }
+
+    @Test
+    void getAttachmentDownloadUrls_signsEveryAttachmentWithOneLookup() {
+        ServiceRequest request = requestOwnedBy(1L);
+        FileAttachment contract = attachment(10L, "sha256/abc");
+        contract.setFileName("contract.pdf");
+        FileAttachment copy = attachment(11L, "sha256/abc");
+        copy.setFileName("contract (copy).pdf");
+        request.setAttachments(List.of(contract, copy));
+        when(currentUserService.get()).thenReturn(Optional.of(
+                new AuthenticatedUser(1L, "test@example.com", "encoded", "Test User", Role.USER, true, 0)));
+        when(serviceRequestRepository.findWithAttachmentsById("req-1")).thenReturn(Optional.of(request));
+        FileStorageService.Download contractDownload = new FileStorageService.Download("sha256/abc", "contract.pdf");
+        FileStorageService.Download copyDownload = new FileStorageService.Download("sha256/abc", "contract (copy).pdf");
+        when(fileStorageService.generateSignedDownloadUrls(List.of(contractDownload, copyDownload)))
+                .thenReturn(Map.of(contractDownload, "https://signed/a", copyDownload, "https://signed/b"));
+
+        Map<Long, String> urls = requestService.getAttachmentDownloadUrls("req-1");
+
+        assertEquals(Map.of(10L, "https://signed/a", 11L, "https://signed/b"), urls);
+        verifyNoInteractions(fileAttachmentRepository);
+        verify(serviceRequestRepository, never()).findByAttachments_Id(any());
+    }
+
+    @Test
+    void getAttachmentDownloadUrls_deniesOtherUsers() {
+        when(currentUserService.get()).thenReturn(Optional.of(
+                new AuthenticatedUser(2L, "other@example.com", "encoded", "Other User", Role.USER, true, 0)));
+        when(serviceRequestRepository.findWithAttachmentsById("req-1")).thenReturn(Optional.of(requestOwnedBy(1L)));
+
+        assertThrows(AccessDeniedException.class, () -> requestService.getAttachmentDownloadUrls("req-1"));
+        verifyNoInteractions(fileStorageService);
+    }
+
+    @Test
+    void deleteRequest_releasesAttachmentBlobsInsteadOfDeletingThem() {
+        ServiceRequest request = requestOwnedBy(1L);
+        List<FileAttachment> attachments = List.of(attachment(10L, "sha256/abc"), attachment(11L, "1/legacy.png"));
+        request.setAttachments(new ArrayList<>(attachments));
+        when(currentUserService.get()).thenReturn(Optional.of(
+                new AuthenticatedUser(1L, "test@example.com", "encoded", "Test User", Role.USER, true, 0)));
+        when(serviceRequestRepository.findById("req-1")).thenReturn(Optional.of(request));
+
+        requestService.deleteRequest("req-1");
+
+        verify(serviceRequestRepository).delete(request);
+        // Shared blobs may still be used by other requests; the blob service decides what to delete
+        verify(storedBlobService).release(attachments);
+        verify(fileStorageService, never()).deleteFile(any());
+    }
+
+    private static FileAttachment attachment(Long id, String path) {
+        FileAttachment attachment = new FileAttachment();
+        attachment.setId(id);
+        attachment.setUrl(path);
+        return attachment;
+    }
+
+    private static ServiceRequest requestOwnedBy(Long userId) {
+        ServiceRequest request = new ServiceRequest();
+        request.setId("req-1");
+        request.setUserId(userId);
+        return request;
+    }
+
+    private FinalizeUploadDto finalizeUpload(String objectPath) {
+        FinalizeUploadDto upload = new FinalizeUploadDto();
+        upload.setObjectPath(objectPath);
+        upload.setUploadToken(uploadTicketService.issue("req-1", objectPath, 2048L, "application/pdf"));
+        upload.setFileName("report.pdf");
+        upload.setContentType("application/pdf");
+        upload.setSize(2048L);
+        upload.setCrc32c("AAAAAA==");
+        return upload;
     }
-}
\ No newline at end of file
+}
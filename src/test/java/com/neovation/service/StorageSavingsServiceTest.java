@@ -0,0 +1,74 @@
+package com.neovation.service;
+
+import com.neovation.dto.StorageSavingsDto;
+import com.neovation.model.FileAttachment;
+import com.neovation.model.FilePurpose;
+import com.neovation.repository.FileAttachmentRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class StorageSavingsServiceTest {
+
+    @Mock
+    private FileAttachmentRepository fileAttachmentRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private StorageSavingsService storageSavingsService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        storageSavingsService = new StorageSavingsService(fileAttachmentRepository, meterRegistry);
+    }
+
+    @Test
+    void report_combinesStoredTotalsWithEstimatedEgressPerPurpose() {
+        FileAttachmentRepository.PurposeStorageTotals userFiles = mock(FileAttachmentRepository.PurposeStorageTotals.class);
+        when(userFiles.getPurpose()).thenReturn(FilePurpose.USER_FILE);
+        when(userFiles.getFiles()).thenReturn(3L);
+        when(userFiles.getCompressedFiles()).thenReturn(1L);
+        when(userFiles.getOriginalBytes()).thenReturn(30_000L);
+        when(userFiles.getStoredBytes()).thenReturn(21_000L);
+        when(fileAttachmentRepository.sumStorageByPurpose()).thenReturn(List.of(userFiles));
+
+        // Downloaded twice: 2 x 9000 bytes not sent; the uncompressed and legacy files save nothing
+        FileAttachment csv = attachment(FilePurpose.USER_FILE, 10_000L, 1_000L);
+        storageSavingsService.recordDownloads(List.of(csv, attachment(FilePurpose.USER_FILE, 10_000L, 10_000L),
+                attachment(FilePurpose.USER_FILE, 10_000L, null)));
+        storageSavingsService.recordDownloads(List.of(csv));
+
+        List<StorageSavingsDto> report = storageSavingsService.report();
+
+        assertEquals(2, report.size());
+        StorageSavingsDto user = report.get(0);
+        assertEquals(FilePurpose.USER_FILE, user.getPurpose());
+        assertEquals(3L, user.getFiles());
+        assertEquals(1L, user.getCompressedFiles());
+        assertEquals(9_000L, user.getStorageBytesSaved());
+        assertEquals(18_000L, user.getEgressBytesSaved());
+        StorageSavingsDto proposals = report.get(1);
+        assertEquals(FilePurpose.PROPOSAL, proposals.getPurpose());
+        assertEquals(0L, proposals.getFiles());
+        assertEquals(0L, proposals.getEgressBytesSaved());
+        assertEquals(18_000.0, meterRegistry.get("storage.compression.egress_saved").tag("purpose", "USER_FILE").counter().count());
+    }
+
+    private FileAttachment attachment(FilePurpose purpose, long fileSize, Long storedSize) {
+        FileAttachment attachment = new FileAttachment();
+        attachment.setPurpose(purpose);
+        attachment.setFileSize(fileSize);
+        attachment.setStoredSize(storedSize);
+        return attachment;
+    }
+}
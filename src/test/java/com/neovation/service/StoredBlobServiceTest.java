@@ -0,0 +1,122 @@
+package com.neovation.service;
+
+import com.neovation.model.FileAttachment;
+import com.neovation.model.StoredBlob;
+import com.neovation.repository.StoredBlobRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StoredBlobServiceTest {
+
+    private static final byte[] LOGO = "logo bytes".getBytes();
+
+    @Mock
+    private StoredBlobRepository storedBlobRepo;
+    @Mock
+    private FileStorageService fileStorageService;
+    @Mock
+    private BlobDeletionService blobDeletionService;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private StoredBlobService storedBlobService;
+    private String sha256;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        storedBlobService = new StoredBlobService(storedBlobRepo, fileStorageService, blobDeletionService, meterRegistry);
+        sha256 = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(LOGO));
+    }
+
+    @Test
+    void store_duplicateContentOnlyTakesAReference() {
+        MockMultipartFile file = new MockMultipartFile("files", "logo.png", "image/png", LOGO);
+        when(storedBlobRepo.reference(sha256)).thenReturn(1);
+        when(storedBlobRepo.findBySha256(sha256)).thenReturn(Optional.of(blob(5L, "sha256/" + sha256)));
+
+        StoredBlob blob = storedBlobService.store(file);
+
+        assertEquals(5L, blob.getId());
+        verifyNoInteractions(fileStorageService);
+        verify(storedBlobRepo, never()).insertOrReference(anyString(), anyString(), anyLong(), anyLong(), any(), any());
+        assertEquals(LOGO.length, meterRegistry.get("storage.dedup.bytes_saved").counter().count());
+    }
+
+    @Test
+    void store_newContentIsWrittenUnderItsHash() {
+        MockMultipartFile file = new MockMultipartFile("files", "logo.png", "image/png", LOGO);
+        when(storedBlobRepo.reference(sha256)).thenReturn(0);
+        when(storedBlobRepo.findBySha256(sha256)).thenReturn(Optional.of(blob(6L, "sha256/" + sha256)));
+        when(fileStorageService.storeFileAt(file, "sha256/" + sha256))
+                .thenReturn(new FileStorageService.StoredFile(LOGO.length, null));
+
+        StoredBlob blob = storedBlobService.store(file);
+
+        assertEquals("sha256/" + sha256, blob.getBlobPath());
+        verify(storedBlobRepo).insertOrReference(sha256, "sha256/" + sha256, LOGO.length, LOGO.length, "image/png", null);
+        assertEquals(1.0, meterRegistry.get("storage.dedup").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void store_newContentCancelsAQueuedDeletionBeforeWriting() {
+        MockMultipartFile file = new MockMultipartFile("files", "logo.png", "image/png", LOGO);
+        when(storedBlobRepo.reference(sha256)).thenReturn(0);
+        when(storedBlobRepo.findBySha256(sha256)).thenReturn(Optional.of(blob(6L, "sha256/" + sha256)));
+        when(fileStorageService.storeFileAt(file, "sha256/" + sha256))
+                .thenReturn(new FileStorageService.StoredFile(LOGO.length, null));
+
+        storedBlobService.store(file);
+
+        InOrder inOrder = inOrder(blobDeletionService, fileStorageService, storedBlobRepo);
+        inOrder.verify(blobDeletionService).cancel("sha256/" + sha256);
+        inOrder.verify(fileStorageService).storeFileAt(file, "sha256/" + sha256);
+        inOrder.verify(storedBlobRepo).insertOrReference(sha256, "sha256/" + sha256, LOGO.length, LOGO.length, "image/png", null);
+    }
+
+    @Test
+    void release_deletesOnlyFilesWithoutRemainingReferences() {
+        FileAttachment lastReference = attachment(1L, "sha256/aaa");
+        FileAttachment stillShared = attachment(2L, "sha256/bbb");
+        FileAttachment legacy = attachment(null, "7/uuid-brief.pdf");
+        when(storedBlobRepo.deleteIfUnreferenced(1L)).thenReturn(1);
+        when(storedBlobRepo.deleteIfUnreferenced(2L)).thenReturn(0);
+
+        storedBlobService.release(List.of(lastReference, stillShared, legacy));
+
+        verify(storedBlobRepo).release(1L);
+        verify(storedBlobRepo).release(2L);
+        verify(blobDeletionService).schedule(List.of("sha256/aaa", "7/uuid-brief.pdf"));
+    }
+
+    private static StoredBlob blob(Long id, String blobPath) {
+        StoredBlob blob = new StoredBlob();
+        blob.setId(id);
+        blob.setBlobPath(blobPath);
+        return blob;
+    }
+
+    private static FileAttachment attachment(Long storedBlobId, String url) {
+        FileAttachment attachment = new FileAttachment();
+        attachment.setStoredBlobId(storedBlobId);
+        attachment.setUrl(url);
+        return attachment;
+    }
+}
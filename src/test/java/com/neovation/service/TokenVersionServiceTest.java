@@ -0,0 +1,119 @@
+package com.neovation.service;
+
+import com.neovation.model.User;
+import com.neovation.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TokenVersionServiceTest {
+
+    @Mock
+    private UserRepository userRepo;
+
+    @InjectMocks
+    private TokenVersionService tokenVersionService;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(tokenVersionService, "ttlMs", 60_000L);
+        ReflectionTestUtils.setField(tokenVersionService, "maxEntries", 100);
+        user = new User();
+        user.setId(1L);
+        user.setTokenVersion(0);
+    }
+
+    @Test
+    void isCurrent_cachesTheLoadedVersion() {
+        when(userRepo.findTokenVersionById(1L)).thenReturn(Optional.of(0));
+
+        assertTrue(tokenVersionService.isCurrent(1L, 0));
+        assertFalse(tokenVersionService.isCurrent(1L, 1));
+        verify(userRepo, times(1)).findTokenVersionById(1L);
+    }
+
+    @Test
+    void bump_takesEffectOnceTheNewVersionIsCommitted() {
+        when(userRepo.findTokenVersionById(1L)).thenReturn(Optional.of(0));
+        assertTrue(tokenVersionService.isCurrent(1L, 0));
+
+        tokenVersionService.bump(user);
+
+        // Not committed yet: the database still has the old version
+        assertEquals(1, user.getTokenVersion());
+        assertTrue(tokenVersionService.isCurrent(1L, 0));
+
+        when(userRepo.findTokenVersionById(1L)).thenReturn(Optional.of(1));
+        assertFalse(tokenVersionService.isCurrent(1L, 0));
+        assertTrue(tokenVersionService.isCurrent(1L, 1));
+        verify(userRepo, times(3)).findTokenVersionById(1L);
+    }
+
+    @Test
+    void isCurrent_lookupRacingABumpDoesNotCacheTheOldVersion() {
+        when(userRepo.findTokenVersionById(1L)).thenAnswer(invocation -> {
+            // The bump lands while the old version is being read
+            tokenVersionService.bump(user);
+            return Optional.of(0);
+        }).thenReturn(Optional.of(1));
+
+        assertTrue(tokenVersionService.isCurrent(1L, 0));
+
+        assertFalse(tokenVersionService.isCurrent(1L, 0));
+        assertTrue(tokenVersionService.isCurrent(1L, 1));
+        verify(userRepo, times(2)).findTokenVersionById(1L);
+    }
+
+    @Test
+    void bump_rolledBackStopsForcingLookupsOnceExpired() {
+        ReflectionTestUtils.setField(tokenVersionService, "ttlMs", -1L);
+        when(userRepo.findTokenVersionById(1L)).thenReturn(Optional.of(0));
+
+        tokenVersionService.bump(user);
+
+        assertTrue(tokenVersionService.isCurrent(1L, 0));
+        assertFalse(tokenVersionService.isCurrent(1L, 1));
+    }
+
+    @Test
+    void revoke_rejectsEveryVersion() {
+        tokenVersionService.revoke(1L);
+
+        assertFalse(tokenVersionService.isCurrent(1L, 0));
+        verifyNoInteractions(userRepo);
+    }
+
+    @Test
+    void isCurrent_evictsTheOldestEntriesWhenFull() throws InterruptedException {
+        ReflectionTestUtils.setField(tokenVersionService, "maxEntries", 10);
+        when(userRepo.findTokenVersionById(anyLong())).thenReturn(Optional.of(0));
+        for (long id = 1; id <= 10; id++) {
+            tokenVersionService.isCurrent(id, 0);
+            Thread.sleep(2);
+        }
+
+        tokenVersionService.isCurrent(11L, 0);
+
+        // Only the oldest entries went; the rest are still served from the cache
+        for (long id = 3; id <= 11; id++) {
+            tokenVersionService.isCurrent(id, 0);
+        }
+        verify(userRepo, times(1)).findTokenVersionById(10L);
+        verify(userRepo, times(1)).findTokenVersionById(3L);
+        tokenVersionService.isCurrent(1L, 0);
+        verify(userRepo, times(2)).findTokenVersionById(1L);
+    }
+}
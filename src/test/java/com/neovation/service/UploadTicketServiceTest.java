@@ -0,0 +1,60 @@
+package com.neovation.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UploadTicketServiceTest {
+
+    private final UploadTicketService ticketService = new UploadTicketService();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(ticketService, "secret", "test-secret-test-secret-test-secret-0123456789");
+        ReflectionTestUtils.setField(ticketService, "validity", Duration.ofHours(24));
+        ticketService.init();
+    }
+
+    @Test
+    void verify_acceptsTheUploadItWasIssuedFor() {
+        String ticket = ticketService.issue("req-1", "1/uuid-report.pdf", 2048L, "application/pdf");
+
+        assertDoesNotThrow(() -> ticketService.verify(ticket, "req-1", "1/uuid-report.pdf", 2048L, "application/pdf"));
+    }
+
+    @Test
+    void verify_rejectsAnyOtherPathRequestSizeOrType() {
+        String ticket = ticketService.issue("req-1", "1/uuid-report.pdf", 2048L, "application/pdf");
+
+        assertThrows(AccessDeniedException.class,
+                () -> ticketService.verify(ticket, "req-1", "1/profile-uuid.png", 2048L, "application/pdf"));
+        assertThrows(AccessDeniedException.class,
+                () -> ticketService.verify(ticket, "req-2", "1/uuid-report.pdf", 2048L, "application/pdf"));
+        assertThrows(AccessDeniedException.class,
+                () -> ticketService.verify(ticket, "req-1", "1/uuid-report.pdf", 4096L, "application/pdf"));
+        assertThrows(AccessDeniedException.class,
+                () -> ticketService.verify(ticket, "req-1", "1/uuid-report.pdf", 2048L, "text/html"));
+    }
+
+    @Test
+    void verify_rejectsExpiredOrMalformedTickets() {
+        ReflectionTestUtils.setField(ticketService, "validity", Duration.ofSeconds(-5));
+        String expired = ticketService.issue("req-1", "1/uuid-report.pdf", 2048L, "application/pdf");
+        // Pushing the expiry forward breaks the signature
+        String extended = (Long.parseLong(expired.substring(0, expired.indexOf('.'))) + 3600) + expired.substring(expired.indexOf('.'));
+
+        assertThrows(AccessDeniedException.class,
+                () -> ticketService.verify(expired, "req-1", "1/uuid-report.pdf", 2048L, "application/pdf"));
+        assertThrows(AccessDeniedException.class,
+                () -> ticketService.verify(extended, "req-1", "1/uuid-report.pdf", 2048L, "application/pdf"));
+        assertThrows(AccessDeniedException.class,
+                () -> ticketService.verify(null, "req-1", "1/uuid-report.pdf", 2048L, "application/pdf"));
+        assertThrows(AccessDeniedException.class,
+                () -> ticketService.verify("not-a-ticket", "req-1", "1/uuid-report.pdf", 2048L, "application/pdf"));
+    }
+}
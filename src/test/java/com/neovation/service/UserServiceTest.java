@@ -1,5 +1,6 @@
 package com.neovation.service;
 
+import com.neovation.dto.ChangePasswordDto;
 import com.neovation.dto.NewUserDto;
 import com.neovation.dto.ResetPasswordDto;
 import com.neovation.model.Country;
@@ -10,7 +11,6 @@ import com.neovation.repository.CountryRepository;
 import com.neovation.repository.EmailVerificationTokenRepository;
 import com.neovation.repository.PasswordResetTokenRepository;
 import com.neovation.repository.UserRepository;
-import jakarta.mail.internet.MimeMessage;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -19,12 +19,9 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.context.MessageSource;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.multipart.MultipartFile;
-import org.thymeleaf.TemplateEngine;
-import org.thymeleaf.context.Context;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
@@ -33,6 +30,7 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
@@ -49,18 +47,23 @@ class UserServiceTest {
     @Mock
     private PasswordEncoder encoder;
     @Mock
-    private JavaMailSender mailSender;
+    private EmailOutboxService emailOutboxService;
     @Mock
-    private TemplateEngine templateEngine;
+    private EmailRenderer emailRenderer;
     @Mock
     private MessageSource messageSource;
     @Mock
     private FileStorageService fileStorageService;
     @Mock
     private CountryRepository countryRepo;
-
     @Mock
-    private MimeMessage mimeMessage; // Mock the MimeMessage for email sending
+    private TokenVersionService tokenVersionService;
+    @Mock
+    private ActionTokenService actionTokenService;
+    @Mock
+    private NewRequestAlertDigest alertDigest;
+    @Mock
+    private ProfileImageResizer profileImageResizer;
 
     @InjectMocks
     private UserService userService;
@@ -110,9 +113,8 @@ class UserServiceTest {
         });
 
         // 5. Mock email sending
-        when(mailSender.createMimeMessage()).thenReturn(mimeMessage);
-        when(templateEngine.process(anyString(), any(Context.class))).thenReturn("<html>Mock Email Body</html>");
-        when(messageSource.getMessage(anyString(), any(), any(Locale.class))).thenReturn("Mock Message");
+        when(emailRenderer.render(anyString(), any(Locale.class), anyMap(), anyMap())).thenReturn("<html>Mock Email Body</html>");
+        when(emailRenderer.message(anyString(), any(Locale.class))).thenReturn("Mock Message");
 
         // --- Act ---
         User registeredUser = userService.register(newUserDto);
@@ -130,8 +132,8 @@ class UserServiceTest {
         verify(countryRepo, times(1)).findById("US");
         verify(userRepo, times(1)).save(any(User.class));
         verify(evtRepo, times(1)).save(any(EmailVerificationToken.class));
-        verify(mailSender, times(1)).send(mimeMessage);
-        verify(templateEngine, times(1)).process(eq("email-template.html"), any(Context.class));
+        verify(emailOutboxService, times(1)).enqueue(eq("test@example.com"), anyString(), anyString());
+        verify(emailRenderer, times(1)).render(eq("email-template.html"), any(Locale.class), anyMap(), anyMap());
     }
 
     @Test
@@ -151,7 +153,7 @@ class UserServiceTest {
         verify(userRepo, times(1)).findByEmail("test@example.com");
         verify(countryRepo, never()).findById(anyString());
         verify(userRepo, never()).save(any(User.class));
-        verify(mailSender, never()).send(any(MimeMessage.class));
+        verify(emailOutboxService, never()).enqueue(anyString(), anyString(), anyString());
     }
 
     @Test
@@ -172,7 +174,7 @@ class UserServiceTest {
         verify(userRepo, times(1)).findByEmail("test@example.com");
         verify(countryRepo, times(1)).findById("US");
         verify(userRepo, never()).save(any(User.class));
-        verify(mailSender, never()).send(any(MimeMessage.class));
+        verify(emailOutboxService, never()).enqueue(anyString(), anyString(), anyString());
     }
 
 
@@ -189,9 +191,8 @@ class UserServiceTest {
         when(encoder.encode(anyString())).thenReturn("newEncodedPassword");
 
         // Mock email sending
-        when(mailSender.createMimeMessage()).thenReturn(mimeMessage);
-        when(templateEngine.process(anyString(), any(Context.class))).thenReturn("<html>Mock Email Body</html>");
-        when(messageSource.getMessage(anyString(), any(), any(Locale.class))).thenReturn("Mock Message");
+        when(emailRenderer.render(anyString(), any(Locale.class), anyMap(), anyMap())).thenReturn("<html>Mock Email Body</html>");
+        when(emailRenderer.message(anyString(), any(Locale.class))).thenReturn("Mock Message");
         // Specifically mock the info text message with placeholder
         when(messageSource.getMessage(eq("email.confirm.infotext"), any(Object[].class), any(Locale.class)))
                 .thenReturn("Your temporary password is: newRandomPass");
@@ -211,8 +212,8 @@ class UserServiceTest {
         verify(evtRepo, times(1)).delete(evt);
 
         // 3. Verify email was sent
-        verify(mailSender, times(1)).send(mimeMessage);
-        verify(templateEngine, times(1)).process(eq("email-template.html"), any(Context.class));
+        verify(emailOutboxService, times(1)).enqueue(eq("test@example.com"), anyString(), anyString());
+        verify(emailRenderer, times(1)).render(eq("email-template.html"), any(Locale.class), anyMap(), anyMap());
     }
 
     @Test
@@ -230,7 +231,7 @@ class UserServiceTest {
         // Verify no user or token modification occurred
         verify(userRepo, never()).save(any(User.class));
         verify(evtRepo, never()).delete(any(EmailVerificationToken.class));
-        verify(mailSender, never()).send(any(MimeMessage.class));
+        verify(emailOutboxService, never()).enqueue(anyString(), anyString(), anyString());
     }
 
     @Test
@@ -255,7 +256,7 @@ class UserServiceTest {
 
         // Verify no user modification or email sending occurred
         verify(userRepo, never()).save(any(User.class));
-        verify(mailSender, never()).send(any(MimeMessage.class));
+        verify(emailOutboxService, never()).enqueue(anyString(), anyString(), anyString());
     }
 
     @Test
@@ -279,7 +280,7 @@ class UserServiceTest {
         // Verify token WAS deleted (it's been used)
         verify(evtRepo, times(1)).delete(evt);
         // Verify NO email was sent
-        verify(mailSender, never()).send(any(MimeMessage.class));
+        verify(emailOutboxService, never()).enqueue(anyString(), anyString(), anyString());
     }
 
 
@@ -333,6 +334,23 @@ class UserServiceTest {
         verify(prtRepo, never()).delete(any(PasswordResetToken.class));
     }
 
+    @Test
+    void changePassword_invalidatesEveryTokenAndReturnsTheSavedUser() {
+        ChangePasswordDto dto = new ChangePasswordDto();
+        dto.setCurrentPassword("old-password");
+        dto.setNewPassword("new-password");
+        when(userRepo.findByEmail("test@example.com")).thenReturn(Optional.of(user));
+        when(encoder.matches("old-password", "encodedPassword")).thenReturn(true);
+        when(encoder.encode("new-password")).thenReturn("newEncodedPassword");
+        when(userRepo.save(user)).thenReturn(user);
+
+        User saved = userService.changePassword("test@example.com", dto);
+
+        assertSame(user, saved);
+        assertEquals("newEncodedPassword", saved.getPassword());
+        verify(tokenVersionService).bump(user);
+    }
+
     @Test
     void getProfileImageUrl_success() {
         // Arrange
@@ -352,6 +370,25 @@ class UserServiceTest {
         verify(fileStorageService, times(1)).generateSignedProfileUrl(blobPath);
     }
 
+    @Test
+    void getProfileImageUrl_withSize_signsTheSmallestResizedCopyThatIsLargeEnough() {
+        user.setProfileImage("1/profile-image.png");
+        user.setProfileImageSizes("64,128,512");
+        when(userRepo.findById(1L)).thenReturn(Optional.of(user));
+        when(fileStorageService.generateSignedProfileUrl("1/profile-image.png@128.jpg")).thenReturn("https://signed.url/128");
+
+        assertEquals("https://signed.url/128", userService.getProfileImageUrl(1L, 80));
+    }
+
+    @Test
+    void getProfileImageUrl_withSizeBeforeCopiesAreReady_signsTheOriginal() {
+        user.setProfileImage("1/profile-image.png");
+        when(userRepo.findById(1L)).thenReturn(Optional.of(user));
+        when(fileStorageService.generateSignedProfileUrl("1/profile-image.png")).thenReturn("https://signed.url/original");
+
+        assertEquals("https://signed.url/original", userService.getProfileImageUrl(1L, 64));
+    }
+
     @Test
     void getProfileImageUrl_noImageSet_returnsNull() {
         // Arrange